@@ -28,12 +28,11 @@
 
 package de.coreengine.animation;
 
-import de.coreengine.util.ByteArrayUtils;
 import de.coreengine.util.Logger;
 
 import javax.vecmath.Quat4f;
 import javax.vecmath.Vector3f;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -110,66 +109,88 @@ public class Animation {
      * @return Converted byte array
      */
     public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+        toBytes(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Writing the animation into a big endian buffer, in the same format as
+     * {@link #toBytes()}
+     *
+     * @param buffer Buffer to write animation into, needs getByteSize() remaining
+     *               bytes
+     */
+    public void toBytes(ByteBuffer buffer) {
+        byte[] nameData = name.getBytes();
 
         // Create meta data
-        byte[] prsListsCount = ByteArrayUtils
-                .toBytes(new int[] { name.length(), positionKeys.size(), rotationKeys.size(), scaleKeys.size() });
+        buffer.putInt(nameData.length).putInt(positionKeys.size()).putInt(rotationKeys.size())
+                .putInt(scaleKeys.size());
+        for (KeyFrameList<Vector3f> keys : positionKeys)
+            buffer.putInt(keys.size());
+        for (KeyFrameList<Quat4f> keys : rotationKeys)
+            buffer.putInt(keys.size());
+        for (KeyFrameList<Vector3f> keys : scaleKeys)
+            buffer.putInt(keys.size());
+        buffer.put(nameData);
 
-        // Get position keys data
-        int[] positionKeyListsKeyCountsI = new int[positionKeys.size()];
-        byte[][] positionKeyListsKeys = new byte[positionKeys.size()][];
-        for (int i = 0; i < positionKeys.size(); i++) {
-            positionKeyListsKeyCountsI[i] = positionKeys.get(i).getKeyFrames().size();
-            float[] keys = new float[positionKeys.get(i).getKeyFrames().size() * 4];
-            for (int j = 0; j < positionKeys.get(i).getKeyFrames().size(); j++) {
-                keys[j * 4] = positionKeys.get(i).getKeyFrames().get(j).getTimestamp();
-                keys[j * 4 + 1] = positionKeys.get(i).getKeyFrames().get(j).getStatus().x;
-                keys[j * 4 + 2] = positionKeys.get(i).getKeyFrames().get(j).getStatus().y;
-                keys[j * 4 + 3] = positionKeys.get(i).getKeyFrames().get(j).getStatus().z;
-            }
-            positionKeyListsKeys[i] = ByteArrayUtils.toBytes(keys);
-        }
-        byte[] positionKeyListsKeyCounts = ByteArrayUtils.toBytes(positionKeyListsKeyCountsI);
-        byte[] positionKeys = ByteArrayUtils.combine(positionKeyListsKeys);
+        // Put keys data
+        for (KeyFrameList<Vector3f> keys : positionKeys)
+            putKeys(buffer, keys, 3);
+        for (KeyFrameList<Quat4f> keys : rotationKeys)
+            putKeys(buffer, keys, 4);
+        for (KeyFrameList<Vector3f> keys : scaleKeys)
+            putKeys(buffer, keys, 3);
+    }
 
-        // Get rotation keys data
-        int[] rotationKeyListsKeyCountsI = new int[rotationKeys.size()];
-        byte[][] rotationKeyListsKeys = new byte[rotationKeys.size()][];
-        for (int i = 0; i < rotationKeys.size(); i++) {
-            rotationKeyListsKeyCountsI[i] = rotationKeys.get(i).getKeyFrames().size();
-            float[] keys = new float[rotationKeys.get(i).getKeyFrames().size() * 5];
-            for (int j = 0; j < rotationKeys.get(i).getKeyFrames().size(); j++) {
-                keys[j * 5] = rotationKeys.get(i).getKeyFrames().get(j).getTimestamp();
-                keys[j * 5 + 1] = rotationKeys.get(i).getKeyFrames().get(j).getStatus().x;
-                keys[j * 5 + 2] = rotationKeys.get(i).getKeyFrames().get(j).getStatus().y;
-                keys[j * 5 + 3] = rotationKeys.get(i).getKeyFrames().get(j).getStatus().z;
-                keys[j * 5 + 4] = rotationKeys.get(i).getKeyFrames().get(j).getStatus().w;
-            }
-            rotationKeyListsKeys[i] = ByteArrayUtils.toBytes(keys);
-        }
-        byte[] rotationKeyListsKeyCounts = ByteArrayUtils.toBytes(rotationKeyListsKeyCountsI);
-        byte[] rotationKeys = ByteArrayUtils.combine(rotationKeyListsKeys);
+    /**
+     * @return Size of the uncompressed animation in bytes
+     */
+    public int getByteSize() {
+        int size = 16 + 4 * (positionKeys.size() + rotationKeys.size() + scaleKeys.size())
+                + name.getBytes().length;
+        for (KeyFrameList<Vector3f> keys : positionKeys)
+            size += keys.size() * 16;
+        for (KeyFrameList<Quat4f> keys : rotationKeys)
+            size += keys.size() * 20;
+        for (KeyFrameList<Vector3f> keys : scaleKeys)
+            size += keys.size() * 16;
+        return size;
+    }
 
-        // Get scale keys data
-        int[] scaleKeyListsKeyCountsI = new int[scaleKeys.size()];
-        byte[][] scaleKeyListsKeys = new byte[scaleKeys.size()][];
-        for (int i = 0; i < scaleKeys.size(); i++) {
-            scaleKeyListsKeyCountsI[i] = scaleKeys.get(i).getKeyFrames().size();
-            float[] keys = new float[scaleKeys.get(i).getKeyFrames().size() * 4];
-            for (int j = 0; j < scaleKeys.get(i).getKeyFrames().size(); j++) {
-                keys[j * 4] = scaleKeys.get(i).getKeyFrames().get(j).getTimestamp();
-                keys[j * 4 + 1] = scaleKeys.get(i).getKeyFrames().get(j).getStatus().x;
-                keys[j * 4 + 2] = scaleKeys.get(i).getKeyFrames().get(j).getStatus().y;
-                keys[j * 4 + 3] = scaleKeys.get(i).getKeyFrames().get(j).getStatus().z;
-            }
-            scaleKeyListsKeys[i] = ByteArrayUtils.toBytes(keys);
-        }
-        byte[] scaleKeyListsKeyCounts = ByteArrayUtils.toBytes(scaleKeyListsKeyCountsI);
-        byte[] scaleKeys = ByteArrayUtils.combine(scaleKeyListsKeys);
+    /**
+     * Converting the animation into a compressed byte array. Rotations are stored
+     * as smallest three quaternions, positions and scales quantized to 16 bit
+     * relative to the bounds of their track. Constant tracks are reduced to one
+     * keyframe and keyframes, that can be interpolated from their neighbours
+     * within the tolerance, are removed. The format is described in the
+     * AnimationCodec.
+     *
+     * @param positionTolerance Max position error of removed keyframes
+     * @param rotationTolerance Max quaternion component error of removed keyframes
+     * @param scaleTolerance    Max scale error of removed keyframes
+     * @return Converted byte array
+     */
+    public byte[] toCompressedBytes(float positionTolerance, float rotationTolerance, float scaleTolerance) {
+        return AnimationCodec.encode(name, length, positionKeys, rotationKeys, scaleKeys, positionTolerance,
+                rotationTolerance, scaleTolerance);
+    }
 
-        // Combine and return
-        return ByteArrayUtils.combine(prsListsCount, positionKeyListsKeyCounts, rotationKeyListsKeyCounts,
-                scaleKeyListsKeyCounts, name.getBytes(), positionKeys, rotationKeys, scaleKeys);
+    /**
+     * Putting all keyframes of a keyframe list as timestamp and raw floats into
+     * the buffer
+     *
+     * @param buffer     Buffer to put keyframes into
+     * @param keys       Keyframes to put
+     * @param components Components per keyframe
+     */
+    private static void putKeys(ByteBuffer buffer, KeyFrameList<?> keys, int components) {
+        for (int k = 0; k < keys.size(); k++) {
+            buffer.putFloat(keys.getTimestamp(k));
+            for (int c = 0; c < components; c++)
+                buffer.putFloat(keys.getValue(k, c));
+        }
     }
 
     /**
@@ -207,59 +228,65 @@ public class Animation {
      * @param data Bytes to construct animation from
      */
     public void fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
 
-        // Get meta data
-        int counter = 0;
-        int[] prsListCount = ByteArrayUtils.fromBytesi(Arrays.copyOfRange(data, counter, counter += 16));
-
-        int[] positionKeyListsKeyCounts = ByteArrayUtils
-                .fromBytesi(Arrays.copyOfRange(data, counter, counter += prsListCount[1] * 4));
-        int[] rotationKeyListsKeyCounts = ByteArrayUtils
-                .fromBytesi(Arrays.copyOfRange(data, counter, counter += prsListCount[2] * 4));
-        int[] scaleKeyListsKeyCounts = ByteArrayUtils
-                .fromBytesi(Arrays.copyOfRange(data, counter, counter += prsListCount[3] * 4));
-
-        // Get name
-        this.name = new String(Arrays.copyOfRange(data, counter, counter += prsListCount[0]));
-
-        // Get position keys
+        // Compressed animations start with a magic number instead of the name size
         this.positionKeys.clear();
-        for (int i = 0; i < prsListCount[1]; i++) {
-            KeyFrameList<Vector3f> keys = new KeyFrameList<>();
-            for (int j = 0; j < positionKeyListsKeyCounts[i]; j++) {
-                float[] keyData = ByteArrayUtils.fromBytesf(Arrays.copyOfRange(data, counter, counter += 16));
-                keys.addKeyFrame(new KeyFrame<>(keyData[0], new Vector3f(keyData[1], keyData[2], keyData[3])));
-            }
-            this.positionKeys.add(keys);
-        }
-
-        // Get rotation keys
         this.rotationKeys.clear();
-        for (int i = 0; i < prsListCount[2]; i++) {
-            KeyFrameList<Quat4f> keys = new KeyFrameList<>();
-            for (int j = 0; j < rotationKeyListsKeyCounts[i]; j++) {
-                float[] keyData = ByteArrayUtils.fromBytesf(Arrays.copyOfRange(data, counter, counter += 20));
-                keys.addKeyFrame(
-                        new KeyFrame<>(keyData[0], new Quat4f(keyData[1], keyData[2], keyData[3], keyData[4])));
-            }
-            this.rotationKeys.add(keys);
+        this.scaleKeys.clear();
+        if (buffer.getInt(0) == AnimationCodec.MAGIC) {
+            this.name = AnimationCodec.getName(buffer);
+            this.length = AnimationCodec.decode(buffer, positionKeys, rotationKeys, scaleKeys);
+            return;
         }
 
-        // Get scale keys
-        this.scaleKeys.clear();
-        for (int i = 0; i < prsListCount[3]; i++) {
-            KeyFrameList<Vector3f> keys = new KeyFrameList<>();
-            for (int j = 0; j < scaleKeyListsKeyCounts[i]; j++) {
-                float[] keyData = ByteArrayUtils.fromBytesf(Arrays.copyOfRange(data, counter, counter += 16));
-                keys.addKeyFrame(new KeyFrame<>(keyData[0], new Vector3f(keyData[1], keyData[2], keyData[3])));
-            }
-            this.scaleKeys.add(keys);
+        // Get meta data
+        int nameSize = buffer.getInt();
+        int[] keyListCounts = { buffer.getInt(), buffer.getInt(), buffer.getInt() };
+        int[][] keyCounts = new int[3][];
+        for (int l = 0; l < 3; l++) {
+            keyCounts[l] = new int[keyListCounts[l]];
+            for (int i = 0; i < keyListCounts[l]; i++)
+                keyCounts[l][i] = buffer.getInt();
         }
 
+        // Get name
+        byte[] nameData = new byte[nameSize];
+        buffer.get(nameData);
+        this.name = new String(nameData);
+
+        // Get position, rotation and scale keys
+        for (int count : keyCounts[0])
+            this.positionKeys.add(getKeys(buffer, count, 3));
+        for (int count : keyCounts[1])
+            this.rotationKeys.add(getKeys(buffer, count, 4));
+        for (int count : keyCounts[2])
+            this.scaleKeys.add(getKeys(buffer, count, 3));
+
         // Recalculate animation length
         getLastKeyFrameTime();
     }
 
+    /**
+     * Reading raw keyframes straight into a primitive keyframe list
+     *
+     * @param buffer     Buffer to read keyframes from
+     * @param count      Count of keyframes
+     * @param components Components per keyframe
+     * @param <T>        Component type of the keyframes
+     * @return Read keyframe list
+     */
+    private static <T> KeyFrameList<T> getKeys(ByteBuffer buffer, int count, int components) {
+        float[] timestamps = new float[count];
+        float[] values = new float[count * components];
+        for (int k = 0; k < count; k++) {
+            timestamps[k] = buffer.getFloat();
+            for (int c = 0; c < components; c++)
+                values[k * components + c] = buffer.getFloat();
+        }
+        return new KeyFrameList<>(timestamps, values, components);
+    }
+
     /**
      * Get the timestamp of the last keyframe and store it into length
      */
@@ -0,0 +1,103 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.animation;
+
+import de.coreengine.asset.dataStructures.BakedAnimationData;
+import de.coreengine.util.Logger;
+
+import javax.vecmath.Matrix4f;
+
+/**
+ * Class that samples animations into joint matrix tables, that can be uploaded
+ * as texture and played on the gpu without any skeleton evaluation on the cpu
+ *
+ * @author Darius Dinger
+ */
+public class AnimationBaker {
+
+    /**
+     * Sampling an animation at a fixed rate into a baked animation. Every sampled
+     * frame contains the animated transform of every joint of the skeleton.
+     *
+     * @param skeleton   Skeleton blueprint to sample the animation with (will not
+     *                   be modified)
+     * @param animation  Animation to sample
+     * @param sampleRate Samples per animation time unit
+     * @return Baked animation data or null, if baking is not possible
+     */
+    public static BakedAnimationData bake(Joint skeleton, Animation animation, float sampleRate) {
+        if (skeleton == null || animation == null || sampleRate <= 0.0f) {
+            Logger.warn("Error by baking animation", "Skeleton, animation or sample rate is invalid! Returning null");
+            return null;
+        }
+
+        // Use own skeleton instance to keep the blueprint in bind pose
+        Joint instance = new Joint(skeleton);
+
+        BakedAnimationData data = new BakedAnimationData();
+        data.name = animation.getName();
+        data.sampleRate = sampleRate;
+        data.length = animation.getLength();
+        data.jointCount = instance.getSkeletonSize();
+        data.frameCount = (int) Math.floor(animation.getLength() * sampleRate) + 1;
+        data.matrices = new float[data.frameCount * data.jointCount * 16];
+
+        // Sample every frame
+        for (int frame = 0; frame < data.frameCount; frame++) {
+            float time = Math.min(frame / sampleRate, animation.getLength());
+            Animator.applyAnimation(instance, animation, time);
+            addJointMatrices(instance, data.matrices, frame * data.jointCount * 16);
+        }
+
+        return data;
+    }
+
+    /**
+     * Adding the animated transform of a joint and all its children into the
+     * frame of the matrix table. Matrices are stored column major.
+     *
+     * @param joint    Joint to add matrix from
+     * @param matrices Matrix table to fill
+     * @param offset   Offset of the current frame in the table
+     */
+    private static void addJointMatrices(Joint joint, float[] matrices, int offset) {
+        if (joint.getIndex() >= 0) {
+            Matrix4f mat = joint.getAnimatedTransform();
+            int pos = offset + joint.getIndex() * 16;
+            for (int c = 0; c < 4; c++) {
+                for (int r = 0; r < 4; r++) {
+                    matrices[pos + c * 4 + r] = mat.getElement(r, c);
+                }
+            }
+        }
+
+        for (Joint child : joint.getChildren())
+            addJointMatrices(child, matrices, offset);
+    }
+}
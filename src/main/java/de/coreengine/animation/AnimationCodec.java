@@ -0,0 +1,550 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.animation;
+
+import javax.vecmath.Quat4f;
+import javax.vecmath.Vector3f;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to encode and decode animations in the compressed animation format.<br>
+ * <br>
+ * Format:<br>
+ * First Sector [MetaData]:<br>
+ * Magic (int) | NameSize (int) | PositionKeyListCount (int) |
+ * RotationKeyListCount (int) | ScaleKeyListCount (int) | Length (float) | Name
+ * (String)<br>
+ * <br>
+ * Second Sector [Tracks]:<br>
+ * PositionKeyList0 | PositionKeyList1 | ... | RotationKeyList0 | ... |
+ * ScaleKeyList0 | ...<br>
+ * <br>
+ * Every keylist starts with its KeyCount (int). A keylist with one key stores
+ * the timestamp and raw values as floats. Other keylists store their timestamps
+ * as unsigned shorts relative to the animation length. Vector keylists store
+ * Min (float[3]) | Extent (float[3]) followed by three unsigned shorts per key.
+ * Rotation keylists store six bytes per key: Two bits index of the largest
+ * quaternion component and the other three components with 15 bits each.
+ *
+ * @author Darius Dinger
+ */
+class AnimationCodec {
+
+    // Magic number at the beginning of compressed animations, negative to never
+    // collide with the name size of the raw format
+    static final int MAGIC = 0xCEA0C001;
+
+    // Quantization constants
+    private static final float MAX_SHORT = 65535.0f, MAX_ROT_COMPONENT = 32767.0f;
+    private static final float SQRT2 = (float) Math.sqrt(2.0);
+
+    /**
+     * Encoding an animation into the compressed format
+     *
+     * @param name              Name of the animation
+     * @param length            Length of the animation
+     * @param positionLists     Position keyframe lists of the joints
+     * @param rotationLists     Rotation keyframe lists of the joints
+     * @param scaleLists        Scale keyframe lists of the joints
+     * @param positionTolerance Max position error of removed keyframes
+     * @param rotationTolerance Max quaternion component error of removed keyframes
+     * @param scaleTolerance    Max scale error of removed keyframes
+     * @return Encoded animation
+     */
+    static byte[] encode(String name, float length, List<KeyFrameList<Vector3f>> positionLists,
+            List<KeyFrameList<Quat4f>> rotationLists, List<KeyFrameList<Vector3f>> scaleLists,
+            float positionTolerance, float rotationTolerance, float scaleTolerance) {
+        byte[] nameData = name.getBytes();
+
+        // Reduce keyframes of all tracks
+        List<KeyFrameList<Vector3f>> positionKeys = new ArrayList<>();
+        List<KeyFrameList<Quat4f>> rotationKeys = new ArrayList<>();
+        List<KeyFrameList<Vector3f>> scaleKeys = new ArrayList<>();
+        for (KeyFrameList<Vector3f> keys : positionLists)
+            positionKeys.add(reduce(keys, positionTolerance));
+        for (KeyFrameList<Quat4f> keys : rotationLists)
+            rotationKeys.add(reduce(keys, rotationTolerance));
+        for (KeyFrameList<Vector3f> keys : scaleLists)
+            scaleKeys.add(reduce(keys, scaleTolerance));
+
+        // Calculate size of the compressed animation
+        int size = 24 + nameData.length;
+        for (KeyFrameList<Vector3f> keys : positionKeys)
+            size += getTrackSize(keys, 6);
+        for (KeyFrameList<Quat4f> keys : rotationKeys)
+            size += getTrackSize(keys, 6);
+        for (KeyFrameList<Vector3f> keys : scaleKeys)
+            size += getTrackSize(keys, 6);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(nameData.length).putInt(positionKeys.size()).putInt(rotationKeys.size())
+                .putInt(scaleKeys.size()).putFloat(length).put(nameData);
+
+        for (KeyFrameList<Vector3f> keys : positionKeys)
+            putVectorTrack(buffer, keys, length);
+        for (KeyFrameList<Quat4f> keys : rotationKeys)
+            putRotationTrack(buffer, keys, length);
+        for (KeyFrameList<Vector3f> keys : scaleKeys)
+            putVectorTrack(buffer, keys, length);
+
+        return buffer.array();
+    }
+
+    /**
+     * Decoding an animation of the compressed format into keyframe lists
+     *
+     * @param buffer       Buffer that contains the compressed animation at its
+     *                     current position
+     * @param positionKeys List to store decoded position keyframe lists in
+     * @param rotationKeys List to store decoded rotation keyframe lists in
+     * @param scaleKeys    List to store decoded scale keyframe lists in
+     * @return Stored length of the animation, reduced tracks can end before it
+     */
+    static float decode(ByteBuffer buffer, List<KeyFrameList<Vector3f>> positionKeys,
+            List<KeyFrameList<Quat4f>> rotationKeys, List<KeyFrameList<Vector3f>> scaleKeys) {
+        buffer.getInt();
+        int nameSize = buffer.getInt();
+        int positionCount = buffer.getInt(), rotationCount = buffer.getInt(), scaleCount = buffer.getInt();
+        float length = buffer.getFloat();
+
+        byte[] nameData = new byte[nameSize];
+        buffer.get(nameData);
+
+        for (int i = 0; i < positionCount; i++)
+            positionKeys.add(getVectorTrack(buffer, length));
+        for (int i = 0; i < rotationCount; i++)
+            rotationKeys.add(getRotationTrack(buffer, length));
+        for (int i = 0; i < scaleCount; i++)
+            scaleKeys.add(getVectorTrack(buffer, length));
+
+        return length;
+    }
+
+    /**
+     * @param buffer Buffer that contains the compressed animation at its current
+     *               position
+     * @return Name of the compressed animation
+     */
+    static String getName(ByteBuffer buffer) {
+        byte[] nameData = new byte[buffer.getInt(buffer.position() + 4)];
+        ByteBuffer name = buffer.duplicate();
+        name.position(buffer.position() + 24);
+        name.get(nameData);
+        return new String(nameData);
+    }
+
+    /**
+     * Removing all keyframes of a keyframe list, that can be interpolated from
+     * their neighbours within the tolerance. Constant lists are reduced to one
+     * keyframe. The first and last keyframe are always kept.
+     *
+     * @param keys      Keyframe list to reduce
+     * @param tolerance Max allowed error per component
+     * @param <T>       Component type of the keyframes
+     * @return Reduced keyframe list
+     */
+    private static <T> KeyFrameList<T> reduce(KeyFrameList<T> keys, float tolerance) {
+        int count = keys.size(), components = keys.getComponents();
+        if (count <= 1)
+            return keys;
+
+        // Check for constant list
+        boolean constant = true;
+        for (int k = 1; k < count && constant; k++)
+            constant = getError(keys, k, keys, 0) <= tolerance;
+        if (constant)
+            return copyKeys(keys, new int[] { 0 }, 1);
+
+        // Greedy reduction, key is removed, if all removed keys since the last kept
+        // key can be interpolated between the last kept key and its successor
+        int[] kept = new int[count];
+        int keptCount = 0, last = 0;
+        kept[keptCount++] = 0;
+        float[] interpolated = new float[components];
+        for (int k = 1; k < count - 1; k++) {
+            for (int m = last + 1; m <= k; m++) {
+                interpolate(keys, last, k + 1, keys.getTimestamp(m), interpolated);
+                if (getError(interpolated, keys, m) > tolerance) {
+                    kept[keptCount++] = k;
+                    last = k;
+                    break;
+                }
+            }
+        }
+        kept[keptCount++] = count - 1;
+
+        return copyKeys(keys, kept, keptCount);
+    }
+
+    /**
+     * Interpolating between two keyframes of a list at a specific time
+     *
+     * @param keys   Keyframe list to interpolate in
+     * @param from   First keyframe
+     * @param to     Second keyframe
+     * @param time   Time to interpolate at
+     * @param result Array to store interpolated components in
+     */
+    private static void interpolate(KeyFrameList<?> keys, int from, int to, float time, float[] result) {
+        float span = keys.getTimestamp(to) - keys.getTimestamp(from);
+        float alpha = span > 0.0f ? (time - keys.getTimestamp(from)) / span : 0.0f;
+
+        if (keys.getComponents() == 4) {
+            float[] a = new float[4], b = new float[4];
+            for (int c = 0; c < 4; c++) {
+                a[c] = keys.getValue(from, c);
+                b[c] = keys.getValue(to, c);
+            }
+            Quat4f rotation = new Quat4f();
+            KeyFrameList.slerp(a, 0, b, 0, alpha, rotation);
+            result[0] = rotation.x;
+            result[1] = rotation.y;
+            result[2] = rotation.z;
+            result[3] = rotation.w;
+        } else {
+            for (int c = 0; c < keys.getComponents(); c++)
+                result[c] = keys.getValue(from, c) + (keys.getValue(to, c) - keys.getValue(from, c)) * alpha;
+        }
+    }
+
+    /**
+     * Calculating the max component error between two keyframes. Quaternions with
+     * opposite sign are treated as equal.
+     *
+     * @param a    Keyframe list of the first keyframe
+     * @param aKey First keyframe
+     * @param b    Keyframe list of the second keyframe
+     * @param bKey Second keyframe
+     * @return Max component error
+     */
+    private static float getError(KeyFrameList<?> a, int aKey, KeyFrameList<?> b, int bKey) {
+        float[] values = new float[a.getComponents()];
+        for (int c = 0; c < values.length; c++)
+            values[c] = a.getValue(aKey, c);
+        return getError(values, b, bKey);
+    }
+
+    /**
+     * Calculating the max component error between components and a keyframe.
+     * Quaternions with opposite sign are treated as equal.
+     *
+     * @param values Components to compare
+     * @param keys   Keyframe list of the keyframe
+     * @param key    Keyframe to compare
+     * @return Max component error
+     */
+    private static float getError(float[] values, KeyFrameList<?> keys, int key) {
+        float sign = 1.0f;
+        if (keys.getComponents() == 4) {
+            float dot = 0.0f;
+            for (int c = 0; c < 4; c++)
+                dot += values[c] * keys.getValue(key, c);
+            if (dot < 0.0f)
+                sign = -1.0f;
+        }
+
+        float error = 0.0f;
+        for (int c = 0; c < values.length; c++)
+            error = Math.max(error, Math.abs(values[c] * sign - keys.getValue(key, c)));
+        return error;
+    }
+
+    /**
+     * Copying specific keyframes of a list into a new list
+     *
+     * @param keys  Keyframe list to copy from
+     * @param kept  Indices of the keyframes to copy
+     * @param count Count of keyframes to copy
+     * @param <T>   Component type of the keyframes
+     * @return New keyframe list
+     */
+    private static <T> KeyFrameList<T> copyKeys(KeyFrameList<T> keys, int[] kept, int count) {
+        int components = keys.getComponents();
+        float[] timestamps = new float[count];
+        float[] values = new float[count * components];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = keys.getTimestamp(kept[i]);
+            for (int c = 0; c < components; c++)
+                values[i * components + c] = keys.getValue(kept[i], c);
+        }
+        return new KeyFrameList<>(timestamps, values, components);
+    }
+
+    /**
+     * Calculating the compressed size of a keyframe list
+     *
+     * @param keys     Keyframe list to calculate size of
+     * @param keyBytes Bytes per compressed key value
+     * @return Size in bytes
+     */
+    private static int getTrackSize(KeyFrameList<?> keys, int keyBytes) {
+        if (keys.size() == 0)
+            return 4;
+        if (keys.size() == 1)
+            return 8 + keys.getComponents() * 4;
+
+        int size = 4 + keys.size() * (2 + keyBytes);
+        if (keys.getComponents() == 3)
+            size += 24;
+        return size;
+    }
+
+    /**
+     * Putting the key count, and for single keyframes the raw keyframe, into the
+     * buffer
+     *
+     * @param buffer Buffer to put data into
+     * @param keys   Keyframe list to put
+     * @return True, if the keyframe list was completely written
+     */
+    private static boolean putTrackHeader(ByteBuffer buffer, KeyFrameList<?> keys) {
+        buffer.putInt(keys.size());
+        if (keys.size() > 1)
+            return false;
+
+        if (keys.size() == 1) {
+            buffer.putFloat(keys.getTimestamp(0));
+            for (int c = 0; c < keys.getComponents(); c++)
+                buffer.putFloat(keys.getValue(0, c));
+        }
+        return true;
+    }
+
+    /**
+     * Putting the quantized timestamps of a keyframe list into the buffer
+     *
+     * @param buffer Buffer to put timestamps into
+     * @param keys   Keyframe list to put timestamps of
+     * @param length Length of the animation
+     */
+    private static void putTimestamps(ByteBuffer buffer, KeyFrameList<?> keys, float length) {
+        for (int k = 0; k < keys.size(); k++)
+            buffer.putShort((short) quantize(keys.getTimestamp(k), 0.0f, length));
+    }
+
+    /**
+     * Reading quantized timestamps of a keyframe list from the buffer
+     *
+     * @param buffer Buffer to read timestamps from
+     * @param count  Count of keyframes
+     * @param length Length of the animation
+     * @return Timestamps of the keyframes
+     */
+    private static float[] getTimestamps(ByteBuffer buffer, int count, float length) {
+        float[] timestamps = new float[count];
+        for (int k = 0; k < count; k++)
+            timestamps[k] = dequantize(buffer.getShort(), 0.0f, length);
+        return timestamps;
+    }
+
+    /**
+     * Putting a vector keyframe list quantized into the buffer
+     *
+     * @param buffer Buffer to put data into
+     * @param keys   Keyframe list to put
+     * @param length Length of the animation
+     */
+    private static void putVectorTrack(ByteBuffer buffer, KeyFrameList<Vector3f> keys, float length) {
+        if (putTrackHeader(buffer, keys))
+            return;
+        putTimestamps(buffer, keys, length);
+
+        // Calculate bounds of the track
+        float[] min = new float[3], extent = new float[3];
+        for (int c = 0; c < 3; c++) {
+            float minValue = Float.MAX_VALUE, maxValue = -Float.MAX_VALUE;
+            for (int k = 0; k < keys.size(); k++) {
+                minValue = Math.min(minValue, keys.getValue(k, c));
+                maxValue = Math.max(maxValue, keys.getValue(k, c));
+            }
+            min[c] = minValue;
+            extent[c] = maxValue - minValue;
+            buffer.putFloat(min[c]);
+        }
+        for (int c = 0; c < 3; c++)
+            buffer.putFloat(extent[c]);
+
+        for (int k = 0; k < keys.size(); k++) {
+            for (int c = 0; c < 3; c++)
+                buffer.putShort((short) quantize(keys.getValue(k, c), min[c], extent[c]));
+        }
+    }
+
+    /**
+     * Reading a quantized vector keyframe list from the buffer
+     *
+     * @param buffer Buffer to read data from
+     * @param length Length of the animation
+     * @return Read keyframe list
+     */
+    private static KeyFrameList<Vector3f> getVectorTrack(ByteBuffer buffer, float length) {
+        int count = buffer.getInt();
+        if (count <= 1)
+            return getSingleKey(buffer, count, 3);
+        float[] timestamps = getTimestamps(buffer, count, length);
+
+        float[] min = { buffer.getFloat(), buffer.getFloat(), buffer.getFloat() };
+        float[] extent = { buffer.getFloat(), buffer.getFloat(), buffer.getFloat() };
+        float[] values = new float[count * 3];
+        for (int k = 0; k < count; k++) {
+            for (int c = 0; c < 3; c++)
+                values[k * 3 + c] = dequantize(buffer.getShort(), min[c], extent[c]);
+        }
+
+        return new KeyFrameList<>(timestamps, values, 3);
+    }
+
+    /**
+     * Putting a rotation keyframe list as smallest three quaternions into the
+     * buffer
+     *
+     * @param buffer Buffer to put data into
+     * @param keys   Keyframe list to put
+     * @param length Length of the animation
+     */
+    private static void putRotationTrack(ByteBuffer buffer, KeyFrameList<Quat4f> keys, float length) {
+        if (putTrackHeader(buffer, keys))
+            return;
+        putTimestamps(buffer, keys, length);
+
+        float[] q = new float[4];
+        for (int k = 0; k < keys.size(); k++) {
+
+            // Normalize and find largest component
+            float len = 0.0f;
+            int largest = 0;
+            for (int c = 0; c < 4; c++) {
+                q[c] = keys.getValue(k, c);
+                len += q[c] * q[c];
+                if (Math.abs(q[c]) > Math.abs(q[largest]))
+                    largest = c;
+            }
+            len = len > 0.0f ? (float) Math.sqrt(len) : 1.0f;
+
+            // Largest component is always positive, so it can be reconstructed
+            float sign = q[largest] < 0.0f ? -1.0f : 1.0f;
+            long packed = largest;
+            for (int c = 0; c < 4; c++) {
+                if (c == largest)
+                    continue;
+                float value = q[c] / len * sign * SQRT2;
+                long bits = Math.round((Math.max(-1.0f, Math.min(1.0f, value)) * 0.5f + 0.5f) * MAX_ROT_COMPONENT);
+                packed = (packed << 15) | bits;
+            }
+
+            buffer.putShort((short) (packed >>> 32)).putShort((short) (packed >>> 16)).putShort((short) packed);
+        }
+    }
+
+    /**
+     * Reading a smallest three rotation keyframe list from the buffer
+     *
+     * @param buffer Buffer to read data from
+     * @param length Length of the animation
+     * @return Read keyframe list
+     */
+    private static KeyFrameList<Quat4f> getRotationTrack(ByteBuffer buffer, float length) {
+        int count = buffer.getInt();
+        if (count <= 1)
+            return getSingleKey(buffer, count, 4);
+        float[] timestamps = getTimestamps(buffer, count, length);
+
+        float[] values = new float[count * 4];
+        for (int k = 0; k < count; k++) {
+            long packed = ((buffer.getShort() & 0xFFFFL) << 32) | ((buffer.getShort() & 0xFFFFL) << 16)
+                    | (buffer.getShort() & 0xFFFFL);
+            int largest = (int) (packed >>> 45) & 3;
+
+            // Unpack smallest three and reconstruct largest component
+            float sum = 0.0f;
+            int shift = 30;
+            for (int c = 0; c < 4; c++) {
+                if (c == largest)
+                    continue;
+                float value = ((packed >>> shift) & 0x7FFF) / MAX_ROT_COMPONENT * 2.0f - 1.0f;
+                value /= SQRT2;
+                values[k * 4 + c] = value;
+                sum += value * value;
+                shift -= 15;
+            }
+            values[k * 4 + largest] = (float) Math.sqrt(Math.max(0.0f, 1.0f - sum));
+        }
+
+        return new KeyFrameList<>(timestamps, values, 4);
+    }
+
+    /**
+     * Reading a keyframe list with none or one raw keyframe from the buffer
+     *
+     * @param buffer     Buffer to read data from
+     * @param count      Count of keyframes (0 or 1)
+     * @param components Components per keyframe
+     * @param <T>        Component type of the keyframes
+     * @return Read keyframe list
+     */
+    private static <T> KeyFrameList<T> getSingleKey(ByteBuffer buffer, int count, int components) {
+        float[] timestamps = new float[count];
+        float[] values = new float[count * components];
+        for (int k = 0; k < count; k++) {
+            timestamps[k] = buffer.getFloat();
+            for (int c = 0; c < components; c++)
+                values[k * components + c] = buffer.getFloat();
+        }
+        return new KeyFrameList<>(timestamps, values, components);
+    }
+
+    /**
+     * Quantizing a value into an unsigned short relative to a range
+     *
+     * @param value  Value to quantize
+     * @param min    Min value of the range
+     * @param extent Extent of the range
+     * @return Quantized value
+     */
+    private static int quantize(float value, float min, float extent) {
+        if (extent <= 0.0f)
+            return 0;
+        float normalized = Math.max(0.0f, Math.min(1.0f, (value - min) / extent));
+        return Math.round(normalized * MAX_SHORT);
+    }
+
+    /**
+     * Dequantizing an unsigned short relative to a range
+     *
+     * @param value  Quantized value
+     * @param min    Min value of the range
+     * @param extent Extent of the range
+     * @return Dequantized value
+     */
+    private static float dequantize(short value, float min, float extent) {
+        return min + (value & 0xFFFF) / MAX_SHORT * extent;
+    }
+}
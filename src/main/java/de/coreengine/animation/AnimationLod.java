@@ -0,0 +1,182 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.animation;
+
+import de.coreengine.rendering.model.Transformation;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.util.Configuration;
+
+import javax.vecmath.Matrix4f;
+import javax.vecmath.Vector3f;
+
+/**
+ * Class that decides, how detailed animated instances are evaluated. Based on
+ * the distance to the camera an instance is updated every frame, every nth
+ * frame or every nth frame without its leaf joints. Instances outside of the
+ * camera frustum are frozen.
+ *
+ * @author Darius Dinger
+ */
+public class AnimationLod {
+    private static final float[] DISTANCES = Configuration.getValuefa("ANIMATION_LOD_DISTANCES");
+    private static final float[] UPDATE_INTERVALS = Configuration.getValuefa("ANIMATION_LOD_UPDATE_INTERVALS");
+    private static final float BOUNDING_RADIUS = Configuration.getValuef("ANIMATION_LOD_BOUNDING_RADIUS");
+
+    // Lod levels
+    public static final int LOD_FULL = 0, LOD_REDUCED = 1, LOD_LOW = 2, LOD_FROZEN = 3, LOD_COUNT = 4;
+
+    // Current frame index, used to stagger instance updates
+    private static long frame = 0;
+
+    // Next stagger id to give to an instance
+    private static int nextStaggerId = 0;
+
+    // Instance counters of the current and the last finished frame
+    private static int[] counts = new int[LOD_COUNT];
+    private static int[] lastCounts = new int[LOD_COUNT];
+
+    // Temporary storage for the frustum test
+    private static final float[] plane = new float[4];
+
+    /**
+     * Finishing the current frame. Publishing the lod counters and advancing the
+     * frame index. Must be called once at every frame
+     */
+    public static void update() {
+        int[] tmp = lastCounts;
+        lastCounts = counts;
+        counts = tmp;
+        for (int i = 0; i < LOD_COUNT; i++)
+            counts[i] = 0;
+
+        frame++;
+    }
+
+    /**
+     * @return New stagger id, so instances with the same lod level update in
+     *         different frames
+     */
+    public static int nextStaggerId() {
+        return nextStaggerId++;
+    }
+
+    /**
+     * Calculating the lod level of an instance and counting it for the current
+     * frame
+     *
+     * @param transform Transformation of the instance
+     * @param camera    Camera the instance gets rendered from
+     * @return Lod level of the instance
+     */
+    public static int getLevel(Transformation transform, Camera camera) {
+        float[] mat = transform.getTransMatArr();
+        float x = mat[12], y = mat[13], z = mat[14];
+        float radius = BOUNDING_RADIUS
+                * Math.max(transform.getScaleX(), Math.max(transform.getScaleY(), transform.getScaleZ()));
+
+        int level;
+        if (!isInFrustum(camera.getViewProjectionMatrix(), x, y, z, radius))
+            level = LOD_FROZEN;
+        else {
+            Vector3f camPos = camera.getPosition();
+            float dx = x - camPos.x, dy = y - camPos.y, dz = z - camPos.z;
+            float distanceSq = dx * dx + dy * dy + dz * dz;
+
+            if (distanceSq < DISTANCES[0] * DISTANCES[0])
+                level = LOD_FULL;
+            else if (distanceSq < DISTANCES[1] * DISTANCES[1])
+                level = LOD_REDUCED;
+            else
+                level = LOD_LOW;
+        }
+
+        counts[level]++;
+        return level;
+    }
+
+    /**
+     * Checks if an instance should evaluate its skeleton in this frame
+     *
+     * @param level     Lod level of the instance
+     * @param staggerId Stagger id of the instance
+     * @return True, if skeleton should be updated
+     */
+    public static boolean shouldUpdate(int level, int staggerId) {
+        if (level == LOD_FROZEN)
+            return false;
+
+        int interval = Math.max(1, (int) UPDATE_INTERVALS[level]);
+        return (frame + staggerId) % interval == 0;
+    }
+
+    /**
+     * @param level Lod level of the instance
+     * @return Should the leaf joints (fingers, face, ...) be skipped
+     */
+    public static boolean skipLeafJoints(int level) {
+        return level >= LOD_LOW;
+    }
+
+    /**
+     * @param level Lod level to get count from
+     * @return Count of instances, that ran at this lod level in the last frame
+     */
+    public static int getInstanceCount(int level) {
+        return lastCounts[level];
+    }
+
+    /**
+     * Testing a bounding sphere against the six frustum planes of a view
+     * projection matrix
+     *
+     * @param vp     View projection matrix
+     * @param x      X position of the sphere
+     * @param y      Y position of the sphere
+     * @param z      Z position of the sphere
+     * @param radius Radius of the sphere
+     * @return True, if the sphere is at least partly inside the frustum
+     */
+    private static boolean isInFrustum(Matrix4f vp, float x, float y, float z, float radius) {
+        for (int row = 0; row < 3; row++) {
+            for (int sign = -1; sign <= 1; sign += 2) {
+
+                // Plane = 4th row +/- current row
+                for (int c = 0; c < 4; c++)
+                    plane[c] = vp.getElement(3, c) + sign * vp.getElement(row, c);
+
+                float length = (float) Math.sqrt(plane[0] * plane[0] + plane[1] * plane[1] + plane[2] * plane[2]);
+                float distance = (plane[0] * x + plane[1] * y + plane[2] * z + plane[3]) / length;
+                if (distance < -radius)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+}
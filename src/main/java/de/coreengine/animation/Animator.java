@@ -28,9 +28,6 @@
 
 package de.coreengine.animation;
 
-import javafx.util.Pair;
-
-import javax.vecmath.Matrix4f;
 import javax.vecmath.Quat4f;
 import javax.vecmath.Vector3f;
 
@@ -44,7 +41,21 @@ public class Animator {
      * @param time      Current time of the animation
      */
     public static void applyAnimation(Joint skeleton, Animation animation, float time) {
-        applyAnimationNode(skeleton, animation, time);
+        applyAnimation(skeleton, animation, time, false);
+    }
+
+    /**
+     * Setting a skeleton and all its children into the current pose of an
+     * animation. Leaf joints (joints without children, like fingers or face
+     * joints) can be skipped and keep their last local pose.
+     *
+     * @param skeleton       Skeleton to animate
+     * @param animation      Animation to play
+     * @param time           Current time of the animation
+     * @param skipLeafJoints Should the leaf joints be skipped
+     */
+    public static void applyAnimation(Joint skeleton, Animation animation, float time, boolean skipLeafJoints) {
+        applyAnimationNode(skeleton, animation, time, skipLeafJoints, new Vector3f(), new Quat4f());
         skeleton.calcAnimatedTransformAndPose(null);
     }
 
@@ -54,98 +65,36 @@ public class Animator {
      * @param node      Joint node to animate
      * @param animation Animation to play
      * @param time      Current time of the animation
+     * @param skipLeafs Should the leaf joints be skipped
+     * @param position  Temporary vector to sample positions into
+     * @param rotation  Temporary quaternion to sample rotations into
      */
-    private static void applyAnimationNode(Joint node, Animation animation, float time) {
+    private static void applyAnimationNode(Joint node, Animation animation, float time, boolean skipLeafs,
+            Vector3f position, Quat4f rotation) {
 
-        // Get relevant keyframes from list
-        Pair<KeyFrame<Vector3f>, KeyFrame<Vector3f>> relevantPositionKfs = animation
-                .getPositionKeyFrames(node.getIndex()).getRelevantKeyFrames(time);
-        Pair<KeyFrame<Quat4f>, KeyFrame<Quat4f>> relevantRotationKfs = animation.getRotationKeyFrames(node.getIndex())
-                .getRelevantKeyFrames(time);
-        // Pair<KeyFrame<Vector3f>, KeyFrame<Vector3f>> relevantScaleKfs =
-        // animation.getScaleKeyFrames(child.getIndex()).getRelevantKeyFrames(time);
+        // Leaf joints keep their last local pose
+        if (skipLeafs && node.getChildren().isEmpty())
+            return;
 
-        // Get interpolated matrix between the two keyframes
-        Vector3f position = getInterpolatedVector(relevantPositionKfs, time);
-        Quat4f rotation = getInterpolatedQuaternion(relevantRotationKfs, time);
-        // Vector3f scale = getInterpolatedVector(relevantScaleKfs, time);
+        // Get interpolated position and rotation at the current time
+        boolean hasPosition = animation.getPositionKeyFrames(node.getIndex()).sampleVector(time, position);
+        boolean hasRotation = animation.getRotationKeyFrames(node.getIndex()).sampleQuaternion(time, rotation);
 
         // Check if joints transform has to update
-        if (position != null || rotation != null) {
+        if (hasPosition || hasRotation) {
 
             // Check if position or rotation has no update, then get from current pose
-            if (position == null) {
-                position = new Vector3f();
+            if (!hasPosition)
                 node.getLocalPose().get(position);
-            }
-            if (rotation == null) {
-                rotation = new Quat4f();
+            if (!hasRotation)
                 node.getLocalPose().get(rotation);
-            }
 
             // Set interpolated local transform as local pose
-            Matrix4f interpolatedMatrix = new Matrix4f(rotation, position, 1.0f);
-            node.setLocalPose(interpolatedMatrix);
+            node.getLocalPose().set(rotation, position, 1.0f);
         }
 
         // Animate all children
         for (Joint c : node.getChildren())
-            applyAnimationNode(c, animation, time);
-    }
-
-    /**
-     * Calculate the interpolated value of two vector3f keyframes
-     *
-     * @param keyFrames Previous and next keyframe
-     * @param time      Current time in the animation
-     * @return Interpolated vector3f
-     */
-    private static Vector3f getInterpolatedVector(Pair<KeyFrame<Vector3f>, KeyFrame<Vector3f>> keyFrames, float time) {
-        Vector3f result = new Vector3f();
-
-        if (keyFrames.getValue() == null && keyFrames.getKey() != null) {
-
-            // There is no next keyframe, so return the transform from the last keyframe
-            result.set(keyFrames.getKey().getStatus());
-        } else if (keyFrames.getKey() != null) {
-
-            // Calculate percentage progression between the two keyframes
-            float diffrence = keyFrames.getValue().getTimestamp() - keyFrames.getKey().getTimestamp();
-            float progression = 1.0f * (time - keyFrames.getKey().getTimestamp()) / diffrence;
-
-            // Calculate interpolated translation
-            result.interpolate(keyFrames.getKey().getStatus(), keyFrames.getValue().getStatus(), progression);
-        } else
-            return null;
-
-        return result;
-    }
-
-    /**
-     * Calculate the interpolated value of two quaternion keyframes
-     *
-     * @param keyFrames Previous and next keyframe
-     * @param time      Current time in the animation
-     * @return Interpolated quaternion
-     */
-    private static Quat4f getInterpolatedQuaternion(Pair<KeyFrame<Quat4f>, KeyFrame<Quat4f>> keyFrames, float time) {
-        Quat4f result = new Quat4f();
-
-        if (keyFrames.getValue() == null && keyFrames.getKey() != null) {
-
-            // There is no next keyframe, so return the transform from the last keyframe
-            result.set(keyFrames.getKey().getStatus());
-        } else if (keyFrames.getKey() != null) {
-
-            // Calculate percentage progression between the two keyframes
-            float diffrence = keyFrames.getValue().getTimestamp() - keyFrames.getKey().getTimestamp();
-            float progression = 1.0f * (time - keyFrames.getKey().getTimestamp()) / diffrence;
-
-            // Calculate interpolated translation
-            result.interpolate(keyFrames.getKey().getStatus(), keyFrames.getValue().getStatus(), progression);
-        } else
-            return null;
-
-        return result;
+            applyAnimationNode(c, animation, time, skipLeafs, position, rotation);
     }
-}
\ No newline at end of file
+}
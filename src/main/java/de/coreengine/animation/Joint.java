@@ -33,6 +33,7 @@ import javafx.util.Pair;
 
 import javax.vecmath.Matrix4f;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -215,6 +216,19 @@ public class Joint {
         return index;
     }
 
+    /**
+     * Getting the size of the skeleton palette, this joint is the root of. Thats
+     * the highest joint index in the hierarchy plus one.
+     *
+     * @return Count of joint matrices needed to skin with this skeleton
+     */
+    public int getSkeletonSize() {
+        int size = index + 1;
+        for (Joint child : children)
+            size = Math.max(size, child.getSkeletonSize());
+        return size;
+    }
+
     /**
      * @return Transformation to put a vertex into the animated pose
      */
@@ -258,33 +272,50 @@ public class Joint {
      * @return Converted byte array
      */
     public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+        toBytes(buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Writing recursively this joint and all children into a big endian buffer,
+     * in the same format as {@link #toBytes()}
+     *
+     * @param buffer Buffer to write joints into, needs getByteSize() remaining
+     *               bytes
+     */
+    public void toBytes(ByteBuffer buffer) {
 
         // Get all joints from the hierarchy
         List<Joint> allJoints = new ArrayList<>();
         getAllJoints(allJoints);
 
-        // Get joint data
-        byte[][] jointDataA = new byte[allJoints.size()][];
-        int[] jointNameSizesI = new int[allJoints.size()];
+        // Put meta data
+        byte[][] names = new byte[allJoints.size()][];
+        buffer.putInt(allJoints.size());
         for (int i = 0; i < allJoints.size(); i++) {
-            Joint joint = allJoints.get(i);
-
-            byte[] indexes = ByteArrayUtils
-                    .toBytes(new int[] { joint.index, joint.parent == null ? -1 : joint.parent.index });
-            byte[] name = joint.name.getBytes();
-            byte[] matrices = ByteArrayUtils.toBytes(new Matrix4f[] { joint.inverseBindMatrix, joint.bindLocalPose });
-
-            jointDataA[i] = ByteArrayUtils.combine(indexes, name, matrices);
-            jointNameSizesI[i] = joint.name.length();
+            names[i] = allJoints.get(i).name.getBytes();
+            buffer.putInt(names[i].length);
         }
-        byte[] jointData = ByteArrayUtils.combine(jointDataA);
 
-        // Create meta data
-        byte[] jointNameSizes = ByteArrayUtils.toBytes(jointNameSizesI);
-        byte[] jointCount = ByteArrayUtils.toBytes(new int[] { allJoints.size() });
+        // Put joint data
+        for (int i = 0; i < allJoints.size(); i++) {
+            Joint joint = allJoints.get(i);
+            buffer.putInt(joint.index).putInt(joint.parent == null ? -1 : joint.parent.index);
+            buffer.put(names[i]);
+            ByteArrayUtils.put(buffer, joint.inverseBindMatrix);
+            ByteArrayUtils.put(buffer, joint.bindLocalPose);
+        }
+    }
 
-        // Combine and return
-        return ByteArrayUtils.combine(jointCount, jointNameSizes, jointData);
+    /**
+     * @return Size of this joint and all children in bytes
+     */
+    public int getByteSize() {
+        int size = 4 + 4 + 8 + name.getBytes().length + 128;
+        for (Joint child : children)
+            size += child.getByteSize() - 4;
+        return size;
     }
 
     /**
@@ -28,19 +28,53 @@
 
 package de.coreengine.animation;
 
-import javafx.util.Pair;
-
-import java.util.ArrayList;
-import java.util.List;
+import javax.vecmath.Quat4f;
+import javax.vecmath.Tuple3f;
+import javax.vecmath.Tuple4f;
+import java.util.Arrays;
 
 /**
- * Class that stores a list of keyframes for a specific component
+ * Class that stores a list of keyframes for a specific component. The keyframes
+ * are stored in primitive arrays (timestamps and component values), so they
+ * can be decoded and sampled without allocating keyframe objects.
  *
  * @param <Component> Component of the keyframes
  */
 public class KeyFrameList<Component> {
 
-    private List<KeyFrame<Component>> keyFrames = new ArrayList<>();
+    // Timestamps of the keyframes
+    private float[] timestamps;
+
+    // Component values of the keyframes, components after components
+    private float[] values;
+
+    // Count of keyframes and components per keyframe (0 if not known yet)
+    private int size, components;
+
+    /**
+     * Creating new empty keyframe list
+     */
+    public KeyFrameList() {
+        this.timestamps = new float[0];
+        this.values = new float[0];
+        this.size = 0;
+        this.components = 0;
+    }
+
+    /**
+     * Creating new keyframe list from already decoded keyframe data
+     *
+     * @param timestamps Timestamps of the keyframes
+     * @param values     Component values of the keyframes
+     * @param components Components per keyframe (3 for vectors, 4 for
+     *                   quaternions)
+     */
+    KeyFrameList(float[] timestamps, float[] values, int components) {
+        this.timestamps = timestamps;
+        this.values = values;
+        this.size = timestamps.length;
+        this.components = components;
+    }
 
     /**
      * Adding a keyframe to the end of the list
@@ -48,61 +82,198 @@ public class KeyFrameList<Component> {
      * @param keyFrame Keyframe to add
      */
     public void addKeyFrame(KeyFrame<Component> keyFrame) {
-        keyFrames.add(keyFrame);
+        Object status = keyFrame.getStatus();
+        if (components == 0)
+            components = status instanceof Tuple4f ? 4 : 3;
+
+        // Grow arrays if needed
+        if (size == timestamps.length) {
+            int capacity = Math.max(4, size * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            values = Arrays.copyOf(values, capacity * components);
+        }
+
+        timestamps[size] = keyFrame.getTimestamp();
+        int pos = size * components;
+        if (status instanceof Tuple4f) {
+            Tuple4f tuple = (Tuple4f) status;
+            values[pos] = tuple.x;
+            values[pos + 1] = tuple.y;
+            values[pos + 2] = tuple.z;
+            values[pos + 3] = tuple.w;
+        } else {
+            Tuple3f tuple = (Tuple3f) status;
+            values[pos] = tuple.x;
+            values[pos + 1] = tuple.y;
+            values[pos + 2] = tuple.z;
+        }
+        size++;
+    }
+
+    /**
+     * @return Count of keyframes in this list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Components per keyframe
+     */
+    int getComponents() {
+        return components;
+    }
+
+    /**
+     * @param key Index of the keyframe
+     * @return Timestamp of the keyframe
+     */
+    float getTimestamp(int key) {
+        return timestamps[key];
     }
 
     /**
-     * @return Keyframes of this list
+     * @param key       Index of the keyframe
+     * @param component Index of the component
+     * @return Value of the component of the keyframe
      */
-    List<KeyFrame<Component>> getKeyFrames() {
-        return keyFrames;
+    float getValue(int key, int component) {
+        return values[key * components + component];
     }
 
     /**
      * @return Last timestamp of this list
      */
     float getLastTimeStamp() {
-        if (keyFrames.isEmpty())
+        if (size == 0)
             return 0;
-        return keyFrames.get(keyFrames.size() - 1).getTimestamp();
+        return timestamps[size - 1];
     }
 
     /**
-     * Finding previous and next keyframe for a specific time stamp. If no previous
-     * keyframe exist, the key of the result is null. If no next keyframe exist, the
-     * value of the result is null. If no keyframes exist, both value and key are
-     * null.
+     * Finding the previous keyframe for a specific time stamp. Thats the last
+     * keyframe with a timestamp lower or equal to the time.
      *
      * @param time Current timestamp
-     * @return Pair of the previous as key and the next keyframe as value
+     * @return Index of the previous keyframe or -1, if no previous keyframe exist
      */
-    Pair<KeyFrame<Component>, KeyFrame<Component>> getRelevantKeyFrames(float time) {
-        KeyFrame previous = null, next = null;
+    int findPreviousKeyFrame(float time) {
+        int low = 0, high = size - 1, result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= time) {
+                result = mid;
+                low = mid + 1;
+            } else
+                high = mid - 1;
+        }
+        return result;
+    }
 
-        if (keyFrames.size() == 0)
-            return new Pair<>(null, null);
+    /**
+     * Calculating the linear interpolated vector at a specific time. If there is
+     * no next keyframe, the last keyframe is used.
+     *
+     * @param time   Current time in the animation
+     * @param result Vector to store result in
+     * @return False, if no previous keyframe exist and result was not set
+     */
+    boolean sampleVector(float time, Tuple3f result) {
+        int prev = findPreviousKeyFrame(time);
+        if (prev < 0)
+            return false;
 
-        // Iterate through key frames to find next and previous
-        for (int i = 0; i < keyFrames.size(); i++) {
+        int p = prev * 3;
+        if (prev == size - 1 || timestamps[prev + 1] <= timestamps[prev]) {
+            result.set(values[p], values[p + 1], values[p + 2]);
+            return true;
+        }
 
-            // Is greater, so next keyframe found
-            if (keyFrames.get(i).getTimestamp() > time) {
-                next = keyFrames.get(i);
+        // Calculate percentage progression between the two keyframes
+        float progression = (time - timestamps[prev]) / (timestamps[prev + 1] - timestamps[prev]);
+        int n = p + 3;
+        result.set(values[p] + (values[n] - values[p]) * progression,
+                values[p + 1] + (values[n + 1] - values[p + 1]) * progression,
+                values[p + 2] + (values[n + 2] - values[p + 2]) * progression);
+        return true;
+    }
 
-                // Check if next keyframe is first, so previous doesnt exist
-                if (i == 0)
-                    previous = null;
-                else
-                    previous = keyFrames.get(i - 1);
+    /**
+     * Calculating the spherical interpolated quaternion at a specific time. If
+     * there is no next keyframe, the last keyframe is used.
+     *
+     * @param time   Current time in the animation
+     * @param result Quaternion to store result in
+     * @return False, if no previous keyframe exist and result was not set
+     */
+    boolean sampleQuaternion(float time, Quat4f result) {
+        int prev = findPreviousKeyFrame(time);
+        if (prev < 0)
+            return false;
 
-                break;
-            }
+        int p = prev * 4;
+        if (prev == size - 1 || timestamps[prev + 1] <= timestamps[prev]) {
+            result.set(values[p], values[p + 1], values[p + 2], values[p + 3]);
+            return true;
         }
 
-        // If time is over last keyframe set last keyframe as previous
-        if (next == null)
-            previous = keyFrames.get(keyFrames.size() - 1);
+        // Calculate percentage progression between the two keyframes
+        float progression = (time - timestamps[prev]) / (timestamps[prev + 1] - timestamps[prev]);
+        slerp(values, p, values, p + 4, progression, result);
+        return true;
+    }
 
-        return new Pair<>(previous, next);
+    /**
+     * Spherical interpolation between two quaternions stored in float arrays.
+     * Always takes the shortest path.
+     *
+     * @param a      Array of the first quaternion
+     * @param aPos   Position of the first quaternion in its array
+     * @param b      Array of the second quaternion
+     * @param bPos   Position of the second quaternion in its array
+     * @param alpha  Interpolation factor
+     * @param result Quaternion to store result in
+     */
+    static void slerp(float[] a, int aPos, float[] b, int bPos, float alpha, Quat4f result) {
+        float dot = a[aPos] * b[bPos] + a[aPos + 1] * b[bPos + 1] + a[aPos + 2] * b[bPos + 2]
+                + a[aPos + 3] * b[bPos + 3];
+        float sign = 1.0f;
+        if (dot < 0.0f) {
+            dot = -dot;
+            sign = -1.0f;
+        }
+
+        // Use linear interpolation for very close quaternions
+        float s0, s1;
+        if (1.0f - dot > 0.000001f) {
+            double omega = Math.acos(dot);
+            double sinOmega = Math.sin(omega);
+            s0 = (float) (Math.sin((1.0 - alpha) * omega) / sinOmega);
+            s1 = (float) (Math.sin(alpha * omega) / sinOmega) * sign;
+        } else {
+            s0 = 1.0f - alpha;
+            s1 = alpha * sign;
+        }
+
+        result.set(s0 * a[aPos] + s1 * b[bPos], s0 * a[aPos + 1] + s1 * b[bPos + 1],
+                s0 * a[aPos + 2] + s1 * b[bPos + 2], s0 * a[aPos + 3] + s1 * b[bPos + 3]);
+    }
+
+    /**
+     * @return Timestamps of the keyframes, trimmed to the keyframe count
+     */
+    float[] getTimestamps() {
+        if (timestamps.length != size)
+            timestamps = Arrays.copyOf(timestamps, size);
+        return timestamps;
+    }
+
+    /**
+     * @return Component values of the keyframes, trimmed to the keyframe count
+     */
+    float[] getValues() {
+        if (values.length != size * components)
+            values = Arrays.copyOf(values, size * components);
+        return values;
     }
-}
\ No newline at end of file
+}
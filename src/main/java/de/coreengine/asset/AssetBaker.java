@@ -0,0 +1,529 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.asset.dataStructures.AnimatedModelData;
+import de.coreengine.asset.dataStructures.ModelData;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import org.lwjgl.assimp.AIScene;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.lwjgl.assimp.Assimp.aiIsExtensionSupported;
+import static org.lwjgl.assimp.Assimp.aiReleaseImport;
+
+/**
+ * Bake pipeline that converts source models (all formats supported by assimp)
+ * into cem and cea files. Baked models are stored with a manifest, that maps
+ * every baked model to the content hash of its source, its sidecar files and
+ * the bake configuration, so only changed sources are rebuilt and the
+ * ModelLoader can skip the import, if nothing has changed. The manifest also
+ * stores size and modification time of every source and sidecar file, so the
+ * content is only hashed again, if one of them changed.<br>
+ * <br>
+ * Can be run as tool: AssetBaker &lt;sourceDirectory&gt; [collisionShape]
+ *
+ * @author Darius Dinger
+ */
+public class AssetBaker {
+    private static final boolean ENABLED = Configuration.getValuei("ASSET_BAKE_ENABLED") != 0;
+    private static final boolean BAKE_ON_IMPORT = Configuration.getValuei("ASSET_BAKE_ON_IMPORT") != 0;
+    private static final String DIRECTORY = Configuration.getValues("ASSET_BAKE_DIRECTORY");
+    private static final String MANIFEST_FILE = "manifest.txt";
+
+    // Configuration values, that change the baked data
+    private static final String[] BAKE_CONFIGURATION = { "MESH_OPTIMIZATION", "MESH_VERTEX_FORMAT",
+            "MESH_LOD_RATIOS", "MESH_LOD_MAX_ERROR", "ANIMATION_COMPRESSION",
+            "ANIMATION_COMPRESSION_POSITION_TOLERANCE", "ANIMATION_COMPRESSION_ROTATION_TOLERANCE",
+            "ANIMATION_COMPRESSION_SCALE_TOLERANCE" };
+
+    // Max size of a file in bytes, that is searched for references to sidecar files
+    private static final long SIDECAR_SCAN_SIZE = 4 * 1024 * 1024;
+
+    // Version of the baked data, increase to rebake all models after format changes
+    private static final int BAKE_VERSION = 3;
+
+    // Prefix of the manifest entries, that store the file hash and stamps of a source
+    private static final String STAMP_PREFIX = "stamp.";
+
+    // Manifest entries: baked model key -> source content hash,
+    // stamp prefix + source key -> file hash and size:mtime:path of every file
+    private static HashMap<String, String> manifest = null;
+
+    /**
+     * Baking all source models of a directory on all cores. Models with bones or
+     * animations are baked as cea, all others as cem. Models, whose source did
+     * not change since the last bake, are skipped.
+     *
+     * @param sourceDirectory Directory to bake models from (recursive)
+     * @param shape           Collision shape of the baked models, or null to
+     *                        auto generate
+     * @return Count of baked models
+     */
+    public static int bakeDirectory(String sourceDirectory, String shape) {
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(Paths.get(sourceDirectory))) {
+            sources = files.filter(Files::isRegularFile).filter(AssetBaker::isSupported)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            Logger.warn("Error by baking models", "The directory " + sourceDirectory + " could not be read!");
+            return 0;
+        }
+
+        int baked = sources.parallelStream().mapToInt(source -> bakeFile(source.toString(), shape) ? 1 : 0).sum();
+        saveManifest();
+
+        Logger.info("Baked models", "Baked " + baked + " of " + sources.size() + " models from " + sourceDirectory);
+        return baked;
+    }
+
+    /**
+     * Baking a single source model, if it changed since the last bake
+     *
+     * @param file  Source model file
+     * @param shape Collision shape of the baked model, or null to auto generate
+     * @return True, if the model was baked
+     */
+    public static boolean bakeFile(String file, String shape) {
+        String hash = getContentHash(file, false);
+        if (hash == null)
+            return false;
+
+        // Skip unchanged models
+        if (isBaked(file, shape, false, hash) || isBaked(file, shape, true, hash))
+            return false;
+
+        // Import scene and bake it
+        AIScene aiScene = ModelLoader.getScene(file);
+        if (aiScene == null)
+            return false;
+        boolean animated = ModelLoader.isAnimated(aiScene);
+        ModelData modelData = ModelLoader.parseScene(aiScene, shape, animated);
+        aiReleaseImport(aiScene);
+
+        return store(file, shape, animated, hash, modelData);
+    }
+
+    /**
+     * Loading a baked model, if the manifest contains it with the current content
+     * hash of its source
+     *
+     * @param file     Source model file
+     * @param shape    Collision shape of the model
+     * @param animated Load animated model data
+     * @param hash     Current content hash of the source
+     * @return Baked model data or null, if not baked or outdated
+     */
+    static ModelData loadBaked(String file, String shape, boolean animated, String hash) {
+        if (!ENABLED || hash == null || !isBaked(file, shape, animated, hash))
+            return null;
+
+        String bakedFile = getBakedFile(getKey(file, shape, animated), animated);
+        if (animated)
+            return CeaLoader.loadAnimatedModelData(bakedFile, false);
+        else
+            return CemLoader.loadModelData(bakedFile, false);
+    }
+
+    /**
+     * Storing an imported model into the bake cache, if baking on import is
+     * enabled
+     *
+     * @param file      Source model file
+     * @param shape     Collision shape of the model
+     * @param animated  Model data is animated model data
+     * @param hash      Content hash of the source
+     * @param modelData Imported model data
+     */
+    static void storeImported(String file, String shape, boolean animated, String hash, ModelData modelData) {
+        if (ENABLED && BAKE_ON_IMPORT && hash != null && modelData != null && store(file, shape, animated, hash,
+                modelData))
+            saveManifest();
+    }
+
+    /**
+     * Saving a model into the bake directory and adding it to the manifest
+     *
+     * @param file      Source model file
+     * @param shape     Collision shape of the model
+     * @param animated  Model data is animated model data
+     * @param hash      Content hash of the source
+     * @param modelData Model data to save
+     * @return True, if the model was saved
+     */
+    private static boolean store(String file, String shape, boolean animated, String hash, ModelData modelData) {
+        String key = getKey(file, shape, animated);
+        try {
+            Files.createDirectories(Paths.get(DIRECTORY));
+        } catch (IOException e) {
+            Logger.warn("Error by baking model", "The bake directory " + DIRECTORY + " could not be created!");
+            return false;
+        }
+
+        String bakedFile = getBakedFile(key, animated);
+        if (animated)
+            CeaLoader.saveAnimatedModelData(bakedFile, (AnimatedModelData) modelData);
+        else
+            CemLoader.saveModelData(bakedFile, modelData);
+        if (!Files.isRegularFile(Paths.get(bakedFile)))
+            return false;
+
+        synchronized (AssetBaker.class) {
+            getManifest().put(key, BAKE_VERSION + ":" + hash);
+        }
+        return true;
+    }
+
+    /**
+     * Checking if a model is baked with a specific content hash
+     *
+     * @param file     Source model file
+     * @param shape    Collision shape of the model
+     * @param animated Check animated model data
+     * @param hash     Content hash of the source
+     * @return True, if the baked model is up to date
+     */
+    private static boolean isBaked(String file, String shape, boolean animated, String hash) {
+        String key = getKey(file, shape, animated);
+        String entry;
+        synchronized (AssetBaker.class) {
+            entry = getManifest().get(key);
+        }
+        return (BAKE_VERSION + ":" + hash).equals(entry) && Files.isRegularFile(Paths.get(getBakedFile(key, animated)));
+    }
+
+    /**
+     * Calculating the content hash of a source model. The hash contains the
+     * content of the source, of its sidecar files (e.g. mtl, bin and textures)
+     * and the configuration values, that change the baked data. Updated file
+     * stamps are saved into the manifest.
+     *
+     * @param file Source model file
+     * @return Hex sha-256 hash of the content, or null if not readable
+     */
+    static String getContentHash(String file) {
+        return getContentHash(file, true);
+    }
+
+    /**
+     * Calculating the content hash of a source model
+     *
+     * @param file Source model file
+     * @param save Save the manifest, if the file stamps of the source changed
+     * @return Hex sha-256 hash of the content, or null if not readable
+     */
+    private static String getContentHash(String file, boolean save) {
+        if (!ENABLED)
+            return null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(getFilesHash(Paths.get(file), save).getBytes(StandardCharsets.UTF_8));
+            for (String key : BAKE_CONFIGURATION)
+                digest.update((key + "=" + Configuration.getValues(key) + "\n").getBytes(StandardCharsets.UTF_8));
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Getting the hash of the content of a source and its sidecar files. The hash
+     * is stored in the manifest with size and modification time of the source,
+     * its directory and its sidecars, and only calculated again, if one of them
+     * changed.
+     *
+     * @param source Source model file
+     * @param save   Save the manifest, if the hash was calculated again
+     * @return Hex sha-256 hash of the files
+     * @throws IOException              If a file could not be read
+     * @throws NoSuchAlgorithmException If sha-256 is not available
+     */
+    private static String getFilesHash(Path source, boolean save) throws IOException, NoSuchAlgorithmException {
+        String key = STAMP_PREFIX + getKey(source.toString(), null, false);
+        String entry;
+        synchronized (AssetBaker.class) {
+            entry = getManifest().get(key);
+        }
+        if (entry != null) {
+            String[] stamps = entry.split("\t");
+            if (isUnchanged(stamps))
+                return stamps[0];
+        }
+
+        // Hash source and sidecars and remember their stamps
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        List<Path> files = new ArrayList<>();
+        files.add(source);
+        files.add(source.toAbsolutePath().getParent());
+        hashFile(digest, source);
+        for (Path sidecar : getSidecars(source)) {
+            digest.update(sidecar.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            hashFile(digest, sidecar);
+            files.add(sidecar);
+        }
+        String hash = toHex(digest.digest());
+
+        StringBuilder stamps = new StringBuilder(hash);
+        for (Path file : files)
+            stamps.append('\t').append(getStamp(file));
+        synchronized (AssetBaker.class) {
+            getManifest().put(key, stamps.toString());
+        }
+        if (save)
+            saveManifest();
+        return hash;
+    }
+
+    /**
+     * Checking if the files of stored stamps are unchanged
+     *
+     * @param stamps File hash followed by the stored stamps
+     * @return True, if size and modification time of all files are unchanged
+     */
+    private static boolean isUnchanged(String[] stamps) {
+        if (stamps.length < 2)
+            return false;
+        try {
+            for (int i = 1; i < stamps.length; i++) {
+                String[] stamp = stamps[i].split(":", 3);
+                if (stamp.length != 3 || !getStamp(Paths.get(stamp[2])).equals(stamps[i]))
+                    return false;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param file File to get stamp of
+     * @return Stamp of the file as size:mtime:path
+     * @throws IOException If the file could not be read
+     */
+    private static String getStamp(Path file) throws IOException {
+        return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis() + ":" + file.toAbsolutePath();
+    }
+
+    /**
+     * Adding the content of a file to a digest
+     *
+     * @param digest Digest to update
+     * @param file   File to hash
+     * @throws IOException If the file could not be read
+     */
+    private static void hashFile(MessageDigest digest, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0)
+                digest.update(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Finding the sidecar files of a source model. These are the files in the
+     * directory of the source (and its sub directories), that share the name of
+     * the source or whose name is referenced by the source or by another sidecar,
+     * e.g. mtl libraries, gltf buffers and textures.
+     *
+     * @param source Source model file
+     * @return Sidecar files, sorted by path
+     * @throws IOException If the directory could not be read
+     */
+    private static List<Path> getSidecars(Path source) throws IOException {
+        Path directory = source.toAbsolutePath().getParent();
+        String baseName = getBaseName(source);
+
+        List<Path> candidates;
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            candidates = files.filter(Files::isRegularFile)
+                    .filter(f -> !f.toAbsolutePath().equals(source.toAbsolutePath())).sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<Path> sidecars = new ArrayList<>();
+        for (Path candidate : candidates) {
+            if (getBaseName(candidate).equals(baseName))
+                sidecars.add(candidate);
+        }
+
+        // Follow references from the source and the found sidecars
+        List<Path> scan = new ArrayList<>(sidecars);
+        scan.add(0, source);
+        for (int i = 0; i < scan.size(); i++) {
+            if (Files.size(scan.get(i)) > SIDECAR_SCAN_SIZE)
+                continue;
+
+            String content = new String(Files.readAllBytes(scan.get(i)), StandardCharsets.ISO_8859_1);
+            for (Path candidate : candidates) {
+                if (!sidecars.contains(candidate) && content.contains(candidate.getFileName().toString())) {
+                    sidecars.add(candidate);
+                    scan.add(candidate);
+                }
+            }
+        }
+
+        sidecars.sort(null);
+        return sidecars;
+    }
+
+    /**
+     * @param file File to get name of
+     * @return Name of the file without extension
+     */
+    private static String getBaseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Creating the key of a baked model. The key contains the absolute source
+     * path, collision shape and model type.
+     *
+     * @param file     Source model file
+     * @param shape    Collision shape of the model
+     * @param animated Animated model data
+     * @return Key of the baked model
+     */
+    private static String getKey(String file, String shape, boolean animated) {
+        String id = Paths.get(file).toAbsolutePath().normalize() + "|" + shape + "|" + animated;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return toHex(digest.digest(id.getBytes(StandardCharsets.UTF_8))).substring(0, 32);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(id.hashCode());
+        }
+    }
+
+    /**
+     * @param key      Key of the baked model
+     * @param animated Animated model data
+     * @return File of the baked model
+     */
+    private static String getBakedFile(String key, boolean animated) {
+        return Paths.get(DIRECTORY, key + (animated ? ".cea" : ".cem")).toString();
+    }
+
+    /**
+     * @return Manifest of the bake directory, loaded on first use
+     */
+    private static synchronized HashMap<String, String> getManifest() {
+        if (manifest != null)
+            return manifest;
+
+        manifest = new HashMap<>();
+        Path manifestFile = Paths.get(DIRECTORY, MANIFEST_FILE);
+        if (!Files.isRegularFile(manifestFile))
+            return manifest;
+
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] entry = line.split("=", 2);
+                if (entry.length == 2)
+                    manifest.put(entry[0], entry[1]);
+            }
+        } catch (IOException e) {
+            Logger.warn("Error by loading bake manifest", "The manifest " + manifestFile + " could not be read!");
+        }
+        return manifest;
+    }
+
+    /**
+     * Saving the manifest into the bake directory. Written into a temporary file
+     * first, so a crash can not leave a broken manifest.
+     */
+    private static synchronized void saveManifest() {
+        Path manifestFile = Paths.get(DIRECTORY, MANIFEST_FILE);
+        Path tempFile = Paths.get(DIRECTORY, MANIFEST_FILE + ".tmp");
+        try {
+            Files.createDirectories(manifestFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (String key : getManifest().keySet()) {
+                    writer.write(key + "=" + manifest.get(key));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logger.warn("Error by saving bake manifest", "The manifest " + manifestFile + " could not be saved!");
+        }
+    }
+
+    /**
+     * @param path File to check
+     * @return True, if assimp can import the file
+     */
+    private static boolean isSupported(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && aiIsExtensionSupported(name.substring(dot));
+    }
+
+    /**
+     * @param data Bytes to convert
+     * @return Lower case hex string of the bytes
+     */
+    public static String toHex(byte[] data) {
+        StringBuilder hex = new StringBuilder(data.length * 2);
+        for (byte b : data)
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+
+    /**
+     * Baking all models of a directory from the command line
+     *
+     * @param args Source directory and optional collision shape
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            Logger.info("Usage", "AssetBaker <sourceDirectory> [collisionShape]");
+            return;
+        }
+        bakeDirectory(args[0], args.length > 1 ? args[1] : null);
+    }
+}
@@ -32,30 +32,122 @@ import de.coreengine.rendering.model.AnimatedModel;
 import de.coreengine.rendering.model.Font;
 import de.coreengine.rendering.model.Model;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Class to store loaded assets
+ * Class to store loaded assets. Textures and models can be resolved once by
+ * their name into an int handle, that is interned by the database. The handle
+ * stays valid for the whole runtime, is backed by a flat array and resolves to
+ * the asset, as soon as it is loaded. Handle 0 is always the empty asset (black
+ * texture or no model).<br>
+ * <br>
+ * The database can be read from every thread, while assets are loaded. Assets
+ * are only stored by the thread, that owns the gl context.
  */
 public class AssetDatabase {
 
     // Databases
-    public static HashMap<String, Integer> textures = new HashMap<>();
-    static HashMap<String, Font> fonts = new HashMap<>();
-    static HashMap<String, Integer> sounds = new HashMap<>();
-    static HashMap<String, Model> models = new HashMap<>();
-    static HashMap<String, AnimatedModel> animatedModels = new HashMap<>();
+    static ConcurrentHashMap<String, Integer> textures = new ConcurrentHashMap<>();
+    static ConcurrentHashMap<String, Font> fonts = new ConcurrentHashMap<>();
+    static ConcurrentHashMap<String, Integer> sounds = new ConcurrentHashMap<>();
+    static ConcurrentHashMap<String, Model> models = new ConcurrentHashMap<>();
+    static ConcurrentHashMap<String, AnimatedModel> animatedModels = new ConcurrentHashMap<>();
+
+    // Interned asset names and their handles, only accessed synchronized
+    private static final HashMap<String, Integer> textureHandles = new HashMap<>();
+    private static final HashMap<String, Integer> modelHandles = new HashMap<>();
+    private static final HashMap<String, Integer> animatedModelHandles = new HashMap<>();
+
+    // Assets by their handle, replaced by a bigger copy when full
+    private static volatile int[] textureTable = new int[64];
+    private static volatile Model[] modelTable = new Model[64];
+    private static volatile AnimatedModel[] animatedModelTable = new AnimatedModel[64];
+
+    // Increased, whenever a texture is stored or replaced
+    private static volatile int textureVersion = 0;
 
     /**
      * Getting texture by name from the database. Returns 0, if the texture could
-     * not be found
+     * not be found. The name is resolved into its handle, so the texture is marked
+     * as used like by {@link #getTexture(int)}
      * 
      * @param name Name of the texture in the database
      * @return Texture with this name
      */
     public static int getTexture(String name) {
-        Integer texture = textures.get(name);
-        return texture == null ? 0 : texture;
+        if (name == null)
+            return 0;
+        return getTexture(getTextureHandle(name));
+    }
+
+    /**
+     * Getting texture by its handle. Returns 0, if the texture is not loaded yet
+     *
+     * @param handle Handle of the texture, see {@link #getTextureHandle(String)}
+     * @return Texture of this handle
+     */
+    public static int getTexture(int handle) {
+        TextureResidency.touch(handle);
+        return textureTable[handle];
+    }
+
+    /**
+     * Getting texture by its handle without marking it as used, e.g. to check if
+     * a texture was replaced
+     *
+     * @param handle Handle of the texture
+     * @return Texture of this handle
+     */
+    public static int peekTexture(int handle) {
+        return textureTable[handle];
+    }
+
+    /**
+     * @return Version of the textures, changes whenever a texture is stored or
+     *         replaced
+     */
+    public static int getTextureVersion() {
+        return textureVersion;
+    }
+
+    /**
+     * Resolving the handle of a texture name. The texture does not have to be
+     * loaded yet. Should be called once, when the texture is assigned and not per
+     * frame
+     *
+     * @param name Name of the texture in the database or null
+     * @return Handle of the texture, 0 for null
+     */
+    public static synchronized int getTextureHandle(String name) {
+        if (name == null)
+            return 0;
+
+        Integer handle = textureHandles.get(name);
+        if (handle == null) {
+            handle = textureHandles.size();
+            textureHandles.put(name, handle);
+
+            if (handle >= textureTable.length)
+                textureTable = Arrays.copyOf(textureTable, textureTable.length * 2);
+            Integer texture = textures.get(name);
+            textureTable[handle] = texture == null ? 0 : texture;
+        }
+
+        return handle;
+    }
+
+    /**
+     * Storing a loaded texture in the database and updating its handle
+     *
+     * @param name    Name of the texture in the database
+     * @param texture Opengl texture id
+     */
+    static synchronized void putTexture(String name, int texture) {
+        textures.put(name, texture);
+        textureTable[getTextureHandle(name)] = texture;
+        textureVersion++;
     }
 
     /**
@@ -66,7 +158,7 @@ public class AssetDatabase {
      * @return Font with this name
      */
     public static Font getFont(String name) {
-        return fonts.get(name);
+        return name == null ? null : fonts.get(name);
     }
 
     /**
@@ -77,6 +169,8 @@ public class AssetDatabase {
      * @return Sound with this name
      */
     public static int getSound(String name) {
+        if (name == null)
+            return 0;
         Integer sound = sounds.get(name);
         return sound == null ? 0 : sound;
     }
@@ -89,7 +183,54 @@ public class AssetDatabase {
      * @return Model with this name
      */
     public static Model getModel(String name) {
-        return models.get(name);
+        return name == null ? null : models.get(name);
+    }
+
+    /**
+     * Getting model by its handle. Returns null, if the model is not loaded yet
+     *
+     * @param handle Handle of the model, see {@link #getModelHandle(String)}
+     * @return Model of this handle
+     */
+    public static Model getModel(int handle) {
+        return modelTable[handle];
+    }
+
+    /**
+     * Resolving the handle of a model name. The model does not have to be loaded
+     * yet. Should be called once, when the model is assigned and not per frame
+     *
+     * @param name Name of the model in the database or null
+     * @return Handle of the model, 0 for null
+     */
+    public static synchronized int getModelHandle(String name) {
+        if (name == null)
+            return 0;
+
+        Integer handle = modelHandles.get(name);
+        if (handle == null) {
+            handle = modelHandles.size() + 1;
+            modelHandles.put(name, handle);
+
+            if (handle >= modelTable.length)
+                modelTable = Arrays.copyOf(modelTable, modelTable.length * 2);
+            modelTable[handle] = getModel(name);
+        }
+
+        return handle;
+    }
+
+    /**
+     * Storing a loaded model in the database and updating its handle
+     *
+     * @param name  Name of the model in the database
+     * @param model Loaded model, null is ignored
+     */
+    static synchronized void putModel(String name, Model model) {
+        if (model == null)
+            return;
+        models.put(name, model);
+        modelTable[getModelHandle(name)] = model;
     }
 
     /**
@@ -100,11 +241,61 @@ public class AssetDatabase {
      * @return Animated model with this name
      */
     public static AnimatedModel getAnimatedModel(String name) {
-        return animatedModels.get(name);
+        return name == null ? null : animatedModels.get(name);
+    }
+
+    /**
+     * Getting animated model by its handle. Returns null, if the animated model is
+     * not loaded yet
+     *
+     * @param handle Handle of the animated model, see
+     *               {@link #getAnimatedModelHandle(String)}
+     * @return Animated model of this handle
+     */
+    public static AnimatedModel getAnimatedModel(int handle) {
+        return animatedModelTable[handle];
+    }
+
+    /**
+     * Resolving the handle of an animated model name. The animated model does not
+     * have to be loaded yet. Should be called once, when the model is assigned and
+     * not per frame
+     *
+     * @param name Name of the animated model in the database or null
+     * @return Handle of the animated model, 0 for null
+     */
+    public static synchronized int getAnimatedModelHandle(String name) {
+        if (name == null)
+            return 0;
+
+        Integer handle = animatedModelHandles.get(name);
+        if (handle == null) {
+            handle = animatedModelHandles.size() + 1;
+            animatedModelHandles.put(name, handle);
+
+            if (handle >= animatedModelTable.length)
+                animatedModelTable = Arrays.copyOf(animatedModelTable, animatedModelTable.length * 2);
+            animatedModelTable[handle] = getAnimatedModel(name);
+        }
+
+        return handle;
+    }
+
+    /**
+     * Storing a loaded animated model in the database and updating its handle
+     *
+     * @param name  Name of the animated model in the database
+     * @param model Loaded animated model, null is ignored
+     */
+    static synchronized void putAnimatedModel(String name, AnimatedModel model) {
+        if (model == null)
+            return;
+        animatedModels.put(name, model);
+        animatedModelTable[getAnimatedModelHandle(name)] = model;
     }
 
     static {
-        // Store default black opengl texture
-        textures.put("black", 0);
+        // Store default black opengl texture as handle 0
+        putTexture("black", 0);
     }
 }
@@ -0,0 +1,450 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archive, that packs many asset files into one file. The pack is memory mapped
+ * once at mount and every loader reads its files through the mounted packs
+ * first, so no file has to be opened at load. Entries can be stored raw or
+ * deflate compressed.<br>
+ * <br>
+ * Format:<br>
+ * Magic (int) | Version (int) | EntryCount (int)<br>
+ * Index (sorted by path): PathLength (short) | Path (utf-8) | Offset (long) |
+ * StoredSize (int) | Size (int) | Compression (byte) | Crc32 (int)<br>
+ * Data (entry after entry)<br>
+ * <br>
+ * Can be run as tool: AssetPack &lt;packFile&gt; &lt;rootDirectory&gt; [store]
+ *
+ * @author Darius Dinger
+ */
+public class AssetPack {
+    public static final int MAGIC = 0x4B504543, VERSION = 1;
+
+    // Compression of an entry
+    public static final byte COMPRESSION_NONE = 0, COMPRESSION_DEFLATE = 1;
+
+    // Size of the header in bytes and of an index entry without the path
+    private static final int HEADER_SIZE = 12, ENTRY_SIZE = 2 + 8 + 4 + 4 + 1 + 4;
+
+    // Mounted packs, the last mounted pack is searched first
+    private static final List<AssetPack> PACKS = new CopyOnWriteArrayList<>();
+
+    // Verify the checksum of every read entry
+    private static boolean verify = false;
+
+    // File and mapped content of the pack
+    private final String file;
+    private final ByteBuffer data;
+
+    // Index, sorted by path
+    private final String[] paths;
+    private final long[] offsets;
+    private final int[] storedSizes, sizes, checksums;
+    private final byte[] compressions;
+
+    /**
+     * Creating a pack from its mapped content
+     *
+     * @param file File of the pack
+     * @param data Mapped content of the pack
+     * @throws BufferUnderflowException If the index or an entry exceeds the pack
+     */
+    private AssetPack(String file, ByteBuffer data) {
+        this.file = file;
+        this.data = data;
+
+        int count = data.getInt(8);
+        paths = new String[count];
+        offsets = new long[count];
+        storedSizes = new int[count];
+        sizes = new int[count];
+        checksums = new int[count];
+        compressions = new byte[count];
+
+        // Read index
+        ByteBuffer index = data.duplicate();
+        index.position(HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            byte[] path = new byte[index.getShort() & 0xFFFF];
+            index.get(path);
+            paths[i] = new String(path, StandardCharsets.UTF_8);
+            offsets[i] = index.getLong();
+            storedSizes[i] = index.getInt();
+            sizes[i] = index.getInt();
+            compressions[i] = index.get();
+            checksums[i] = index.getInt();
+
+            if (offsets[i] < 0 || storedSizes[i] < 0 || sizes[i] < 0
+                    || offsets[i] + storedSizes[i] > data.capacity())
+                throw new BufferUnderflowException();
+        }
+    }
+
+    /**
+     * Mounting all packs of the configuration, that exist. Must be called before
+     * loading assets, that are packed.
+     */
+    public static void init() {
+        verify = Configuration.getValuei("ASSET_PACK_VERIFY") != 0;
+
+        for (String file : Configuration.getValues("ASSET_PACKS").split(";")) {
+            if (!file.trim().isEmpty() && Files.isRegularFile(Paths.get(file.trim())))
+                mount(file.trim());
+        }
+    }
+
+    /**
+     * Mounting a pack, so its entries are read by the loaders. Entries of the
+     * pack hide entries with the same path of packs, that were mounted before.
+     *
+     * @param file Pack file to mount
+     * @return True, if the pack was mounted
+     */
+    public static boolean mount(String file) {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            Logger.warn("Error by mounting asset pack", "The asset pack " + file + " could not be opened!");
+            return false;
+        }
+
+        if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            Logger.warn("Error by mounting asset pack", "The file " + file + " is no valid asset pack!");
+            return false;
+        }
+
+        AssetPack pack;
+        try {
+            pack = new AssetPack(file, data);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            Logger.warn("Error by mounting asset pack", "The index of the asset pack " + file + " is corrupted!");
+            return false;
+        }
+        PACKS.add(0, pack);
+        Logger.info("Mounted asset pack", "Mounted " + pack.paths.length + " entries from " + file);
+        return true;
+    }
+
+    /**
+     * Unmounting a pack. The mapping is released by the garbage collector, when
+     * no read entry is referenced anymore.
+     *
+     * @param file Pack file to unmount
+     */
+    public static void unmount(String file) {
+        PACKS.removeIf(pack -> pack.file.equals(file));
+    }
+
+    /**
+     * @param path Path of the file
+     * @return True, if a mounted pack contains the file
+     */
+    public static boolean contains(String path) {
+        if (PACKS.isEmpty())
+            return false;
+
+        String key = normalize(path);
+        for (AssetPack pack : PACKS) {
+            if (Arrays.binarySearch(pack.paths, key) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reading a file from the mounted packs. Raw entries are returned as view
+     * into the mapped pack, compressed entries are inflated into a new direct
+     * buffer.
+     *
+     * @param path Path of the file
+     * @return Read-only content of the file or null, if no pack contains it
+     */
+    public static ByteBuffer get(String path) {
+        if (PACKS.isEmpty())
+            return null;
+
+        String key = normalize(path);
+        for (AssetPack pack : PACKS) {
+            int entry = Arrays.binarySearch(pack.paths, key);
+            if (entry >= 0)
+                return pack.read(entry);
+        }
+        return null;
+    }
+
+    /**
+     * Reading an entry of this pack
+     *
+     * @param entry Index of the entry
+     * @return Content of the entry or null, if it is corrupted
+     */
+    private ByteBuffer read(int entry) {
+        ByteBuffer stored = data.duplicate();
+        stored.position((int) offsets[entry]).limit((int) offsets[entry] + storedSizes[entry]);
+        stored = stored.slice();
+
+        ByteBuffer content;
+        if (compressions[entry] == COMPRESSION_DEFLATE) {
+            byte[] input = new byte[stored.remaining()], output = new byte[sizes[entry]];
+            stored.get(input);
+
+            Inflater inflater = new Inflater();
+            inflater.setInput(input);
+            try {
+                int size = 0;
+                while (size < output.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(output, size, output.length - size);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                        break;
+                    size += inflated;
+                }
+
+                if (size < output.length) {
+                    Logger.warn("Error by reading asset pack",
+                            "The entry " + paths[entry] + " of " + file + " is truncated! Returning null");
+                    return null;
+                }
+            } catch (DataFormatException e) {
+                Logger.warn("Error by reading asset pack",
+                        "The entry " + paths[entry] + " of " + file + " is corrupted! Returning null");
+                return null;
+            } finally {
+                inflater.end();
+            }
+
+            content = BufferUtils.createByteBuffer(output.length);
+            content.put(output).flip();
+        } else
+            content = stored.asReadOnlyBuffer();
+
+        if (verify && getChecksum(content) != checksums[entry]) {
+            Logger.warn("Error by reading asset pack",
+                    "The entry " + paths[entry] + " of " + file + " is corrupted! Returning null");
+            return null;
+        }
+        return content;
+    }
+
+    /**
+     * Packing all files of a directory into a pack. The paths of the entries are
+     * relative to the directory, e.g. pack the resource directory to read
+     * resources from the pack.
+     *
+     * @param packFile      Pack file to create
+     * @param rootDirectory Directory to pack (recursive)
+     * @param compress      Deflate entries, if it makes them smaller
+     * @return True, if the pack was created
+     */
+    public static boolean build(String packFile, String rootDirectory, boolean compress) {
+        Path root = Paths.get(rootDirectory);
+        Path pack = Paths.get(packFile).toAbsolutePath();
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).filter(f -> !f.toAbsolutePath().equals(pack))
+                    .sorted((a, b) -> getPath(root, a).compareTo(getPath(root, b))).collect(Collectors.toList());
+        } catch (IOException e) {
+            Logger.warn("Error by building asset pack", "The directory " + rootDirectory + " could not be read!");
+            return false;
+        }
+
+        // Read and compress entries
+        List<byte[]> contents = new ArrayList<>(files.size());
+        ByteBuffer index = ByteBuffer.allocate(files.stream()
+                .mapToInt(f -> ENTRY_SIZE + getPath(root, f).getBytes(StandardCharsets.UTF_8).length).sum());
+        long offset = HEADER_SIZE + index.capacity();
+        try {
+            for (Path f : files) {
+                byte[] content = Files.readAllBytes(f);
+                byte[] stored = compress ? deflate(content) : null;
+                byte compression = COMPRESSION_DEFLATE;
+                if (stored == null || stored.length >= content.length) {
+                    stored = content;
+                    compression = COMPRESSION_NONE;
+                }
+
+                byte[] path = getPath(root, f).getBytes(StandardCharsets.UTF_8);
+                index.putShort((short) path.length).put(path).putLong(offset).putInt(stored.length)
+                        .putInt(content.length).put(compression).putInt(getChecksum(ByteBuffer.wrap(content)));
+                contents.add(stored);
+                offset += stored.length;
+            }
+        } catch (IOException e) {
+            Logger.warn("Error by building asset pack", "A file of " + rootDirectory + " could not be read!");
+            return false;
+        }
+        index.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(files.size()).flip();
+
+        // Write pack into temp file and replace old pack
+        Path tempFile = Paths.get(pack + ".tmp");
+        try {
+            if (pack.getParent() != null)
+                Files.createDirectories(pack.getParent());
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                writeFully(channel, index);
+                for (byte[] content : contents)
+                    writeFully(channel, ByteBuffer.wrap(content));
+            }
+            Files.move(tempFile, pack, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logger.warn("Error by building asset pack", "The asset pack " + packFile + " could not be written!");
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+
+        Logger.info("Built asset pack", "Packed " + files.size() + " files from " + rootDirectory + " into "
+                + packFile + " (" + offset + " bytes)");
+        return true;
+    }
+
+    /**
+     * Deflating data with the best compression
+     *
+     * @param data Data to deflate
+     * @return Deflated data
+     */
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(data);
+        deflater.finish();
+
+        byte[] buffer = new byte[Math.max(64, data.length)];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            size += deflater.deflate(buffer, size, buffer.length - size);
+        }
+        deflater.end();
+
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * @param data Data to calculate checksum of
+     * @return Crc32 of the remaining bytes of the data
+     */
+    private static int getChecksum(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        ByteBuffer source = data.duplicate();
+        while (source.hasRemaining()) {
+            int size = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, size);
+            crc.update(chunk, 0, size);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @param root Root directory of the pack
+     * @param file File in the root directory
+     * @return Path of the entry of the file
+     */
+    private static String getPath(Path root, Path file) {
+        return normalize(root.relativize(file).toString());
+    }
+
+    /**
+     * Normalizing a path to the format of the index, forward slashes and no
+     * leading slash or dot
+     *
+     * @param path Path to normalize
+     * @return Normalized path
+     */
+    private static String normalize(String path) {
+        String normalized = path.replace('\\', '/');
+        while (normalized.startsWith("./"))
+            normalized = normalized.substring(2);
+        while (normalized.startsWith("/"))
+            normalized = normalized.substring(1);
+        return normalized;
+    }
+
+    /**
+     * Writing the remaining bytes of a buffer into a channel
+     *
+     * @param channel Channel to write into
+     * @param data    Data to write
+     * @throws IOException If an IO Error occurs
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining())
+            channel.write(data);
+    }
+
+    /**
+     * Packing a directory from the command line
+     *
+     * @param args Pack file, root directory and optional "store" to disable
+     *             compression
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            Logger.info("Usage", "AssetPack <packFile> <rootDirectory> [store]");
+            return;
+        }
+        build(args[0], args[1], args.length < 3 || !args[2].equals("store"));
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.asset.dataStructures.AnimatedModelData;
+import de.coreengine.asset.dataStructures.MaterialData;
+import de.coreengine.asset.dataStructures.MeshData;
+import de.coreengine.asset.dataStructures.ModelData;
+import de.coreengine.rendering.model.AnimatedModel;
+import de.coreengine.rendering.model.Font;
+import de.coreengine.rendering.model.Model;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import de.coreengine.util.gl.MemoryDumper;
+import de.coreengine.util.gl.UploadScheduler;
+import org.lwjgl.opengl.GL11;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Class that loads assets asynchronous. File io and decoding run on a worker
+ * pool, the gl and al uploads are queued and executed on the main thread by
+ * {@link #update()}, within a time budget per frame. If the
+ * {@link LoaderContext} is running, textures and the vertex and index buffers of
+ * models are created on the loader thread instead and the main thread only
+ * stores the textures into the database and creates the vaos of the models.<br>
+ * <br>
+ * Every load returns a future immediately, that is completed on the main thread
+ * with the loaded asset or null, if the asset could not be loaded. If decoding
+ * or uploading throws, the future is completed exceptionally. Instead of
+ * waiting for the future, the handle of the asset can be resolved immediately
+ * by the {@link AssetDatabase}, it resolves to the asset as soon as it is
+ * loaded.
+ *
+ * @author Darius Dinger
+ */
+public class AsyncAssetLoader {
+
+    // Count of worker threads and time per frame for uploads in milliseconds
+    private static final int THREADS = Configuration.getValuei("ASSET_LOADER_THREADS");
+    private static final float UPLOAD_BUDGET = Configuration.getValuef("ASSET_UPLOAD_BUDGET");
+
+    // Worker pool for file io and decoding
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(Math.max(1, THREADS), r -> {
+        Thread thread = new Thread(r, "Asset Loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Upload steps, that must run on the main thread
+    private static final ConcurrentLinkedQueue<Runnable> UPLOADS = new ConcurrentLinkedQueue<>();
+
+    // Loads in progress by asset type and file, so every asset is loaded once
+    private static final ConcurrentHashMap<String, CompletableFuture<?>> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * Executing queued upload steps on the main thread, until the upload budget of
+     * this frame is exceeded. A failing step is logged and skipped, so it can not
+     * stop the remaining uploads. Must be called once per frame by the thread,
+     * that owns the gl and al context.
+     */
+    public static void update() {
+        long start = System.nanoTime();
+        long budget = (long) (UPLOAD_BUDGET * 1000000.0f);
+
+        Runnable upload;
+        while ((upload = UPLOADS.poll()) != null) {
+            try {
+                upload.run();
+            } catch (Throwable e) {
+                Logger.warn("Error by loading asset", "An upload step failed: " + e);
+            }
+            if (System.nanoTime() - start > budget)
+                break;
+        }
+    }
+
+    /**
+     * @return Count of assets, that are currently loading
+     */
+    public static int getPendingCount() {
+        return PENDING.size();
+    }
+
+    /**
+     * Loading a texture file asynchronous and storing into asset database
+     *
+     * @param textureFile Path to texture relative to application
+     * @param mipmap      Use mipmapping/anisotropic filtering (if supported)
+     * @param filtering   Wich filtering mathod (GL_NEARES, GL_LINEAR, ...)
+     * @param asResource  Loading texture from resources
+     * @return Future of the opengl texture
+     */
+    public static CompletableFuture<Integer> loadTexture(String textureFile, boolean mipmap, int filtering,
+            boolean asResource) {
+        return load("texture:" + textureFile,
+                () -> AssetDatabase.textures.get(textureFile),
+                () -> {
+                    Runnable upload = prepareTexture(textureFile,
+                            TextureLoader.loadTextureFileMeta(textureFile, mipmap, filtering, asResource), mipmap,
+                            filtering, asResource);
+                    return () -> {
+                        upload.run();
+                        return AssetDatabase.getTexture(textureFile);
+                    };
+                });
+    }
+
+    /**
+     * Loading a sound file asynchronous and storing into asset database
+     *
+     * @param file Ogg sound file
+     * @return Future of the al buffer of the sound
+     */
+    public static CompletableFuture<Integer> loadSound(String file) {
+        return load("sound:" + file,
+                () -> AssetDatabase.sounds.get(file),
+                () -> {
+                    OggLoader.DecodedSound sound = OggLoader.decodeSound(file);
+                    return () -> {
+                        OggLoader.uploadSound(file, sound);
+                        return AssetDatabase.sounds.get(file);
+                    };
+                });
+    }
+
+    /**
+     * Loading a fnt file asynchronous and storing into asset database
+     *
+     * @param file       Fnt file name relative to application
+     * @param asResource Load font from resources
+     * @return Future of the font
+     */
+    public static CompletableFuture<Font> loadFont(String file, boolean asResource) {
+        return load("font:" + file,
+                () -> AssetDatabase.fonts.get(file),
+                () -> {
+                    String[] data;
+                    try {
+                        data = FntLoader.readFontFile(file, asResource);
+                    } catch (IOException e) {
+                        Logger.warn("Error by loading font", "The fnt file '" + file + "' could not be loaded!");
+                        return null;
+                    }
+
+                    return () -> {
+                        if (!AssetDatabase.fonts.containsKey(file))
+                            FntLoader.createFont(file, data, asResource);
+                        return AssetDatabase.fonts.get(file);
+                    };
+                });
+    }
+
+    /**
+     * Loading a cem model file asynchronous and storing into asset database
+     *
+     * @param file       File to load
+     * @param texPath    Location of the models textures
+     * @param asResource Loading model and textures from resources
+     * @return Future of the model
+     */
+    public static CompletableFuture<Model> loadModel(String file, String texPath, boolean asResource) {
+        return load("model:" + file,
+                () -> AssetDatabase.models.get(file),
+                () -> prepareModel(file, CemLoader.loadModelData(file, asResource), texPath, asResource));
+    }
+
+    /**
+     * Importing a model file asynchronous with assimp and storing into asset
+     * database
+     *
+     * @param file       Model file to load
+     * @param texPath    Location of the texture files
+     * @param asResource Load textures from resources
+     * @param shape      Collision shape, or "convex" / "triangleMesh" / null to
+     *                   auto generate
+     * @return Future of the model
+     */
+    public static CompletableFuture<Model> loadModelFile(String file, String texPath, boolean asResource,
+            String shape) {
+        return load("model:" + file,
+                () -> AssetDatabase.models.get(file),
+                () -> prepareModel(file, ModelLoader.loadModelFileData(file, shape), texPath, asResource));
+    }
+
+    /**
+     * Loading a cea animated model file asynchronous and storing into asset
+     * database
+     *
+     * @param file       File to load
+     * @param texPath    Location of the models textures
+     * @param asResource Loading model and textures from resources
+     * @return Future of the animated model
+     */
+    public static CompletableFuture<AnimatedModel> loadAnimatedModel(String file, String texPath,
+            boolean asResource) {
+        return load("animatedModel:" + file,
+                () -> AssetDatabase.animatedModels.get(file),
+                () -> prepareAnimatedModel(file, CeaLoader.loadAnimatedModelData(file, asResource), texPath,
+                        asResource));
+    }
+
+    /**
+     * Importing an animated model file asynchronous with assimp and storing into
+     * asset database
+     *
+     * @param file       Model file to load
+     * @param texPath    Location of the texture files
+     * @param asResource Load textures from resources
+     * @param shape      Collision shape, or "convex" / "triangleMesh" / null to
+     *                   auto generate
+     * @return Future of the animated model
+     */
+    public static CompletableFuture<AnimatedModel> loadAnimatedModelFile(String file, String texPath,
+            boolean asResource, String shape) {
+        return load("animatedModel:" + file,
+                () -> AssetDatabase.animatedModels.get(file),
+                () -> prepareAnimatedModel(file, ModelLoader.loadAnimatedModelFileData(file, shape), texPath,
+                        asResource));
+    }
+
+    /**
+     * Decoding the textures of a loaded model and creating the upload step of the
+     * model. Runs on a worker.
+     *
+     * @param file       Name of the model in the database
+     * @param modelData  Loaded model data or null
+     * @param texPath    Location of the models textures
+     * @param asResource Load textures from resources
+     * @return Upload step of the model or null, if the model data is null
+     */
+    private static Supplier<Model> prepareModel(String file, ModelData modelData, String texPath,
+            boolean asResource) {
+        if (modelData == null)
+            return null;
+
+        decodeTextures(modelData, texPath, asResource);
+        createBuffers(file, modelData, false);
+        return () -> {
+            if (!AssetDatabase.models.containsKey(file))
+                AssetDatabase.putModel(file, modelData.getInstance(texPath, asResource));
+            else
+                modelData.deleteBuffers();
+            return AssetDatabase.models.get(file);
+        };
+    }
+
+    /**
+     * Decoding the textures of a loaded animated model and creating the upload
+     * step of the model. Runs on a worker.
+     *
+     * @param file       Name of the animated model in the database
+     * @param modelData  Loaded animated model data or null
+     * @param texPath    Location of the models textures
+     * @param asResource Load textures from resources
+     * @return Upload step of the animated model or null, if the model data is null
+     */
+    private static Supplier<AnimatedModel> prepareAnimatedModel(String file, AnimatedModelData modelData,
+            String texPath, boolean asResource) {
+        if (modelData == null)
+            return null;
+
+        decodeTextures(modelData, texPath, asResource);
+        createBuffers(file, modelData, true);
+        return () -> {
+            if (!AssetDatabase.animatedModels.containsKey(file))
+                AssetDatabase.putAnimatedModel(file, modelData.getInstance(texPath, asResource));
+            else
+                modelData.deleteBuffers();
+            return AssetDatabase.animatedModels.get(file);
+        };
+    }
+
+    /**
+     * Creating the vertex and index buffers of a model in the loader context, if
+     * it is running. So the upload step of the model only creates the vaos. Runs
+     * on a worker.
+     *
+     * @param file      Name of the model in the database
+     * @param modelData Loaded model data
+     * @param animated  Create joint id and weight buffers too
+     */
+    private static void createBuffers(String file, ModelData modelData, boolean animated) {
+        if (!LoaderContext.isRunning())
+            return;
+
+        try {
+            LoaderContext.submit(() -> {
+                modelData.createBuffers(animated);
+                return null;
+            }).join();
+        } catch (CompletionException e) {
+            Logger.warn("Error by loading model", "The buffers of the model " + file
+                    + " could not be created in the loader context, uploading on the main thread!");
+        }
+    }
+
+    /**
+     * Decoding all textures of the materials of a model, that are not loaded yet,
+     * and queueing one upload step per texture. So the model instance finds all
+     * textures already loaded and the uploads are spread over multiple frames.
+     *
+     * @param modelData  Model data to decode textures of
+     * @param texPath    Location of the models textures
+     * @param asResource Load textures from resources
+     */
+    private static void decodeTextures(ModelData modelData, String texPath, boolean asResource) {
+        if (modelData.meshes == null)
+            return;
+
+        // Collect distinct texture files of all materials
+        List<String> files = new ArrayList<>();
+        for (MeshData mesh : modelData.meshes) {
+            if (mesh == null || mesh.material == null)
+                continue;
+
+            MaterialData mat = mesh.material;
+            for (String map : new String[] { mat.diffuseMap, mat.normalMap, mat.specularMap, mat.displacementMap,
+                    mat.ambientOcclusionMap, mat.alphaMap, mat.reflectionMap, mat.glowMap }) {
+                if (map != null && !files.contains(texPath + map))
+                    files.add(texPath + map);
+            }
+        }
+
+        // Decode and queue upload, same parameters as the material uses
+        for (String file : files) {
+            if (AssetDatabase.textures.containsKey(file))
+                continue;
+
+            TextureData data = TextureLoader.loadTextureFileMeta(file, true, GL11.GL_LINEAR, asResource);
+            UPLOADS.add(prepareTexture(file, data, true, GL11.GL_LINEAR, asResource));
+        }
+    }
+
+    /**
+     * Preparing the upload of decoded texture data. Runs on a worker. If the
+     * loader context is running, the texture is created there and the returned
+     * step only stores it into the database. Else the returned step uploads the
+     * texture on the main thread.
+     *
+     * @param file       Name of the texture in the database
+     * @param data       Decoded texture data or null
+     * @param mipmap     Use mipmapping/anisotropic filtering (if supported)
+     * @param filtering   Wich filtering mathod (GL_NEARES, GL_LINEAR, ...)
+     * @param asResource Texture was loaded from resources
+     * @return Step to execute on the main thread
+     */
+    private static Runnable prepareTexture(String file, TextureData data, boolean mipmap, int filtering,
+            boolean asResource) {
+        if (data != null && LoaderContext.isRunning()) {
+            try {
+                int tex = LoaderContext.submit(() -> data.createTexture(mipmap, filtering, false)).join();
+                return () -> {
+                    if (!AssetDatabase.textures.containsKey(file)) {
+                        AssetDatabase.putTexture(file, tex);
+                        TextureResidency.register(file, data.width, data.height, mipmap, filtering, asResource);
+                    } else
+                        MemoryDumper.delete(MemoryDumper.Type.TEXTURE, tex);
+                };
+            } catch (CompletionException e) {
+                Logger.warn("Error by loading texture", "The texture " + file
+                        + " could not be created in the loader context, uploading on the main thread!");
+            }
+        }
+
+        if (data != null && mipmap && UploadScheduler.isStreaming())
+            data.generateMipChain();
+        return () -> TextureLoader.uploadTexture(file, data, mipmap, filtering, asResource);
+    }
+
+    /**
+     * Loading a texture file again asynchronous, without storing it into the
+     * asset database. Used to replace the fallback of an evicted texture.
+     *
+     * @param textureFile Path to texture relative to application
+     * @param mipmap      Use mipmapping/anisotropic filtering (if supported)
+     * @param filtering   Wich filtering mathod (GL_NEARES, GL_LINEAR, ...)
+     * @param asResource  Loading texture from resources
+     * @return Future of the new opengl texture or null, if it could not be loaded
+     */
+    static CompletableFuture<Integer> reloadTexture(String textureFile, boolean mipmap, int filtering,
+            boolean asResource) {
+        return load("reload:" + textureFile, () -> null, () -> {
+            TextureData data = TextureLoader.loadTextureFileMeta(textureFile, mipmap, filtering, asResource);
+            if (data == null)
+                return null;
+
+            if (LoaderContext.isRunning()) {
+                try {
+                    int tex = LoaderContext.submit(() -> data.createTexture(mipmap, filtering, false)).join();
+                    return () -> tex;
+                } catch (CompletionException e) {
+                    Logger.warn("Error by reloading texture", "The texture " + textureFile
+                            + " could not be created in the loader context, uploading on the main thread!");
+                }
+            }
+
+            if (mipmap && UploadScheduler.isStreaming())
+                data.generateMipChain();
+            return () -> data.createTexture(mipmap, filtering, UploadScheduler.isStreaming());
+        });
+    }
+
+    /**
+     * Loading an asset asynchronous. If the asset is already loaded, the returned
+     * future is already completed. If the asset is already loading, the future of
+     * the running load is returned.
+     *
+     * @param key    Unique key of the asset
+     * @param loaded Getting the asset from the database or null, if not loaded
+     * @param decode Decoding step on a worker, returns the upload step for the
+     *               main thread or null, if decoding failed
+     * @param <T>    Type of the asset
+     * @return Future of the asset
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> load(String key, Supplier<T> loaded, Supplier<Supplier<T>> decode) {
+        T asset = loaded.get();
+        if (asset != null)
+            return CompletableFuture.completedFuture(asset);
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<?> running = PENDING.putIfAbsent(key, future);
+        if (running != null)
+            return (CompletableFuture<T>) running;
+
+        WORKERS.execute(() -> {
+            Supplier<T> upload;
+            try {
+                upload = decode.get();
+            } catch (Throwable e) {
+                Logger.warn("Error by loading asset", "Decoding " + key + " failed: " + e);
+                UPLOADS.add(() -> {
+                    PENDING.remove(key);
+                    future.completeExceptionally(e);
+                });
+                return;
+            }
+
+            // Queue upload, the future is completed on the main thread
+            Supplier<T> step = upload;
+            UPLOADS.add(() -> {
+                T result;
+                try {
+                    result = step != null ? step.get() : null;
+                } catch (Throwable e) {
+                    Logger.warn("Error by loading asset", "Uploading " + key + " failed: " + e);
+                    PENDING.remove(key);
+                    future.completeExceptionally(e);
+                    return;
+                }
+
+                PENDING.remove(key);
+                future.complete(result);
+            });
+        });
+
+        return future;
+    }
+}
@@ -29,10 +29,15 @@
 package de.coreengine.asset;
 
 import de.coreengine.asset.dataStructures.ModelData;
+import de.coreengine.asset.dataStructures.ModelFile;
 import de.coreengine.util.Logger;
 
-import java.io.*;
-import java.net.URL;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Class that can load cem (Core Engine Model) files (see
@@ -55,7 +60,7 @@ public class CemLoader {
             return;
         ModelData modelData = loadModelData(file, asResource);
         if (modelData != null)
-            AssetDatabase.models.put(file, modelData.getInstance(texPath, asResource));
+            AssetDatabase.putModel(file, modelData.getInstance(texPath, asResource));
     }
 
     /**
@@ -68,15 +73,13 @@ public class CemLoader {
 
         try {
 
-            // Construct data from dataStructures model
-            byte[] data = modelData.toBytes();
+            // Stream model file from dataStructures model into the file
+            try (FileChannel channel = FileChannel.open(new File(file).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ModelFile.write(modelData, channel);
+            }
 
-            // Read bytes from file
-            FileOutputStream fos = new FileOutputStream(file);
-            fos.write(data);
-            fos.close();
-
-        } catch (FileNotFoundException e0) {
+        } catch (NoSuchFileException e0) {
             Logger.err("Error by saving model data",
                     "The model data file " + file + " could not be found! Returning null!");
         } catch (IOException e) {
@@ -96,26 +99,24 @@ public class CemLoader {
 
         try {
 
-            File f;
-            if (asResource) {
-                URL url = Thread.currentThread().getContextClassLoader().getResource(file);
-                assert url != null;
-                f = new File(url.getFile());
-            } else
-                f = new File(file);
-
-            // Read bytes from file
-            FileInputStream fis = new FileInputStream(f);
-            byte[] data = new byte[fis.available()];
-            fis.read(data);
-            fis.close();
+            // Read file from asset packs, resources or map it into memory
+            ByteBuffer data = FileLoader.readBuffer(file, asResource);
+            if (data == null)
+                throw new NoSuchFileException(file);
 
-            // Construct dataStructures model from bytes
+            // Construct dataStructures model from the model file or the old format
             ModelData modelData = new ModelData();
-            modelData.fromBytes(data);
+            if (ModelFile.isModelFile(data)) {
+                if (!ModelFile.read(data, modelData))
+                    return null;
+            } else {
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                modelData.fromBytes(bytes);
+            }
             return modelData;
 
-        } catch (FileNotFoundException e0) {
+        } catch (NoSuchFileException e0) {
             Logger.warn("Error by loading model data",
                     "The model data file " + file + " could not be found! Returning null!");
         } catch (IOException e) {
@@ -27,14 +27,23 @@
  */
 package de.coreengine.asset;
 
+import de.coreengine.util.BufferUtils;
+import de.coreengine.util.Logger;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Objects;
-import java.util.Scanner;
 
 /**
- * Class that can read and write files onto the drive
+ * Class that can read and write files onto the drive. Files and resources are
+ * read from the mounted asset packs first.
  *
  * @author Darius Dinger
  */
@@ -51,6 +60,10 @@ public class FileLoader {
      * @throws IOException           Throws if an I/O error occurs
      */
     public static String[] readFile(String path, boolean lineBreak) throws FileNotFoundException, IOException {
+        ByteBuffer packed = AssetPack.get(path);
+        if (packed != null)
+            return toLines(packed, lineBreak);
+
         String lb = lineBreak ? "\n" : "";
 
         // File source string list
@@ -148,18 +161,70 @@ public class FileLoader {
      * @return String that contains the resource content (ascii)
      */
     public static String[] getResource(String path, boolean lineBreak) {
-        String lb = lineBreak ? "\n" : "";
+        ByteBuffer packed = AssetPack.get(path);
+        if (packed != null)
+            return toLines(packed, lineBreak);
 
-        LinkedList<String> data = new LinkedList<>();
+        String lb = lineBreak ? "\n" : "";
 
-        Scanner sc = new Scanner(Objects.requireNonNull(FileLoader.class.getClassLoader().getResourceAsStream(path)),
-                "UTF-8");
-        sc.useDelimiter("\n");
+        ArrayList<String> data = new ArrayList<>();
 
-        while (sc.hasNext()) {
-            data.add(sc.next().replace("\r", "") + lb);
+        InputStream in = Objects.requireNonNull(FileLoader.class.getClassLoader().getResourceAsStream(path));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                data.add(line + lb);
+            }
+        } catch (IOException e) {
+            Logger.warn("Error by reading resource", "The resource " + path + " could not be read completely!");
         }
 
         return data.toArray(new String[0]);
     }
+
+    /**
+     * Reading a binary file or resource into a buffer. Packed files are read from
+     * the mounted asset packs, other files are memory mapped and resources are
+     * read from the classpath, also inside of jars.
+     *
+     * @param path       Path of the file or resource
+     * @param asResource Read from resources, if not packed
+     * @return Content of the file or null, if it doesnt exist
+     * @throws IOException If an IO Error occurs
+     */
+    public static ByteBuffer readBuffer(String path, boolean asResource) throws IOException {
+        ByteBuffer packed = AssetPack.get(path);
+        if (packed != null)
+            return packed;
+
+        if (asResource)
+            return BufferUtils.ioResourceToByteBuffer(path, 8 * 1024);
+
+        Path file = Paths.get(path);
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Splitting utf-8 text into lines
+     *
+     * @param data      Text to split
+     * @param lineBreak If true, the lines will have an \n at the end
+     * @return Lines of the text
+     */
+    private static String[] toLines(ByteBuffer data, boolean lineBreak) {
+        String lb = lineBreak ? "\n" : "";
+        String[] lines = StandardCharsets.UTF_8.decode(data.duplicate()).toString().split("\n", -1);
+
+        // A trailing line break doesnt start a new line
+        int count = lines.length > 0 && lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++)
+            result[i] = lines[i].replace("\r", "") + lb;
+        return result;
+    }
 }
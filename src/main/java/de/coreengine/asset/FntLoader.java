@@ -60,126 +60,146 @@ public class FntLoader {
             return;
 
         try {
+            createFont(file, readFontFile(file, asResource), asResource);
+        } catch (IOException ex) {
+            Logger.warn("Error by loading font", "The fnt file '" + file + "' could not be loaded!");
+        }
+    }
+
+    /**
+     * Reading the lines of a fnt file
+     *
+     * @param file       Fnt file name relative to application
+     * @param asResource Load font from resources
+     * @return Lines of the fnt file
+     * @throws IOException If the file could not be read
+     */
+    static String[] readFontFile(String file, boolean asResource) throws IOException {
+        if (asResource)
+            return FileLoader.getResource(file, false);
+        else
+            return FileLoader.readFile(file, false);
+    }
 
-            // Load fnt file
-            String[] data;
-            if (asResource)
-                data = FileLoader.getResource(file, false);
-            else
-                data = FileLoader.readFile(file, false);
-
-            // Fnt data
-            String textureAtlas = "";
-            HashMap<Integer, Character> chars = new HashMap<>();
-            VertexArrayObject vao = new VertexArrayObject();
-
-            List<Float> vertices = new LinkedList<>();
-            List<Float> offsets = new LinkedList<>();
-            List<Float> texCoords = new LinkedList<>();
-
-            int texWidth = 1, texHeight = 1;
-            float lineHeight = 1, lineWidth = 1;
-
-            // Get path of file
-            int lastSlash = file.lastIndexOf("/") + 1;
-            String path;
-            if (lastSlash == 0)
-                path = "";
-            else
-                path = file.substring(0, lastSlash);
-
-            // Iterate data
-            int indicesCounter = 0;
-            for (String line : data) {
-                String[] args = line.split(" ");
-
-                switch (args[0]) {
-                    case "common":
-
-                        // Load texture atlas
-                        for (String arg : args) {
-                            if (arg.startsWith("scaleW=")) {
-                                texWidth = Integer.parseInt(arg.split("=")[1]);
-                            } else if (arg.startsWith("scaleH=")) {
-                                texHeight = Integer.parseInt(arg.split("=")[1]);
-                            } else if (arg.startsWith("lineHeight=")) {
-                                lineHeight = Integer.parseInt(arg.split("=")[1]);
-                            }
+    /**
+     * Creating a font from the lines of a fnt file, loading its texture atlas and
+     * storing it into database
+     *
+     * @param file       Fnt file name relative to application
+     * @param data       Lines of the fnt file
+     * @param asResource Load texture atlas from resources
+     */
+    static void createFont(String file, String[] data, boolean asResource) {
+
+        // Fnt data
+        String textureAtlas = "";
+        HashMap<Integer, Character> chars = new HashMap<>();
+        VertexArrayObject vao = new VertexArrayObject();
+
+        List<Float> vertices = new LinkedList<>();
+        List<Float> offsets = new LinkedList<>();
+        List<Float> texCoords = new LinkedList<>();
+
+        int texWidth = 1, texHeight = 1;
+        float lineHeight = 1, lineWidth = 1;
+
+        // Get path of file
+        int lastSlash = file.lastIndexOf("/") + 1;
+        String path;
+        if (lastSlash == 0)
+            path = "";
+        else
+            path = file.substring(0, lastSlash);
+
+        // Iterate data
+        int indicesCounter = 0;
+        for (String line : data) {
+            String[] args = line.split(" ");
+
+            switch (args[0]) {
+                case "common":
+
+                    // Load texture atlas
+                    for (String arg : args) {
+                        if (arg.startsWith("scaleW=")) {
+                            texWidth = Integer.parseInt(arg.split("=")[1]);
+                        } else if (arg.startsWith("scaleH=")) {
+                            texHeight = Integer.parseInt(arg.split("=")[1]);
+                        } else if (arg.startsWith("lineHeight=")) {
+                            lineHeight = Integer.parseInt(arg.split("=")[1]);
                         }
+                    }
 
-                        // Bring line height in relation to image
-                        lineHeight = LINE_HEIGHT / lineHeight;
-                        lineWidth = lineHeight;
+                    // Bring line height in relation to image
+                    lineHeight = LINE_HEIGHT / lineHeight;
+                    lineWidth = lineHeight;
 
-                        break;
-                    case "page":
+                    break;
+                case "page":
 
-                        // Load texture atlas
-                        for (String arg : args) {
-                            if (arg.startsWith("file=")) {
-                                textureAtlas = path + arg.split("=")[1].replace("\"", "");
-                                TextureLoader.loadTextureFile(textureAtlas, false, GL11.GL_LINEAR, asResource);
-                            }
+                    // Load texture atlas
+                    for (String arg : args) {
+                        if (arg.startsWith("file=")) {
+                            textureAtlas = path + arg.split("=")[1].replace("\"", "");
+                            TextureLoader.loadTextureFile(textureAtlas, false, GL11.GL_LINEAR, asResource);
                         }
-
-                        break;
-                    case "char":
-
-                        int id = 0;
-                        float x = 0, y = 0, w = 0, h = 0, ox = 0, oy = 0, ax = 0;
-
-                        // Load character
-                        for (String arg : args) {
-                            if (arg.startsWith("id=")) {
-                                id = Integer.parseInt(arg.split("=")[1]);
-                            } else if (arg.startsWith("x=")) {
-                                x = Float.parseFloat(arg.split("=")[1]);
-                            } else if (arg.startsWith("y=")) {
-                                y = Float.parseFloat(arg.split("=")[1]);
-                            } else if (arg.startsWith("width=")) {
-                                w = Float.parseFloat(arg.split("=")[1]);
-                            } else if (arg.startsWith("height=")) {
-                                h = Float.parseFloat(arg.split("=")[1]);
-                            } else if (arg.startsWith("xoffset=")) {
-                                ox = Float.parseFloat(arg.split("=")[1]) * lineWidth;
-                            } else if (arg.startsWith("yoffset=")) {
-                                oy = Float.parseFloat(arg.split("=")[1]) * lineHeight;
-                            } else if (arg.startsWith("xadvance=")) {
-                                ax = Float.parseFloat(arg.split("=")[1]) * lineWidth;
-                            }
+                    }
+
+                    break;
+                case "char":
+
+                    int id = 0;
+                    float x = 0, y = 0, w = 0, h = 0, ox = 0, oy = 0, ax = 0;
+
+                    // Load character
+                    for (String arg : args) {
+                        if (arg.startsWith("id=")) {
+                            id = Integer.parseInt(arg.split("=")[1]);
+                        } else if (arg.startsWith("x=")) {
+                            x = Float.parseFloat(arg.split("=")[1]);
+                        } else if (arg.startsWith("y=")) {
+                            y = Float.parseFloat(arg.split("=")[1]);
+                        } else if (arg.startsWith("width=")) {
+                            w = Float.parseFloat(arg.split("=")[1]);
+                        } else if (arg.startsWith("height=")) {
+                            h = Float.parseFloat(arg.split("=")[1]);
+                        } else if (arg.startsWith("xoffset=")) {
+                            ox = Float.parseFloat(arg.split("=")[1]) * lineWidth;
+                        } else if (arg.startsWith("yoffset=")) {
+                            oy = Float.parseFloat(arg.split("=")[1]) * lineHeight;
+                        } else if (arg.startsWith("xadvance=")) {
+                            ax = Float.parseFloat(arg.split("=")[1]) * lineWidth;
                         }
+                    }
 
-                        // Create mesh
-                        addVertexData(vertices, texCoords, ox, -oy, w * lineWidth, h * lineHeight, x / texWidth,
-                                y / texHeight, w / texWidth, h / texHeight);
+                    // Create mesh
+                    addVertexData(vertices, texCoords, ox, -oy, w * lineWidth, h * lineHeight, x / texWidth,
+                            y / texHeight, w / texWidth, h / texHeight);
 
-                        // Load indices into mesh
-                        int[] indices = new int[6];
-                        for (int i = 0; i < 6; i++) {
-                            indices[i] = indicesCounter++;
-                        }
-                        IndexBuffer index = vao.addIndexBuffer(indices);
+                    // Load indices into mesh
+                    int[] indices = new int[6];
+                    for (int i = 0; i < 6; i++) {
+                        indices[i] = indicesCounter++;
+                    }
+                    IndexBuffer index = vao.addIndexBuffer(indices);
 
-                        // Create new character an add to vao
-                        Character newChar = new Character(ox, oy, ax, index);
-                        chars.put(id, newChar);
+                    // Create new character an add to vao
+                    Character newChar = new Character(ox, oy, ax, index);
+                    chars.put(id, newChar);
 
-                        break;
-                }
+                    break;
             }
+        }
 
-            float[] verticesArr = Toolbox.toArrayf(vertices);
-            float[] offsetsArr = Toolbox.toArrayf(offsets);
-            float[] texCoordsArr = Toolbox.toArrayf(texCoords);
+        float[] verticesArr = Toolbox.toArrayf(vertices);
+        float[] offsetsArr = Toolbox.toArrayf(offsets);
+        float[] texCoordsArr = Toolbox.toArrayf(texCoords);
 
-            vao.addVertexBuffer(verticesArr, 2, 0);
-            vao.addVertexBuffer(texCoordsArr, 2, 1);
-            vao.addVertexBuffer(offsetsArr, 2, 2);
+        vao.addVertexBuffer(verticesArr, 2, 0);
+        vao.addVertexBuffer(texCoordsArr, 2, 1);
+        vao.addVertexBuffer(offsetsArr, 2, 2);
 
-            AssetDatabase.fonts.put(file, new Font(textureAtlas, chars, vao, LINE_HEIGHT));
-        } catch (IOException ex) {
-            Logger.warn("Error by loading font", "The fnt file '" + file + "' could not be loaded!");
-        }
+        AssetDatabase.fonts.put(file, new Font(textureAtlas, chars, vao, LINE_HEIGHT));
     }
 
     private static void addVertexData(List<Float> vertices, List<Float> texCoords, float ox, float oy, float w, float h,
@@ -0,0 +1,166 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.framework.Window;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL32;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Class that owns a loader thread with its own opengl context, that is shared
+ * with the context of the window. Textures and buffers can be created there
+ * without blocking the main thread. Every task waits for a fence, before its
+ * result is returned, so the objects are complete when the main thread uses
+ * them.<br>
+ * <br>
+ * Vertex array objects are not shared between contexts and must still be
+ * created on the main thread.
+ *
+ * @author Darius Dinger
+ */
+public class LoaderContext {
+    private static final boolean ENABLED = Configuration.getValuei("LOADER_CONTEXT") != 0;
+
+    // Max time to wait for a fence per try in nanoseconds
+    private static final long FENCE_TIMEOUT = 1000000000L;
+
+    // Tasks to execute on the loader thread
+    private static final LinkedBlockingQueue<Runnable> TASKS = new LinkedBlockingQueue<>();
+
+    // Loader thread or null, if not running
+    private static Thread thread = null;
+    private static volatile boolean running = false;
+
+    /**
+     * Starting the loader thread, if enabled and the window has a loader context.
+     * Must be called on the main thread after the window was created.
+     */
+    public static void init() {
+        long context = Window.getLoaderWindow();
+        if (!ENABLED || context == 0 || thread != null)
+            return;
+
+        running = true;
+        thread = new Thread(() -> {
+            GLFW.glfwMakeContextCurrent(context);
+            GL.createCapabilities();
+
+            while (running) {
+                try {
+                    TASKS.take().run();
+                } catch (InterruptedException e) {
+                    break;
+                } catch (RuntimeException e) {
+                    Logger.warn("Error in loader context", "A loader task failed: " + e.getMessage());
+                }
+            }
+
+            GLFW.glfwMakeContextCurrent(0);
+        }, "Loader Context");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stopping the loader thread and releasing its context. Must be called before
+     * the window gets destroyed.
+     */
+    public static void stop() {
+        if (thread == null)
+            return;
+
+        running = false;
+        thread.interrupt();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * @return Is the loader thread running and accepting tasks
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Executing a task on the loader thread. When the task is done, the loader
+     * waits until the gpu has finished all commands of the task and completes the
+     * future with its result. If the task throws, the future is completed
+     * exceptionally.
+     *
+     * @param task Task, that creates gl objects
+     * @param <T>  Type of the result
+     * @return Future of the result
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Loader context is not running"));
+            return future;
+        }
+
+        TASKS.add(() -> {
+            try {
+                T result = task.get();
+                finish();
+                future.complete(result);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Waiting until the gpu has finished all commands of the loader context
+     */
+    private static void finish() {
+        long fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+
+        int state;
+        do {
+            state = GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT);
+        } while (state == GL32.GL_TIMEOUT_EXPIRED && running);
+
+        GL32.glDeleteSync(fence);
+    }
+}
@@ -41,6 +41,7 @@ import org.lwjgl.assimp.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.lwjgl.assimp.Assimp.*;
 
@@ -124,7 +125,7 @@ public class ModelLoader {
             return;
         ModelData modelData = loadModelFileData(file, shape);
         if (modelData != null)
-            AssetDatabase.models.put(file, modelData.getInstance(texPath, asResource));
+            AssetDatabase.putModel(file, modelData.getInstance(texPath, asResource));
     }
 
     /**
@@ -141,7 +142,7 @@ public class ModelLoader {
             return;
         AnimatedModelData animatedModelData = loadAnimatedModelFileData(file, shape);
         if (animatedModelData != null)
-            AssetDatabase.animatedModels.put(file, animatedModelData.getInstance(texPath, asResource));
+            AssetDatabase.putAnimatedModel(file, animatedModelData.getInstance(texPath, asResource));
     }
 
     /**
@@ -153,21 +154,7 @@ public class ModelLoader {
      * @return Meta model with raw model data
      */
     public static ModelData loadModelFileData(String file, String shape) {
-
-        // Load scene
-        AIScene aiScene = getScene(file);
-        if (aiScene == null)
-            return null;
-
-        // Static data
-        MaterialData[] materials = getMaterials(aiScene);
-        MeshData[] meshes = getMeshs(aiScene, materials, shape, null);
-
-        // Create and store model data
-        ModelData modelData = new ModelData();
-        modelData.meshes = meshes;
-
-        return modelData;
+        return loadFileData(file, shape, false);
     }
 
     /**
@@ -176,17 +163,60 @@ public class ModelLoader {
      * @param file  Model file to load
      * @param shape Collision shape, or "convex" / "triangleMesh" / null to auto
      *              generate
+     * @return Meta model with raw model data
      */
     public static AnimatedModelData loadAnimatedModelFileData(String file, String shape) {
+        return (AnimatedModelData) loadFileData(file, shape, true);
+    }
+
+    /**
+     * Loading a dataStructures model from the bake cache, or if not baked or
+     * outdated, importing it from the file and storing it in the bake cache
+     *
+     * @param file     Model file to load
+     * @param shape    Collision shape to use
+     * @param animated Load animated model data
+     * @return Loaded model data, animated model data if animated
+     */
+    private static ModelData loadFileData(String file, String shape, boolean animated) {
 
-        // Load scene
+        // Try baked model first
+        String hash = AssetBaker.getContentHash(file);
+        ModelData modelData = AssetBaker.loadBaked(file, shape, animated, hash);
+        if (modelData != null)
+            return modelData;
+
+        // Import scene
         AIScene aiScene = getScene(file);
         if (aiScene == null)
             return null;
+        modelData = parseScene(aiScene, shape, animated);
+        aiReleaseImport(aiScene);
+
+        AssetBaker.storeImported(file, shape, animated, hash, modelData);
+        return modelData;
+    }
+
+    /**
+     * Parsing the data of an imported scene
+     *
+     * @param aiScene  Scene to parse
+     * @param shape    Collision shape to use
+     * @param animated Parse skeleton and animations
+     * @return Parsed model data, animated model data if animated
+     */
+    static ModelData parseScene(AIScene aiScene, String shape, boolean animated) {
+        MaterialData[] materials = getMaterials(aiScene);
+        if (!animated) {
+
+            // Static data
+            ModelData modelData = new ModelData();
+            modelData.meshes = getMeshs(aiScene, materials, shape, null);
+            return modelData;
+        }
 
         // Static data
         List<BoneParser> boneData = new ArrayList<>();
-        MaterialData[] materials = getMaterials(aiScene);
         MeshData[] meshs = getMeshs(aiScene, materials, shape, boneData);
 
         // Animation data
@@ -204,13 +234,29 @@ public class ModelLoader {
         return animatedModelData;
     }
 
+    /**
+     * Checking if a scene contains bones or animations
+     *
+     * @param aiScene Scene to check
+     * @return True, if the scene should be loaded as animated model
+     */
+    static boolean isAnimated(AIScene aiScene) {
+        if (aiScene.mNumAnimations() > 0)
+            return true;
+        for (int i = 0; i < aiScene.mNumMeshes(); i++) {
+            if (AIMesh.create(aiScene.mMeshes().get(i)).mNumBones() > 0)
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Loading an aiScene from a file
      *
      * @param file Model file to load
      * @return Loaded AIScene
      */
-    private static AIScene getScene(String file) {
+    static AIScene getScene(String file) {
 
         // Importer flags
         int flags = aiProcess_Triangulate | aiProcess_FixInfacingNormals | aiProcess_JoinIdenticalVertices
@@ -273,12 +319,19 @@ public class ModelLoader {
         // Create mesh data structure
         MeshData[] meshes = new MeshData[meshCount];
 
-        // Iterate through meshes and parse them
-        for (int i = 0; i < meshCount; i++) {
+        // Parse meshes in parallel, bones are only parsed per mesh
+        MeshParser[] meshParsers = new MeshParser[meshCount];
+        IntStream.range(0, meshCount).parallel().forEach(i -> {
             AIMesh aiMesh = AIMesh.create(aiScene.mMeshes().get(i));
-            MeshParser meshParser = new MeshParser(aiMesh, materials);
-            meshParser.parse(shape, bones);
-            meshes[i] = meshParser.getMeshData();
+            meshParsers[i] = new MeshParser(aiMesh, materials);
+            meshParsers[i].parse(shape, bones != null);
+        });
+
+        // Merge bones of all meshes in mesh order, to keep joint ids deterministic
+        for (int i = 0; i < meshCount; i++) {
+            if (bones != null)
+                meshParsers[i].mergeBones(bones);
+            meshes[i] = meshParsers[i].getMeshData();
         }
 
         return meshes;
@@ -296,13 +349,13 @@ public class ModelLoader {
         // Create material data structure
         MaterialData[] materials = new MaterialData[matCount];
 
-        // Iterate through materials and parse them
-        for (int i = 0; i < matCount; i++) {
+        // Parse materials in parallel
+        IntStream.range(0, matCount).parallel().forEach(i -> {
             AIMaterial aiMaterial = AIMaterial.create(aiScene.mMaterials().get(i));
             MaterialParser materialParser = new MaterialParser(aiMaterial);
             materialParser.parse();
             materials[i] = materialParser.getMaterialData();
-        }
+        });
 
         return materials;
     }
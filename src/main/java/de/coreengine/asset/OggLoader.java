@@ -33,6 +33,7 @@ import org.lwjgl.openal.AL10;
 import org.lwjgl.stb.STBVorbis;
 import org.lwjgl.system.MemoryStack;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
@@ -43,6 +44,14 @@ import java.nio.ShortBuffer;
  */
 public class OggLoader {
 
+    /**
+     * Decoded sound data, that can be uploaded into an audio buffer
+     */
+    static class DecodedSound {
+        ShortBuffer audioData;
+        int channels, sampleRate;
+    }
+
     /**
      * Loading ogg sound file and storing into asset database
      *
@@ -52,28 +61,57 @@ public class OggLoader {
         if (AssetDatabase.sounds.containsKey(file))
             return;
 
-        ShortBuffer audioData;
-        int channels, sampleRate;
+        uploadSound(file, decodeSound(file));
+    }
+
+    /**
+     * Decoding an ogg sound file. Does not need the al context
+     *
+     * @param file Ogg sound file
+     * @return Decoded sound or null, if the file could not be loaded
+     */
+    static DecodedSound decodeSound(String file) {
+        DecodedSound sound = new DecodedSound();
 
         try (MemoryStack stack = MemoryStack.stackPush()) {
 
             IntBuffer channelsBuffer = stack.mallocInt(1);
             IntBuffer sampleRateBuffer = stack.mallocInt(1);
 
-            // Load sound file into buffers
-            audioData = STBVorbis.stb_vorbis_decode_filename(file, channelsBuffer, sampleRateBuffer);
-            if (audioData == null) {
+            // Load sound file from asset packs or drive into buffers
+            ByteBuffer packed = AssetPack.get(file);
+            if (packed != null)
+                sound.audioData = STBVorbis.stb_vorbis_decode_memory(packed, channelsBuffer, sampleRateBuffer);
+            else
+                sound.audioData = STBVorbis.stb_vorbis_decode_filename(file, channelsBuffer, sampleRateBuffer);
+            if (sound.audioData == null) {
                 Logger.warn("Error by loading audio", "The audio file " + file + " could not be loaded!");
+                return null;
             }
 
             // Get data from buffers
-            channels = channelsBuffer.get();
-            sampleRate = sampleRateBuffer.get();
+            sound.channels = channelsBuffer.get();
+            sound.sampleRate = sampleRateBuffer.get();
         }
 
+        return sound;
+    }
+
+    /**
+     * Uploading a decoded sound into an audio buffer and storing into asset
+     * database. If the sound is already loaded or could not be decoded, this
+     * method does nothing.
+     *
+     * @param file    Ogg sound file
+     * @param decoded Decoded sound or null
+     */
+    static void uploadSound(String file, DecodedSound decoded) {
+        if (decoded == null || AssetDatabase.sounds.containsKey(file))
+            return;
+
         // Getting format (Mono/Stereo)
         int format = AL10.AL_FORMAT_MONO16;
-        switch (channels) {
+        switch (decoded.channels) {
             case 1:
                 format = AL10.AL_FORMAT_MONO16;
                 break;
@@ -88,11 +126,11 @@ public class OggLoader {
 
         // Create audio buffer
         int sound = AL10.alGenBuffers();
-        MemoryDumper.addAudioBuffer(sound);
+        MemoryDumper.add(MemoryDumper.Type.AUDIO_BUFFER, sound, decoded.audioData.remaining() * 2L, "AssetDatabase",
+                null);
 
         // Load audio into buffer
-        assert audioData != null;
-        AL10.alBufferData(sound, format, audioData, sampleRate);
+        AL10.alBufferData(sound, format, decoded.audioData, decoded.sampleRate);
 
         AssetDatabase.sounds.put(file, sound);
     }
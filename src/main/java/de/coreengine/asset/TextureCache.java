@@ -0,0 +1,217 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Cache of decoded textures with their complete mip chain. Cached textures are
+ * keyed by the content hash of their source and memory mapped at load, so
+ * neither the image decoder nor the mipmap generation runs again.<br>
+ * <br>
+ * Format:<br>
+ * Version (int) | Width (int) | Height (int) | LevelCount (int)<br>
+ * Levels (rgba8 bytes, from full size to 1x1)
+ *
+ * @author Darius Dinger
+ */
+public class TextureCache {
+    private static final boolean ENABLED = Configuration.getValuei("TEXTURE_CACHE_ENABLED") != 0;
+    private static final String DIRECTORY = Configuration.getValues("TEXTURE_CACHE_DIRECTORY");
+
+    // Version of the cache format, increase to rebuild all cached textures
+    private static final int CACHE_VERSION = 1;
+
+    // Size of the header in bytes
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Calculating the cache key of a texture source
+     *
+     * @param source Encoded source file content
+     * @param mipmap Texture uses the mip chain
+     * @return Cache key or null, if caching is disabled
+     */
+    static String getKey(ByteBuffer source, boolean mipmap) {
+        if (!ENABLED)
+            return null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.duplicate());
+            return AssetBaker.toHex(digest.digest()) + (mipmap ? "m" : "");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loading a cached texture by mapping its cache file. A cache file with an
+     * invalid header or size is deleted, so the texture is decoded and cached
+     * again.
+     *
+     * @param key Cache key of the texture
+     * @return Texture data with mip chain (if cached with mip chain) or null, if
+     *         not cached
+     */
+    static TextureData load(String key) {
+        if (key == null)
+            return null;
+
+        Path file = getFile(key);
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            Logger.warn("Error by loading cached texture", "The cache file " + file + " could not be read!");
+            return null;
+        } catch (RuntimeException e) {
+            Logger.warn("Error by loading cached texture", "The cache file " + file + " is invalid ("
+                    + e.getMessage() + "), decoding again!");
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Logger.warn("Error by loading cached texture", "The cache file " + file + " could not be deleted!");
+        }
+        return null;
+    }
+
+    /**
+     * Reading a cached texture from the content of its cache file. Every header
+     * field is checked against the size of the file.
+     *
+     * @param data Content of the cache file
+     * @return Texture data or null, if cached with another version
+     * @throws IllegalArgumentException If the header does not match the file
+     */
+    private static TextureData read(ByteBuffer data) {
+        if (data.capacity() < HEADER_SIZE)
+            throw new IllegalArgumentException("file is smaller than the header");
+        if (data.getInt(0) != CACHE_VERSION)
+            return null;
+
+        int width = data.getInt(4), height = data.getInt(8), levels = data.getInt(12);
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("size " + width + "x" + height);
+        if (levels <= 0 || levels > 32 - Integer.numberOfLeadingZeros(Math.max(width, height)))
+            throw new IllegalArgumentException(levels + " levels for size " + width + "x" + height);
+
+        ByteBuffer[] chain = new ByteBuffer[levels];
+        long offset = HEADER_SIZE;
+        for (int level = 0; level < levels; level++) {
+            long size = (long) Math.max(1, width >> level) * Math.max(1, height >> level) * 4L;
+            if (offset + size > data.capacity())
+                throw new IllegalArgumentException("level " + level + " exceeds the file");
+
+            ByteBuffer levelData = data.duplicate();
+            levelData.position((int) offset).limit((int) (offset + size));
+            chain[level] = levelData.slice();
+            offset += size;
+        }
+        if (offset != data.capacity())
+            throw new IllegalArgumentException("file is larger than its levels");
+
+        TextureData texture = new TextureData();
+        texture.width = width;
+        texture.height = height;
+        texture.data = chain[0];
+        texture.mipChain = levels > 1 ? chain : null;
+        return texture;
+    }
+
+    /**
+     * Storing a decoded texture into the cache. Written into a temporary file
+     * first, so parallel loads or a crash can not leave a broken cache file.
+     *
+     * @param key     Cache key of the texture
+     * @param texture Decoded texture data, with mip chain if mipmapped
+     */
+    static void store(String key, TextureData texture) {
+        if (key == null || texture == null || texture.data == null)
+            return;
+
+        ByteBuffer[] chain = texture.mipChain != null ? texture.mipChain : new ByteBuffer[] { texture.data };
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(CACHE_VERSION).putInt(texture.width).putInt(texture.height).putInt(chain.length).flip();
+
+        Path file = getFile(key);
+        Path tempFile = Paths.get(file + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                for (ByteBuffer level : chain)
+                    writeFully(channel, level.duplicate());
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logger.warn("Error by caching texture", "The cache file " + file + " could not be written!");
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Writing the remaining bytes of a buffer into a channel
+     *
+     * @param channel Channel to write into
+     * @param data    Data to write
+     * @throws IOException If an IO Error occurs
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining())
+            channel.write(data);
+    }
+
+    /**
+     * @param key Cache key of the texture
+     * @return Cache file of the texture
+     */
+    private static Path getFile(String key) {
+        return Paths.get(DIRECTORY, key + ".cet");
+    }
+}
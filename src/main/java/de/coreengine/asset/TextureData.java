@@ -29,7 +29,10 @@ package de.coreengine.asset;
 
 import de.coreengine.util.Configuration;
 import de.coreengine.util.gl.MemoryDumper;
+import de.coreengine.util.gl.UploadScheduler;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.*;
+import org.lwjgl.system.MemoryUtil;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
@@ -47,6 +50,12 @@ public class TextureData implements Serializable {
     public Integer width = null, height = null;
     public String key = null;
 
+    // Mip levels from full size to 1x1, level 0 is the data itself
+    public ByteBuffer[] mipChain = null;
+
+    // Data was allocated by stb image and must be freed after upload
+    boolean stbImage = false;
+
     /**
      * Generating key to acces texture in asset database
      *
@@ -59,18 +68,39 @@ public class TextureData implements Serializable {
         if (this.key != null)
             return;
 
+        // Load to asset database
+        AssetDatabase.putTexture(key, createTexture(genMipmap, filtering, UploadScheduler.isStreaming()));
+    }
+
+    /**
+     * Creating an opengl texture from the data in the current context
+     *
+     * @param genMipmap Generate mipmap
+     * @param filtering Filtering
+     * @param stream    Stream the mip levels with the upload scheduler, only
+     *                  allowed on the main thread
+     * @return Created texture
+     */
+    int createTexture(boolean genMipmap, int filtering, boolean stream) {
         // Gen gl texture
         int tex = GL11.glGenTextures();
-        MemoryDumper.addTexture(tex);
+        long bytes = (long) width * height * 4;
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, tex, genMipmap ? bytes * 4 / 3 : bytes, "AssetDatabase", null);
 
         // Bind and fill data
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, tex);
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
-                data);
+        if (genMipmap && stream)
+            streamMipChain(tex);
+        else if (genMipmap && mipChain != null)
+            uploadMipChain();
+        else
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA,
+                    GL11.GL_UNSIGNED_BYTE, data);
 
         // Generate mip map and anisotropic filtering if enabled
         if (genMipmap) {
-            GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+            if (!stream && mipChain == null)
+                GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
             GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
             GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL14.GL_TEXTURE_LOD_BIAS, MIPMAP_LEVEL);
 
@@ -85,11 +115,98 @@ public class TextureData implements Serializable {
             GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, filtering);
         }
 
-        // Unbind texture
+        // Unbind texture and free data, streamed data is freed by the upload scheduler
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        if (!stream || !genMipmap)
+            free();
 
-        // Load to asset database
-        AssetDatabase.textures.put(key, tex);
+        return tex;
+    }
+
+    /**
+     * Freeing the pixel data and mip chain. Data allocated by stb image is freed
+     * immediately, other data is left to the garbage collector.
+     */
+    public void free() {
+        if (stbImage && data != null)
+            MemoryDumper.delete(MemoryDumper.Type.IMAGE, MemoryUtil.memAddress(data));
+        stbImage = false;
+        data = null;
+        mipChain = null;
+    }
+
+    /**
+     * Uploading all levels of the precomputed mip chain into the bound texture
+     */
+    private void uploadMipChain() {
+        for (int level = 0; level < mipChain.length; level++)
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA, Math.max(1, width >> level),
+                    Math.max(1, height >> level), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, mipChain[level]);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, mipChain.length - 1);
+    }
+
+    /**
+     * Allocating all levels of the bound texture and uploading the smallest level
+     * directly, so the texture can be used immediately. The other levels are
+     * uploaded by the upload scheduler, smallest first.
+     *
+     * @param tex Bound texture to stream mip chain into
+     */
+    private void streamMipChain(int tex) {
+        generateMipChain();
+        int last = mipChain.length - 1;
+
+        // Allocate levels and fill smallest level
+        for (int level = 0; level <= last; level++) {
+            int w = Math.max(1, width >> level), h = Math.max(1, height >> level);
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA, w, h, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+                    level == last ? mipChain[level] : null);
+        }
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL, last);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, last);
+        if (last == 0)
+            free();
+
+        for (int level = last - 1; level >= 0; level--)
+            UploadScheduler.scheduleTextureLevel(tex, level, Math.max(1, width >> level),
+                    Math.max(1, height >> level), mipChain[level], level == 0 ? this::free : null);
+    }
+
+    /**
+     * Generating the mip chain of the rgba data on the cpu with a box filter. Can
+     * be called from any thread, to keep it off the main thread.
+     */
+    public void generateMipChain() {
+        if (mipChain != null || data == null)
+            return;
+
+        int levels = 1;
+        while ((Math.max(width, height) >> levels) > 0)
+            levels++;
+
+        mipChain = new ByteBuffer[levels];
+        mipChain[0] = data;
+
+        for (int level = 1; level < levels; level++) {
+            ByteBuffer src = mipChain[level - 1];
+            int srcW = Math.max(1, width >> (level - 1)), srcH = Math.max(1, height >> (level - 1));
+            int w = Math.max(1, width >> level), h = Math.max(1, height >> level);
+            ByteBuffer dst = BufferUtils.createByteBuffer(w * h * 4);
+
+            // Average 2x2 texels, clamped at the edges of odd sizes
+            for (int y = 0; y < h; y++) {
+                int y0 = Math.min(y * 2, srcH - 1) * srcW, y1 = Math.min(y * 2 + 1, srcH - 1) * srcW;
+                for (int x = 0; x < w; x++) {
+                    int x0 = Math.min(x * 2, srcW - 1), x1 = Math.min(x * 2 + 1, srcW - 1);
+                    for (int c = 0; c < 4; c++) {
+                        int sum = (src.get((y0 + x0) * 4 + c) & 0xFF) + (src.get((y0 + x1) * 4 + c) & 0xFF)
+                                + (src.get((y1 + x0) * 4 + c) & 0xFF) + (src.get((y1 + x1) * 4 + c) & 0xFF);
+                        dst.put((y * w + x) * 4 + c, (byte) ((sum + 2) >> 2));
+                    }
+                }
+            }
+            mipChain[level] = dst;
+        }
     }
 
     /**
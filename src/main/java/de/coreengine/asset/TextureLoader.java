@@ -29,7 +29,6 @@ package de.coreengine.asset;
 
 import de.coreengine.rendering.model.Material;
 import de.coreengine.system.Game;
-import de.coreengine.util.BufferUtils;
 import de.coreengine.util.Logger;
 import de.coreengine.util.gl.MemoryDumper;
 import org.lwjgl.opengl.GL11;
@@ -37,6 +36,7 @@ import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.stb.STBImage;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -64,7 +64,10 @@ import java.nio.IntBuffer;
 public class TextureLoader {
 
     /**
-     * Load TextureData file and store into TextureData object
+     * Load TextureData file and store into TextureData object. If the texture
+     * cache contains the source, the cached data is mapped instead of decoding
+     * the source. Else the decoded data (with mip chain if mipmapped) is stored
+     * into the cache.
      * 
      * @param textureFile Path to TextureData relative to application
      * @param mipmap      Uses this TextureData mipmapping/anisotropic filtering (if
@@ -79,6 +82,7 @@ public class TextureLoader {
         // Define window icon variables
         ByteBuffer textureData = null;
         int textureWidth = 0, textureHeight = 0;
+        String cacheKey = null;
 
         // Try to load icon
         try (MemoryStack stack = MemoryStack.stackPush()) {
@@ -88,23 +92,22 @@ public class TextureLoader {
             IntBuffer w = stack.mallocInt(1);
             IntBuffer h = stack.mallocInt(1);
 
-            if (asResource) {
-
-                // Load resource
-                ByteBuffer buffer = BufferUtils.ioResourceToByteBuffer(textureFile, 8 * 1024);
-                if (buffer == null) {
-                    Logger.warn("Error by loading TextureData",
-                            "The TextureData file " + textureFile + " could not be found! Returning null!");
-                    return null;
-                }
+            // Load source from asset packs, resources or map source file
+            ByteBuffer buffer = FileLoader.readBuffer(textureFile, asResource);
+            if (buffer == null) {
+                Logger.warn("Error by loading TextureData",
+                        "The TextureData file " + textureFile + " could not be found! Returning null!");
+                return null;
+            }
 
-                // Load TextureData and throw exception at error
-                textureData = STBImage.stbi_load_from_memory(buffer, w, h, comp, 4);
-            } else {
+            // Use cached texture, if the source didnt change
+            cacheKey = TextureCache.getKey(buffer, mipmap);
+            TextureData cached = TextureCache.load(cacheKey);
+            if (cached != null)
+                return cached;
 
-                // Load TextureData and throw exception at error
-                textureData = STBImage.stbi_load(textureFile, w, h, comp, 4);
-            }
+            // Load TextureData and throw exception at error
+            textureData = STBImage.stbi_load_from_memory(buffer, w, h, comp, 4);
 
             if (textureData == null) {
                 Logger.warn("Error by loading TextureData",
@@ -126,6 +129,16 @@ public class TextureLoader {
         texture.data = textureData;
         texture.width = textureWidth;
         texture.height = textureHeight;
+        texture.stbImage = true;
+        MemoryDumper.add(MemoryDumper.Type.IMAGE, MemoryUtil.memAddress(textureData),
+                (long) textureWidth * textureHeight * 4, texture);
+
+        // Store decoded texture into the cache
+        if (cacheKey != null) {
+            if (mipmap)
+                texture.generateMipChain();
+            TextureCache.store(cacheKey, texture);
+        }
 
         return texture;
     }
@@ -143,11 +156,38 @@ public class TextureLoader {
     public static void loadTextureFile(String textureFile, boolean mipmap, int filtering, boolean asResource) {
         if (AssetDatabase.textures.containsKey(textureFile))
             return;
-        TextureData textureData = loadTextureFileMeta(textureFile, mipmap, filtering, asResource);
-        if (textureData != null)
+        uploadTexture(textureFile, loadTextureFileMeta(textureFile, mipmap, filtering, asResource), mipmap,
+                filtering, asResource);
+    }
+
+    /**
+     * Uploading decoded texture data into an opengl texture and storing into asset
+     * database. If the data could not be decoded, the white texture is stored
+     * instead. If the texture is already loaded, only the data is freed.
+     *
+     * @param textureFile Path to TextureData relative to application
+     * @param textureData Decoded texture data or null
+     * @param mipmap      Uses this TextureData mipmapping/anisotropic filtering (if
+     *                    supported)
+     * @param filtering   Wich filtering mathod (GL_NEARES, GL_LINEAR, ...)
+     * @param asResource  TextureData was loaded from resources, to reload it
+     *                    after eviction
+     */
+    static void uploadTexture(String textureFile, TextureData textureData, boolean mipmap, int filtering,
+            boolean asResource) {
+        if (AssetDatabase.textures.containsKey(textureFile)) {
+
+            // Free data of a decode, that lost the race against another one
+            if (textureData != null)
+                textureData.free();
+            return;
+        }
+        if (textureData != null) {
             textureData.generateKey(textureFile, mipmap, filtering);
-        else
-            AssetDatabase.textures.put(textureFile, AssetDatabase.getTexture(Material.TEXTURE_WHITE));
+            TextureResidency.register(textureFile, textureData.width, textureData.height, mipmap, filtering,
+                    asResource);
+        } else
+            AssetDatabase.putTexture(textureFile, AssetDatabase.getTexture(Material.TEXTURE_WHITE));
     }
 
     /**
@@ -191,7 +231,10 @@ public class TextureLoader {
 
         // Gen and bind cube map texture
         int tex = GL11.glGenTextures();
-        MemoryDumper.addTexture(tex);
+        long bytes = 0;
+        for (TextureData img : new TextureData[] { imgL, imgR, imgT, imgB, imgF, imgBa })
+            bytes += (long) img.width * img.height * 4;
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, tex, bytes, "AssetDatabase", null);
         GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, tex);
         GL11.glEnable(GL13.GL_TEXTURE_CUBE_MAP);
 
@@ -214,6 +257,14 @@ public class TextureLoader {
         GL11.glTexImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_Z, 0, GL11.GL_RGBA, imgBa.width, imgBa.height, 0,
                 GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, imgBa.data);
 
+        // Free face data, it is on the gpu now
+        imgL.free();
+        imgR.free();
+        imgT.free();
+        imgB.free();
+        imgF.free();
+        imgBa.free();
+
         // Adding filtering
         GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
@@ -224,6 +275,6 @@ public class TextureLoader {
 
         GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
 
-        AssetDatabase.textures.put(key, tex);
+        AssetDatabase.putTexture(key, tex);
     }
 }
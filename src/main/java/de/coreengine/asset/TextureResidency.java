@@ -0,0 +1,347 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import de.coreengine.util.gl.MemoryDumper;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class that keeps the memory of loaded mipmapped textures under a budget. If
+ * the resident textures exceed the budget, textures that were not used for some
+ * frames are replaced by a low resolution fallback, textures without material
+ * references first and then the least recently used. An evicted texture is
+ * reloaded, as soon as it is used again.<br>
+ * <br>
+ * Usage is tracked by the texture handles, so renderers must resolve textures
+ * by {@link AssetDatabase#getTexture(int)}.
+ *
+ * @author Darius Dinger
+ */
+public class TextureResidency {
+    private static final boolean ENABLED = Configuration.getValuei("TEXTURE_RESIDENCY_ENABLED") != 0;
+    private static final long BUDGET = Configuration.getValuei("TEXTURE_RESIDENCY_BUDGET") * 1024L * 1024L;
+    private static final int UNUSED_FRAMES = Configuration.getValuei("TEXTURE_RESIDENCY_UNUSED_FRAMES");
+    private static final int FALLBACK_SIZE = Configuration.getValuei("TEXTURE_RESIDENCY_FALLBACK_SIZE");
+
+    /**
+     * Residency state of a loaded texture
+     */
+    private static class Entry {
+
+        // Source of the texture to reload it
+        private String file;
+        private boolean mipmap, asResource;
+        private int filtering;
+
+        // Handle and full size of the texture
+        private int handle, width, height;
+
+        // Memory of the full texture and its fallback in bytes
+        private long bytes, fallbackBytes;
+
+        // Is the texture replaced by its fallback, or reloading
+        private boolean evicted = false, reloading = false;
+    }
+
+    // Residency state of all registered textures by handle
+    private static final HashMap<Integer, Entry> ENTRIES = new HashMap<>();
+
+    // Frame of the last use and material references by texture handle
+    private static int[] lastUsed = new int[64];
+    private static int[] references = new int[64];
+
+    // Current frame and memory of all registered textures in bytes
+    private static int frame = 0;
+    private static long residentBytes = 0;
+
+    /**
+     * Marking a texture as used in the current frame. Called for every texture
+     * handle lookup.
+     *
+     * @param handle Handle of the texture
+     */
+    static void touch(int handle) {
+        if (handle < lastUsed.length)
+            lastUsed[handle] = frame;
+    }
+
+    /**
+     * @param handle Handle of the texture
+     * @return True, if the texture is replaced by its low resolution fallback
+     */
+    public static synchronized boolean isEvicted(int handle) {
+        Entry entry = ENTRIES.get(handle);
+        return entry != null && entry.evicted;
+    }
+
+    /**
+     * Adding a material reference to a texture
+     *
+     * @param handle Handle of the texture
+     * @return The handle
+     */
+    public static synchronized int acquire(int handle) {
+        ensureCapacity(handle);
+        references[handle]++;
+        return handle;
+    }
+
+    /**
+     * Removing a material reference from a texture. Textures without references
+     * are evicted first.
+     *
+     * @param handle Handle of the texture
+     */
+    public static synchronized void release(int handle) {
+        if (handle < references.length && references[handle] > 0)
+            references[handle]--;
+    }
+
+    /**
+     * Registering a loaded texture, so it can be evicted and reloaded. Must be
+     * called on the main thread after the texture was stored into the database.
+     *
+     * @param file       Name and file of the texture
+     * @param width      Width of the texture in pixels
+     * @param height     Height of the texture in pixels
+     * @param mipmap     Texture is mipmapped
+     * @param filtering  Filtering of the texture
+     * @param asResource Texture was loaded from resources
+     */
+    static void register(String file, int width, int height, boolean mipmap, int filtering, boolean asResource) {
+        int handle = AssetDatabase.getTextureHandle(file);
+        if (ENTRIES.containsKey(handle))
+            return;
+
+        Entry entry = new Entry();
+        entry.file = file;
+        entry.handle = handle;
+        entry.width = width;
+        entry.height = height;
+        entry.mipmap = mipmap;
+        entry.filtering = filtering;
+        entry.asResource = asResource;
+        entry.bytes = getBytes(width, height, mipmap);
+        ENTRIES.put(handle, entry);
+        residentBytes += entry.bytes;
+
+        synchronized (TextureResidency.class) {
+            ensureCapacity(handle);
+        }
+        lastUsed[handle] = frame;
+    }
+
+    /**
+     * Reloading used evicted textures and evicting unused textures, if the
+     * resident memory exceeds the budget. Must be called once per frame on the
+     * main thread.
+     */
+    public static void update() {
+        frame++;
+        if (!ENABLED)
+            return;
+
+        // Reload evicted textures, that were used in the last frame
+        for (Entry entry : ENTRIES.values()) {
+            if (entry.evicted && !entry.reloading && frame - lastUsed[entry.handle] <= 1)
+                reload(entry);
+        }
+
+        if (residentBytes <= BUDGET)
+            return;
+
+        // Collect unused textures, without references first, then least recently used
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : ENTRIES.values()) {
+            if (!entry.evicted && !entry.reloading && entry.mipmap
+                    && frame - lastUsed[entry.handle] > UNUSED_FRAMES && getFallbackLevel(entry) > 0)
+                candidates.add(entry);
+        }
+        candidates.sort(Comparator.comparingInt((Entry e) -> references[e.handle] > 0 ? 1 : 0)
+                .thenComparingInt(e -> lastUsed[e.handle]));
+
+        for (Entry entry : candidates) {
+            if (residentBytes <= BUDGET)
+                break;
+            evict(entry);
+        }
+    }
+
+    /**
+     * Replacing a texture by a low resolution copy of one of its mip levels
+     *
+     * @param entry Texture to evict
+     */
+    private static void evict(Entry entry) {
+        Integer texture = AssetDatabase.textures.get(entry.file);
+        if (texture == null)
+            return;
+
+        // Dont evict textures, whose levels are still streaming
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        if (GL11.glGetTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL) > 0) {
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+            return;
+        }
+
+        // Read fallback level back
+        int level = getFallbackLevel(entry);
+        int width = Math.max(1, entry.width >> level), height = Math.max(1, entry.height >> level);
+        ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4);
+        GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 4);
+        GL11.glGetTexImage(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels);
+
+        // Create fallback texture
+        int fallback = GL11.glGenTextures();
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, fallback, getBytes(width, height, true), "AssetDatabase", null);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fallback);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA,
+                GL11.GL_UNSIGNED_BYTE, pixels);
+        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+        // Mark as evicted before replacing, so observers of the replacement see it
+        entry.evicted = true;
+        replace(entry, fallback);
+        entry.fallbackBytes = getBytes(width, height, true);
+        residentBytes -= entry.bytes - entry.fallbackBytes;
+    }
+
+    /**
+     * Reloading an evicted texture asynchronous and replacing its fallback
+     *
+     * @param entry Texture to reload
+     */
+    private static void reload(Entry entry) {
+        entry.reloading = true;
+        AsyncAssetLoader.reloadTexture(entry.file, entry.mipmap, entry.filtering, entry.asResource)
+                .whenComplete((texture, error) -> {
+                    entry.reloading = false;
+                    if (error != null || texture == null) {
+                        Logger.warn("Error by reloading texture",
+                                "The texture " + entry.file + " could not be reloaded! Keeping fallback");
+                        return;
+                    }
+
+                    entry.evicted = false;
+                    replace(entry, texture);
+                    residentBytes += entry.bytes - entry.fallbackBytes;
+                    lastUsed[entry.handle] = frame;
+                });
+    }
+
+    /**
+     * Replacing the texture of an entry in the database and deleting the old one
+     *
+     * @param entry   Entry to replace texture of
+     * @param texture New texture
+     */
+    private static void replace(Entry entry, int texture) {
+        Integer old = AssetDatabase.textures.get(entry.file);
+        AssetDatabase.putTexture(entry.file, texture);
+        if (old != null && old != texture)
+            MemoryDumper.delete(MemoryDumper.Type.TEXTURE, old);
+    }
+
+    /**
+     * @param entry Texture to get fallback level of
+     * @return First mip level, that is not bigger than the fallback size
+     */
+    private static int getFallbackLevel(Entry entry) {
+        int level = 0;
+        while (Math.max(entry.width >> level, entry.height >> level) > FALLBACK_SIZE)
+            level++;
+        return level;
+    }
+
+    /**
+     * @param width  Width of the texture in pixels
+     * @param height Height of the texture in pixels
+     * @param mipmap Texture has a mip chain
+     * @return Memory of a rgba8 texture in bytes
+     */
+    private static long getBytes(int width, int height, boolean mipmap) {
+        long bytes = (long) width * height * 4;
+        return mipmap ? bytes * 4 / 3 : bytes;
+    }
+
+    /**
+     * Growing the handle tables, so they contain the handle
+     *
+     * @param handle Handle to fit
+     */
+    private static void ensureCapacity(int handle) {
+        if (handle < references.length)
+            return;
+
+        int capacity = Math.max(handle + 1, references.length * 2);
+        references = Arrays.copyOf(references, capacity);
+        lastUsed = Arrays.copyOf(lastUsed, capacity);
+    }
+
+    /**
+     * @return Memory of all registered textures in bytes, evicted textures with
+     *         their fallback
+     */
+    public static long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return Memory budget of the registered textures in bytes
+     */
+    public static long getBudget() {
+        return BUDGET;
+    }
+
+    /**
+     * @return Count of textures, that are currently replaced by their fallback
+     */
+    public static int getEvictedCount() {
+        int count = 0;
+        for (Entry entry : ENTRIES.values()) {
+            if (entry.evicted)
+                count++;
+        }
+        return count;
+    }
+}
@@ -29,23 +29,36 @@
 package de.coreengine.asset.dataStructures;
 
 import de.coreengine.animation.Animation;
+import de.coreengine.animation.AnimationBaker;
 import de.coreengine.animation.Joint;
 import de.coreengine.rendering.model.AnimatedModel;
 import de.coreengine.rendering.model.Mesh;
 import de.coreengine.util.ByteArrayUtils;
+import de.coreengine.util.Configuration;
 import de.coreengine.util.Logger;
 
 import javax.vecmath.Matrix4f;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 
 public class AnimatedModelData extends ModelData {
+    private static final boolean COMPRESS_ANIMATIONS = Configuration.getValuei("ANIMATION_COMPRESSION") != 0;
+    private static final float POSITION_TOLERANCE = Configuration
+            .getValuef("ANIMATION_COMPRESSION_POSITION_TOLERANCE");
+    private static final float ROTATION_TOLERANCE = Configuration
+            .getValuef("ANIMATION_COMPRESSION_ROTATION_TOLERANCE");
+    private static final float SCALE_TOLERANCE = Configuration.getValuef("ANIMATION_COMPRESSION_SCALE_TOLERANCE");
 
     // Data
     public Joint skeleton = null;
     public HashMap<String, Animation> animations = null;
 
+    // Converted animations and the animations they were converted from
+    private byte[][] animationBytes = null;
+    private Animation[] convertedAnimations = null;
+
     /**
      * Constructing this animated model data from bytes.<br>
      * <br>
@@ -120,33 +133,114 @@ public class AnimatedModelData extends ModelData {
      */
     @Override
     public byte[] toBytes() {
+        byte[][] animationData = getAnimationBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(getByteSize(animationData));
+        toBytes(buffer, animationData);
+        return buffer.array();
+    }
 
-        // Get model and skeleton bytes
-        byte[] modelData = super.toBytes();
-        byte[] skeletonData = skeleton == null ? new byte[0] : skeleton.toBytes();
-
-        // Create meta data
-        int[] modelSkeletonAnimationsSizesI = new int[] { modelData.length, skeleton == null ? 0 : skeletonData.length,
-                animations == null ? 0 : animations.size() };
-        byte[] modelSkeletonAnimationsSizes = ByteArrayUtils.toBytes(modelSkeletonAnimationsSizesI);
-
-        // Create animations data
-        byte[][] animationsA = new byte[modelSkeletonAnimationsSizesI[2]][];
-        int[] animationsSizesI = new int[animationsA.length];
-        if (animations != null) {
-            int c = 0;
-            for (String animationName : animations.keySet()) {
-                Animation animation = animations.get(animationName);
-                animationsA[c] = animation.toBytes();
-                animationsSizesI[c] = animationsA[c].length;
-            }
+    /**
+     * Writing the dataStructure animated model into a big endian buffer, in the
+     * same format as {@link #toBytes()}
+     *
+     * @param buffer Buffer to write animated model into, needs getByteSize()
+     *               remaining bytes
+     */
+    @Override
+    public void toBytes(ByteBuffer buffer) {
+        toBytes(buffer, getAnimationBytes());
+    }
+
+    /**
+     * @return Size of the dataStructure animated model in bytes
+     */
+    @Override
+    public int getByteSize() {
+        return getByteSize(getAnimationBytes());
+    }
+
+    /**
+     * Writing the dataStructure animated model with already converted animations
+     * into a buffer
+     *
+     * @param buffer        Buffer to write animated model into
+     * @param animationData Converted animations
+     */
+    private void toBytes(ByteBuffer buffer, byte[][] animationData) {
+
+        // Put meta data
+        buffer.putInt(super.getByteSize()).putInt(skeleton == null ? 0 : skeleton.getByteSize())
+                .putInt(animationData.length);
+        for (byte[] animation : animationData)
+            buffer.putInt(animation.length);
+
+        // Put model, skeleton and animations
+        super.toBytes(buffer);
+        if (skeleton != null)
+            skeleton.toBytes(buffer);
+        for (byte[] animation : animationData)
+            buffer.put(animation);
+    }
+
+    /**
+     * @param animationData Converted animations
+     * @return Size of the dataStructure animated model in bytes
+     */
+    private int getByteSize(byte[][] animationData) {
+        int size = 12 + super.getByteSize() + (skeleton == null ? 0 : skeleton.getByteSize());
+        for (byte[] animation : animationData)
+            size += 4 + animation.length;
+        return size;
+    }
+
+    /**
+     * Converting all animations into bytes. The converted animations are cached
+     * until the animations of the model change, so they are only compressed once.
+     *
+     * @return All animations converted into bytes
+     */
+    byte[][] getAnimationBytes() {
+        if (animations == null)
+            return new byte[0][];
+
+        Animation[] current = animations.values().toArray(new Animation[0]);
+        if (animationBytes == null || !Arrays.equals(current, convertedAnimations)) {
+            animationBytes = new byte[current.length][];
+            for (int i = 0; i < current.length; i++)
+                animationBytes[i] = animationToBytes(current[i]);
+            convertedAnimations = current;
+        }
+        return animationBytes;
+    }
+
+    /**
+     * Converting an animation into bytes, compressed if animation compression is
+     * enabled in the configuration
+     *
+     * @param animation Animation to convert
+     * @return Converted byte array
+     */
+    static byte[] animationToBytes(Animation animation) {
+        return COMPRESS_ANIMATIONS
+                ? animation.toCompressedBytes(POSITION_TOLERANCE, ROTATION_TOLERANCE, SCALE_TOLERANCE)
+                : animation.toBytes();
+    }
+
+    /**
+     * Baking an animation of this model offline into a joint matrix table, that
+     * can be saved and later be uploaded as texture by the baked animation data.
+     *
+     * @param animation  Name of the animation to bake
+     * @param sampleRate Samples per animation time unit
+     * @return Baked animation data or null, if animation not found
+     */
+    public BakedAnimationData bakeAnimation(String animation, float sampleRate) {
+        if (animations == null || !animations.containsKey(animation)) {
+            Logger.warn("Error by baking animation", "The animation " + animation + " does not exist in this model!");
+            return null;
         }
-        byte[] animationSizes = ByteArrayUtils.toBytes(animationsSizesI);
-        byte[] animations = ByteArrayUtils.combine(animationsA);
 
-        // Combine and return
-        return ByteArrayUtils.combine(modelSkeletonAnimationsSizes, animationSizes, modelData, skeletonData,
-                animations);
+        return AnimationBaker.bake(skeleton, animations.get(animation), sampleRate);
     }
 
     /**
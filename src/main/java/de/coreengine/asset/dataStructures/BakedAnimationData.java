@@ -0,0 +1,149 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.dataStructures;
+
+import de.coreengine.rendering.model.BakedAnimation;
+import de.coreengine.util.ByteArrayUtils;
+import de.coreengine.util.Logger;
+import de.coreengine.util.gl.MemoryDumper;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Baked animation data that can be saved in a file. Stores the joint matrices
+ * of every sampled frame of an animation.
+ *
+ * @author Darius Dinger
+ */
+public class BakedAnimationData {
+
+    // Data
+    public String name = null;
+    public float sampleRate = 0.0f, length = 0.0f;
+    public int frameCount = 0, jointCount = 0;
+    public float[] matrices = null;
+
+    /**
+     * Constructing baked animation data from a byte array.<br>
+     * <br>
+     * Format:<br>
+     * First Sector [MetaData]:<br>
+     * NameSize (int) | FrameCount (int) | JointCount (int) | SampleRate (float) |
+     * Length (float)<br>
+     * <br>
+     * Second Sector [Data]:<br>
+     * Name (String) | Matrices (float[], column major, joint after joint, frame
+     * after frame)<br>
+     *
+     * @param data Data to construct baked animation from
+     */
+    public void fromBytes(byte[] data) {
+
+        // Get meta data
+        int counter = 0;
+        int[] sizes = ByteArrayUtils.fromBytesi(Arrays.copyOfRange(data, counter, counter += 12));
+        float[] times = ByteArrayUtils.fromBytesf(Arrays.copyOfRange(data, counter, counter += 8));
+
+        frameCount = sizes[1];
+        jointCount = sizes[2];
+        sampleRate = times[0];
+        length = times[1];
+
+        // Get data
+        name = new String(Arrays.copyOfRange(data, counter, counter += sizes[0]));
+        matrices = ByteArrayUtils
+                .fromBytesf(Arrays.copyOfRange(data, counter, counter += frameCount * jointCount * 16 * 4));
+    }
+
+    /**
+     * Converting the baked animation into a byte array.<br>
+     * <br>
+     * Format:<br>
+     * First Sector [MetaData]:<br>
+     * NameSize (int) | FrameCount (int) | JointCount (int) | SampleRate (float) |
+     * Length (float)<br>
+     * <br>
+     * Second Sector [Data]:<br>
+     * Name (String) | Matrices (float[], column major, joint after joint, frame
+     * after frame)<br>
+     *
+     * @return Converted byte array
+     */
+    public byte[] toBytes() {
+        byte[] nameData = name.getBytes();
+        byte[] sizes = ByteArrayUtils.toBytes(new int[] { nameData.length, frameCount, jointCount });
+        byte[] times = ByteArrayUtils.toBytes(new float[] { sampleRate, length });
+
+        return ByteArrayUtils.combine(sizes, times, nameData, ByteArrayUtils.toBytes(matrices));
+    }
+
+    /**
+     * Uploading the matrix table into a float texture. Every texel row is one
+     * frame, every four texels of a row are the columns of one joint matrix.
+     *
+     * @return Created baked animation instance or null, if no data
+     */
+    public BakedAnimation getInstance() {
+        if (matrices == null || frameCount == 0 || jointCount == 0) {
+            Logger.warn("Error by creating baked animation instance",
+                    "The baked animation contains no frames! Returning null");
+            return null;
+        }
+
+        int width = jointCount * 4;
+        int maxSize = GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE);
+        if (width > maxSize || frameCount > maxSize) {
+            Logger.warn("Error by creating baked animation instance", "The baked animation " + name
+                    + " exceeds the max texture size of " + maxSize + "! Lower the sample rate. Returning null");
+            return null;
+        }
+
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(matrices.length);
+        buffer.put(matrices).flip();
+
+        // Gen gl texture
+        int tex = GL11.glGenTextures();
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, tex, (long) width * frameCount * 16, "BakedAnimation", null);
+
+        // Bind and fill data, no filtering because texels are matrix columns
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, tex);
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL30.GL_RGBA32F, width, frameCount, 0, GL11.GL_RGBA, GL11.GL_FLOAT,
+                buffer);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+        return new BakedAnimation(name, tex, frameCount, jointCount, sampleRate, length);
+    }
+}
@@ -33,6 +33,7 @@ import de.coreengine.rendering.model.Material;
 import de.coreengine.util.ByteArrayUtils;
 import org.lwjgl.opengl.GL11;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -144,53 +145,63 @@ public class MaterialData {
          * @return Converted byte array
          */
         public byte[] toBytes() {
+                ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+                toBytes(buffer);
+                return buffer.array();
+        }
+
+        /**
+         * Writing the dataStructure material into a big endian buffer, in the same
+         * format as {@link #toBytes()}
+         *
+         * @param buffer Buffer to write material into, needs getByteSize() remaining
+         *               bytes
+         */
+        public void toBytes(ByteBuffer buffer) {
+                byte[][] maps = getMapBytes();
+
+                // Put dataStructures data
+                buffer.put(diffuseColor == null ? (byte) 1 : (byte) 0).put(glowColor == null ? (byte) 1 : (byte) 0);
+                for (byte[] map : maps)
+                        buffer.putShort((short) map.length);
+                buffer.put(displacementFactor == null ? (byte) 1 : (byte) 0).put(tiling == null ? (byte) 1 : (byte) 0)
+                                .put(shininess == null ? (byte) 1 : (byte) 0)
+                                .put(shineDamping == null ? (byte) 1 : (byte) 0);
+
+                // Put data
+                buffer.putFloat(diffuseColor == null ? 1.0f : diffuseColor.getRed())
+                                .putFloat(diffuseColor == null ? 1.0f : diffuseColor.getGreen())
+                                .putFloat(diffuseColor == null ? 1.0f : diffuseColor.getBlue())
+                                .putFloat(glowColor == null ? 1.0f : glowColor.getRed())
+                                .putFloat(glowColor == null ? 1.0f : glowColor.getGreen())
+                                .putFloat(glowColor == null ? 1.0f : glowColor.getBlue());
+                for (byte[] map : maps)
+                        buffer.put(map);
+                buffer.putFloat(displacementFactor == null ? 0.0f : displacementFactor)
+                                .putFloat(tiling == null ? 0.0f : tiling).putFloat(shininess == null ? 0.0f : shininess)
+                                .putFloat(shineDamping == null ? 0.0f : shineDamping);
+        }
 
-                // Define dataStructures data
-                byte[] defaultColors = new byte[] { diffuseColor == null ? (byte) 1 : (byte) 0,
-                                glowColor == null ? (byte) 1 : (byte) 0, };
-
-                short[] mapSizesS = new short[] { diffuseMap == null ? 0 : (short) diffuseMap.length(),
-                                normalMap == null ? 0 : (short) normalMap.length(),
-                                specularMap == null ? 0 : (short) specularMap.length(),
-                                displacementMap == null ? 0 : (short) displacementMap.length(),
-                                ambientOcclusionMap == null ? 0 : (short) ambientOcclusionMap.length(),
-                                alphaMap == null ? 0 : (short) alphaMap.length(),
-                                reflectionMap == null ? 0 : (short) reflectionMap.length(),
-                                glowMap == null ? 0 : (short) glowMap.length() };
-                byte[] mapSizes = ByteArrayUtils.toBytes(mapSizesS);
-
-                byte[] defaultFloats = new byte[] { displacementFactor == null ? (byte) 1 : (byte) 0,
-                                tiling == null ? (byte) 1 : (byte) 0, shininess == null ? (byte) 1 : (byte) 0,
-                                shineDamping == null ? (byte) 1 : (byte) 0, };
-
-                // Define data
-                float[] colorsF = new float[] { diffuseColor == null ? 1.0f : diffuseColor.getRed(),
-                                diffuseColor == null ? 1.0f : diffuseColor.getGreen(),
-                                diffuseColor == null ? 1.0f : diffuseColor.getBlue(),
-                                glowColor == null ? 1.0f : glowColor.getRed(),
-                                glowColor == null ? 1.0f : glowColor.getGreen(),
-                                glowColor == null ? 1.0f : glowColor.getBlue(), };
-                byte[] colors = ByteArrayUtils.toBytes(colorsF);
-
-                byte[] diffuseMapBytes = diffuseMap == null ? new byte[0] : diffuseMap.getBytes();
-                byte[] normalMapBytes = normalMap == null ? new byte[0] : normalMap.getBytes();
-                byte[] specularMapBytes = specularMap == null ? new byte[0] : specularMap.getBytes();
-                byte[] displacementMapBytes = displacementMap == null ? new byte[0] : displacementMap.getBytes();
-                byte[] ambientOcclusionMapBytes = ambientOcclusionMap == null ? new byte[0]
-                                : ambientOcclusionMap.getBytes();
-                byte[] alphaMapBytes = alphaMap == null ? new byte[0] : alphaMap.getBytes();
-                byte[] reflectionMapBytes = reflectionMap == null ? new byte[0] : reflectionMap.getBytes();
-                byte[] glowMapBytes = glowMap == null ? new byte[0] : glowMap.getBytes();
-
-                float[] floatsF = new float[] { displacementFactor == null ? 0.0f : displacementFactor,
-                                tiling == null ? 0.0f : tiling, shininess == null ? 0.0f : shininess,
-                                shineDamping == null ? 0.0f : shineDamping };
-                byte[] floats = ByteArrayUtils.toBytes(floatsF);
-
-                // Create and return final array
-                return ByteArrayUtils.combine(defaultColors, mapSizes, defaultFloats, colors, diffuseMapBytes,
-                                normalMapBytes, specularMapBytes, displacementMapBytes, ambientOcclusionMapBytes,
-                                alphaMapBytes, reflectionMapBytes, glowMapBytes, floats);
+        /**
+         * @return Size of the dataStructure material in bytes
+         */
+        public int getByteSize() {
+                int size = 46 + 16;
+                for (byte[] map : getMapBytes())
+                        size += map.length;
+                return size;
+        }
+
+        /**
+         * @return Bytes of all texture paths in file order, empty if not set
+         */
+        private byte[][] getMapBytes() {
+                String[] maps = { diffuseMap, normalMap, specularMap, displacementMap, ambientOcclusionMap, alphaMap,
+                                reflectionMap, glowMap };
+                byte[][] mapBytes = new byte[maps.length][];
+                for (int i = 0; i < maps.length; i++)
+                        mapBytes[i] = maps[i] == null ? new byte[0] : maps[i].getBytes();
+                return mapBytes;
         }
 
         /**
@@ -209,21 +220,21 @@ public class MaterialData {
 
                 // Loading textures
                 if (diffuseMap != null)
-                        instance.diffuseMap = loadTexture(diffuseMap, texPath, asResource);
+                        instance.setDiffuseMap(loadTexture(diffuseMap, texPath, asResource));
                 if (normalMap != null)
-                        instance.normalMap = loadTexture(normalMap, texPath, asResource);
+                        instance.setNormalMap(loadTexture(normalMap, texPath, asResource));
                 if (specularMap != null)
-                        instance.specularMap = loadTexture(specularMap, texPath, asResource);
+                        instance.setSpecularMap(loadTexture(specularMap, texPath, asResource));
                 if (displacementMap != null)
-                        instance.displacementMap = loadTexture(displacementMap, texPath, asResource);
+                        instance.setDisplacementMap(loadTexture(displacementMap, texPath, asResource));
                 if (ambientOcclusionMap != null)
-                        instance.ambientOcclusionMap = loadTexture(ambientOcclusionMap, texPath, asResource);
+                        instance.setAmbientOcclusionMap(loadTexture(ambientOcclusionMap, texPath, asResource));
                 if (alphaMap != null)
-                        instance.alphaMap = loadTexture(alphaMap, texPath, asResource);
+                        instance.setAlphaMap(loadTexture(alphaMap, texPath, asResource));
                 if (reflectionMap != null)
-                        instance.reflectionMap = loadTexture(reflectionMap, texPath, asResource);
+                        instance.setReflectionMap(loadTexture(reflectionMap, texPath, asResource));
                 if (glowMap != null)
-                        instance.glowMap = loadTexture(glowMap, texPath, asResource);
+                        instance.setGlowMap(loadTexture(glowMap, texPath, asResource));
 
                 // Copy floats
                 if (displacementFactor != null)
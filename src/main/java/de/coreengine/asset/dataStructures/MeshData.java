@@ -32,16 +32,37 @@ import com.bulletphysics.collision.shapes.CollisionShape;
 import com.bulletphysics.collision.shapes.ConvexHullShape;
 import com.bulletphysics.collision.shapes.TriangleMeshShape;
 import de.coreengine.rendering.model.Mesh;
+import de.coreengine.rendering.programs.EntityShader;
 import de.coreengine.util.ByteArrayUtils;
+import de.coreengine.util.Configuration;
 import de.coreengine.util.Logger;
 import de.coreengine.util.bullet.CollisionShapeParser;
 import de.coreengine.util.bullet.Physics;
 import de.coreengine.util.gl.IndexBuffer;
+import de.coreengine.util.gl.MeshPool;
 import de.coreengine.util.gl.VertexArrayObject;
+import de.coreengine.util.gl.VertexLayout;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class MeshData {
+        private static final int VERTEX_FORMAT = Configuration.getValuei("MESH_VERTEX_FORMAT");
+        private static final boolean SHORT_INDICES = Configuration.getValuei("MESH_SHORT_INDICES") != 0;
+
+        // Vertex formats: One float buffer per attribute, interleaved floats,
+        // interleaved quantized attributes
+        private static final int VERTEX_FORMAT_SEPARATE = 0, VERTEX_FORMAT_INTERLEAVED = 1,
+                        VERTEX_FORMAT_QUANTIZED = 2;
 
         // Data
         public float[] vertices = null, texCoords = null, normals = null, tangents = null, weights = null;
@@ -49,6 +70,41 @@ public class MeshData {
         public MaterialData material = null;
         public String shape = null;
 
+        // Direct buffers of a mapped model file, used instead of the arrays if set
+        public FloatBuffer verticesBuffer = null, texCoordsBuffer = null, normalsBuffer = null,
+                        tangentsBuffer = null, weightsBuffer = null;
+        public IntBuffer indicesBuffer = null, jointIdsBuffer = null;
+
+        // Indices of the lower detail levels, sharing the vertices of the mesh
+        public int[][] lodIndices = null;
+
+        /**
+         * Filled gl buffer, that was created in the loader context
+         */
+        private static class GpuBuffer {
+
+                // Id and size of the buffer
+                private final int id;
+                private final long bytes;
+
+                // Layout of a vertex buffer or null for an index buffer
+                private final VertexLayout layout;
+
+                // Count and gl type of the indices of an index buffer
+                private final int count, type;
+
+                private GpuBuffer(int id, long bytes, VertexLayout layout, int count, int type) {
+                        this.id = id;
+                        this.bytes = bytes;
+                        this.layout = layout;
+                        this.count = count;
+                        this.type = type;
+                }
+        }
+
+        // Buffers created by createBuffers, attached to the vao by getInstance
+        private List<GpuBuffer> vertexBuffers = null, indexBuffers = null;
+
         /**
          * Constructing dataStructure mesh from a byte array.<br>
          * <br>
@@ -126,31 +182,107 @@ public class MeshData {
          * @return Converted byte array
          */
         public byte[] toBytes() {
+                ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+                toBytes(buffer);
+                return buffer.array();
+        }
 
-                // Get material and collision shape bytes
-                byte[] materialBytes = material == null ? new byte[0] : material.toBytes();
+        /**
+         * Writing the dataStructure mesh into a big endian buffer, in the same
+         * format as {@link #toBytes()}
+         *
+         * @param buffer Buffer to write mesh into, needs getByteSize() remaining
+         *               bytes
+         */
+        public void toBytes(ByteBuffer buffer) {
                 byte[] shapeBytes = shape == null ? new byte[0] : shape.getBytes();
 
-                // Define dataStructures data
-                int[] metaDataI = new int[] { vertices == null ? 0 : vertices.length * 4,
-                                texCoords == null ? 0 : texCoords.length * 4, normals == null ? 0 : normals.length * 4,
-                                tangents == null ? 0 : tangents.length * 4, jointIds == null ? 0 : jointIds.length * 4,
-                                weights == null ? 0 : weights.length * 4, indices == null ? 0 : indices.length * 4,
-                                material == null ? 0 : materialBytes.length, shape == null ? 0 : shapeBytes.length };
-                byte[] metaData = ByteArrayUtils.toBytes(metaDataI);
+                // Put dataStructures data
+                buffer.putInt(getCount(vertices, verticesBuffer) * 4).putInt(getCount(texCoords, texCoordsBuffer) * 4)
+                                .putInt(getCount(normals, normalsBuffer) * 4)
+                                .putInt(getCount(tangents, tangentsBuffer) * 4)
+                                .putInt(getCount(jointIds, jointIdsBuffer) * 4)
+                                .putInt(getCount(weights, weightsBuffer) * 4)
+                                .putInt(getCount(indices, indicesBuffer) * 4)
+                                .putInt(material == null ? 0 : material.getByteSize()).putInt(shapeBytes.length);
+
+                // Put mesh data
+                putValues(buffer, vertices, verticesBuffer);
+                putValues(buffer, texCoords, texCoordsBuffer);
+                putValues(buffer, normals, normalsBuffer);
+                putValues(buffer, tangents, tangentsBuffer);
+                putValues(buffer, jointIds, jointIdsBuffer);
+                putValues(buffer, weights, weightsBuffer);
+                putValues(buffer, indices, indicesBuffer);
+
+                // Put material and collision shape
+                if (material != null)
+                        material.toBytes(buffer);
+                buffer.put(shapeBytes);
+        }
+
+        /**
+         * @return Size of the dataStructure mesh in bytes
+         */
+        public int getByteSize() {
+                int values = getCount(vertices, verticesBuffer) + getCount(texCoords, texCoordsBuffer)
+                                + getCount(normals, normalsBuffer) + getCount(tangents, tangentsBuffer)
+                                + getCount(jointIds, jointIdsBuffer) + getCount(weights, weightsBuffer)
+                                + getCount(indices, indicesBuffer);
+                return 36 + values * 4 + (material == null ? 0 : material.getByteSize())
+                                + (shape == null ? 0 : shape.getBytes().length);
+        }
+
+        /**
+         * @param values Values as array or null
+         * @param buffer Values as buffer, used if array is null
+         * @return Count of values
+         */
+        static int getCount(float[] values, FloatBuffer buffer) {
+                return values != null ? values.length : buffer != null ? buffer.remaining() : 0;
+        }
+
+        /**
+         * @param values Values as array or null
+         * @param buffer Values as buffer, used if array is null
+         * @return Count of values
+         */
+        static int getCount(int[] values, IntBuffer buffer) {
+                return values != null ? values.length : buffer != null ? buffer.remaining() : 0;
+        }
 
-                // Define mesh data
-                byte[] verticesBytes = vertices == null ? new byte[0] : ByteArrayUtils.toBytes(vertices);
-                byte[] texCoordsBytes = texCoords == null ? new byte[0] : ByteArrayUtils.toBytes(texCoords);
-                byte[] normalsBytes = normals == null ? new byte[0] : ByteArrayUtils.toBytes(normals);
-                byte[] tangentsBytes = tangents == null ? new byte[0] : ByteArrayUtils.toBytes(tangents);
-                byte[] jointIdsBytes = jointIds == null ? new byte[0] : ByteArrayUtils.toBytes(jointIds);
-                byte[] weightsBytes = weights == null ? new byte[0] : ByteArrayUtils.toBytes(weights);
-                byte[] indicesBytes = indices == null ? new byte[0] : ByteArrayUtils.toBytes(indices);
+        /**
+         * Putting values into a buffer, from the array or if not set from the
+         * direct buffer
+         *
+         * @param out    Buffer to put values into
+         * @param values Values as array or null
+         * @param buffer Values as buffer, used if array is null
+         */
+        private static void putValues(ByteBuffer out, float[] values, FloatBuffer buffer) {
+                int count = getCount(values, buffer);
+                if (values != null)
+                        out.asFloatBuffer().put(values);
+                else if (buffer != null)
+                        out.asFloatBuffer().put(buffer.duplicate());
+                out.position(out.position() + count * 4);
+        }
 
-                // Create and return final byte array
-                return ByteArrayUtils.combine(metaData, verticesBytes, texCoordsBytes, normalsBytes, tangentsBytes,
-                                jointIdsBytes, weightsBytes, indicesBytes, materialBytes, shapeBytes);
+        /**
+         * Putting values into a buffer, from the array or if not set from the
+         * direct buffer
+         *
+         * @param out    Buffer to put values into
+         * @param values Values as array or null
+         * @param buffer Values as buffer, used if array is null
+         */
+        private static void putValues(ByteBuffer out, int[] values, IntBuffer buffer) {
+                int count = getCount(values, buffer);
+                if (values != null)
+                        out.asIntBuffer().put(values);
+                else if (buffer != null)
+                        out.asIntBuffer().put(buffer.duplicate());
+                out.position(out.position() + count * 4);
         }
 
         /**
@@ -162,56 +294,38 @@ public class MeshData {
          */
         public Mesh getInstance(String texPath, boolean asResource, boolean animated) {
 
-                // Create vao
-                VertexArrayObject vao = new VertexArrayObject();
-                if (vertices != null)
-                        vao.addVertexBuffer(vertices, 3, 0);
-                else {
+                // Check attributes
+                if (vertices == null && verticesBuffer == null) {
                         Logger.warn("Error by creating mesh instance",
                                         "The vertices of the dataStructures mesh are null! Returning null!");
                         return null;
                 }
-                if (texCoords != null)
-                        vao.addVertexBuffer(texCoords, 2, 1);
-                else {
+                if (texCoords == null && texCoordsBuffer == null) {
                         Logger.warn("Error by creating mesh instance",
                                         "The texture coordinates of the dataStructures mesh are null! Returning null!");
                         return null;
                 }
-                if (normals != null)
-                        vao.addVertexBuffer(normals, 3, 2);
-                else {
+                if (normals == null && normalsBuffer == null) {
                         Logger.warn("Error by creating mesh instance",
                                         "The normals of the dataStructures mesh are null! Returning null!");
                         return null;
                 }
-                if (tangents != null)
-                        vao.addVertexBuffer(tangents, 3, 3);
-                else {
+                if (tangents == null && tangentsBuffer == null) {
                         Logger.warn("Error by creating mesh instance",
                                         "The tangents of the dataStructures mesh are null! Returning null!");
                         return null;
                 }
-                if (jointIds != null && animated)
-                        vao.addVertexBuffer(jointIds, 4, 4);
-                else if (animated) {
+                if (jointIds == null && jointIdsBuffer == null && animated) {
                         Logger.warn("Error by creating mesh instance (animated)",
                                         "The joint ids of the dataStructures mesh are null! Returning null!");
                         return null;
                 }
-                if (weights != null && animated)
-                        vao.addVertexBuffer(weights, 4, 5);
-                else if (animated) {
+                if (weights == null && weightsBuffer == null && animated) {
                         Logger.warn("Error by creating mesh instance (animated)",
                                         "The weights of the dataStructures mesh are null! Returning null!");
                         return null;
                 }
-
-                // Create index buffer
-                IndexBuffer indexBuffer = null;
-                if (indices != null)
-                        indexBuffer = vao.addIndexBuffer(indices);
-                else {
+                if (indices == null && indicesBuffer == null) {
                         Logger.warn("Error by creating mesh instance",
                                         "The indices of the dataStructures mesh are null! Returning null!");
                         return null;
@@ -223,15 +337,333 @@ public class MeshData {
                 CollisionShape collisionShape = CollisionShapeParser.toShape(shape);
 
                 if (collisionShape instanceof ConvexHullShape)
-                        collisionShape = Physics.createConvexHullShape(vertices);
+                        collisionShape = Physics.createConvexHullShape(getVertices());
                 if (collisionShape instanceof TriangleMeshShape)
-                        collisionShape = Physics.createTriangleMeshShape(vertices, indices);
+                        collisionShape = Physics.createTriangleMeshShape(getVertices(), getIndices());
 
-                // Finalize
+                // Create mesh and its lods, the vaos are set afterwards
+                Mesh mesh;
                 if (material == null)
-                        return new Mesh(vao, indexBuffer, collisionShape);
+                        mesh = new Mesh(null, null, collisionShape);
+                else
+                        mesh = new Mesh(null, null, this.material.getInstance(texPath, asResource), collisionShape);
+                if (lodIndices != null) {
+                        for (int i = 0; i < lodIndices.length; i++)
+                                mesh.addLod(null);
+                }
+                mesh.setBoundingRadius(getBoundingRadius());
+
+                // Static meshes, that can be drawn indirect, are drawn from the mesh pool.
+                // Their own vao is only created, if a path without the pool needs it.
+                int vertexCount = getCount(vertices, verticesBuffer) / 3;
+                if (!animated && MeshPool.isEnabled() && vertexBuffers == null
+                                && EntityShader.getFeatures(mesh.getMaterial(), null) == 0
+                                && addToPool(mesh, vertexCount)) {
+                        mesh.setVaoFactory(() -> createVao(mesh, false, vertexCount));
+                        return mesh;
+                }
+
+                createVao(mesh, animated, vertexCount);
+                return mesh;
+        }
+
+        /**
+         * Creating the vao of a mesh instance and of its lods, from the buffers of
+         * the loader context if created
+         *
+         * @param mesh        Mesh instance to set the vaos of
+         * @param animated    Add joint id and weight buffers too
+         * @param vertexCount Count of vertices of the mesh
+         */
+        private void createVao(Mesh mesh, boolean animated, int vertexCount) {
+                VertexArrayObject vao = new VertexArrayObject();
+                List<GpuBuffer> createdIndexBuffers = indexBuffers;
+                if (vertexBuffers != null) {
+                        for (GpuBuffer buffer : vertexBuffers)
+                                vao.attachVertexBuffer(buffer.id, buffer.bytes, buffer.layout);
+                        vertexBuffers = indexBuffers = null;
+                } else if (VERTEX_FORMAT == VERTEX_FORMAT_INTERLEAVED || VERTEX_FORMAT == VERTEX_FORMAT_QUANTIZED) {
+                        MeshPacker packer = new MeshPacker(this, animated, VERTEX_FORMAT == VERTEX_FORMAT_QUANTIZED);
+                        vao.addVertexBuffer(packer.pack(), packer.getLayout());
+                } else {
+                        addVertexBuffer(vao, vertices, verticesBuffer, 3, 0);
+                        addVertexBuffer(vao, texCoords, texCoordsBuffer, 2, 1);
+                        addVertexBuffer(vao, normals, normalsBuffer, 3, 2);
+                        addVertexBuffer(vao, tangents, tangentsBuffer, 3, 3);
+                        if (animated) {
+                                if (jointIds != null)
+                                        vao.addVertexBuffer(jointIds, 4, 4);
+                                else
+                                        vao.addVertexBuffer(jointIdsBuffer, 4, 4);
+                                addVertexBuffer(vao, weights, weightsBuffer, 4, 5);
+                        }
+                }
+
+                // Create index buffers of the mesh and of its lods, that share the vao
+                mesh.setVao(vao, createdIndexBuffers != null ? attachIndexBuffer(vao, createdIndexBuffers.get(0))
+                                : addIndexBuffer(vao, indices, indicesBuffer, vertexCount));
+                if (lodIndices != null) {
+                        for (int i = 0; i < lodIndices.length; i++)
+                                mesh.getLod(i + 1).setVao(vao, createdIndexBuffers != null
+                                                ? attachIndexBuffer(vao, createdIndexBuffers.get(i + 1))
+                                                : addIndexBuffer(vao, lodIndices[i], null, vertexCount));
+                }
+        }
+
+        /**
+         * Creating and filling the vertex and index buffers of the mesh and of its
+         * lods. Buffers are shared between contexts, so this runs in the loader
+         * context and {@link #getInstance(String, boolean, boolean)} only has to
+         * create the vao on the main thread. Does nothing, if an attribute of the
+         * mesh is missing or if the mesh is static and the mesh pool is enabled,
+         * because pooled meshes only create their own buffers when needed.
+         *
+         * @param animated Create joint id and weight buffers too
+         */
+        public void createBuffers(boolean animated) {
+                if ((vertices == null && verticesBuffer == null) || (texCoords == null && texCoordsBuffer == null)
+                                || (normals == null && normalsBuffer == null)
+                                || (tangents == null && tangentsBuffer == null)
+                                || (indices == null && indicesBuffer == null)
+                                || (animated && ((jointIds == null && jointIdsBuffer == null)
+                                                || (weights == null && weightsBuffer == null)))
+                                || (!animated && MeshPool.isEnabled()))
+                        return;
+
+                // Create vertex buffers
+                List<GpuBuffer> vertexBuffers = new ArrayList<>();
+                if (VERTEX_FORMAT == VERTEX_FORMAT_INTERLEAVED || VERTEX_FORMAT == VERTEX_FORMAT_QUANTIZED) {
+                        MeshPacker packer = new MeshPacker(this, animated, VERTEX_FORMAT == VERTEX_FORMAT_QUANTIZED);
+                        ByteBuffer data = packer.pack();
+                        vertexBuffers.add(
+                                        new GpuBuffer(createBuffer(data), data.remaining(), packer.getLayout(), 0, 0));
+                } else {
+                        vertexBuffers.add(createVertexBuffer(vertices, verticesBuffer, 3, 0));
+                        vertexBuffers.add(createVertexBuffer(texCoords, texCoordsBuffer, 2, 1));
+                        vertexBuffers.add(createVertexBuffer(normals, normalsBuffer, 3, 2));
+                        vertexBuffers.add(createVertexBuffer(tangents, tangentsBuffer, 3, 3));
+                        if (animated) {
+                                IntBuffer data = jointIds != null ? toDirectBuffer(jointIds) : jointIdsBuffer.slice();
+                                vertexBuffers.add(new GpuBuffer(createBuffer(data), (long) data.remaining() * 4,
+                                                new VertexLayout().addIntegerAttribute(4, 4, GL11.GL_INT), 0, 0));
+                                vertexBuffers.add(createVertexBuffer(weights, weightsBuffer, 4, 5));
+                        }
+                }
+
+                // Create index buffers of the mesh and its lods
+                int vertexCount = getCount(vertices, verticesBuffer) / 3;
+                List<GpuBuffer> indexBuffers = new ArrayList<>();
+                indexBuffers.add(createIndexBuffer(indices, indicesBuffer, vertexCount));
+                if (lodIndices != null) {
+                        for (int[] lod : lodIndices)
+                                indexBuffers.add(createIndexBuffer(lod, null, vertexCount));
+                }
+
+                this.vertexBuffers = vertexBuffers;
+                this.indexBuffers = indexBuffers;
+        }
+
+        /**
+         * Deleting the buffers of {@link #createBuffers(boolean)}, if they were not
+         * attached to a mesh instance, e.g. because the model was loaded twice
+         */
+        public void deleteBuffers() {
+                for (List<GpuBuffer> buffers : Arrays.asList(vertexBuffers, indexBuffers)) {
+                        if (buffers != null) {
+                                for (GpuBuffer buffer : buffers)
+                                        GL15.glDeleteBuffers(buffer.id);
+                        }
+                }
+                vertexBuffers = indexBuffers = null;
+        }
+
+        /**
+         * Creating a float vertex buffer with one attribute, from the array or if
+         * not set from the direct buffer
+         *
+         * @param values    Values as array or null
+         * @param buffer    Values as direct buffer, used if array is null
+         * @param dimension Dimension of the values
+         * @param row       Row of the attribute in the vao
+         * @return Created vertex buffer
+         */
+        private static GpuBuffer createVertexBuffer(float[] values, FloatBuffer buffer, int dimension, int row) {
+                FloatBuffer data = values != null ? BufferUtils.createFloatBuffer(values.length).put(values)
+                                : buffer.slice();
+                data.rewind();
+                return new GpuBuffer(createBuffer(data), (long) data.remaining() * 4,
+                                new VertexLayout().addAttribute(row, dimension, GL11.GL_FLOAT, false), 0, 0);
+        }
+
+        /**
+         * Creating an index buffer, from the array or if not set from the direct
+         * buffer. Uses 16 bit indices, if the vertex count allows it.
+         *
+         * @param values      Indices as array or null
+         * @param buffer      Indices as direct buffer, used if array is null
+         * @param vertexCount Count of vertices of the mesh
+         * @return Created index buffer
+         */
+        private static GpuBuffer createIndexBuffer(int[] values, IntBuffer buffer, int vertexCount) {
+                ShortBuffer shortIndices = SHORT_INDICES ? MeshPacker.toShortIndices(values, buffer, vertexCount)
+                                : null;
+                if (shortIndices != null)
+                        return new GpuBuffer(createBuffer(shortIndices), (long) shortIndices.remaining() * 2, null,
+                                        shortIndices.remaining(), GL11.GL_UNSIGNED_SHORT);
+
+                IntBuffer data = values != null ? toDirectBuffer(values) : buffer.slice();
+                return new GpuBuffer(createBuffer(data), (long) data.remaining() * 4, null, data.remaining(),
+                                GL11.GL_UNSIGNED_INT);
+        }
+
+        /**
+         * Creating a gl buffer and filling it with data. Bound as array buffer,
+         * because no vao is bound in the loader context.
+         *
+         * @param data Data to fill into the buffer
+         * @return Id of the buffer
+         */
+        private static int createBuffer(Buffer data) {
+                int buffer = GL15.glGenBuffers();
+                GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, buffer);
+                if (data instanceof ByteBuffer)
+                        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (ByteBuffer) data, GL15.GL_STATIC_DRAW);
+                else if (data instanceof FloatBuffer)
+                        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (FloatBuffer) data, GL15.GL_STATIC_DRAW);
+                else if (data instanceof IntBuffer)
+                        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (IntBuffer) data, GL15.GL_STATIC_DRAW);
+                else
+                        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (ShortBuffer) data, GL15.GL_STATIC_DRAW);
+                GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+                return buffer;
+        }
+
+        /**
+         * Attaching an index buffer of the loader context to a vao
+         *
+         * @param vao    Vao to attach index buffer to
+         * @param buffer Created index buffer
+         * @return Index buffer of the vao
+         */
+        private static IndexBuffer attachIndexBuffer(VertexArrayObject vao, GpuBuffer buffer) {
+                return vao.attachIndexBuffer(buffer.id, buffer.count, buffer.type);
+        }
+
+        /**
+         * Adding the vertices and indices of a static mesh and of its lods to the
+         * mesh pool
+         *
+         * @param mesh        Mesh instance to set the pool allocations of
+         * @param vertexCount Count of vertices of the mesh
+         * @return True, if the mesh was added to the pool
+         */
+        private boolean addToPool(Mesh mesh, int vertexCount) {
+                int indexCount = getCount(indices, indicesBuffer);
+                if (lodIndices != null) {
+                        for (int[] lod : lodIndices)
+                                indexCount += lod.length;
+                }
+
+                MeshPacker packer = new MeshPacker(this, false, true, false);
+                MeshPool.Allocation vertexAllocation = MeshPool.addVertices(packer.pack(), packer.getLayout(),
+                                vertexCount, indexCount);
+                if (vertexAllocation == null)
+                        return false;
+
+                mesh.setPoolAllocation(MeshPool.addIndices(vertexAllocation,
+                                indices != null ? toDirectBuffer(indices) : indicesBuffer.slice()));
+                if (lodIndices != null) {
+                        for (int i = 0; i < lodIndices.length; i++)
+                                mesh.getLod(i + 1).setPoolAllocation(
+                                                MeshPool.addIndices(vertexAllocation, toDirectBuffer(lodIndices[i])));
+                }
+                return true;
+        }
+
+        /**
+         * Adding an index buffer to a vao, from the array or if not set from the
+         * direct buffer. Uses 16 bit indices, if the vertex count allows it.
+         *
+         * @param vao         Vao to add index buffer to
+         * @param values      Indices as array or null
+         * @param buffer      Indices as direct buffer, used if array is null
+         * @param vertexCount Count of vertices of the mesh
+         * @return Created index buffer
+         */
+        private static IndexBuffer addIndexBuffer(VertexArrayObject vao, int[] values, IntBuffer buffer,
+                        int vertexCount) {
+                ShortBuffer shortIndices = SHORT_INDICES ? MeshPacker.toShortIndices(values, buffer, vertexCount)
+                                : null;
+                if (shortIndices != null)
+                        return vao.addIndexBuffer(shortIndices);
+                else if (values != null)
+                        return vao.addIndexBuffer(values);
                 else
-                        return new Mesh(vao, indexBuffer, this.material.getInstance(texPath, asResource),
-                                        collisionShape);
+                        return vao.addIndexBuffer(buffer);
+        }
+
+        /**
+         * @param values Values to copy
+         * @return Direct buffer with the values
+         */
+        private static IntBuffer toDirectBuffer(int[] values) {
+                IntBuffer buffer = BufferUtils.createIntBuffer(values.length);
+                buffer.put(values).flip();
+                return buffer;
+        }
+
+        /**
+         * @return Max distance of a vertex to the origin of the mesh
+         */
+        public float getBoundingRadius() {
+                FloatBuffer positions = vertices != null ? FloatBuffer.wrap(vertices) : verticesBuffer.slice();
+                float max = 0.0f;
+                for (int i = 0; i + 2 < positions.remaining(); i += 3) {
+                        float x = positions.get(i), y = positions.get(i + 1), z = positions.get(i + 2);
+                        max = Math.max(max, x * x + y * y + z * z);
+                }
+                return (float) Math.sqrt(max);
+        }
+
+        /**
+         * Adding a float vertex buffer to a vao, from the array or if not set from
+         * the direct buffer
+         *
+         * @param vao       Vao to add vertex buffer to
+         * @param values    Values as array or null
+         * @param buffer    Values as direct buffer, used if array is null
+         * @param dimension Dimension of the values
+         * @param row       Row to store the buffer in the vao
+         */
+        private static void addVertexBuffer(VertexArrayObject vao, float[] values, FloatBuffer buffer, int dimension,
+                        int row) {
+                if (values != null)
+                        vao.addVertexBuffer(values, dimension, row);
+                else
+                        vao.addVertexBuffer(buffer, dimension, row);
+        }
+
+        /**
+         * @return Vertices of the mesh, copied from the direct buffer if the mesh
+         *         was mapped from a file
+         */
+        public float[] getVertices() {
+                if (vertices == null && verticesBuffer != null) {
+                        vertices = new float[verticesBuffer.remaining()];
+                        verticesBuffer.duplicate().get(vertices);
+                }
+                return vertices;
+        }
+
+        /**
+         * @return Indices of the mesh, copied from the direct buffer if the mesh
+         *         was mapped from a file
+         */
+        public int[] getIndices() {
+                if (indices == null && indicesBuffer != null) {
+                        indices = new int[indicesBuffer.remaining()];
+                        indicesBuffer.duplicate().get(indices);
+                }
+                return indices;
         }
 }
@@ -0,0 +1,311 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.dataStructures;
+
+import de.coreengine.util.gl.VertexLayout;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Class that packs the vertex attributes of a mesh into one interleaved vertex
+ * buffer. Quantized vertices store texture coordinates as half floats, normals
+ * and tangents as 10-10-10-2 integers, joint ids as bytes and weights as
+ * normalized bytes.
+ *
+ * @author Darius Dinger
+ */
+class MeshPacker {
+
+    // Max absolute texture coordinate, that is stored as half float
+    private static final float HALF_TEX_COORD_RANGE = 4.0f;
+
+    // Attribute data of the mesh
+    private final FloatBuffer vertices, texCoords, normals, tangents, weights;
+    private final IntBuffer jointIds;
+    private final int vertexCount;
+
+    // Layout of the packed vertices
+    private final VertexLayout layout = new VertexLayout();
+    private final boolean quantize, halfTexCoords, byteJoints;
+
+    /**
+     * Creating new packer for the attributes of a mesh
+     *
+     * @param mesh     Mesh to pack
+     * @param animated Pack joint ids and weights
+     * @param quantize Quantize the attributes or keep them as floats
+     */
+    MeshPacker(MeshData mesh, boolean animated, boolean quantize) {
+        this(mesh, animated, quantize, true);
+    }
+
+    /**
+     * Creating new packer for the attributes of a mesh
+     *
+     * @param mesh          Mesh to pack
+     * @param animated      Pack joint ids and weights
+     * @param quantize      Quantize the attributes or keep them as floats
+     * @param halfTexCoords Allow half float texture coordinates, if in range.
+     *                      Disable to get the same layout for every mesh
+     */
+    MeshPacker(MeshData mesh, boolean animated, boolean quantize, boolean halfTexCoords) {
+        vertices = getBuffer(mesh.vertices, mesh.verticesBuffer);
+        texCoords = getBuffer(mesh.texCoords, mesh.texCoordsBuffer);
+        normals = getBuffer(mesh.normals, mesh.normalsBuffer);
+        tangents = getBuffer(mesh.tangents, mesh.tangentsBuffer);
+        weights = animated ? getBuffer(mesh.weights, mesh.weightsBuffer) : null;
+        jointIds = !animated ? null
+                : mesh.jointIds != null ? IntBuffer.wrap(mesh.jointIds) : mesh.jointIdsBuffer.slice();
+        vertexCount = vertices.remaining() / 3;
+        this.quantize = quantize;
+
+        this.halfTexCoords = halfTexCoords && quantize && getMaxAbs(texCoords) <= HALF_TEX_COORD_RANGE;
+        byteJoints = quantize && animated && getMax(jointIds) <= 0xFF;
+
+        // Create layout
+        layout.addAttribute(0, 3, GL11.GL_FLOAT, false);
+        layout.addAttribute(1, 2, this.halfTexCoords ? GL30.GL_HALF_FLOAT : GL11.GL_FLOAT, false);
+        if (quantize) {
+            layout.addAttribute(2, 4, GL33.GL_INT_2_10_10_10_REV, true);
+            layout.addAttribute(3, 4, GL33.GL_INT_2_10_10_10_REV, true);
+        } else {
+            layout.addAttribute(2, 3, GL11.GL_FLOAT, false);
+            layout.addAttribute(3, 3, GL11.GL_FLOAT, false);
+        }
+        if (animated) {
+            if (quantize) {
+                layout.addIntegerAttribute(4, 4, byteJoints ? GL11.GL_UNSIGNED_BYTE : GL11.GL_UNSIGNED_SHORT);
+                layout.addAttribute(5, 4, GL11.GL_UNSIGNED_BYTE, true);
+            } else {
+                layout.addIntegerAttribute(4, 4, GL11.GL_INT);
+                layout.addAttribute(5, 4, GL11.GL_FLOAT, false);
+            }
+        }
+    }
+
+    /**
+     * Packing the attributes of all vertices into an interleaved buffer
+     *
+     * @return Direct buffer with the packed vertices
+     */
+    ByteBuffer pack() {
+        ByteBuffer data = BufferUtils.createByteBuffer(vertexCount * layout.getStride());
+
+        for (int v = 0; v < vertexCount; v++) {
+            int start = data.position();
+
+            data.putFloat(vertices.get(v * 3)).putFloat(vertices.get(v * 3 + 1)).putFloat(vertices.get(v * 3 + 2));
+            if (halfTexCoords)
+                data.putShort(toHalf(texCoords.get(v * 2))).putShort(toHalf(texCoords.get(v * 2 + 1)));
+            else
+                data.putFloat(texCoords.get(v * 2)).putFloat(texCoords.get(v * 2 + 1));
+
+            if (quantize) {
+                data.putInt(toPackedNormal(normals, v));
+                data.putInt(toPackedNormal(tangents, v));
+            } else {
+                data.putFloat(normals.get(v * 3)).putFloat(normals.get(v * 3 + 1)).putFloat(normals.get(v * 3 + 2));
+                data.putFloat(tangents.get(v * 3)).putFloat(tangents.get(v * 3 + 1))
+                        .putFloat(tangents.get(v * 3 + 2));
+            }
+
+            if (weights != null) {
+                if (quantize) {
+                    for (int i = 0; i < 4; i++) {
+                        if (byteJoints)
+                            data.put((byte) jointIds.get(v * 4 + i));
+                        else
+                            data.putShort((short) jointIds.get(v * 4 + i));
+                    }
+                    putPackedWeights(data, v);
+                } else {
+                    for (int i = 0; i < 4; i++)
+                        data.putInt(jointIds.get(v * 4 + i));
+                    for (int i = 0; i < 4; i++)
+                        data.putFloat(weights.get(v * 4 + i));
+                }
+            }
+
+            data.position(start + layout.getStride());
+        }
+
+        data.flip();
+        return data;
+    }
+
+    /**
+     * @return Layout of the packed vertices
+     */
+    VertexLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Converting indices into 16 bit indices, if the mesh has not more than
+     * 65536 vertices
+     *
+     * @param indices       Indices as array or null
+     * @param indicesBuffer Indices as buffer, used if array is null
+     * @param vertexCount   Count of vertices of the mesh
+     * @return 16 bit indices or null, if the vertex count is too high
+     */
+    static ShortBuffer toShortIndices(int[] indices, IntBuffer indicesBuffer, int vertexCount) {
+        if (vertexCount > 0x10000)
+            return null;
+
+        IntBuffer source = indices != null ? IntBuffer.wrap(indices) : indicesBuffer.slice();
+        ShortBuffer result = BufferUtils.createShortBuffer(source.remaining());
+        for (int i = 0; i < source.remaining(); i++)
+            result.put(i, (short) source.get(i));
+        return result;
+    }
+
+    /**
+     * Putting the four weights of a vertex as normalized bytes, so that they
+     * still add up to one
+     *
+     * @param data   Buffer to put weights into
+     * @param vertex Vertex to put weights of
+     */
+    private void putPackedWeights(ByteBuffer data, int vertex) {
+        int[] quantized = new int[4];
+        int sum = 0, highest = 0;
+        for (int i = 0; i < 4; i++) {
+            float weight = Math.max(0.0f, Math.min(1.0f, weights.get(vertex * 4 + i)));
+            quantized[i] = Math.round(weight * 255.0f);
+            sum += quantized[i];
+            if (quantized[i] > quantized[highest])
+                highest = i;
+        }
+
+        // Give rounding error to the highest weight
+        if (sum > 0)
+            quantized[highest] = Math.max(0, Math.min(255, quantized[highest] + 255 - sum));
+        for (int i = 0; i < 4; i++)
+            data.put((byte) quantized[i]);
+    }
+
+    /**
+     * Packing a normalized vector into a signed 10-10-10-2 integer
+     *
+     * @param values Vectors with three components
+     * @param vertex Vertex of the vector
+     * @return Packed vector
+     */
+    private static int toPackedNormal(FloatBuffer values, int vertex) {
+        float x = values.get(vertex * 3), y = values.get(vertex * 3 + 1), z = values.get(vertex * 3 + 2);
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length > 0.0f) {
+            x /= length;
+            y /= length;
+            z /= length;
+        }
+
+        return (toSnorm10(x)) | (toSnorm10(y) << 10) | (toSnorm10(z) << 20);
+    }
+
+    /**
+     * @param value Value in [-1, 1]
+     * @return Value as signed normalized 10 bit integer
+     */
+    private static int toSnorm10(float value) {
+        return Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * 511.0f) & 0x3FF;
+    }
+
+    /**
+     * Converting a float into the bits of a half float (round to nearest)
+     *
+     * @param value Float to convert
+     * @return Half float bits
+     */
+    static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+
+        // Nan, infinity or too big
+        if (((bits >>> 23) & 0xFF) == 0xFF)
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        if (exponent >= 0x1F)
+            return (short) (sign | 0x7C00);
+
+        // Subnormal or too small
+        if (exponent <= 0) {
+            if (exponent < -10)
+                return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            return (short) (sign | ((mantissa + (1 << (shift - 1))) >> shift));
+        }
+
+        // Normal, rounding may carry into the exponent
+        return (short) (sign | ((exponent << 10) + ((mantissa + 0x1000) >> 13)));
+    }
+
+    /**
+     * @param values Values as array or null
+     * @param buffer Values as buffer, used if array is null
+     * @return Values as buffer starting at index 0
+     */
+    private static FloatBuffer getBuffer(float[] values, FloatBuffer buffer) {
+        return values != null ? FloatBuffer.wrap(values) : buffer.slice();
+    }
+
+    /**
+     * @param values Values to search
+     * @return Max absolute value
+     */
+    private static float getMaxAbs(FloatBuffer values) {
+        float max = 0.0f;
+        for (int i = 0; i < values.remaining(); i++)
+            max = Math.max(max, Math.abs(values.get(i)));
+        return max;
+    }
+
+    /**
+     * @param values Values to search or null
+     * @return Max value
+     */
+    private static int getMax(IntBuffer values) {
+        int max = 0;
+        if (values != null) {
+            for (int i = 0; i < values.remaining(); i++)
+                max = Math.max(max, values.get(i));
+        }
+        return max;
+    }
+}
@@ -32,6 +32,7 @@ import de.coreengine.rendering.model.Model;
 import de.coreengine.util.ByteArrayUtils;
 import de.coreengine.util.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -94,34 +95,69 @@ public class ModelData {
      * @return Converted byte array
      */
     public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+        toBytes(buffer);
+        return buffer.array();
+    }
 
-        // Create mesh data
-        byte[][] meshDataA;
-        if (meshes != null) {
-            meshDataA = new byte[meshes.length][];
-            for (int i = 0; i < meshes.length; i++) {
-                meshDataA[i] = meshes[i].toBytes();
-            }
-        } else
-            meshDataA = new byte[0][];
-        byte[] meshData = ByteArrayUtils.combine(meshDataA);
-
-        // Get dataStructures data
-        int[] meshCountI = meshes == null ? new int[] { 0 } : new int[] { meshes.length };
-        byte[] meshCount = ByteArrayUtils.toBytes(meshCountI);
-
-        int[] meshSizesI;
+    /**
+     * Writing the dataStructure model into a big endian buffer, in the same
+     * format as {@link #toBytes()}
+     *
+     * @param buffer Buffer to write model into, needs getByteSize() remaining
+     *               bytes
+     */
+    public void toBytes(ByteBuffer buffer) {
+        int meshCount = meshes == null ? 0 : meshes.length;
+
+        // Put dataStructures data
+        buffer.putInt(meshCount);
+        for (int i = 0; i < meshCount; i++)
+            buffer.putInt(meshes[i].getByteSize());
+
+        // Put mesh data
+        for (int i = 0; i < meshCount; i++)
+            meshes[i].toBytes(buffer);
+    }
+
+    /**
+     * @return Size of the dataStructure model in bytes
+     */
+    public int getByteSize() {
+        int size = 4;
         if (meshes != null) {
-            meshSizesI = new int[meshes.length];
-            for (int i = 0; i < meshes.length; i++) {
-                meshSizesI[i] = meshDataA[i].length;
-            }
-        } else
-            meshSizesI = new int[0];
-        byte[] meshSizes = ByteArrayUtils.toBytes(meshSizesI);
-
-        // Combine and return
-        return ByteArrayUtils.combine(meshCount, meshSizes, meshData);
+            for (MeshData mesh : meshes)
+                size += 4 + mesh.getByteSize();
+        }
+        return size;
+    }
+
+    /**
+     * Creating and filling the vertex and index buffers of all meshes, see
+     * {@link MeshData#createBuffers(boolean)}. Runs in the loader context.
+     *
+     * @param animated Create joint id and weight buffers too
+     */
+    public void createBuffers(boolean animated) {
+        if (meshes == null)
+            return;
+        for (MeshData mesh : meshes) {
+            if (mesh != null)
+                mesh.createBuffers(animated);
+        }
+    }
+
+    /**
+     * Deleting the buffers of all meshes, that were created but not attached to a
+     * model instance
+     */
+    public void deleteBuffers() {
+        if (meshes == null)
+            return;
+        for (MeshData mesh : meshes) {
+            if (mesh != null)
+                mesh.deleteBuffers();
+        }
     }
 
     /**
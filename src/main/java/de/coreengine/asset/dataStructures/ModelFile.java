@@ -0,0 +1,308 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.dataStructures;
+
+import de.coreengine.animation.Animation;
+import de.coreengine.animation.Joint;
+import de.coreengine.util.Logger;
+
+import javax.vecmath.Matrix4f;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Versioned container for model and animated model files, that can be mapped
+ * into memory and uploaded to the gpu without intermediate copies.<br>
+ * <br>
+ * Format (little endian):<br>
+ * First Sector [Header]:<br>
+ * Magic (int, "CEM2") | Version (int) | MeshCount (int) | SectionCount
+ * (int)<br>
+ * <br>
+ * Second Sector [SectionTable]:<br>
+ * Section0Type (int) | Section0Mesh (int) | Section0Offset (long) |
+ * Section0Size (long) | Section1Type (int) | ...<br>
+ * <br>
+ * Third Sector [Sections]:<br>
+ * Every section starts at an offset aligned to 16 bytes. Vertex and index
+ * sections contain the raw little endian values, lod index sections follow
+ * in order of their detail level. Material, skeleton and
+ * animation sections contain the bytes of MaterialData, Joint and
+ * Animation.<br>
+ *
+ * @author Darius Dinger
+ */
+public class ModelFile {
+
+    // Magic number ("CEM2" in file byte order) and current version
+    public static final int MAGIC = 0x324D4543, VERSION = 2;
+
+    // Section types
+    public static final int SECTION_VERTICES = 1, SECTION_TEX_COORDS = 2, SECTION_NORMALS = 3,
+            SECTION_TANGENTS = 4, SECTION_JOINT_IDS = 5, SECTION_WEIGHTS = 6, SECTION_INDICES = 7,
+            SECTION_MATERIAL = 8, SECTION_SHAPE = 9, SECTION_SKELETON = 10, SECTION_ANIMATION = 11,
+            SECTION_LOD_INDICES = 12;
+
+    // Sizes of the file structures
+    static final int HEADER_SIZE = 16, SECTION_ENTRY_SIZE = 24, ALIGNMENT = 16;
+
+    /**
+     * Checking if data is a model file of this container format. Older files
+     * start with a big endian count or size and never match the magic number.
+     *
+     * @param data Data to check, starting at its current position
+     * @return True, if the data is a model file of this format
+     */
+    public static boolean isModelFile(ByteBuffer data) {
+        return data.remaining() >= HEADER_SIZE
+                && data.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(data.position()) == MAGIC;
+    }
+
+    /**
+     * Reading a model file into model data. Vertex and index sections are not
+     * copied, the mesh data gets direct buffers that point into the data. If the
+     * model data is animated model data, also skeleton and animations are read.
+     *
+     * @param data  Model file data, starting at its current position
+     * @param model Model data to fill
+     * @return True, if the file could be read
+     */
+    public static boolean read(ByteBuffer data, ModelData model) {
+        ByteBuffer file = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        // Read header
+        int version = file.getInt(4);
+        if (version > VERSION) {
+            Logger.warn("Error by reading model file",
+                    "The model file version " + version + " is not supported by this engine!");
+            return false;
+        }
+        int meshCount = file.getInt(8);
+        int sectionCount = file.getInt(12);
+
+        model.meshes = meshCount == 0 ? null : new MeshData[meshCount];
+        for (int i = 0; i < meshCount; i++)
+            model.meshes[i] = new MeshData();
+
+        // Direct buffers can only be used, if the platform byte order matches
+        boolean direct = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+        List<Animation> animations = new ArrayList<>();
+        Joint skeleton = null;
+        for (int s = 0; s < sectionCount; s++) {
+            int entry = HEADER_SIZE + s * SECTION_ENTRY_SIZE;
+            int type = file.getInt(entry);
+            int mesh = file.getInt(entry + 4);
+            long offset = file.getLong(entry + 8);
+            long size = file.getLong(entry + 16);
+            if (offset < 0 || size < 0 || offset + size > file.capacity()) {
+                Logger.warn("Error by reading model file", "Section " + s + " is out of the file bounds!");
+                return false;
+            }
+
+            ByteBuffer section = getSection(file, (int) offset, (int) size);
+            MeshData meshData = mesh >= 0 && mesh < meshCount ? model.meshes[mesh] : null;
+            switch (type) {
+            case SECTION_VERTICES:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.verticesBuffer = section.asFloatBuffer();
+                else
+                    meshData.vertices = toFloatArray(section);
+                break;
+            case SECTION_TEX_COORDS:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.texCoordsBuffer = section.asFloatBuffer();
+                else
+                    meshData.texCoords = toFloatArray(section);
+                break;
+            case SECTION_NORMALS:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.normalsBuffer = section.asFloatBuffer();
+                else
+                    meshData.normals = toFloatArray(section);
+                break;
+            case SECTION_TANGENTS:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.tangentsBuffer = section.asFloatBuffer();
+                else
+                    meshData.tangents = toFloatArray(section);
+                break;
+            case SECTION_JOINT_IDS:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.jointIdsBuffer = section.asIntBuffer();
+                else
+                    meshData.jointIds = toIntArray(section);
+                break;
+            case SECTION_WEIGHTS:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.weightsBuffer = section.asFloatBuffer();
+                else
+                    meshData.weights = toFloatArray(section);
+                break;
+            case SECTION_INDICES:
+                if (meshData == null)
+                    break;
+                if (direct)
+                    meshData.indicesBuffer = section.asIntBuffer();
+                else
+                    meshData.indices = toIntArray(section);
+                break;
+            case SECTION_LOD_INDICES:
+                if (meshData == null)
+                    break;
+                int lod = meshData.lodIndices == null ? 0 : meshData.lodIndices.length;
+                meshData.lodIndices = meshData.lodIndices == null ? new int[1][]
+                        : Arrays.copyOf(meshData.lodIndices, lod + 1);
+                meshData.lodIndices[lod] = toIntArray(section);
+                break;
+            case SECTION_MATERIAL:
+                if (meshData == null)
+                    break;
+                meshData.material = new MaterialData();
+                meshData.material.fromBytes(toByteArray(section));
+                break;
+            case SECTION_SHAPE:
+                if (meshData != null)
+                    meshData.shape = new String(toByteArray(section));
+                break;
+            case SECTION_SKELETON:
+                skeleton = new Joint(0, "", new Matrix4f(), new Matrix4f());
+                skeleton.fromBytes(toByteArray(section));
+                skeleton.calcBindPose(null);
+                skeleton.calcAnimatedTransformAndPose(null);
+                break;
+            case SECTION_ANIMATION:
+                Animation animation = new Animation("", new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+                animation.fromBytes(toByteArray(section));
+                animations.add(animation);
+                break;
+            default:
+                // Unknown sections of newer minor revisions are skipped
+                break;
+            }
+        }
+
+        // Set animated model data
+        if (model instanceof AnimatedModelData) {
+            AnimatedModelData animatedModel = (AnimatedModelData) model;
+            animatedModel.skeleton = skeleton;
+            animatedModel.animations = null;
+            if (!animations.isEmpty()) {
+                animatedModel.animations = new HashMap<>();
+                for (Animation animation : animations)
+                    animatedModel.animations.put(animation.getName(), animation);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writing model data as model file into a channel. If the model data is
+     * animated model data, also skeleton and animations are written.
+     *
+     * @param model   Model data to write
+     * @param channel Channel to write model file into
+     * @throws IOException If the channel could not be written
+     */
+    public static void write(ModelData model, WritableByteChannel channel) throws IOException {
+        new ModelFileWriter(model).write(channel);
+    }
+
+    /**
+     * Getting a section of the file as own little endian buffer
+     *
+     * @param file   File to get section from
+     * @param offset Offset of the section
+     * @param size   Size of the section
+     * @return Section buffer
+     */
+    private static ByteBuffer getSection(ByteBuffer file, int offset, int size) {
+        ByteBuffer section = file.duplicate();
+        section.limit(offset + size);
+        section.position(offset);
+        return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param section Section to copy
+     * @return Section copied into a byte array
+     */
+    private static byte[] toByteArray(ByteBuffer section) {
+        byte[] data = new byte[section.remaining()];
+        section.duplicate().get(data);
+        return data;
+    }
+
+    /**
+     * @param section Little endian section to copy
+     * @return Section copied into a float array
+     */
+    private static float[] toFloatArray(ByteBuffer section) {
+        float[] data = new float[section.remaining() / 4];
+        section.asFloatBuffer().get(data);
+        return data;
+    }
+
+    /**
+     * @param section Little endian section to copy
+     * @return Section copied into an int array
+     */
+    private static int[] toIntArray(ByteBuffer section) {
+        int[] data = new int[section.remaining() / 4];
+        section.asIntBuffer().get(data);
+        return data;
+    }
+
+    /**
+     * @param value Offset to align
+     * @return Offset aligned to the section alignment
+     */
+    static long align(long value) {
+        return (value + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
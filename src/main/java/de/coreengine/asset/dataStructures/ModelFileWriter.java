@@ -0,0 +1,363 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.dataStructures;
+
+import de.coreengine.animation.Joint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming writer for model files (see {@link ModelFile}). All section sizes
+ * are calculated before writing, so the sections can be written one after
+ * another directly into a channel or buffer, without building the whole file
+ * in memory.
+ *
+ * @author Darius Dinger
+ */
+public class ModelFileWriter {
+    private static final int STAGING_SIZE = 1 << 16;
+
+    /**
+     * Writer for the content of a section
+     */
+    private interface SectionWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * Entry of the section table
+     */
+    private static class Section {
+        final int type, mesh, size;
+        final SectionWriter writer;
+        long offset;
+
+        Section(int type, int mesh, int size, SectionWriter writer) {
+            this.type = type;
+            this.mesh = mesh;
+            this.size = size;
+            this.writer = writer;
+        }
+    }
+
+    // Sections of the file and their table
+    private final List<Section> sections = new ArrayList<>();
+    private final int meshCount;
+    private final long size;
+
+    // Current output, channel is null, if writing into a buffer
+    private WritableByteChannel channel = null;
+    private ByteBuffer out = null;
+
+    /**
+     * Creating new model file writer and calculating the section table of the
+     * model. If the model data is animated model data, also skeleton and
+     * animations are written.
+     *
+     * @param model Model data to write
+     */
+    public ModelFileWriter(ModelData model) {
+
+        // Collect mesh sections
+        meshCount = model.meshes == null ? 0 : model.meshes.length;
+        for (int i = 0; i < meshCount; i++) {
+            MeshData mesh = model.meshes[i];
+            addSection(ModelFile.SECTION_VERTICES, i, mesh.vertices, mesh.verticesBuffer);
+            addSection(ModelFile.SECTION_TEX_COORDS, i, mesh.texCoords, mesh.texCoordsBuffer);
+            addSection(ModelFile.SECTION_NORMALS, i, mesh.normals, mesh.normalsBuffer);
+            addSection(ModelFile.SECTION_TANGENTS, i, mesh.tangents, mesh.tangentsBuffer);
+            addSection(ModelFile.SECTION_JOINT_IDS, i, mesh.jointIds, mesh.jointIdsBuffer);
+            addSection(ModelFile.SECTION_WEIGHTS, i, mesh.weights, mesh.weightsBuffer);
+            addSection(ModelFile.SECTION_INDICES, i, mesh.indices, mesh.indicesBuffer);
+            if (mesh.lodIndices != null) {
+                for (int[] lod : mesh.lodIndices)
+                    addSection(ModelFile.SECTION_LOD_INDICES, i, lod, null);
+            }
+
+            MaterialData material = mesh.material;
+            if (material != null)
+                sections.add(new Section(ModelFile.SECTION_MATERIAL, i, material.getByteSize(),
+                        () -> putBigEndian(material.getByteSize(), material::toBytes)));
+            if (mesh.shape != null) {
+                byte[] shape = mesh.shape.getBytes();
+                sections.add(new Section(ModelFile.SECTION_SHAPE, i, shape.length, () -> putBytes(shape)));
+            }
+        }
+
+        // Collect skeleton and animation sections
+        if (model instanceof AnimatedModelData) {
+            AnimatedModelData animatedModel = (AnimatedModelData) model;
+            Joint skeleton = animatedModel.skeleton;
+            if (skeleton != null) {
+                int skeletonSize = skeleton.getByteSize();
+                sections.add(new Section(ModelFile.SECTION_SKELETON, -1, skeletonSize,
+                        () -> putBigEndian(skeletonSize, skeleton::toBytes)));
+            }
+            for (byte[] animation : animatedModel.getAnimationBytes())
+                sections.add(new Section(ModelFile.SECTION_ANIMATION, -1, animation.length,
+                        () -> putBytes(animation)));
+        }
+
+        // Calculate aligned section offsets
+        long offset = ModelFile.align(ModelFile.HEADER_SIZE + (long) sections.size() * ModelFile.SECTION_ENTRY_SIZE);
+        for (Section section : sections) {
+            section.offset = offset;
+            offset = ModelFile.align(offset + section.size);
+        }
+        size = offset;
+    }
+
+    /**
+     * Writing the model file into a channel through a small staging buffer
+     *
+     * @param channel Channel to write model file into
+     * @throws IOException If the channel could not be written
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.out = ByteBuffer.allocateDirect(STAGING_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            writeFile();
+            flush();
+        } finally {
+            this.channel = null;
+            this.out = null;
+        }
+    }
+
+    /**
+     * Writing the model file directly into a buffer
+     *
+     * @param buffer Buffer to write model file into, needs getSize() remaining
+     *               bytes
+     */
+    public void write(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        this.out = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            writeFile();
+        } catch (IOException e) {
+            // Not possible without a channel
+        } finally {
+            buffer.order(order);
+            this.out = null;
+        }
+    }
+
+    /**
+     * @return Size of the model file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Writing header, section table and all sections into the current output
+     *
+     * @throws IOException If the channel could not be written
+     */
+    private void writeFile() throws IOException {
+
+        // Write header and section table
+        ensure(ModelFile.HEADER_SIZE);
+        out.putInt(ModelFile.MAGIC).putInt(ModelFile.VERSION).putInt(meshCount).putInt(sections.size());
+        for (Section section : sections) {
+            ensure(ModelFile.SECTION_ENTRY_SIZE);
+            out.putInt(section.type).putInt(section.mesh).putLong(section.offset).putLong(section.size);
+        }
+
+        // Write aligned sections
+        long position = ModelFile.HEADER_SIZE + (long) sections.size() * ModelFile.SECTION_ENTRY_SIZE;
+        for (Section section : sections) {
+            putPadding((int) (section.offset - position));
+            section.writer.write();
+            position = section.offset + section.size;
+        }
+        putPadding((int) (size - position));
+    }
+
+    /**
+     * Adding an attribute section, if the attribute is set
+     *
+     * @param type   Type of the section
+     * @param mesh   Mesh of the section
+     * @param values Values as array or null
+     * @param buffer Values as buffer, used if array is null
+     */
+    private void addSection(int type, int mesh, float[] values, FloatBuffer buffer) {
+        if (values == null && buffer == null)
+            return;
+        sections.add(new Section(type, mesh, MeshData.getCount(values, buffer) * 4, () -> {
+            if (values != null)
+                putFloats(FloatBuffer.wrap(values));
+            else
+                putFloats(buffer.duplicate());
+        }));
+    }
+
+    /**
+     * Adding an attribute section, if the attribute is set
+     *
+     * @param type   Type of the section
+     * @param mesh   Mesh of the section
+     * @param values Values as array or null
+     * @param buffer Values as buffer, used if array is null
+     */
+    private void addSection(int type, int mesh, int[] values, IntBuffer buffer) {
+        if (values == null && buffer == null)
+            return;
+        sections.add(new Section(type, mesh, MeshData.getCount(values, buffer) * 4, () -> {
+            if (values != null)
+                putInts(IntBuffer.wrap(values));
+            else
+                putInts(buffer.duplicate());
+        }));
+    }
+
+    /**
+     * Putting floats chunk by chunk into the output
+     *
+     * @param values Floats to put
+     * @throws IOException If the channel could not be written
+     */
+    private void putFloats(FloatBuffer values) throws IOException {
+        while (values.hasRemaining()) {
+            ensure(4);
+            int count = Math.min(values.remaining(), out.remaining() / 4);
+            FloatBuffer chunk = values.duplicate();
+            chunk.limit(chunk.position() + count);
+            out.asFloatBuffer().put(chunk);
+            out.position(out.position() + count * 4);
+            values.position(values.position() + count);
+        }
+    }
+
+    /**
+     * Putting ints chunk by chunk into the output
+     *
+     * @param values Ints to put
+     * @throws IOException If the channel could not be written
+     */
+    private void putInts(IntBuffer values) throws IOException {
+        while (values.hasRemaining()) {
+            ensure(4);
+            int count = Math.min(values.remaining(), out.remaining() / 4);
+            IntBuffer chunk = values.duplicate();
+            chunk.limit(chunk.position() + count);
+            out.asIntBuffer().put(chunk);
+            out.position(out.position() + count * 4);
+            values.position(values.position() + count);
+        }
+    }
+
+    /**
+     * Putting bytes chunk by chunk into the output
+     *
+     * @param values Bytes to put
+     * @throws IOException If the channel could not be written
+     */
+    private void putBytes(byte[] values) throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            ensure(1);
+            int count = Math.min(values.length - offset, out.remaining());
+            out.put(values, offset, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Putting data in the big endian byte format of the data structures into the
+     * output. Small data is written directly into the output.
+     *
+     * @param size   Size of the data in bytes
+     * @param writer Writer that puts the data into a big endian buffer
+     * @throws IOException If the channel could not be written
+     */
+    private void putBigEndian(int size, Consumer<ByteBuffer> writer) throws IOException {
+        if (channel == null || size <= out.capacity()) {
+            ensure(size);
+            ByteBuffer target = out.slice();
+            target.limit(size);
+            writer.accept(target);
+            out.position(out.position() + size);
+        } else {
+            ByteBuffer data = ByteBuffer.allocate(size);
+            writer.accept(data);
+            putBytes(data.array());
+        }
+    }
+
+    /**
+     * Putting zero bytes into the output
+     *
+     * @param count Count of zero bytes
+     * @throws IOException If the channel could not be written
+     */
+    private void putPadding(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            ensure(1);
+            out.put((byte) 0);
+        }
+    }
+
+    /**
+     * Making sure the output has enough remaining bytes, by flushing the staging
+     * buffer into the channel
+     *
+     * @param bytes Bytes that are needed
+     * @throws IOException If the channel could not be written
+     */
+    private void ensure(int bytes) throws IOException {
+        if (channel != null && out.remaining() < bytes)
+            flush();
+    }
+
+    /**
+     * Flushing the staging buffer into the channel
+     *
+     * @throws IOException If the channel could not be written
+     */
+    private void flush() throws IOException {
+        if (channel == null)
+            return;
+        out.flip();
+        while (out.hasRemaining())
+            channel.write(out);
+        out.clear();
+    }
+}
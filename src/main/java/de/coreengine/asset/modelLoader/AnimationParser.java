@@ -86,14 +86,17 @@ public class AnimationParser {
         for (int i = 0; i < channelCount; i++) {
             AINodeAnim aiChannel = AINodeAnim.create(aiAnimation.mChannels().get(i));
 
-            // Get bone id
-            int id = 0;
+            // Get bone id, skip channels of nodes that are no bones
+            int id = -1;
+            String nodeName = aiChannel.mNodeName().dataString();
             for (int b = 0; b < bones.size(); b++) {
-                if (bones.get(b).getName().equals(aiChannel.mNodeName().dataString())) {
+                if (bones.get(b).getName().equals(nodeName)) {
                     id = b;
                     break;
                 }
             }
+            if (id < 0)
+                continue;
 
             // Add position keys
             for (int kid = 0; kid < aiChannel.mNumPositionKeys(); kid++) {
@@ -28,7 +28,6 @@
 
 package de.coreengine.asset.modelLoader;
 
-import javafx.util.Pair;
 import org.lwjgl.assimp.AIBone;
 import org.lwjgl.assimp.AIMatrix4x4;
 import org.lwjgl.assimp.AIVertexWeight;
@@ -43,7 +42,8 @@ public class BoneParser {
     // Output
     private String name;
     private Matrix4f offsetMatrix;
-    private Pair<Integer, Float>[] effectedVertices;
+    private int[] effectedVertices;
+    private float[] effectedWeights;
 
     /**
      * Creating new bone data that can parse data from an ai bone
@@ -67,10 +67,13 @@ public class BoneParser {
 
         // Get effected vertices
         int vertexCount = aiBone.mNumWeights();
-        effectedVertices = new Pair[vertexCount];
+        effectedVertices = new int[vertexCount];
+        effectedWeights = new float[vertexCount];
+        AIVertexWeight.Buffer aiWeights = aiBone.mWeights();
         for (int i = 0; i < vertexCount; i++) {
-            AIVertexWeight aiVertexWeight = aiBone.mWeights().get(i);
-            effectedVertices[i] = new Pair<>(aiVertexWeight.mVertexId(), aiVertexWeight.mWeight());
+            AIVertexWeight aiVertexWeight = aiWeights.get(i);
+            effectedVertices[i] = aiVertexWeight.mVertexId();
+            effectedWeights[i] = aiVertexWeight.mWeight();
         }
     }
 
@@ -87,12 +90,20 @@ public class BoneParser {
     }
 
     /**
-     * @return Parsed effected vertices with its weight value
+     * @return Parsed ids of the effected vertices
      */
-    public Pair<Integer, Float>[] getEffectedVertices() {
+    public int[] getEffectedVertices() {
         return effectedVertices;
     }
 
+    /**
+     * @return Parsed weights of the effected vertices, same order as the vertex
+     *         ids
+     */
+    public float[] getEffectedWeights() {
+        return effectedWeights;
+    }
+
     /**
      * @return Parsed offset matrix
      */
@@ -0,0 +1,350 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.modelLoader;
+
+import de.coreengine.asset.dataStructures.MeshData;
+
+import java.util.Arrays;
+
+/**
+ * Class that optimizes the triangle and vertex order of meshes at import. The
+ * triangles are reordered for the post transform vertex cache (Forsyth), then
+ * clusters of triangles are sorted to reduce overdraw and at last the vertices
+ * are reordered by their first use to optimize the vertex fetch.
+ *
+ * @author Darius Dinger
+ */
+public class MeshOptimizer {
+
+    // Size of the simulated vertex cache
+    private static final int CACHE_SIZE = 32;
+
+    // Size of the fifo cache to find cluster boundaries for the overdraw sorting
+    private static final int FIFO_CACHE_SIZE = 16;
+
+    // Min triangle count of a cluster for the overdraw sorting
+    private static final int MIN_CLUSTER_SIZE = 32;
+
+    // Scoring values of the forsyth algorithm
+    private static final float CACHE_DECAY_POWER = 1.5f, LAST_TRIANGLE_SCORE = 0.75f, VALENCE_BOOST_SCALE = 2.0f,
+            VALENCE_BOOST_POWER = 0.5f;
+
+    /**
+     * Optimizing the triangle and vertex order of a mesh. Only meshes with array
+     * data are optimized.
+     *
+     * @param meshData Mesh to optimize
+     */
+    public static void optimize(MeshData meshData) {
+        if (meshData.vertices == null || meshData.indices == null || meshData.indices.length < 3)
+            return;
+
+        int vertexCount = meshData.vertices.length / 3;
+        meshData.indices = optimizeVertexCache(meshData.indices, vertexCount);
+        meshData.indices = optimizeOverdraw(meshData.indices, meshData.vertices);
+        optimizeVertexFetch(meshData);
+    }
+
+    /**
+     * Reordering the triangles of a mesh, so that the vertices of following
+     * triangles are still in the post transform vertex cache. Greedy algorithm by
+     * Tom Forsyth, that does not depend on the exact cache size of the gpu.
+     *
+     * @param indices     Indices of the triangles
+     * @param vertexCount Count of vertices in the mesh
+     * @return Reordered indices
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+
+        // Build vertex to triangle adjacency
+        int[] valence = new int[vertexCount];
+        for (int index : indices)
+            valence[index]++;
+        int[] adjacencyOffset = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++)
+            adjacencyOffset[v + 1] = adjacencyOffset[v] + valence[v];
+        int[] adjacency = new int[adjacencyOffset[vertexCount]];
+        int[] fill = Arrays.copyOf(adjacencyOffset, vertexCount);
+        for (int i = 0; i < triangleCount * 3; i++)
+            adjacency[fill[indices[i]]++] = i / 3;
+
+        // Initial scores
+        int[] remaining = valence.clone();
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++)
+            vertexScore[v] = getVertexScore(-1, remaining[v]);
+        float[] triangleScore = new float[triangleCount];
+        for (int t = 0; t < triangleCount; t++)
+            triangleScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]]
+                    + vertexScore[indices[t * 3 + 2]];
+
+        boolean[] emitted = new boolean[triangleCount];
+        int[] cache = new int[CACHE_SIZE + 3], newCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int[] result = new int[triangleCount * 3];
+        int cursor = 0;
+
+        for (int out = 0; out < triangleCount; out++) {
+
+            // Find best triangle of the cached vertices, or next not emitted one
+            int best = -1;
+            float bestScore = -1.0f;
+            for (int c = 0; c < cacheCount; c++) {
+                int v = cache[c];
+                for (int a = adjacencyOffset[v]; a < adjacencyOffset[v + 1]; a++) {
+                    int t = adjacency[a];
+                    if (!emitted[t] && triangleScore[t] > bestScore) {
+                        bestScore = triangleScore[t];
+                        best = t;
+                    }
+                }
+            }
+            if (best < 0) {
+                while (emitted[cursor])
+                    cursor++;
+                best = cursor;
+            }
+
+            // Emit triangle and remove it from the adjacency of its vertices
+            emitted[best] = true;
+            for (int i = 0; i < 3; i++) {
+                int v = indices[best * 3 + i];
+                result[out * 3 + i] = v;
+                remaining[v]--;
+            }
+
+            // Put vertices of the triangle in front of the lru cache
+            int newCount = 0;
+            for (int i = 0; i < 3; i++)
+                newCache[newCount++] = indices[best * 3 + i];
+            for (int c = 0; c < cacheCount; c++) {
+                int v = cache[c];
+                if (v != newCache[0] && v != newCache[1] && v != newCache[2])
+                    newCache[newCount++] = v;
+            }
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+
+            // Update scores of all vertices, that were or are in the cache
+            for (int c = 0; c < newCount; c++) {
+                int v = cache[c];
+                cachePosition[v] = c < CACHE_SIZE ? c : -1;
+                vertexScore[v] = getVertexScore(cachePosition[v], remaining[v]);
+            }
+            cacheCount = Math.min(newCount, CACHE_SIZE);
+            for (int c = 0; c < newCount; c++) {
+                int v = cache[c];
+                for (int a = adjacencyOffset[v]; a < adjacencyOffset[v + 1]; a++) {
+                    int t = adjacency[a];
+                    triangleScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]]
+                            + vertexScore[indices[t * 3 + 2]];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculating the forsyth score of a vertex
+     *
+     * @param cachePosition Position of the vertex in the cache or -1
+     * @param remaining     Count of not emitted triangles of the vertex
+     * @return Score of the vertex
+     */
+    private static float getVertexScore(int cachePosition, int remaining) {
+        if (remaining == 0)
+            return -1.0f;
+
+        float score = 0.0f;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3)
+                score = LAST_TRIANGLE_SCORE;
+            else {
+                float scaler = 1.0f / (CACHE_SIZE - 3);
+                score = (float) Math.pow(1.0f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+
+        return score + VALENCE_BOOST_SCALE * (float) Math.pow(remaining, -VALENCE_BOOST_POWER);
+    }
+
+    /**
+     * Sorting clusters of cache optimized triangles, so that clusters facing
+     * away from the mesh center are drawn first and occlude the inner ones.
+     * Clusters end at triangles that miss the vertex cache completely, so the
+     * vertex cache efficiency stays nearly the same.
+     *
+     * @param indices  Cache optimized indices
+     * @param vertices Vertex positions of the mesh
+     * @return Reordered indices
+     */
+    public static int[] optimizeOverdraw(int[] indices, float[] vertices) {
+        int triangleCount = indices.length / 3;
+
+        // Split triangles into clusters at hard cache boundaries
+        int[] clusterStart = new int[triangleCount + 1];
+        int clusterCount = 0;
+        int[] fifo = new int[FIFO_CACHE_SIZE];
+        Arrays.fill(fifo, -1);
+        int fifoHead = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            int misses = 0;
+            for (int i = 0; i < 3; i++) {
+                int v = indices[t * 3 + i];
+                boolean hit = false;
+                for (int cached : fifo) {
+                    if (cached == v) {
+                        hit = true;
+                        break;
+                    }
+                }
+                if (!hit) {
+                    fifo[fifoHead] = v;
+                    fifoHead = (fifoHead + 1) % FIFO_CACHE_SIZE;
+                    misses++;
+                }
+            }
+            if (t == 0 || (misses == 3 && t - clusterStart[clusterCount - 1] >= MIN_CLUSTER_SIZE))
+                clusterStart[clusterCount++] = t;
+        }
+        clusterStart[clusterCount] = triangleCount;
+
+        // Center of the mesh
+        float mx = 0.0f, my = 0.0f, mz = 0.0f;
+        int vertexCount = vertices.length / 3;
+        for (int v = 0; v < vertexCount; v++) {
+            mx += vertices[v * 3];
+            my += vertices[v * 3 + 1];
+            mz += vertices[v * 3 + 2];
+        }
+        mx /= vertexCount;
+        my /= vertexCount;
+        mz /= vertexCount;
+
+        // Sort key of every cluster: Distance of its center along its normal
+        float[] keys = new float[clusterCount];
+        Integer[] order = new Integer[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            float cx = 0.0f, cy = 0.0f, cz = 0.0f, nx = 0.0f, ny = 0.0f, nz = 0.0f, area = 0.0f;
+            for (int t = clusterStart[c]; t < clusterStart[c + 1]; t++) {
+                int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, d = indices[t * 3 + 2] * 3;
+                float e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1],
+                        e1z = vertices[b + 2] - vertices[a + 2];
+                float e2x = vertices[d] - vertices[a], e2y = vertices[d + 1] - vertices[a + 1],
+                        e2z = vertices[d + 2] - vertices[a + 2];
+                float fx = e1y * e2z - e1z * e2y, fy = e1z * e2x - e1x * e2z, fz = e1x * e2y - e1y * e2x;
+                float w = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+
+                cx += (vertices[a] + vertices[b] + vertices[d]) / 3.0f * w;
+                cy += (vertices[a + 1] + vertices[b + 1] + vertices[d + 1]) / 3.0f * w;
+                cz += (vertices[a + 2] + vertices[b + 2] + vertices[d + 2]) / 3.0f * w;
+                nx += fx;
+                ny += fy;
+                nz += fz;
+                area += w;
+            }
+
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (area > 0.0f && length > 0.0f)
+                keys[c] = ((cx / area - mx) * nx + (cy / area - my) * ny + (cz / area - mz) * nz) / length;
+            order[c] = c;
+        }
+        Arrays.sort(order, (c1, c2) -> Float.compare(keys[c2], keys[c1]));
+
+        // Write clusters in sorted order
+        int[] result = new int[indices.length];
+        int out = 0;
+        for (int c : order) {
+            int length = (clusterStart[c + 1] - clusterStart[c]) * 3;
+            System.arraycopy(indices, clusterStart[c] * 3, result, out, length);
+            out += length;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reordering the vertices of a mesh by their first use in the indices, so
+     * that the vertex fetch reads the vertex buffer linear. Unused vertices are
+     * moved to the end.
+     *
+     * @param meshData Mesh to reorder vertices of
+     */
+    public static void optimizeVertexFetch(MeshData meshData) {
+        int vertexCount = meshData.vertices.length / 3;
+
+        // Remap vertices by first use
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        for (int i = 0; i < meshData.indices.length; i++) {
+            int v = meshData.indices[i];
+            if (remap[v] < 0)
+                remap[v] = next++;
+            meshData.indices[i] = remap[v];
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] < 0)
+                remap[v] = next++;
+        }
+
+        meshData.vertices = remap(meshData.vertices, remap, 3);
+        meshData.texCoords = remap(meshData.texCoords, remap, 2);
+        meshData.normals = remap(meshData.normals, remap, 3);
+        meshData.tangents = remap(meshData.tangents, remap, 3);
+        meshData.weights = remap(meshData.weights, remap, 4);
+        if (meshData.jointIds != null) {
+            int[] jointIds = new int[meshData.jointIds.length];
+            for (int v = 0; v < vertexCount; v++)
+                System.arraycopy(meshData.jointIds, v * 4, jointIds, remap[v] * 4, 4);
+            meshData.jointIds = jointIds;
+        }
+    }
+
+    /**
+     * @param values    Vertex attribute values or null
+     * @param remap     New position of every vertex
+     * @param dimension Dimension of the attribute
+     * @return Reordered values or null
+     */
+    private static float[] remap(float[] values, int[] remap, int dimension) {
+        if (values == null)
+            return null;
+
+        float[] result = new float[values.length];
+        for (int v = 0; v < remap.length; v++)
+            System.arraycopy(values, v * dimension, result, remap[v] * dimension, dimension);
+        return result;
+    }
+}
@@ -30,7 +30,7 @@ package de.coreengine.asset.modelLoader;
 
 import de.coreengine.asset.dataStructures.MaterialData;
 import de.coreengine.asset.dataStructures.MeshData;
-import javafx.util.Pair;
+import de.coreengine.util.Configuration;
 import org.lwjgl.assimp.AIBone;
 import org.lwjgl.assimp.AIMesh;
 import org.lwjgl.assimp.AIVector3D;
@@ -40,6 +40,14 @@ import java.util.List;
 import java.util.Objects;
 
 public class MeshParser {
+    private static final int MAX_WEIGHTS = 4;
+    private static final boolean OPTIMIZE = Configuration.getValuei("MESH_OPTIMIZATION") != 0;
+    private static final float[] LOD_RATIOS = Configuration.getValuefa("MESH_LOD_RATIOS");
+    private static final float LOD_MAX_ERROR = Configuration.getValuef("MESH_LOD_MAX_ERROR");
+
+    // Min triangle count of a mesh to generate lods, and min reduction per lod
+    private static final int LOD_MIN_TRIANGLES = 64;
+    private static final float LOD_MIN_REDUCTION = 0.9f;
 
     // Input
     private final AIMesh aiMesh;
@@ -47,6 +55,7 @@ public class MeshParser {
 
     // Output
     private MeshData meshData = null;
+    private final List<BoneParser> bones = new ArrayList<>();
 
     /**
      * Creating new mesh data that can parse ai meshes into meshes and
@@ -61,12 +70,28 @@ public class MeshParser {
     }
 
     /**
-     * Parse ai meshes into meshes and dataStructures meshes
+     * Parse ai meshes into meshes and dataStructures meshes and add the bones of
+     * the mesh to a bone list
      *
      * @param bones          Bone list to add bones or null to dont load bones
      * @param collisionShape Collision shape to use
      */
     public void parse(String collisionShape, List<BoneParser> bones) {
+        parse(collisionShape, bones != null);
+        if (bones != null)
+            mergeBones(bones);
+    }
+
+    /**
+     * Parse ai meshes into meshes and dataStructures meshes. Joint ids of the
+     * parsed mesh are indices into the bones of this mesh, until they are merged
+     * into a bone list. Does not touch any shared data, so multiple meshes can be
+     * parsed in parallel.
+     *
+     * @param collisionShape Collision shape to use
+     * @param loadBones      Should bones and vertex weights be loaded
+     */
+    public void parse(String collisionShape, boolean loadBones) {
 
         // Get material, load empty material if id not exist
         MaterialData material;
@@ -83,12 +108,19 @@ public class MeshParser {
         float[] tangents = bufferToArray(Objects.requireNonNull(aiMesh.mTangents()), true);
         int[] indices = getIndices();
 
-        // Load bones if requested
-        int[] jointIds = new int[aiMesh.mNumVertices() * 4];
-        float[] weights = new float[aiMesh.mNumVertices() * 4];
-        if (bones != null) {
+        // Construct dataStructures mesh
+        meshData = new MeshData();
+        meshData.vertices = vertices;
+        meshData.texCoords = texCoords;
+        meshData.normals = normals;
+        meshData.tangents = tangents;
+        meshData.indices = indices;
+        meshData.material = material;
+        meshData.shape = collisionShape;
 
-            // Load and parse bones
+        // Load bones if requested
+        if (loadBones) {
+            bones.clear();
             int boneCount = aiMesh.mNumBones();
             for (int i = 0; i < boneCount; i++) {
                 AIBone aiBone = AIBone.create(aiMesh.mBones().get(i));
@@ -97,55 +129,134 @@ public class MeshParser {
                 bones.add(bone);
             }
 
-            // Fill up arrays
-            // Iterate through all vertices
-            for (int vertexId = 0; vertexId < aiMesh.mNumVertices(); vertexId++) {
+            meshData.jointIds = new int[aiMesh.mNumVertices() * MAX_WEIGHTS];
+            meshData.weights = new float[aiMesh.mNumVertices() * MAX_WEIGHTS];
+            assignWeights(meshData.jointIds, meshData.weights);
+        }
 
-                // List to store all joints that effect this vertex
-                List<Pair<Integer, Float>> joints = new ArrayList<>();
+        // Optimize triangle and vertex order
+        if (OPTIMIZE)
+            MeshOptimizer.optimize(meshData);
 
-                // Iterate through bones
-                for (int jointId = 0; jointId < bones.size(); jointId++) {
-                    BoneParser bone = bones.get(jointId);
+        // Generate lower details
+        generateLods();
+    }
 
-                    // Iterate through bones effected vertices, to see if this vertex is effected by
-                    // this bone
-                    for (Pair<Integer, Float> effectedVertex : bone.getEffectedVertices()) {
+    /**
+     * Generating the lod levels of the parsed mesh by simplifying it to the
+     * configured ratios of its triangle count. Every lod is simplified from the
+     * full mesh, so the max error is relative to the original surface. The lods
+     * share the vertices of the mesh and only have own indices. Stops at the
+     * first lod, that could not be reduced enough within the max error.
+     */
+    private void generateLods() {
+        int[] indices = meshData.indices;
+        if (indices.length < LOD_MIN_TRIANGLES * 3 || LOD_RATIOS.length == 0)
+            return;
 
-                        // If this vertex gets effected by this bone -> add to effected bones/joints
-                        if (effectedVertex.getKey() == vertexId) {
-                            joints.add(new Pair<>(jointId, effectedVertex.getValue()));
-                        }
-                    }
+        // Max error relative to the mesh size
+        float[] vertices = meshData.vertices;
+        float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+        float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for (int i = 0; i < vertices.length; i++) {
+            min[i % 3] = Math.min(min[i % 3], vertices[i]);
+            max[i % 3] = Math.max(max[i % 3], vertices[i]);
+        }
+        float dx = max[0] - min[0], dy = max[1] - min[1], dz = max[2] - min[2];
+        float maxError = LOD_MAX_ERROR * 0.5f * (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        List<int[]> lods = new ArrayList<>();
+        int[] previous = indices;
+        for (float ratio : LOD_RATIOS) {
+            int target = (int) (indices.length * ratio) / 3 * 3;
+            int[] lod = MeshSimplifier.simplify(indices, vertices, target, maxError);
+            if (lod.length == 0 || lod.length > previous.length * LOD_MIN_REDUCTION)
+                break;
+            if (OPTIMIZE)
+                lod = MeshOptimizer.optimizeVertexCache(lod, vertices.length / 3);
+            lods.add(lod);
+            previous = lod;
+        }
+
+        meshData.lodIndices = lods.isEmpty() ? null : lods.toArray(new int[0][]);
+    }
+
+    /**
+     * Inverting the bone weights into per vertex slots in a single pass over all
+     * bone weights. Every vertex keeps its four highest weights, which are
+     * normalized afterwards. Unused slots have joint 0 and weight 0.
+     *
+     * @param jointIds Array to store joint ids in (four per vertex)
+     * @param weights  Array to store weights in (four per vertex)
+     */
+    private void assignWeights(int[] jointIds, float[] weights) {
+        for (int jointId = 0; jointId < bones.size(); jointId++) {
+            int[] vertexIds = bones.get(jointId).getEffectedVertices();
+            float[] vertexWeights = bones.get(jointId).getEffectedWeights();
+
+            for (int i = 0; i < vertexIds.length; i++) {
+                int slot = vertexIds[i] * MAX_WEIGHTS;
+                if (slot < 0 || slot >= weights.length)
+                    continue;
+
+                // Replace the lowest slot of the vertex, if the new weight is higher
+                int lowest = slot;
+                for (int s = slot + 1; s < slot + MAX_WEIGHTS; s++) {
+                    if (weights[s] < weights[lowest])
+                        lowest = s;
                 }
+                if (vertexWeights[i] > weights[lowest]) {
+                    weights[lowest] = vertexWeights[i];
+                    jointIds[lowest] = jointId;
+                }
+            }
+        }
+
+        // Normalize weights of every vertex
+        for (int slot = 0; slot < weights.length; slot += MAX_WEIGHTS) {
+            float sum = 0.0f;
+            for (int s = slot; s < slot + MAX_WEIGHTS; s++)
+                sum += weights[s];
+            if (sum > 0.0f) {
+                for (int s = slot; s < slot + MAX_WEIGHTS; s++)
+                    weights[s] /= sum;
+            }
+        }
+    }
+
+    /**
+     * Merging the bones of this mesh into a bone list and remapping the joint ids
+     * of the parsed mesh to the indices in that list. Bones with the same name are
+     * only added once. Must only be called once after parsing.
+     *
+     * @param bones Bone list to merge bones into
+     */
+    public void mergeBones(List<BoneParser> bones) {
+        if (meshData == null || meshData.jointIds == null)
+            return;
 
-                // Add joints to joint ids and weights
-                for (int i = 0; i < 4; i++) {
-                    int id = 0;
-                    float weight = 0;
-                    if (i < joints.size()) {
-                        id = joints.get(i).getKey();
-                        weight = joints.get(i).getValue();
-                    }
-                    jointIds[vertexId * 4 + i] = id;
-                    weights[vertexId * 4 + i] = weight;
+        // Find or add every bone of this mesh
+        int[] remap = new int[this.bones.size()];
+        for (int i = 0; i < remap.length; i++) {
+            BoneParser bone = this.bones.get(i);
+            remap[i] = -1;
+            for (int b = 0; b < bones.size(); b++) {
+                if (bones.get(b).getName().equals(bone.getName())) {
+                    remap[i] = b;
+                    break;
                 }
             }
+            if (remap[i] < 0) {
+                remap[i] = bones.size();
+                bones.add(bone);
+            }
         }
 
-        // Construct dataStructures mesh
-        meshData = new MeshData();
-        meshData.vertices = vertices;
-        meshData.texCoords = texCoords;
-        meshData.normals = normals;
-        meshData.tangents = tangents;
-        meshData.indices = indices;
-        meshData.material = material;
-        meshData.shape = collisionShape;
-        if (bones != null)
-            meshData.jointIds = jointIds;
-        if (bones != null)
-            meshData.weights = weights;
+        // Remap joint ids
+        for (int i = 0; i < meshData.jointIds.length; i++) {
+            if (meshData.jointIds[i] < remap.length)
+                meshData.jointIds[i] = remap[meshData.jointIds[i]];
+        }
     }
 
     /**
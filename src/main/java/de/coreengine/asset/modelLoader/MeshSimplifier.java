@@ -0,0 +1,326 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.modelLoader;
+
+import java.util.Arrays;
+
+/**
+ * Class that simplifies meshes with quadric error metrics. Edges are collapsed
+ * onto one of their existing vertices, so the simplified meshes only need new
+ * indices and can share the vertex buffer of the full detail mesh. Vertices on
+ * borders and attribute seams are never removed.
+ *
+ * @author Darius Dinger
+ */
+public class MeshSimplifier {
+
+    // Min cos of the angle between a triangle normal before and after a collapse
+    private static final float MIN_NORMAL_DOT = 0.2f;
+
+    // Count of values of a symmetric quadric matrix and the plane distance
+    private static final int QUADRIC_SIZE = 10;
+
+    /**
+     * Simplifying a mesh down to a target triangle count or until the error
+     * exceeds the max error
+     *
+     * @param indices     Indices of the mesh
+     * @param vertices    Vertex positions of the mesh
+     * @param targetCount Target count of indices
+     * @param maxError    Max distance of the simplified surface to the original
+     *                    surface
+     * @return Indices of the simplified mesh
+     */
+    public static int[] simplify(int[] indices, float[] vertices, int targetCount, float maxError) {
+        int vertexCount = vertices.length / 3;
+        float maxCost = maxError * maxError;
+
+        boolean[] locked = getLockedVertices(indices, vertexCount);
+        double[] quadrics = getQuadrics(indices, vertices, vertexCount);
+
+        int[] result = indices.clone();
+        int[] remap = new int[vertexCount];
+        boolean[] touched = new boolean[vertexCount];
+
+        while (result.length > targetCount) {
+            int triangleCount = result.length / 3;
+
+            // Collect collapse candidates (vertex -> neighbor) with their costs
+            long[] candidates = new long[triangleCount * 6];
+            float[] costs = new float[triangleCount * 6];
+            int candidateCount = 0;
+            for (int i = 0; i < result.length; i++) {
+                int from = result[i], to = result[i - i % 3 + (i + 1) % 3];
+                for (int k = 0; k < 2; k++) {
+                    if (!locked[from]) {
+                        float cost = (float) evaluate(quadrics, from, vertices, to);
+                        if (cost <= maxCost) {
+                            candidates[candidateCount] = ((long) from << 32) | to;
+                            costs[candidateCount++] = cost;
+                        }
+                    }
+                    int swap = from;
+                    from = to;
+                    to = swap;
+                }
+            }
+            if (candidateCount == 0)
+                break;
+
+            // Sort candidates by cost, positive float bits keep their order as int
+            long[] order = new long[candidateCount];
+            for (int i = 0; i < candidateCount; i++)
+                order[i] = ((long) Float.floatToIntBits(costs[i]) << 32) | i;
+            Arrays.sort(order);
+
+            int[] adjacencyOffset = new int[vertexCount + 1];
+            int[] adjacency = getAdjacency(result, vertexCount, adjacencyOffset);
+
+            // Collapse cheapest edges, every neighborhood max once per pass
+            for (int v = 0; v < vertexCount; v++)
+                remap[v] = v;
+            Arrays.fill(touched, false);
+            int removedIndices = 0, targetRemoved = result.length - targetCount;
+            for (long key : order) {
+                if (removedIndices >= targetRemoved)
+                    break;
+                int c = (int) key;
+                int from = (int) (candidates[c] >>> 32), to = (int) candidates[c];
+                if (touched[from] || touched[to]
+                        || flipsTriangle(result, vertices, adjacency, adjacencyOffset, from, to))
+                    continue;
+
+                remap[from] = to;
+                for (int q = 0; q < QUADRIC_SIZE; q++)
+                    quadrics[to * QUADRIC_SIZE + q] += quadrics[from * QUADRIC_SIZE + q];
+
+                // Lock the neighborhood for this pass, triangles that share the edge
+                // are removed
+                for (int a = adjacencyOffset[from]; a < adjacencyOffset[from + 1]; a++) {
+                    int t = adjacency[a] * 3;
+                    touched[result[t]] = touched[result[t + 1]] = touched[result[t + 2]] = true;
+                    if (result[t] == to || result[t + 1] == to || result[t + 2] == to)
+                        removedIndices += 3;
+                }
+            }
+
+            // Apply collapses and remove degenerated triangles
+            int[] collapsed = new int[result.length];
+            int count = 0;
+            for (int t = 0; t < result.length; t += 3) {
+                int a = remap[result[t]], b = remap[result[t + 1]], d = remap[result[t + 2]];
+                if (a != b && b != d && d != a) {
+                    collapsed[count++] = a;
+                    collapsed[count++] = b;
+                    collapsed[count++] = d;
+                }
+            }
+            if (count == result.length)
+                break;
+            result = Arrays.copyOf(collapsed, count);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finding vertices, that are on an open edge. Edges along attribute seams are
+     * also open, because the seam vertices are split.
+     *
+     * @param indices     Indices of the mesh
+     * @param vertexCount Count of vertices
+     * @return Locked flag of every vertex
+     */
+    private static boolean[] getLockedVertices(int[] indices, int vertexCount) {
+        int[] adjacencyOffset = new int[vertexCount + 1];
+        int[] adjacency = getAdjacency(indices, vertexCount, adjacencyOffset);
+        boolean[] locked = new boolean[vertexCount];
+
+        // An edge is open, if no triangle of its end vertex contains the opposite
+        // directed edge
+        for (int i = 0; i < indices.length; i++) {
+            int a = indices[i], b = indices[i - i % 3 + (i + 1) % 3];
+            boolean shared = false;
+            for (int k = adjacencyOffset[b]; k < adjacencyOffset[b + 1] && !shared; k++) {
+                int t = adjacency[k] * 3;
+                for (int e = 0; e < 3; e++) {
+                    if (indices[t + e] == b && indices[t + (e + 1) % 3] == a) {
+                        shared = true;
+                        break;
+                    }
+                }
+            }
+            if (!shared)
+                locked[a] = locked[b] = true;
+        }
+
+        return locked;
+    }
+
+    /**
+     * Calculating the area weighted plane quadric of every vertex
+     *
+     * @param indices     Indices of the mesh
+     * @param vertices    Vertex positions
+     * @param vertexCount Count of vertices
+     * @return Quadrics (a2, ab, ac, ad, b2, bc, bd, c2, cd, d2) of every vertex
+     */
+    private static double[] getQuadrics(int[] indices, float[] vertices, int vertexCount) {
+        double[] quadrics = new double[vertexCount * QUADRIC_SIZE];
+        for (int t = 0; t < indices.length; t += 3) {
+            int i0 = indices[t] * 3, i1 = indices[t + 1] * 3, i2 = indices[t + 2] * 3;
+            double e1x = vertices[i1] - vertices[i0], e1y = vertices[i1 + 1] - vertices[i0 + 1],
+                    e1z = vertices[i1 + 2] - vertices[i0 + 2];
+            double e2x = vertices[i2] - vertices[i0], e2y = vertices[i2 + 1] - vertices[i0 + 1],
+                    e2z = vertices[i2 + 2] - vertices[i0 + 2];
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0.0)
+                continue;
+
+            double area = length * 0.5;
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            double d = -(nx * vertices[i0] + ny * vertices[i0 + 1] + nz * vertices[i0 + 2]);
+            double[] plane = { nx * nx, nx * ny, nx * nz, nx * d, ny * ny, ny * nz, ny * d, nz * nz, nz * d, d * d };
+
+            for (int v = 0; v < 3; v++) {
+                int offset = indices[t + v] * QUADRIC_SIZE;
+                for (int q = 0; q < QUADRIC_SIZE; q++)
+                    quadrics[offset + q] += plane[q] * area;
+            }
+        }
+
+        // Normalize by area, so the error is a squared distance
+        for (int v = 0; v < vertexCount; v++) {
+            double area = quadrics[v * QUADRIC_SIZE] + quadrics[v * QUADRIC_SIZE + 4]
+                    + quadrics[v * QUADRIC_SIZE + 7];
+            if (area > 0.0) {
+                for (int q = 0; q < QUADRIC_SIZE; q++)
+                    quadrics[v * QUADRIC_SIZE + q] /= area;
+            }
+        }
+
+        return quadrics;
+    }
+
+    /**
+     * Evaluating the quadric of a vertex at the position of another vertex
+     *
+     * @param quadrics Quadrics of all vertices
+     * @param vertex   Vertex of the quadric
+     * @param vertices Vertex positions
+     * @param target   Vertex to evaluate the quadric at
+     * @return Squared distance error
+     */
+    private static double evaluate(double[] quadrics, int vertex, float[] vertices, int target) {
+        int q = vertex * QUADRIC_SIZE;
+        double x = vertices[target * 3], y = vertices[target * 3 + 1], z = vertices[target * 3 + 2];
+        double error = quadrics[q] * x * x + 2 * quadrics[q + 1] * x * y + 2 * quadrics[q + 2] * x * z
+                + 2 * quadrics[q + 3] * x + quadrics[q + 4] * y * y + 2 * quadrics[q + 5] * y * z
+                + 2 * quadrics[q + 6] * y + quadrics[q + 7] * z * z + 2 * quadrics[q + 8] * z + quadrics[q + 9];
+        return Math.abs(error);
+    }
+
+    /**
+     * Checking if moving a vertex onto another one flips any of its remaining
+     * triangles
+     *
+     * @param indices         Indices of the mesh
+     * @param vertices        Vertex positions
+     * @param adjacency       Triangles of every vertex
+     * @param adjacencyOffset Offset of every vertex in the adjacency
+     * @param from            Vertex to move
+     * @param to              Vertex to move onto
+     * @return True, if a triangle would flip or degenerate
+     */
+    private static boolean flipsTriangle(int[] indices, float[] vertices, int[] adjacency, int[] adjacencyOffset,
+            int from, int to) {
+        for (int a = adjacencyOffset[from]; a < adjacencyOffset[from + 1]; a++) {
+            int t = adjacency[a] * 3;
+            if (indices[t] == to || indices[t + 1] == to || indices[t + 2] == to)
+                continue;
+
+            // Rotate triangle, so that the moved vertex is first
+            int k = indices[t] == from ? 0 : indices[t + 1] == from ? 1 : 2;
+            int b = indices[t + (k + 1) % 3] * 3, c = indices[t + (k + 2) % 3] * 3;
+
+            float[] before = getNormal(vertices, from * 3, b, c);
+            float[] after = getNormal(vertices, to * 3, b, c);
+            float lengthBefore = before[0] * before[0] + before[1] * before[1] + before[2] * before[2];
+            float lengthAfter = after[0] * after[0] + after[1] * after[1] + after[2] * after[2];
+            if (lengthAfter == 0.0f)
+                return true;
+
+            float dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+            if (dot <= MIN_NORMAL_DOT * (float) Math.sqrt(lengthBefore * lengthAfter))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param vertices Vertex positions
+     * @param a        Offset of the first vertex
+     * @param b        Offset of the second vertex
+     * @param c        Offset of the third vertex
+     * @return Not normalized normal of the triangle
+     */
+    private static float[] getNormal(float[] vertices, int a, int b, int c) {
+        float e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1],
+                e1z = vertices[b + 2] - vertices[a + 2];
+        float e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1],
+                e2z = vertices[c + 2] - vertices[a + 2];
+        return new float[] { e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x };
+    }
+
+    /**
+     * Building the triangle adjacency of every vertex
+     *
+     * @param indices         Indices of the mesh
+     * @param vertexCount     Count of vertices
+     * @param adjacencyOffset Array to store offset of every vertex in (vertex
+     *                        count + 1)
+     * @return Triangles of all vertices
+     */
+    private static int[] getAdjacency(int[] indices, int vertexCount, int[] adjacencyOffset) {
+        Arrays.fill(adjacencyOffset, 0);
+        for (int index : indices)
+            adjacencyOffset[index + 1]++;
+        for (int v = 0; v < vertexCount; v++)
+            adjacencyOffset[v + 1] += adjacencyOffset[v];
+
+        int[] adjacency = new int[indices.length];
+        int[] fill = Arrays.copyOf(adjacencyOffset, vertexCount);
+        for (int i = 0; i < indices.length; i++)
+            adjacency[fill[indices[i]]++] = i / 3;
+        return adjacency;
+    }
+}
@@ -28,6 +28,7 @@
 package de.coreengine.framework;
 
 import de.coreengine.asset.TextureData;
+import de.coreengine.util.Configuration;
 import de.coreengine.util.Logger;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWImage;
@@ -45,10 +46,14 @@ import java.util.List;
  * @author Darius Dinger
  */
 public class Window implements GLFWWindowSizeCallbackI {
+    private static final boolean LOADER_CONTEXT = Configuration.getValuei("LOADER_CONTEXT") != 0;
 
     // ID of the glfw window
     private static long window = 0;
 
+    // ID of the hidden window, that shares its context with the glfw window
+    private static long loaderWindow = 0;
+
     // Is fullscreen enabled
     private static boolean fullscreen = false;
 
@@ -86,6 +91,10 @@ public class Window implements GLFWWindowSizeCallbackI {
         if (window != 0) {
             GLFW.glfwDestroyWindow(window);
         }
+        if (loaderWindow != 0) {
+            GLFW.glfwDestroyWindow(loaderWindow);
+            loaderWindow = 0;
+        }
 
         // Disable Window Resizeable
         GLFW.glfwWindowHint(GLFW.GLFW_RESIZABLE, 0);
@@ -96,6 +105,16 @@ public class Window implements GLFWWindowSizeCallbackI {
         window = GLFW.glfwCreateWindow(width, height, title, fullscreen ? de.coreengine.framework.GLFW.primMonitor : 0,
                 0);
 
+        // Create hidden window, whose context is shared with the window, for
+        // the loader thread
+        if (LOADER_CONTEXT) {
+            GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, 0);
+            loaderWindow = GLFW.glfwCreateWindow(1, 1, title + " Loader", 0, window);
+            GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, 1);
+            if (loaderWindow == 0)
+                Logger.warn("Loader context not created", "Assets will be uploaded on the main thread!");
+        }
+
         // Set input listeners for window
         GLFW.glfwSetCursorPosCallback(window, Mouse.MOUSE_MOVED_LISTENER);
         GLFW.glfwSetMouseButtonCallback(window, Mouse.MOUSE_BUTTON_LISTENER);
@@ -136,6 +155,8 @@ public class Window implements GLFWWindowSizeCallbackI {
      * Destroy glfw window
      */
     public static void destroy() {
+        if (loaderWindow != 0)
+            GLFW.glfwDestroyWindow(loaderWindow);
         GLFW.glfwDestroyWindow(window);
     }
 
@@ -255,6 +276,14 @@ public class Window implements GLFWWindowSizeCallbackI {
         return window;
     }
 
+    /**
+     * @return ID of the hidden window, that shares its context with the glfw
+     *         window, or 0 if not created
+     */
+    public static long getLoaderWindow() {
+        return loaderWindow;
+    }
+
     /**
      * @return Is the window currently in fullscreen mode
      */
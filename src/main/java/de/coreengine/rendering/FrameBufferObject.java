@@ -62,6 +62,9 @@ public class FrameBufferObject {
     // Array of all attached color buffers
     private int[] colorBuffers = new int[0];
 
+    // Ids of all attached textures/renderbuffers
+    private int[] attachments = new int[0];
+
     // Is fbo multisampled?
     private final boolean multisampled;
 
@@ -79,7 +82,7 @@ public class FrameBufferObject {
 
         // Generate and bind fbo
         id = GL30.glGenFramebuffers();
-        MemoryDumper.addFramebuffer(id);
+        MemoryDumper.add(MemoryDumper.Type.FRAMEBUFFER, id, 0, this);
 
         // Attach default color and depth texture
         firstColorBuffer = addColorBuffer(0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE);
@@ -112,7 +115,7 @@ public class FrameBufferObject {
 
             // Create multisampled depth buffer
             tex = GL30.glGenRenderbuffers();
-            MemoryDumper.addRenderbuffer(tex);
+            addAttachment(MemoryDumper.Type.RENDERBUFFER, tex, GL14.GL_DEPTH_COMPONENT24);
             GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, tex);
             GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, Configuration.getValuei("MSAA_LEVEL"),
                     GL14.GL_DEPTH_COMPONENT24, dimension.width, dimension.height);
@@ -121,7 +124,7 @@ public class FrameBufferObject {
 
             // Create non multisampled depth buffer
             tex = GL11.glGenTextures();
-            MemoryDumper.addTexture(tex);
+            addAttachment(MemoryDumper.Type.TEXTURE, tex, GL14.GL_DEPTH_COMPONENT32);
             GL11.glBindTexture(GL11.GL_TEXTURE_2D, tex);
             GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL14.GL_DEPTH_COMPONENT32, dimension.width, dimension.height, 0,
                     GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, 0);
@@ -156,7 +159,7 @@ public class FrameBufferObject {
 
             // Create multisampled color buffer
             tex = GL30.glGenRenderbuffers();
-            MemoryDumper.addRenderbuffer(tex);
+            addAttachment(MemoryDumper.Type.RENDERBUFFER, tex, internalFormat);
             GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, tex);
             GL30.glRenderbufferStorageMultisample(GL30.GL_RENDERBUFFER, Configuration.getValuei("MSAA_LEVEL"),
                     internalFormat, dimension.width, dimension.height);
@@ -165,7 +168,7 @@ public class FrameBufferObject {
 
             // Create non multisampled color buffer
             tex = GL11.glGenTextures();
-            MemoryDumper.addTexture(tex);
+            addAttachment(MemoryDumper.Type.TEXTURE, tex, internalFormat);
             GL11.glBindTexture(GL11.GL_TEXTURE_2D, tex);
             GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, internalFormat, dimension.width, dimension.height, 0, GL11.GL_RGB,
                     type, 0);
@@ -181,6 +184,53 @@ public class FrameBufferObject {
         return tex;
     }
 
+    /**
+     * Tracking an attachment of this fbo and its size in the memory dumper
+     *
+     * @param type           Type of the attachment (texture or renderbuffer)
+     * @param attachment     Id of the attachment
+     * @param internalFormat Internal format of the attachment
+     */
+    private void addAttachment(MemoryDumper.Type type, int attachment, int internalFormat) {
+        long bytes = (long) MemoryDumper.getBytesPerPixel(internalFormat) * dimension.width * dimension.height;
+        if (multisampled)
+            bytes *= Math.max(1, Configuration.getValuei("MSAA_LEVEL"));
+
+        MemoryDumper.add(type, attachment, bytes, this);
+        attachments = Toolbox.addElement(attachments, attachment);
+    }
+
+    /**
+     * Deleting the fbo and all its attachments. The fbo can not be used
+     * afterwards.
+     */
+    public void destroy() {
+        MemoryDumper.Type type = multisampled ? MemoryDumper.Type.RENDERBUFFER : MemoryDumper.Type.TEXTURE;
+        for (int attachment : attachments)
+            MemoryDumper.delete(type, attachment);
+        MemoryDumper.delete(MemoryDumper.Type.FRAMEBUFFER, id);
+        attachments = new int[0];
+    }
+
+    /**
+     * Deleting the fbo and its depth attachment, but keeping the color
+     * attachments, e.g. if rendered textures outlive the fbo. The new owner is
+     * responsible to delete them.
+     *
+     * @param owner New owner of the color attachments
+     */
+    public void release(Object owner) {
+        MemoryDumper.Type type = multisampled ? MemoryDumper.Type.RENDERBUFFER : MemoryDumper.Type.TEXTURE;
+        for (int attachment : attachments) {
+            if (attachment == depthBuffer)
+                MemoryDumper.delete(type, attachment);
+            else
+                MemoryDumper.setOwner(type, attachment, owner);
+        }
+        MemoryDumper.delete(MemoryDumper.Type.FRAMEBUFFER, id);
+        attachments = new int[0];
+    }
+
     /**
      * Blitting/writing color and depth information from this fbo into another fbo
      * 
@@ -0,0 +1,395 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering;
+
+import de.coreengine.framework.Window;
+import de.coreengine.rendering.programs.HiZShader;
+import de.coreengine.rendering.programs.ShaderVariants;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.gl.MemoryDumper;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL42;
+import org.lwjgl.opengl.GL43;
+
+import javax.vecmath.Matrix4f;
+import javax.vecmath.Vector3f;
+import java.nio.FloatBuffer;
+
+/**
+ * Max depth pyramid (hierarchical z buffer) of the last frame, used to cull
+ * objects, that were hidden behind other geometry. The pyramid is built with
+ * compute shaders from the gbuffer depth and tested on the gpu. A coarse level
+ * is read back asynchronously and used for tests on the cpu. The cpu copy can
+ * be several frames old and only accounts for camera movement, so it must only
+ * be used for static bounds (e.g. terrain nodes).<br>
+ * <br>
+ * Tests are conservative: Bounds are grown by the camera movement since the
+ * capture, bounds crossing the near plane or the border of the captured view
+ * are visible and nothing is culled after large camera movements.
+ *
+ * @author Darius Dinger
+ */
+public class HiZBuffer {
+    private static final boolean ENABLED = Configuration.getValuei("OCCLUSION_CULLING_ENABLED") != 0;
+    private static final float DEPTH_BIAS = Configuration.getValuef("OCCLUSION_DEPTH_BIAS");
+    private static final float MAX_CAMERA_MOVE = Configuration.getValuef("OCCLUSION_MAX_CAMERA_MOVE");
+    private static final int READBACK_WIDTH = Configuration.getValuei("OCCLUSION_READBACK_WIDTH");
+
+    // Min clip space w of a projected corner, nearer corners are behind the
+    // camera
+    private static final float MIN_W = 0.0001f;
+
+    // Is occlusion culling supported by the driver, null if not checked yet
+    private static Boolean supported = null;
+
+    private final ShaderVariants<HiZShader> shaders = new ShaderVariants<>(HiZShader::new);
+
+    // Pyramid texture, size of the first level and count of levels
+    private int texture = 0, width = 0, height = 0, levels = 0;
+
+    // Camera the pyramid was captured with
+    private final Matrix4f vpMat = new Matrix4f();
+    private final Vector3f camPos = new Vector3f();
+    private boolean valid = false;
+
+    // Asynchronous readback of a coarse level and the camera it was captured
+    // with
+    private final int pbo = GL15.glGenBuffers();
+    private long fence = 0;
+    private int readLevel, readWidth, readHeight;
+    private final Matrix4f readVpMat = new Matrix4f();
+    private final Vector3f readCamPos = new Vector3f();
+
+    // Cpu copy of the coarse level and the camera it was captured with
+    private FloatBuffer cpuDepth = null;
+    private final Matrix4f cpuVpMat = new Matrix4f();
+    private final Vector3f cpuCamPos = new Vector3f();
+    private boolean cpuValid = false;
+
+    /**
+     * Creating new empty depth pyramid
+     */
+    public HiZBuffer() {
+        MemoryDumper.add(MemoryDumper.Type.VBO, pbo, 0, "HiZReadback", this);
+    }
+
+    /**
+     * Checking, if occlusion culling should be used. Only enabled on OpenGL 4.3,
+     * because the pyramid is built and tested with compute shaders.
+     *
+     * @return Is occlusion culling enabled and supported
+     */
+    public static boolean isEnabled() {
+        if (supported == null)
+            supported = GL.getCapabilities().OpenGL43;
+        return ENABLED && supported;
+    }
+
+    /**
+     * Building the pyramid from the depth of the rendered opaque scene, that is
+     * used to cull the next frame. Also finishing the last and starting the next
+     * readback of the coarse level.
+     *
+     * @param depthTexture Depth texture of the gbuffer
+     * @param camera       Camera, the depth was rendered with
+     */
+    public void capture(int depthTexture, Camera camera) {
+        int srcWidth = Window.getWidth(), srcHeight = Window.getHeight();
+        if (Math.max(1, srcWidth / 2) != width || Math.max(1, srcHeight / 2) != height)
+            recreate(Math.max(1, srcWidth / 2), Math.max(1, srcHeight / 2));
+        finishReadback();
+
+        // First level from the depth texture
+        HiZShader shader = shaders.get(HiZShader.FIRST_LEVEL);
+        shader.start();
+        shader.setDepthMap(depthTexture);
+        buildLevel(shader, 0, srcWidth, srcHeight, width, height);
+        shader.stop();
+
+        // Every other level from the level below
+        shader = shaders.get(0);
+        shader.start();
+        for (int level = 1, w = width, h = height; level < levels; level++) {
+            GL42.glMemoryBarrier(GL42.GL_SHADER_IMAGE_ACCESS_BARRIER_BIT);
+            GL42.glBindImageTexture(HiZShader.SRC_LEVEL_UNIT, texture, level - 1, false, 0, GL15.GL_READ_ONLY,
+                    GL30.GL_R32F);
+            buildLevel(shader, level, w, h, Math.max(1, w / 2), Math.max(1, h / 2));
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+        }
+        shader.stop();
+
+        // Make pyramid visible to texture fetches and the readback
+        GL42.glMemoryBarrier(GL42.GL_TEXTURE_FETCH_BARRIER_BIT | GL42.GL_TEXTURE_UPDATE_BARRIER_BIT);
+
+        vpMat.set(camera.getViewProjectionMatrix());
+        camPos.set(camera.getPosition());
+        valid = true;
+
+        startReadback();
+    }
+
+    /**
+     * Dispatching the build of one level
+     *
+     * @param shader    Started shader variant
+     * @param level     Level to build
+     * @param srcWidth  Width of the source
+     * @param srcHeight Height of the source
+     * @param dstWidth  Width of the level
+     * @param dstHeight Height of the level
+     */
+    private void buildLevel(HiZShader shader, int level, int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        GL42.glBindImageTexture(HiZShader.DST_LEVEL_UNIT, texture, level, false, 0, GL15.GL_WRITE_ONLY,
+                GL30.GL_R32F);
+        shader.setSizes(srcWidth, srcHeight, dstWidth, dstHeight);
+
+        int groups = HiZShader.WORK_GROUP_SIZE;
+        GL43.glDispatchCompute((dstWidth + groups - 1) / groups, (dstHeight + groups - 1) / groups, 1);
+    }
+
+    /**
+     * (Re)creating the pyramid texture, the readback buffer and the cpu copy for
+     * a new size. All captured data gets invalid.
+     *
+     * @param width  Width of the first level
+     * @param height Height of the first level
+     */
+    private void recreate(int width, int height) {
+        if (texture != 0)
+            MemoryDumper.delete(MemoryDumper.Type.TEXTURE, texture);
+        if (fence != 0) {
+            GL32.glDeleteSync(fence);
+            fence = 0;
+        }
+
+        this.width = width;
+        this.height = height;
+        levels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+        valid = false;
+        cpuValid = false;
+
+        // Create immutable storage of all levels
+        texture = GL11.glGenTextures();
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, texture, (long) width * height * 4 * 4 / 3, "HiZBuffer", this);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL42.glTexStorage2D(GL11.GL_TEXTURE_2D, levels, GL30.GL_R32F, width, height);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST_MIPMAP_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+        // Read back the first level, that is not wider than the readback width
+        readLevel = 0;
+        readWidth = width;
+        readHeight = height;
+        while (readWidth > READBACK_WIDTH && readLevel < levels - 1) {
+            readLevel++;
+            readWidth = Math.max(1, readWidth / 2);
+            readHeight = Math.max(1, readHeight / 2);
+        }
+
+        cpuDepth = BufferUtils.createFloatBuffer(readWidth * readHeight);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbo);
+        GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, (long) readWidth * readHeight * 4, GL15.GL_STREAM_READ);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+        MemoryDumper.resize(MemoryDumper.Type.VBO, pbo, (long) readWidth * readHeight * 4);
+    }
+
+    /**
+     * Starting the readback of the coarse level into the pixel buffer, if no
+     * readback is running
+     */
+    private void startReadback() {
+        if (fence != 0)
+            return;
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbo);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glGetTexImage(GL11.GL_TEXTURE_2D, readLevel, GL11.GL_RED, GL11.GL_FLOAT, 0L);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        readVpMat.set(vpMat);
+        readCamPos.set(camPos);
+    }
+
+    /**
+     * Copying the running readback into the cpu copy, if the gpu has finished
+     * it. Never waits for the gpu.
+     */
+    private void finishReadback() {
+        if (fence == 0)
+            return;
+
+        int status = GL32.glClientWaitSync(fence, 0, 0);
+        if (status == GL32.GL_TIMEOUT_EXPIRED)
+            return;
+
+        GL32.glDeleteSync(fence);
+        fence = 0;
+        if (status == GL32.GL_WAIT_FAILED)
+            return;
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbo);
+        GL15.glGetBufferSubData(GL21.GL_PIXEL_PACK_BUFFER, 0, cpuDepth);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        cpuVpMat.set(readVpMat);
+        cpuCamPos.set(readCamPos);
+        cpuValid = true;
+    }
+
+    /**
+     * Checking, if the pyramid can be used on the gpu for a camera position
+     *
+     * @param position Current camera position
+     * @return Is the pyramid captured and did the camera not move too far
+     */
+    public boolean isUsable(Vector3f position) {
+        return valid && getCameraMove(position) <= MAX_CAMERA_MOVE;
+    }
+
+    /**
+     * @param position Current camera position
+     * @return Distance, the camera moved since the pyramid was captured
+     */
+    public float getCameraMove(Vector3f position) {
+        float dx = position.x - camPos.x, dy = position.y - camPos.y, dz = position.z - camPos.z;
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Testing a static bounding sphere against the cpu copy of the coarse level
+     *
+     * @param x        X position of the sphere
+     * @param y        Y position of the sphere
+     * @param z        Z position of the sphere
+     * @param radius   Radius of the sphere
+     * @param position Current camera position
+     * @return True, if the sphere was hidden for sure
+     */
+    public boolean isOccluded(float x, float y, float z, float radius, Vector3f position) {
+        return isOccluded(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, position);
+    }
+
+    /**
+     * Testing a static bounding box against the cpu copy of the coarse level.
+     * Only returns true, if every covered texel is nearer than the box.
+     *
+     * @param minX     Min x of the box
+     * @param minY     Min y of the box
+     * @param minZ     Min z of the box
+     * @param maxX     Max x of the box
+     * @param maxY     Max y of the box
+     * @param maxZ     Max z of the box
+     * @param position Current camera position
+     * @return True, if the box was hidden for sure
+     */
+    public boolean isOccluded(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+            Vector3f position) {
+        if (!cpuValid)
+            return false;
+
+        float dx = position.x - cpuCamPos.x, dy = position.y - cpuCamPos.y, dz = position.z - cpuCamPos.z;
+        float move = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (move > MAX_CAMERA_MOVE)
+            return false;
+
+        // Project corners of the grown box into the captured view
+        Matrix4f m = cpuVpMat;
+        float ndcMinX = 1.0f, ndcMinY = 1.0f, ndcMinZ = 1.0f, ndcMaxX = -1.0f, ndcMaxY = -1.0f;
+        for (int i = 0; i < 8; i++) {
+            float cx = (i & 1) != 0 ? maxX + move : minX - move;
+            float cy = (i & 2) != 0 ? maxY + move : minY - move;
+            float cz = (i & 4) != 0 ? maxZ + move : minZ - move;
+
+            float w = m.m30 * cx + m.m31 * cy + m.m32 * cz + m.m33;
+            if (w <= MIN_W)
+                return false;
+
+            float nx = (m.m00 * cx + m.m01 * cy + m.m02 * cz + m.m03) / w;
+            float ny = (m.m10 * cx + m.m11 * cy + m.m12 * cz + m.m13) / w;
+            float nz = (m.m20 * cx + m.m21 * cy + m.m22 * cz + m.m23) / w;
+            ndcMinX = Math.min(ndcMinX, nx);
+            ndcMinY = Math.min(ndcMinY, ny);
+            ndcMinZ = Math.min(ndcMinZ, nz);
+            ndcMaxX = Math.max(ndcMaxX, nx);
+            ndcMaxY = Math.max(ndcMaxY, ny);
+        }
+        if (ndcMinX < -1.0f || ndcMinY < -1.0f || ndcMaxX > 1.0f || ndcMaxY > 1.0f)
+            return false;
+
+        // Compare nearest depth of the box with every covered texel
+        float nearest = ndcMinZ * 0.5f + 0.5f;
+        int x0 = Math.min(readWidth - 1, (int) ((ndcMinX * 0.5f + 0.5f) * readWidth));
+        int x1 = Math.min(readWidth - 1, (int) ((ndcMaxX * 0.5f + 0.5f) * readWidth));
+        int y0 = Math.min(readHeight - 1, (int) ((ndcMinY * 0.5f + 0.5f) * readHeight));
+        int y1 = Math.min(readHeight - 1, (int) ((ndcMaxY * 0.5f + 0.5f) * readHeight));
+        for (int ty = y0; ty <= y1; ty++) {
+            for (int tx = x0; tx <= x1; tx++) {
+                if (cpuDepth.get(ty * readWidth + tx) + DEPTH_BIAS >= nearest)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Texture of the pyramid, every level stores the max depth
+     */
+    public int getTexture() {
+        return texture;
+    }
+
+    /**
+     * @return View projection matrix, the pyramid was captured with
+     */
+    public Matrix4f getVpMat() {
+        return vpMat;
+    }
+
+    /**
+     * @return Depth bias of the occlusion tests
+     */
+    public float getDepthBias() {
+        return DEPTH_BIAS;
+    }
+}
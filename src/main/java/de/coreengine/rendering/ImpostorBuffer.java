@@ -0,0 +1,91 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Class that represents the fbo, an impostor atlas is rendered into. Color
+ * attachment 0 contains the color and alpha, color attachment 1 the model space
+ * normal and depth of the views.
+ *
+ * @author Darius Dinger
+ */
+public class ImpostorBuffer extends FrameBufferObject {
+
+    // Max mipmap level of the atlas, higher levels would mix neighbor views
+    private static final int MAX_MIPMAP_LEVEL = 3;
+
+    // Texture ids of the atlas
+    private final int colorBuffer, normalDepthBuffer;
+
+    /**
+     * Creates new impostor buffer
+     *
+     * @param size Width and height of the atlas in pixels
+     */
+    public ImpostorBuffer(int size) {
+        super(size, size, false);
+
+        colorBuffer = getColorAttachment0();
+        normalDepthBuffer = addColorBuffer(1, GL30.GL_RGBA16F, GL11.GL_FLOAT);
+    }
+
+    /**
+     * Generating the mipmaps of the atlas textures, after the views were
+     * rendered
+     */
+    public void generateMipmaps() {
+        for (int texture : new int[] { colorBuffer, normalDepthBuffer }) {
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, MAX_MIPMAP_LEVEL);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+            GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+        }
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * @return Atlas texture with the color and alpha of the views
+     */
+    public int getColorBuffer() {
+        return colorBuffer;
+    }
+
+    /**
+     * @return Atlas texture with the model space normal and depth of the views
+     */
+    public int getNormalDepthBuffer() {
+        return normalDepthBuffer;
+    }
+}
@@ -29,7 +29,10 @@
 package de.coreengine.rendering.model;
 
 import de.coreengine.animation.Animation;
+import de.coreengine.animation.AnimationBaker;
 import de.coreengine.animation.Joint;
+import de.coreengine.asset.dataStructures.BakedAnimationData;
+import de.coreengine.util.Logger;
 
 import java.util.HashMap;
 
@@ -41,6 +44,9 @@ public class AnimatedModel extends Model {
     // Animations that can be played by this model
     private final HashMap<String, Animation> animations;
 
+    // Animations that was baked into joint matrix textures
+    private final HashMap<String, BakedAnimation> bakedAnimations = new HashMap<>();
+
     /**
      * Creating new animated model
      *
@@ -71,4 +77,46 @@ public class AnimatedModel extends Model {
     public HashMap<String, Animation> getAnimations() {
         return animations;
     }
+
+    /**
+     * Baking an animation of this model at load time into a joint matrix texture.
+     * If the animation is already baked, the existing baked animation is returned.
+     *
+     * @param animation  Name of the animation to bake
+     * @param sampleRate Samples per animation time unit
+     * @return Baked animation or null, if animation not found
+     */
+    public BakedAnimation bakeAnimation(String animation, float sampleRate) {
+        if (bakedAnimations.containsKey(animation))
+            return bakedAnimations.get(animation);
+
+        if (animations == null || !animations.containsKey(animation)) {
+            Logger.warn("Error by baking animation", "The animation " + animation + " does not exist in this model!");
+            return null;
+        }
+
+        BakedAnimationData data = AnimationBaker.bake(skeleton, animations.get(animation), sampleRate);
+        return data == null ? null : addBakedAnimation(data.getInstance());
+    }
+
+    /**
+     * Adding an already baked animation (for example loaded from a file) to this
+     * model
+     *
+     * @param bakedAnimation Baked animation to add
+     * @return Added baked animation
+     */
+    public BakedAnimation addBakedAnimation(BakedAnimation bakedAnimation) {
+        if (bakedAnimation != null)
+            bakedAnimations.put(bakedAnimation.getName(), bakedAnimation);
+        return bakedAnimation;
+    }
+
+    /**
+     * @param animation Name of the baked animation
+     * @return Baked animation or null, if not baked
+     */
+    public BakedAnimation getBakedAnimation(String animation) {
+        return bakedAnimations.get(animation);
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.model;
+
+/**
+ * Class that represents an animation, that was baked into a joint matrix
+ * texture and can be played completely on the gpu
+ *
+ * @author Darius Dinger
+ */
+public class BakedAnimation {
+
+    // Name of the baked animation
+    private final String name;
+
+    // Texture that contains the joint matrices of every frame
+    private final int texture;
+
+    // Count of frames and joints per frame in the texture
+    private final int frameCount, jointCount;
+
+    // Samples per animation time unit and length of the animation
+    private final float sampleRate, length;
+
+    /**
+     * Creating new baked animation
+     *
+     * @param name       Name of the baked animation
+     * @param texture    Texture that contains the joint matrices of every frame
+     * @param frameCount Count of frames in the texture
+     * @param jointCount Count of joints per frame in the texture
+     * @param sampleRate Samples per animation time unit
+     * @param length     Length of the animation
+     */
+    public BakedAnimation(String name, int texture, int frameCount, int jointCount, float sampleRate,
+            float length) {
+        this.name = name;
+        this.texture = texture;
+        this.frameCount = frameCount;
+        this.jointCount = jointCount;
+        this.sampleRate = sampleRate;
+        this.length = length;
+    }
+
+    /**
+     * @return Name of the baked animation
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Texture that contains the joint matrices of every frame
+     */
+    public int getTexture() {
+        return texture;
+    }
+
+    /**
+     * @return Count of frames in the texture
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Count of joints per frame in the texture
+     */
+    public int getJointCount() {
+        return jointCount;
+    }
+
+    /**
+     * @return Samples per animation time unit
+     */
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return Length of the animation
+     */
+    public float getLength() {
+        return length;
+    }
+}
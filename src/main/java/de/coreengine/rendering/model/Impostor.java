@@ -0,0 +1,93 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.model;
+
+/**
+ * Class that represents an impostor of a model. The impostor contains views of
+ * the model from directions of an octahedral grid in an atlas, so the model can
+ * be drawn as camera facing quad from every direction.
+ *
+ * @author Darius Dinger
+ */
+public class Impostor {
+
+    // Atlas textures: Color with alpha, model space normal with depth
+    private final int colorTexture, normalDepthTexture;
+
+    // Count of views per side of the octahedral grid
+    private final int frames;
+
+    // Radius of the bounding sphere, the views were rendered with
+    private final float radius;
+
+    /**
+     * Creating new impostor
+     *
+     * @param colorTexture       Atlas with the color and alpha of every view
+     * @param normalDepthTexture Atlas with the model space normal and depth of
+     *                           every view
+     * @param frames             Count of views per side of the octahedral grid
+     * @param radius             Radius of the bounding sphere, the views were
+     *                           rendered with
+     */
+    public Impostor(int colorTexture, int normalDepthTexture, int frames, float radius) {
+        this.colorTexture = colorTexture;
+        this.normalDepthTexture = normalDepthTexture;
+        this.frames = frames;
+        this.radius = radius;
+    }
+
+    /**
+     * @return Atlas with the color and alpha of every view
+     */
+    public int getColorTexture() {
+        return colorTexture;
+    }
+
+    /**
+     * @return Atlas with the model space normal and depth of every view
+     */
+    public int getNormalDepthTexture() {
+        return normalDepthTexture;
+    }
+
+    /**
+     * @return Count of views per side of the octahedral grid
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return Radius of the bounding sphere, the views were rendered with
+     */
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -27,7 +27,9 @@
  */
 package de.coreengine.rendering.model;
 
+import de.coreengine.asset.AssetDatabase;
 import de.coreengine.asset.TextureLoader;
+import de.coreengine.asset.TextureResidency;
 import de.coreengine.util.Configuration;
 import org.lwjgl.opengl.GL11;
 
@@ -62,76 +64,265 @@ public class Material {
          */
         public Color diffuseColor = new Color();
 
+        // Diffuse map and its texture handle
+        private String diffuseMap = TEXTURE_WHITE;
+        private int diffuseMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_WHITE));
+
+        // Normal map and its texture handle
+        private String normalMap = DEFAULT_NORMAL_MAP;
+        private int normalMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(DEFAULT_NORMAL_MAP));
+
+        // Specular map and its texture handle
+        private String specularMap = TEXTURE_BLACK;
+        private int specularMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_BLACK));
+
+        // Displacement map and its texture handle
+        private String displacementMap = TEXTURE_BLACK;
+        private int displacementMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_BLACK));
+
+        // Ambient occlusion map and its texture handle
+        private String ambientOcclusionMap = TEXTURE_WHITE;
+        private int ambientOcclusionMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_WHITE));
+
+        // Alpha map and its texture handle
+        private String alphaMap = TEXTURE_BLACK;
+        private int alphaMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_BLACK));
+
+        // Reflection cube map and its texture handle
+        private String reflectionMap = TEXTURE_BLACK;
+        private int reflectionMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_BLACK));
+
         /**
-         * Diffuse map, wich contains the color information for the diffuse lighting for
-         * the specific pixels
+         * Objects glowing color (black for no glowing)
          */
-        public String diffuseMap = TEXTURE_WHITE;
+        public Color glowColor = new Color(0, 0, 0);
+
+        // Glowing map and its texture handle
+        private String glowMap = TEXTURE_BLACK;
+        private int glowMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(TEXTURE_BLACK));
 
         /**
-         * Normal map, wich contains the normal clarification for the specific pixels
+         * The displacement factor describes the intensity of the parallax occlusion
+         * mapping
          */
-        public String normalMap = DEFAULT_NORMAL_MAP;
+        public float displacementFactor = Configuration.getValuef("MATERIAL_DEFAULT_DISPLACEMENT_FACTOR");
 
         /**
-         * Specular map, wich contains the specific specular lighting clarification for
-         * the specific pixel
+         * The texture tiling, that describes the repeat of the texture
          */
-        public String specularMap = TEXTURE_BLACK;
+        public float tiling = Configuration.getValuef("MATERIAL_DEFAULT_TEXTURE_TILING");
 
         /**
-         * Displacement map, wich contains the parallax occlusion displacement
-         * clarification for the specific pixel
+         * The shininess describes the intensity of the reflecion for enviroment /*
+         * reflection and specular lighting
          */
-        public String displacementMap = TEXTURE_BLACK;
+        public float shininess = Configuration.getValuef("MATERIAL_DEFAULT_SHININESS");
 
         /**
-         * Ambient occlusion map, wich contains the ambient lighting clarification for
-         * the specific pixel
+         * The shine damping describes the damping for specular lighting
          */
-        public String ambientOcclusionMap = TEXTURE_WHITE;
+        public float shineDamping = Configuration.getValuef("MATERIAL_DEFAULT_SHINE_DAMPING");
 
         /**
-         * Alpha map, wich contains additionally alpha information
+         * Setting the diffuse map and resolving its texture handle
+         *
+         * @param diffuseMap Name of the texture in the asset database
          */
-        public String alphaMap = TEXTURE_BLACK;
+        public void setDiffuseMap(String diffuseMap) {
+                this.diffuseMap = diffuseMap;
+                TextureResidency.release(this.diffuseMapHandle);
+                this.diffuseMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(diffuseMap));
+        }
 
         /**
-         * Reflection cube map, that contains the reflected environment
+         * @return Name of the diffuse map texture
          */
-        public String reflectionMap = TEXTURE_BLACK;
+        public String getDiffuseMap() {
+                return diffuseMap;
+        }
 
         /**
-         * Objects glowing color (black for no glowing)
+         * @return Texture handle of the diffuse map
          */
-        public Color glowColor = new Color(0, 0, 0);
+        public int getDiffuseMapHandle() {
+                return diffuseMapHandle;
+        }
+
+        /**
+         * Setting the normal map and resolving its texture handle
+         *
+         * @param normalMap Name of the texture in the asset database
+         */
+        public void setNormalMap(String normalMap) {
+                this.normalMap = normalMap;
+                TextureResidency.release(this.normalMapHandle);
+                this.normalMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(normalMap));
+        }
 
         /**
-         * Glowing map, wich contains, where the object glows
+         * @return Name of the normal map texture
          */
-        public String glowMap = TEXTURE_BLACK;
+        public String getNormalMap() {
+                return normalMap;
+        }
 
         /**
-         * The displacement factor describes the intensity of the parallax occlusion
-         * mapping
+         * @return Texture handle of the normal map
          */
-        public float displacementFactor = Configuration.getValuef("MATERIAL_DEFAULT_DISPLACEMENT_FACTOR");
+        public int getNormalMapHandle() {
+                return normalMapHandle;
+        }
 
         /**
-         * The texture tiling, that describes the repeat of the texture
+         * Setting the specular map and resolving its texture handle
+         *
+         * @param specularMap Name of the texture in the asset database
          */
-        public float tiling = Configuration.getValuef("MATERIAL_DEFAULT_TEXTURE_TILING");
+        public void setSpecularMap(String specularMap) {
+                this.specularMap = specularMap;
+                TextureResidency.release(this.specularMapHandle);
+                this.specularMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(specularMap));
+        }
 
         /**
-         * The shininess describes the intensity of the reflecion for enviroment /*
-         * reflection and specular lighting
+         * @return Name of the specular map texture
          */
-        public float shininess = Configuration.getValuef("MATERIAL_DEFAULT_SHININESS");
+        public String getSpecularMap() {
+                return specularMap;
+        }
 
         /**
-         * The shine damping describes the damping for specular lighting
+         * @return Texture handle of the specular map
          */
-        public float shineDamping = Configuration.getValuef("MATERIAL_DEFAULT_SHINE_DAMPING");
+        public int getSpecularMapHandle() {
+                return specularMapHandle;
+        }
+
+        /**
+         * Setting the displacement map and resolving its texture handle
+         *
+         * @param displacementMap Name of the texture in the asset database
+         */
+        public void setDisplacementMap(String displacementMap) {
+                this.displacementMap = displacementMap;
+                TextureResidency.release(this.displacementMapHandle);
+                this.displacementMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(displacementMap));
+        }
+
+        /**
+         * @return Name of the displacement map texture
+         */
+        public String getDisplacementMap() {
+                return displacementMap;
+        }
+
+        /**
+         * @return Texture handle of the displacement map
+         */
+        public int getDisplacementMapHandle() {
+                return displacementMapHandle;
+        }
+
+        /**
+         * Setting the ambient occlusion map and resolving its texture handle
+         *
+         * @param ambientOcclusionMap Name of the texture in the asset database
+         */
+        public void setAmbientOcclusionMap(String ambientOcclusionMap) {
+                this.ambientOcclusionMap = ambientOcclusionMap;
+                TextureResidency.release(this.ambientOcclusionMapHandle);
+                this.ambientOcclusionMapHandle = TextureResidency
+                                .acquire(AssetDatabase.getTextureHandle(ambientOcclusionMap));
+        }
+
+        /**
+         * @return Name of the ambient occlusion map texture
+         */
+        public String getAmbientOcclusionMap() {
+                return ambientOcclusionMap;
+        }
+
+        /**
+         * @return Texture handle of the ambient occlusion map
+         */
+        public int getAmbientOcclusionMapHandle() {
+                return ambientOcclusionMapHandle;
+        }
+
+        /**
+         * Setting the alpha map and resolving its texture handle
+         *
+         * @param alphaMap Name of the texture in the asset database
+         */
+        public void setAlphaMap(String alphaMap) {
+                this.alphaMap = alphaMap;
+                TextureResidency.release(this.alphaMapHandle);
+                this.alphaMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(alphaMap));
+        }
+
+        /**
+         * @return Name of the alpha map texture
+         */
+        public String getAlphaMap() {
+                return alphaMap;
+        }
+
+        /**
+         * @return Texture handle of the alpha map
+         */
+        public int getAlphaMapHandle() {
+                return alphaMapHandle;
+        }
+
+        /**
+         * Setting the reflection map and resolving its texture handle
+         *
+         * @param reflectionMap Name of the texture in the asset database
+         */
+        public void setReflectionMap(String reflectionMap) {
+                this.reflectionMap = reflectionMap;
+                TextureResidency.release(this.reflectionMapHandle);
+                this.reflectionMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(reflectionMap));
+        }
+
+        /**
+         * @return Name of the reflection map texture
+         */
+        public String getReflectionMap() {
+                return reflectionMap;
+        }
+
+        /**
+         * @return Texture handle of the reflection map
+         */
+        public int getReflectionMapHandle() {
+                return reflectionMapHandle;
+        }
+
+        /**
+         * Setting the glow map and resolving its texture handle
+         *
+         * @param glowMap Name of the texture in the asset database
+         */
+        public void setGlowMap(String glowMap) {
+                this.glowMap = glowMap;
+                TextureResidency.release(this.glowMapHandle);
+                this.glowMapHandle = TextureResidency.acquire(AssetDatabase.getTextureHandle(glowMap));
+        }
+
+        /**
+         * @return Name of the glow map texture
+         */
+        public String getGlowMap() {
+                return glowMap;
+        }
+
+        /**
+         * @return Texture handle of the glow map
+         */
+        public int getGlowMapHandle() {
+                return glowMapHandle;
+        }
 
         static {
 
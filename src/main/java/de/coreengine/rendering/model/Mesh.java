@@ -28,7 +28,9 @@
 package de.coreengine.rendering.model;
 
 import com.bulletphysics.collision.shapes.CollisionShape;
+import de.coreengine.util.Toolbox;
 import de.coreengine.util.gl.IndexBuffer;
+import de.coreengine.util.gl.MeshPool;
 import de.coreengine.util.gl.VertexArrayObject;
 
 /**
@@ -40,11 +42,11 @@ import de.coreengine.util.gl.VertexArrayObject;
 public class Mesh {
 
     // Vao of the model, where all vertices are stored
-    private final VertexArrayObject vao;
+    private VertexArrayObject vao;
 
     // Indexbuffer of the model, where the indices are stored,
     // that connecting the vertices
-    private final IndexBuffer indexBuffer;
+    private IndexBuffer indexBuffer;
 
     // Models material
     private final Material material;
@@ -52,6 +54,21 @@ public class Mesh {
     // Collision shape of the model
     private final CollisionShape shape;
 
+    // Lower detail levels of the mesh, sharing its vao
+    private Mesh[] lods = new Mesh[0];
+
+    // Max distance of a vertex to the origin of the mesh
+    private float boundingRadius = 0.0f;
+
+    // Part of the mesh pool, that contains the mesh too or null, if not pooled
+    private MeshPool.Allocation poolAllocation = null;
+
+    // Creates the vao of a pooled mesh and its lods, when it is first needed
+    private Runnable vaoFactory = null;
+
+    // Mesh of detail level 0, that owns the vao factory of this lod
+    private Mesh base = null;
+
     /**
      * Creating new model and set the material to default material
      * 
@@ -84,9 +101,10 @@ public class Mesh {
     }
 
     /**
-     * @return Models IndexBuffer
+     * @return Models IndexBuffer, created first if the mesh is pooled
      */
     public IndexBuffer getIndexBuffer() {
+        createVao();
         return indexBuffer;
     }
 
@@ -98,16 +116,112 @@ public class Mesh {
     }
 
     /**
-     * @return Models VertexArrayObject
+     * @return Models VertexArrayObject, created first if the mesh is pooled
      */
     public VertexArrayObject getVao() {
+        createVao();
         return vao;
     }
 
+    /**
+     * Setting the vao and index buffer of the mesh, e.g. by the vao factory
+     *
+     * @param vao         Models VertexArrayObject with the vertices
+     * @param indexBuffer Models IndexBuffer with the indices
+     */
+    public void setVao(VertexArrayObject vao, IndexBuffer indexBuffer) {
+        this.vao = vao;
+        this.indexBuffer = indexBuffer;
+    }
+
+    /**
+     * Setting a factory, that creates the vao of the mesh and of its lods, when
+     * it is first needed. Pooled meshes are drawn from the mesh pool, so their
+     * own vao is only created for the paths, that do not use the pool.
+     *
+     * @param vaoFactory Factory, that sets the vaos by {@link #setVao}
+     */
+    public void setVaoFactory(Runnable vaoFactory) {
+        this.vaoFactory = vaoFactory;
+    }
+
+    /**
+     * Running the vao factory of the mesh once, if the vao is not created yet
+     */
+    private void createVao() {
+        Mesh owner = base != null ? base : this;
+        if (vao == null && owner.vaoFactory != null) {
+            Runnable factory = owner.vaoFactory;
+            owner.vaoFactory = null;
+            factory.run();
+        }
+    }
+
     /**
      * @return Collision shape of the model
      */
     public CollisionShape getShape() {
         return shape;
     }
+
+    /**
+     * Adding the next lower detail level to the mesh. The lod uses the vao,
+     * material and collision shape of this mesh.
+     *
+     * @param indexBuffer Index buffer of the lod or null, if set by the vao factory
+     */
+    public void addLod(IndexBuffer indexBuffer) {
+        Mesh lod = new Mesh(vao, indexBuffer, material, shape);
+        lod.base = this;
+        lods = Toolbox.addElement(lods, lod);
+    }
+
+    /**
+     * Getting a detail level of the mesh. Level 0 is the mesh itself, levels
+     * higher than the lod count return the lowest detail level.
+     *
+     * @param level Detail level to get
+     * @return Mesh of the detail level
+     */
+    public Mesh getLod(int level) {
+        if (level <= 0 || lods.length == 0)
+            return this;
+        return lods[Math.min(level, lods.length) - 1];
+    }
+
+    /**
+     * @return Count of lower detail levels of the mesh
+     */
+    public int getLodCount() {
+        return lods.length;
+    }
+
+    /**
+     * @param boundingRadius New max distance of a vertex to the origin of the mesh
+     */
+    public void setBoundingRadius(float boundingRadius) {
+        this.boundingRadius = boundingRadius;
+    }
+
+    /**
+     * @return Max distance of a vertex to the origin of the mesh
+     */
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+
+    /**
+     * @param poolAllocation Part of the mesh pool, that contains the mesh too
+     */
+    public void setPoolAllocation(MeshPool.Allocation poolAllocation) {
+        this.poolAllocation = poolAllocation;
+    }
+
+    /**
+     * @return Part of the mesh pool, that contains the mesh too or null, if the
+     *         mesh is not pooled
+     */
+    public MeshPool.Allocation getPoolAllocation() {
+        return poolAllocation;
+    }
 }
@@ -37,6 +37,14 @@ public class Model {
     // Meshes of the model
     private final Mesh[] meshes;
 
+    // Max distance of a vertex to the origin of the model and max lod count of
+    // its meshes
+    private float boundingRadius = 0.0f;
+    private int lodCount = 0;
+
+    // Impostor to render the model from far away, null if not baked
+    private Impostor impostor = null;
+
     /**
      * Creating new model with its meshes
      *
@@ -44,6 +52,13 @@ public class Model {
      */
     public Model(Mesh[] meshes) {
         this.meshes = meshes;
+
+        for (Mesh mesh : meshes) {
+            if (mesh == null)
+                continue;
+            boundingRadius = Math.max(boundingRadius, mesh.getBoundingRadius());
+            lodCount = Math.max(lodCount, mesh.getLodCount());
+        }
     }
 
     /**
@@ -52,4 +67,33 @@ public class Model {
     public Mesh[] getMeshes() {
         return meshes;
     }
+
+    /**
+     * @return Max distance of a vertex to the origin of the model
+     */
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+
+    /**
+     * @return Max count of lower detail levels of the meshes
+     */
+    public int getLodCount() {
+        return lodCount;
+    }
+
+    /**
+     * @param impostor New impostor to render the model from far away or null to
+     *                 always render the meshes
+     */
+    public void setImpostor(Impostor impostor) {
+        this.impostor = impostor;
+    }
+
+    /**
+     * @return Impostor to render the model from far away or null, if not baked
+     */
+    public Impostor getImpostor() {
+        return impostor;
+    }
 }
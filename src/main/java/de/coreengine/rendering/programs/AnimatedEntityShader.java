@@ -28,7 +28,6 @@
 
 package de.coreengine.rendering.programs;
 
-import de.coreengine.animation.Joint;
 import de.coreengine.asset.AssetDatabase;
 import de.coreengine.asset.FileLoader;
 import de.coreengine.rendering.model.Material;
@@ -37,6 +36,7 @@ import de.coreengine.rendering.renderable.Camera;
 import de.coreengine.util.Toolbox;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 
 /**
  * Shader for the animated entity renderer
@@ -44,19 +44,36 @@ import org.lwjgl.opengl.GL20;
  * @author Darius Dinger
  */
 public class AnimatedEntityShader extends Shader {
-    private static final int MAX_JOINTS = 50;
 
-    private final int diffuseMapUnit = 0, normalMapUnit = 1, specularMapUnit = 2, displacementMapUnit = 3,
-            aoMapUnit = 4, glowMapUnit = 5;
+    /**
+     * Feature bit of the shader variant with clip plane
+     */
+    public static final int CLIP_PLANE = 1;
+
+    private final int diffuseMapUnit = 0, normalMapUnit = 1, specularMapUnit = 2, aoMapUnit = 3, glowMapUnit = 4,
+            jointPaletteUnit = 5;
 
-    private int vpMatLoc, transMatLoc, tilingLoc, camPosLoc, displacementFactorLoc, reflectivityLoc, shineDamperLoc,
-            diffuseColorLoc, pickingColorLoc, glowColorLoc, clipPlaneLoc, jointMatLoc;
+    private int vpMatLoc, transMatLoc, tilingLoc, reflectivityLoc, shineDamperLoc,
+            diffuseColorLoc, pickingColorLoc, glowColorLoc, clipPlaneLoc, jointOffsetLoc;
+
+    // Feature bits of this variant
+    private final int features;
+
+    /**
+     * Creating new animated entity shader variant
+     *
+     * @param features Feature bits of the variant ({@link #CLIP_PLANE})
+     */
+    public AnimatedEntityShader(int features) {
+        super(ShaderPreprocessor.getDefines(features, "CLIP_PLANE"));
+        this.features = features;
+    }
 
     @Override
     protected void addShaders() {
         addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "animatedEntity.vert", true), GL20.GL_VERTEX_SHADER,
                 "AnimatedEntity Vertex Shader");
-        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "animatedEntity.frag", true),
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "entity.frag", true),
                 GL20.GL_FRAGMENT_SHADER, "AnimatedEntity Fragment Shader");
     }
 
@@ -75,22 +92,22 @@ public class AnimatedEntityShader extends Shader {
         vpMatLoc = getUniformLocation("vpMat");
         transMatLoc = getUniformLocation("transMat");
         tilingLoc = getUniformLocation("tiling");
-        camPosLoc = getUniformLocation("camPos");
-        displacementFactorLoc = getUniformLocation("displacementFactor");
         reflectivityLoc = getUniformLocation("shininess");
         shineDamperLoc = getUniformLocation("shineDamper");
         diffuseColorLoc = getUniformLocation("diffuseColor");
         pickingColorLoc = getUniformLocation("pickingColor");
         glowColorLoc = getUniformLocation("glowColor");
-        clipPlaneLoc = getUniformLocation("clipPlane");
-        jointMatLoc = getUniformLocation("jointMat");
+        jointOffsetLoc = getUniformLocation("jointOffset");
 
         bindTextureUnit("diffuseMap", diffuseMapUnit);
         bindTextureUnit("normalMap", normalMapUnit);
         bindTextureUnit("specularMap", specularMapUnit);
-        bindTextureUnit("displacementMap", displacementMapUnit);
         bindTextureUnit("aoMap", aoMapUnit);
         bindTextureUnit("glowMap", glowMapUnit);
+        bindTextureUnit("jointPalette", jointPaletteUnit);
+
+        if ((features & CLIP_PLANE) != 0)
+            clipPlaneLoc = getUniformLocation("clipPlane");
     }
 
     /**
@@ -110,56 +127,29 @@ public class AnimatedEntityShader extends Shader {
      */
     public void setCamera(Camera cam) {
         setUniform(vpMatLoc, Toolbox.matrixToFloatArray(cam.getViewProjectionMatrix()));
-        setUniform(camPosLoc, cam.getPosition().x, cam.getPosition().y, cam.getPosition().z);
     }
 
     /**
-     * Preparing an animated entity
+     * Binding the joint palette buffer texture, that contains the joint matrices
+     * of all animated entities of this frame
      *
-     * @param entity Animated entity to prepare
+     * @param texture Buffer texture of the joint palettes
      */
-    public void prepareEntity(AnimatedEntity entity) {
-        setUniform(transMatLoc, entity.getTransform().getTransMatArr());
-        prepareSkeleton(entity.getSkeleton());
-        // Prepare pick color
-    }
-
-    /**
-     * Preparing skeleton of an animated entity
-     *
-     * @param skeleton Skeleton to prepare
-     */
-    private void prepareSkeleton(Joint skeleton) {
-        float[] matrices = new float[MAX_JOINTS * 16];
-        addJointMatrices(skeleton, matrices);
-        setUniform(jointMatLoc, matrices);
+    public void setJointPalette(int texture) {
+        bindTexture(texture, jointPaletteUnit, GL31.GL_TEXTURE_BUFFER);
     }
 
     /**
-     * Adding this joints matrices and all children joint matrices to the matrices
-     * float array at their specific position
+     * Preparing an animated entity
      *
-     * @param joint    Joint to add matrices from
-     * @param matrices Array to fill in matrices
+     * @param entity        Animated entity to prepare
+     * @param paletteOffset Offset of the entities first joint matrix in the joint
+     *                      palette
      */
-    private void addJointMatrices(Joint joint, float[] matrices) {
-
-        // Check if joint fits into array
-        if (joint.getIndex() >= 0 || joint.getIndex() < MAX_JOINTS) {
-
-            // Fill up matrix
-            for (int r = 0; r < 4; r++) {
-                for (int c = 0; c < 4; c++) {
-                    float val = joint.getAnimatedTransform().getElement(c, r);
-                    matrices[(joint.getIndex() * 16) + (r * 4) + c] = val;
-                }
-            }
-        }
-
-        // Fill up children matrices
-        for (Joint child : joint.getChildren()) {
-            addJointMatrices(child, matrices);
-        }
+    public void prepareEntity(AnimatedEntity entity, int paletteOffset) {
+        setUniform(transMatLoc, entity.getTransform().getTransMatArr());
+        setUniform(jointOffsetLoc, paletteOffset);
+        // Prepare pick color
     }
 
     /**
@@ -170,16 +160,14 @@ public class AnimatedEntityShader extends Shader {
     public void prepareMaterial(Material mat) {
         setUniform(tilingLoc, mat.tiling);
         setUniform(diffuseColorLoc, mat.diffuseColor);
-        setUniform(displacementFactorLoc, mat.displacementFactor);
         setUniform(reflectivityLoc, mat.shininess);
         setUniform(shineDamperLoc, mat.shineDamping);
         setUniform(glowColorLoc, mat.glowColor);
 
-        bindTexture(AssetDatabase.getTexture(mat.diffuseMap), diffuseMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.normalMap), normalMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.specularMap), specularMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.ambientOcclusionMap), aoMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.displacementMap), displacementMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.glowMap), glowMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getDiffuseMapHandle()), diffuseMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getNormalMapHandle()), normalMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getSpecularMapHandle()), specularMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getAmbientOcclusionMapHandle()), aoMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getGlowMapHandle()), glowMapUnit, GL11.GL_TEXTURE_2D);
     }
 }
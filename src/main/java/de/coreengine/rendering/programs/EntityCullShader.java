@@ -0,0 +1,168 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.FileLoader;
+import de.coreengine.rendering.HiZBuffer;
+import de.coreengine.util.Toolbox;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL43;
+
+import javax.vecmath.Matrix4f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+/**
+ * Compute shader, that culls the instances of the indirect entity renderer
+ * against the view frustum and writes the visible instances into the indirect
+ * draw commands. A variant, that also culls against the depth pyramid of the
+ * last frame, can be created by the feature bits.
+ *
+ * @author Darius Dinger
+ */
+public class EntityCullShader extends Shader {
+
+    /**
+     * Feature bit of the shader variant with occlusion culling
+     */
+    public static final int OCCLUSION = 1;
+
+    /**
+     * Binding points of the instance, sphere, command and visible instance
+     * storage buffers
+     */
+    public static final int INSTANCES_BINDING = 2, SPHERES_BINDING = 3, COMMANDS_BINDING = 4,
+            VISIBLE_BINDING = 5;
+
+    /**
+     * Count of instances, one work group culls
+     */
+    public static final int WORK_GROUP_SIZE = 64;
+
+    private final int hiZUnit = 0;
+
+    private int planesLoc, instanceCountLoc, occlusionVpMatLoc, occlusionExpandLoc, depthBiasLoc;
+
+    // Feature bits of this variant
+    private final int features;
+
+    // Frustum planes and clip plane (a, b, c, d each)
+    private final float[] planes = new float[7 * 4];
+
+    /**
+     * Creating new entity cull shader variant
+     *
+     * @param features Feature bits of the variant ({@link #OCCLUSION})
+     */
+    public EntityCullShader(int features) {
+        super(ShaderPreprocessor.getDefines(features, "OCCLUSION"));
+        this.features = features;
+    }
+
+    @Override
+    protected void addShaders() {
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "cullEntities.comp", true),
+                GL43.GL_COMPUTE_SHADER, "CullEntities Compute Shader");
+    }
+
+    @Override
+    protected void bindAttribs() {
+    }
+
+    @Override
+    protected void loadUniforms() {
+        planesLoc = getUniformLocation("planes");
+        instanceCountLoc = getUniformLocation("instanceCount");
+
+        if ((features & OCCLUSION) != 0) {
+            occlusionVpMatLoc = getUniformLocation("occlusionVpMat");
+            occlusionExpandLoc = getUniformLocation("occlusionExpand");
+            depthBiasLoc = getUniformLocation("depthBias");
+            bindTextureUnit("hiZ", hiZUnit);
+        }
+    }
+
+    /**
+     * Extracting the six frustum planes of a view projection matrix and loading
+     * them together with the clip plane into the shader
+     *
+     * @param vp        View projection matrix of the pass
+     * @param clipPlane Clip plane of the pass or null, if nothing is clipped
+     */
+    public void setFrustum(Matrix4f vp, Vector4f clipPlane) {
+        int plane = 0;
+        for (int row = 0; row < 3; row++) {
+            for (int sign = -1; sign <= 1; sign += 2, plane += 4) {
+
+                // Plane = 4th row +/- current row
+                for (int c = 0; c < 4; c++)
+                    planes[plane + c] = vp.getElement(3, c) + sign * vp.getElement(row, c);
+
+                float length = (float) Math.sqrt(planes[plane] * planes[plane]
+                        + planes[plane + 1] * planes[plane + 1] + planes[plane + 2] * planes[plane + 2]);
+                for (int c = 0; c < 4; c++)
+                    planes[plane + c] /= length;
+            }
+        }
+
+        // Plane, that never culls, if there is no clip plane
+        if (clipPlane != null) {
+            planes[plane] = clipPlane.x;
+            planes[plane + 1] = clipPlane.y;
+            planes[plane + 2] = clipPlane.z;
+            planes[plane + 3] = clipPlane.w;
+        } else {
+            planes[plane] = planes[plane + 1] = planes[plane + 2] = 0.0f;
+            planes[plane + 3] = 1.0f;
+        }
+
+        setUniformArray4f(planesLoc, planes);
+    }
+
+    /**
+     * Loading the depth pyramid of the last frame. The spheres are grown by the
+     * camera movement since the capture.
+     *
+     * @param hiZ    Depth pyramid to cull against
+     * @param camPos Current camera position
+     */
+    public void setOcclusion(HiZBuffer hiZ, Vector3f camPos) {
+        setUniform(occlusionVpMatLoc, Toolbox.matrixToFloatArray(hiZ.getVpMat()));
+        setUniform(occlusionExpandLoc, hiZ.getCameraMove(camPos));
+        setUniform(depthBiasLoc, hiZ.getDepthBias());
+        bindTexture(hiZ.getTexture(), hiZUnit, GL11.GL_TEXTURE_2D);
+    }
+
+    /**
+     * @param count Count of instances to cull
+     */
+    public void setInstanceCount(int count) {
+        setUniform(instanceCountLoc, count);
+    }
+}
@@ -36,19 +36,56 @@ import de.coreengine.util.Toolbox;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 
+import javax.vecmath.Vector4f;
+
 /**
- * Shader for the object renderer
+ * Shader for the object renderer. Variants without clip plane and without
+ * parallax displacement can be created by the feature bits.
  *
  * @author Darius Dinger
  */
 public class EntityShader extends Shader {
 
+    /**
+     * Feature bits of the shader variants
+     */
+    public static final int CLIP_PLANE = 1, DISPLACEMENT = 2;
+
     private final int diffuseMapUnit = 0, normalMapUnit = 1, specularMapUnit = 2, displacementMapUnit = 3,
             aoMapUnit = 4, glowMapUnit = 5;
 
     private int vpMatLoc, transMatLoc, tilingLoc, camPosLoc, displacementFactorLoc, reflectivityLoc, shineDamperLoc,
             diffuseColorLoc, pickingColorLoc, glowColorLoc, clipPlaneLoc;
 
+    // Feature bits of this variant
+    private final int features;
+
+    /**
+     * Creating new entity shader variant
+     *
+     * @param features Feature bits of the variant ({@link #CLIP_PLANE},
+     *                 {@link #DISPLACEMENT})
+     */
+    public EntityShader(int features) {
+        super(ShaderPreprocessor.getDefines(features, "CLIP_PLANE", "DISPLACEMENT"));
+        this.features = features;
+    }
+
+    /**
+     * Getting the feature bits of the cheapest variant, that can render a
+     * material
+     *
+     * @param mat       Material to render
+     * @param clipPlane Clip plane or null, if nothing is clipped
+     * @return Feature bits of the variant
+     */
+    public static int getFeatures(Material mat, Vector4f clipPlane) {
+        int features = clipPlane != null ? CLIP_PLANE : 0;
+        if (mat.displacementFactor != 0.0f)
+            features |= DISPLACEMENT;
+        return features;
+    }
+
     @Override
     protected void addShaders() {
         addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "entity.vert", true), GL20.GL_VERTEX_SHADER,
@@ -70,21 +107,26 @@ public class EntityShader extends Shader {
         vpMatLoc = getUniformLocation("vpMat");
         transMatLoc = getUniformLocation("transMat");
         tilingLoc = getUniformLocation("tiling");
-        camPosLoc = getUniformLocation("camPos");
-        displacementFactorLoc = getUniformLocation("displacementFactor");
         reflectivityLoc = getUniformLocation("shininess");
         shineDamperLoc = getUniformLocation("shineDamper");
         diffuseColorLoc = getUniformLocation("diffuseColor");
         pickingColorLoc = getUniformLocation("pickingColor");
         glowColorLoc = getUniformLocation("glowColor");
-        clipPlaneLoc = getUniformLocation("clipPlane");
 
         bindTextureUnit("diffuseMap", diffuseMapUnit);
         bindTextureUnit("normalMap", normalMapUnit);
         bindTextureUnit("specularMap", specularMapUnit);
-        bindTextureUnit("displacementMap", displacementMapUnit);
         bindTextureUnit("aoMap", aoMapUnit);
         bindTextureUnit("glowMap", glowMapUnit);
+
+        if ((features & CLIP_PLANE) != 0)
+            clipPlaneLoc = getUniformLocation("clipPlane");
+
+        if ((features & DISPLACEMENT) != 0) {
+            camPosLoc = getUniformLocation("camPos");
+            displacementFactorLoc = getUniformLocation("displacementFactor");
+            bindTextureUnit("displacementMap", displacementMapUnit);
+        }
     }
 
     /**
@@ -108,7 +150,8 @@ public class EntityShader extends Shader {
             setUniform(vpMatLoc, Toolbox.matrixToFloatArray(cam.getProjectionMatrix()));
         else
             setUniform(vpMatLoc, Toolbox.matrixToFloatArray(cam.getViewProjectionMatrix()));
-        setUniform(camPosLoc, cam.getPosition().x, cam.getPosition().y, cam.getPosition().z);
+        if ((features & DISPLACEMENT) != 0)
+            setUniform(camPosLoc, cam.getPosition().x, cam.getPosition().y, cam.getPosition().z);
     }
 
     public void prepareEntity(Entity entity) {
@@ -124,16 +167,20 @@ public class EntityShader extends Shader {
     public void prepareMaterial(Material mat) {
         setUniform(tilingLoc, mat.tiling);
         setUniform(diffuseColorLoc, mat.diffuseColor);
-        setUniform(displacementFactorLoc, mat.displacementFactor);
         setUniform(reflectivityLoc, mat.shininess);
         setUniform(shineDamperLoc, mat.shineDamping);
         setUniform(glowColorLoc, mat.glowColor);
 
-        bindTexture(AssetDatabase.getTexture(mat.diffuseMap), diffuseMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.normalMap), normalMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.specularMap), specularMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.ambientOcclusionMap), aoMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.displacementMap), displacementMapUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(mat.glowMap), glowMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getDiffuseMapHandle()), diffuseMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getNormalMapHandle()), normalMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getSpecularMapHandle()), specularMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getAmbientOcclusionMapHandle()), aoMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getGlowMapHandle()), glowMapUnit, GL11.GL_TEXTURE_2D);
+
+        if ((features & DISPLACEMENT) != 0) {
+            setUniform(displacementFactorLoc, mat.displacementFactor);
+            bindTexture(AssetDatabase.getTexture(mat.getDisplacementMapHandle()), displacementMapUnit,
+                    GL11.GL_TEXTURE_2D);
+        }
     }
 }
@@ -101,7 +101,8 @@ public class GrasslandShader extends Shader {
          * @param terrain Next terrain
          */
         public void prepareTerrain(Terrain terrain) {
-                bindTexture(AssetDatabase.getTexture(terrain.getGrassland().getMesh().getMaterial().diffuseMap),
+                bindTexture(AssetDatabase
+                                .getTexture(terrain.getGrassland().getMesh().getMaterial().getDiffuseMapHandle()),
                                 bladesTextureUnit, GL11.GL_TEXTURE_2D);
                 bindTexture(AssetDatabase.getTexture(terrain.getGrassland().getDensityMap()), densityMapUnit,
                                 GL11.GL_TEXTURE_2D);
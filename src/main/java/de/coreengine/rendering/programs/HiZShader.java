@@ -0,0 +1,114 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.FileLoader;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL43;
+
+/**
+ * Compute shader, that builds one level of the max depth pyramid. The variant
+ * with {@link #FIRST_LEVEL} reads the depth texture, all other variants the
+ * level below.
+ *
+ * @author Darius Dinger
+ */
+public class HiZShader extends Shader {
+
+    /**
+     * Feature bit of the shader variant, that reads the depth texture
+     */
+    public static final int FIRST_LEVEL = 1;
+
+    /**
+     * Image units of the source and destination level
+     */
+    public static final int SRC_LEVEL_UNIT = 0, DST_LEVEL_UNIT = 1;
+
+    /**
+     * Texels of one work group per dimension
+     */
+    public static final int WORK_GROUP_SIZE = 8;
+
+    private final int depthMapUnit = 0;
+
+    private int srcSizeLoc, dstSizeLoc;
+
+    // Feature bits of this variant
+    private final int features;
+
+    /**
+     * Creating new depth pyramid shader variant
+     *
+     * @param features Feature bits of the variant ({@link #FIRST_LEVEL})
+     */
+    public HiZShader(int features) {
+        super(ShaderPreprocessor.getDefines(features, "FIRST_LEVEL"));
+        this.features = features;
+    }
+
+    @Override
+    protected void addShaders() {
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "hiZ.comp", true), GL43.GL_COMPUTE_SHADER,
+                "HiZ Compute Shader");
+    }
+
+    @Override
+    protected void bindAttribs() {
+    }
+
+    @Override
+    protected void loadUniforms() {
+        srcSizeLoc = getUniformLocation("srcSize");
+        dstSizeLoc = getUniformLocation("dstSize");
+
+        if ((features & FIRST_LEVEL) != 0)
+            bindTextureUnit("depthMap", depthMapUnit);
+    }
+
+    /**
+     * @param depthTexture Depth texture to build the first level from
+     */
+    public void setDepthMap(int depthTexture) {
+        bindTexture(depthTexture, depthMapUnit, GL11.GL_TEXTURE_2D);
+    }
+
+    /**
+     * Setting the sizes of the source and the destination level
+     *
+     * @param srcWidth  Width of the source
+     * @param srcHeight Height of the source
+     * @param dstWidth  Width of the destination level
+     * @param dstHeight Height of the destination level
+     */
+    public void setSizes(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        setUniform2i(srcSizeLoc, srcWidth, srcHeight);
+        setUniform2i(dstSizeLoc, dstWidth, dstHeight);
+    }
+}
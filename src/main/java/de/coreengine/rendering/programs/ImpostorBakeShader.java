@@ -0,0 +1,91 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.AssetDatabase;
+import de.coreengine.asset.FileLoader;
+import de.coreengine.rendering.model.Material;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Shader that renders the views of a model into an impostor atlas
+ *
+ * @author Darius Dinger
+ */
+public class ImpostorBakeShader extends Shader {
+
+    private final int diffuseMapUnit = 0;
+
+    private int frameMatLoc, tilingLoc, diffuseColorLoc;
+
+    @Override
+    protected void addShaders() {
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "impostorBake.vert", true),
+                GL20.GL_VERTEX_SHADER, "ImpostorBake Vertex Shader");
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "impostorBake.frag", true),
+                GL20.GL_FRAGMENT_SHADER, "ImpostorBake Fragment Shader");
+    }
+
+    @Override
+    protected void bindAttribs() {
+        bindAttribute(0, "position");
+        bindAttribute(1, "texCoord");
+        bindAttribute(2, "normal");
+    }
+
+    @Override
+    protected void loadUniforms() {
+        frameMatLoc = getUniformLocation("frameMat");
+        tilingLoc = getUniformLocation("tiling");
+        diffuseColorLoc = getUniformLocation("diffuseColor");
+
+        bindTextureUnit("diffuseMap", diffuseMapUnit);
+    }
+
+    /**
+     * @param frameMat Orthographic view projection matrix of the next view
+     *                 (column major)
+     */
+    public void setFrameMatrix(float[] frameMat) {
+        setUniform(frameMatLoc, frameMat);
+    }
+
+    /**
+     * Preparing shader for next material
+     *
+     * @param mat Material to prepare
+     */
+    public void prepareMaterial(Material mat) {
+        setUniform(tilingLoc, mat.tiling);
+        setUniform(diffuseColorLoc, mat.diffuseColor);
+
+        bindTexture(AssetDatabase.getTexture(mat.getDiffuseMapHandle()), diffuseMapUnit, GL11.GL_TEXTURE_2D);
+    }
+}
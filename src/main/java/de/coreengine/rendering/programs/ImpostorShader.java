@@ -0,0 +1,106 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.FileLoader;
+import de.coreengine.rendering.model.Impostor;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.util.Toolbox;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Shader for the instanced impostor renderer
+ *
+ * @author Darius Dinger
+ */
+public class ImpostorShader extends Shader {
+
+    private final int colorAtlasUnit = 0, normalDepthAtlasUnit = 1;
+
+    private int vpMatLoc, camPosLoc, framesLoc, radiusLoc, clipPlaneLoc;
+
+    @Override
+    protected void addShaders() {
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "impostor.vert", true), GL20.GL_VERTEX_SHADER,
+                "Impostor Vertex Shader");
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "impostor.frag", true), GL20.GL_FRAGMENT_SHADER,
+                "Impostor Fragment Shader");
+    }
+
+    @Override
+    protected void bindAttribs() {
+        bindAttribute(0, "corner");
+        bindAttribute(1, "transMat");
+    }
+
+    @Override
+    protected void loadUniforms() {
+        vpMatLoc = getUniformLocation("vpMat");
+        camPosLoc = getUniformLocation("camPos");
+        framesLoc = getUniformLocation("frames");
+        radiusLoc = getUniformLocation("radius");
+        clipPlaneLoc = getUniformLocation("clipPlane");
+
+        bindTextureUnit("colorAtlas", colorAtlasUnit);
+        bindTextureUnit("normalDepthAtlas", normalDepthAtlasUnit);
+    }
+
+    /**
+     * Setting clip plane for next impostors
+     *
+     * @param x X value of the plane normal
+     * @param y Y value of the plane normal
+     * @param z Z value of the plane normal
+     * @param w Distance of the plane normal
+     */
+    public void setClipPlane(float x, float y, float z, float w) {
+        setUniform(clipPlaneLoc, x, y, z, w);
+    }
+
+    /**
+     * @param cam camera to render next impostors from
+     */
+    public void setCamera(Camera cam) {
+        setUniform(vpMatLoc, Toolbox.matrixToFloatArray(cam.getViewProjectionMatrix()));
+        setUniform(camPosLoc, cam.getPosition().x, cam.getPosition().y, cam.getPosition().z);
+    }
+
+    /**
+     * Preparing shader for the next impostor
+     *
+     * @param impostor Impostor to sample the views from
+     */
+    public void prepareImpostor(Impostor impostor) {
+        setUniform(framesLoc, (float) impostor.getFrames());
+        setUniform(radiusLoc, impostor.getRadius());
+        bindTexture(impostor.getColorTexture(), colorAtlasUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(impostor.getNormalDepthTexture(), normalDepthAtlasUnit, GL11.GL_TEXTURE_2D);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.AssetDatabase;
+import de.coreengine.asset.FileLoader;
+import de.coreengine.rendering.model.Material;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.util.Toolbox;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Shader for the indirect entity renderer. Transformations and materials are
+ * read from shader storage buffers, indexed by the per draw data. A variant
+ * with clip plane can be created by the feature bits.
+ *
+ * @author Darius Dinger
+ */
+public class IndirectEntityShader extends Shader {
+
+    /**
+     * Feature bit of the shader variant with clip plane
+     */
+    public static final int CLIP_PLANE = 1;
+
+    /**
+     * Binding points of the transformation and material storage buffers
+     */
+    public static final int TRANSFORMS_BINDING = 0, MATERIALS_BINDING = 1;
+
+    /**
+     * Attribute row of the per draw data (transformation and material index)
+     */
+    public static final int DRAW_DATA_ROW = 6;
+
+    private final int diffuseMapUnit = 0, normalMapUnit = 1, specularMapUnit = 2, aoMapUnit = 3, glowMapUnit = 4;
+
+    private int vpMatLoc, clipPlaneLoc;
+
+    // Feature bits of this variant
+    private final int features;
+
+    /**
+     * Creating new indirect entity shader variant
+     *
+     * @param features Feature bits of the variant ({@link #CLIP_PLANE})
+     */
+    public IndirectEntityShader(int features) {
+        super(ShaderPreprocessor.getDefines(features, "CLIP_PLANE"));
+        this.features = features;
+    }
+
+    @Override
+    protected void addShaders() {
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "indirectEntity.vert", true),
+                GL20.GL_VERTEX_SHADER, "IndirectEntity Vertex Shader");
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "indirectEntity.frag", true),
+                GL20.GL_FRAGMENT_SHADER, "IndirectEntity Fragment Shader");
+    }
+
+    @Override
+    protected void bindAttribs() {
+        bindAttribute(0, "position");
+        bindAttribute(1, "texCoord");
+        bindAttribute(2, "normal");
+        bindAttribute(3, "tangent");
+        bindAttribute(DRAW_DATA_ROW, "drawData");
+    }
+
+    @Override
+    protected void loadUniforms() {
+        vpMatLoc = getUniformLocation("vpMat");
+
+        bindTextureUnit("diffuseMap", diffuseMapUnit);
+        bindTextureUnit("normalMap", normalMapUnit);
+        bindTextureUnit("specularMap", specularMapUnit);
+        bindTextureUnit("aoMap", aoMapUnit);
+        bindTextureUnit("glowMap", glowMapUnit);
+
+        if ((features & CLIP_PLANE) != 0)
+            clipPlaneLoc = getUniformLocation("clipPlane");
+    }
+
+    /**
+     * Setting clip plane for next entities
+     *
+     * @param x X value of the plane normal
+     * @param y Y value of the plane normal
+     * @param z Z value of the plane normal
+     * @param w Distance of the plane normal
+     */
+    public void setClipPlane(float x, float y, float z, float w) {
+        setUniform(clipPlaneLoc, x, y, z, w);
+    }
+
+    /**
+     * @param cam Camera to render next models from
+     */
+    public void setCamera(Camera cam) {
+        setUniform(vpMatLoc, Toolbox.matrixToFloatArray(cam.getViewProjectionMatrix()));
+    }
+
+    /**
+     * Binding the maps of a material. All other material parameters are read
+     * from the material buffer.
+     *
+     * @param mat Material to bind maps from
+     */
+    public void prepareTextures(Material mat) {
+        bindTexture(AssetDatabase.getTexture(mat.getDiffuseMapHandle()), diffuseMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getNormalMapHandle()), normalMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getSpecularMapHandle()), specularMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getAmbientOcclusionMapHandle()), aoMapUnit, GL11.GL_TEXTURE_2D);
+        bindTexture(AssetDatabase.getTexture(mat.getGlowMapHandle()), glowMapUnit, GL11.GL_TEXTURE_2D);
+    }
+}
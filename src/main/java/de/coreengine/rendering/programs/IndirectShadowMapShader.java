@@ -0,0 +1,73 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.FileLoader;
+import de.coreengine.util.Toolbox;
+import org.lwjgl.opengl.GL20;
+
+import javax.vecmath.Matrix4f;
+
+/**
+ * Shader, that renders the depth of indirect entities into the shadow map
+ *
+ * @author Darius Dinger
+ */
+public class IndirectShadowMapShader extends Shader {
+
+    private int vpMatLoc;
+
+    @Override
+    protected void addShaders() {
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "indirectShadowMap.vert", true),
+                GL20.GL_VERTEX_SHADER, "IndirectShadowMap Vertex Shader");
+        addShader(FileLoader.getResource(Shader.SHADERS_LOCATION + "shadowMap.frag", true),
+                GL20.GL_FRAGMENT_SHADER, "IndirectShadowMap Fragment Shader");
+    }
+
+    @Override
+    protected void bindAttribs() {
+        bindAttribute(0, "position");
+        bindAttribute(IndirectEntityShader.DRAW_DATA_ROW, "drawData");
+    }
+
+    @Override
+    protected void loadUniforms() {
+        vpMatLoc = getUniformLocation("vpMat");
+    }
+
+    /**
+     * Setting the vpMat variable of the shader
+     *
+     * @param mat Matrix to set as vpMat
+     */
+    public void setVPMat(Matrix4f mat) {
+        setUniform(vpMatLoc, Toolbox.matrixToFloatArray(mat));
+    }
+}
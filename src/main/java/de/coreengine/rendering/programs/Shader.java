@@ -27,16 +27,41 @@
  */
 package de.coreengine.rendering.programs;
 
+import de.coreengine.asset.AssetBaker;
 import de.coreengine.rendering.model.Color;
 import de.coreengine.system.Game;
+import de.coreengine.util.Configuration;
 import de.coreengine.util.Logger;
 import de.coreengine.util.gl.MemoryDumper;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Class that represents an opengl shader program
+ * Class that represents an opengl shader program. All stages of a program are
+ * compiled and linked before any status is queried, so the driver can work in
+ * parallel. Errors are checked, when the program is used first. Linked program
+ * binaries are cached on disk and loaded instead of compiling, if available.
  *
  * @author Darius Dinger
  */
@@ -47,21 +72,57 @@ public abstract class Shader {
      */
     public static final String SHADERS_LOCATION = "shaders/";
 
+    // Cache linked program binaries on disk and directory of the cache
+    private static final boolean CACHE_ENABLED = Configuration.getValuei("SHADER_CACHE_ENABLED") != 0;
+    private static final String CACHE_DIRECTORY = Configuration.getValues("SHADER_CACHE_DIRECTORY");
+
+    // Let the driver compile shaders on own threads, if supported
+    private static final boolean PARALLEL_COMPILE = Configuration.getValuei("SHADER_PARALLEL_COMPILE") != 0;
+
+    // Is the compiler thread count of the driver already set
+    private static boolean compilerThreadsSet = false;
+
     // Id of the shader program
     private final int program;
 
+    // Defines of the shader variant, injected into every stage
+    private final String[] defines;
+
+    // Added shader stages, until the program is checked
+    private final List<Stage> stages = new ArrayList<>();
+
+    // Bound attributes, part of the cache key
+    private final StringBuilder attributes = new StringBuilder();
+
+    // Cache key of the program or null, if not cached
+    private String cacheKey = null;
+
+    // Is the program checked and are the uniforms loaded
+    private boolean ready = false;
+
     /**
      * Creates new Shader and creating shader program in opengl
      */
     public Shader() {
+        this(new String[0]);
+    }
+
+    /**
+     * Creates new variant of a Shader and creating shader program in opengl
+     *
+     * @param defines Defines of the variant, injected into every stage
+     */
+    protected Shader(String... defines) {
+        this.defines = defines;
         program = GL20.glCreateProgram();
-        MemoryDumper.addProgramm(program);
+        MemoryDumper.add(MemoryDumper.Type.PROGRAM, program, 0, this);
 
         initShader();
     }
 
     /**
-     * Initialize shader and uniforms
+     * Initialize shader. Loading the program from the cache or start compiling
+     * and linking it. Checking and loading uniforms is done on first use.
      */
     private void initShader() {
         addShaders();
@@ -69,46 +130,205 @@ public abstract class Shader {
         // Rebind vbos attrib locations
         bindAttribs();
 
-        // Link and validate shaderprogram
+        cacheKey = getCacheKey();
+        if (loadBinary()) {
+            stages.clear();
+            return;
+        }
+
+        // Let the driver use as many compiler threads as it wants
+        if (PARALLEL_COMPILE && !compilerThreadsSet && GL.getCapabilities().GL_KHR_parallel_shader_compile) {
+            KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(0xFFFFFFFF);
+            compilerThreadsSet = true;
+        }
+
+        // Start compiling all stages, before querying any status
+        for (Stage stage : stages) {
+            stage.id = GL20.glCreateShader(stage.type);
+            GL20.glShaderSource(stage.id, stage.code);
+            GL20.glCompileShader(stage.id);
+            GL20.glAttachShader(program, stage.id);
+
+            // Adding new shader to memory dumper
+            MemoryDumper.add(MemoryDumper.Type.SHADER, stage.id, 0, this);
+        }
+
+        // Start linking shaderprogram
+        if (cacheKey != null)
+            GL41.glProgramParameteri(program, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
         GL20.glLinkProgram(program);
+    }
+
+    /**
+     * Checking compile and link status of the program, storing its binary into
+     * the cache and loading the uniforms. Waits for the driver, if the program
+     * is still compiling.
+     */
+    private void finishShader() {
+        ready = true;
+
+        if (!stages.isEmpty()) {
+
+            // Check for compiling errors
+            for (Stage stage : stages) {
+                if (GL20.glGetShaderi(stage.id, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+                    Logger.err("Shader Compile Error (" + stage.name + ")", GL20.glGetShaderInfoLog(stage.id));
+                    Game.exit(1);
+                }
+            }
+
+            // Check for linking errors
+            if (GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+                Logger.err("Shader Link Error (" + stages.get(0).name + ")", GL20.glGetProgramInfoLog(program));
+                Game.exit(1);
+            }
+
+            storeBinary();
+
+            // Stages are not needed anymore after linking
+            for (Stage stage : stages) {
+                GL20.glDetachShader(program, stage.id);
+                MemoryDumper.delete(MemoryDumper.Type.SHADER, stage.id);
+            }
+            stages.clear();
+        }
+
         GL20.glValidateProgram(program);
 
         loadUniforms();
     }
 
     /**
-     * Adding new shader from sourcecode to the program
+     * Adding new shader from sourcecode to the program. Includes are resolved
+     * and the defines of the variant injected by the {@link ShaderPreprocessor}.
+     * Compiled together with the other stages of the program.
      * 
      * @param shaderCode String that contains the shader source code
      * @param shaderType Type of the shader (vs, fs, geo, tes, tcs, cs)
      * @param name       Pseudonym name of the shader for faster error detection
      */
     protected final void addShader(String[] shaderCode, int shaderType, String name) {
+        stages.add(new Stage(ShaderPreprocessor.process(shaderCode, defines), shaderType, name));
+    }
 
-        // Create shader
-        int id = GL20.glCreateShader(shaderType);
-
-        // Store shader code into shader and compile the shader
-        GL20.glShaderSource(id, shaderCode);
-        GL20.glCompileShader(id);
+    /**
+     * Calculating the cache key of the program from the driver, the sources of
+     * all stages and the bound attributes.
+     *
+     * @return Cache key or null, if caching is disabled or not supported
+     */
+    private String getCacheKey() {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!CACHE_ENABLED || !(caps.OpenGL41 || caps.GL_ARB_get_program_binary)
+                || GL11.glGetInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) <= 0)
+            return null;
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, GL11.glGetString(GL11.GL_VENDOR));
+            update(digest, GL11.glGetString(GL11.GL_RENDERER));
+            update(digest, GL11.glGetString(GL11.GL_VERSION));
+            update(digest, attributes.toString());
+            for (Stage stage : stages) {
+                update(digest, Integer.toString(stage.type));
+                for (String line : stage.code)
+                    update(digest, line);
+            }
+            return AssetBaker.toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
 
-        // Check for compiling errors
-        int err = GL20.glGetShaderi(id, GL20.GL_COMPILE_STATUS);
-        if (err == GL11.GL_FALSE) { // Error occurs during compiling
+    /**
+     * Adding a string and a separator to a digest
+     *
+     * @param digest Digest to update
+     * @param value  String to add, null is added as empty string
+     */
+    private static void update(MessageDigest digest, String value) {
+        if (value != null)
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
 
-            // Get shader info log
-            String infoLog = GL20.glGetShaderInfoLog(id);
+    /**
+     * @return Cache file of the program
+     */
+    private Path getCacheFile() {
+        return Paths.get(CACHE_DIRECTORY, cacheKey + ".bin");
+    }
 
-            // Print info log and throw exception
-            Logger.err("Shader Compile Error (" + name + ")", infoLog);
-            Game.exit(1);
+    /**
+     * Loading the program binary from the cache. A binary, that the driver
+     * rejects is deleted.
+     *
+     * @return True, if the program was loaded and linked successfully
+     */
+    private boolean loadBinary() {
+        if (cacheKey == null)
+            return false;
+
+        Path file = getCacheFile();
+        if (!Files.isRegularFile(file))
+            return false;
+
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (data.length > 4) {
+                ByteBuffer binary = BufferUtils.createByteBuffer(data.length - 4);
+                binary.put(data, 4, data.length - 4).flip();
+                GL41.glProgramBinary(program, ByteBuffer.wrap(data).getInt(), binary);
+                if (GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_TRUE)
+                    return true;
+            }
+
+            Logger.info("Shader cache outdated", "The cached program " + file + " is rejected, recompiling!");
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Logger.warn("Error by loading cached shader", "The cache file " + file + " could not be read!");
         }
+        return false;
+    }
 
-        // Attach Shader to program
-        GL20.glAttachShader(program, id);
-
-        // Adding new shader to memory dumper
-        MemoryDumper.addShader(id);
+    /**
+     * Storing the linked program binary into the cache. Written into a
+     * temporary file first, so a crash can not leave a broken cache file.
+     */
+    private void storeBinary() {
+        if (cacheKey == null)
+            return;
+
+        int length = GL20.glGetProgrami(program, GL41.GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0)
+            return;
+
+        ByteBuffer binary = BufferUtils.createByteBuffer(length);
+        IntBuffer format = BufferUtils.createIntBuffer(1);
+        GL41.glGetProgramBinary(program, null, format, binary);
+
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(format.get(0)).flip();
+
+        Path file = getCacheFile();
+        Path tempFile = Paths.get(file + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining())
+                    channel.write(header);
+                while (binary.hasRemaining())
+                    channel.write(binary);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Logger.warn("Error by caching shader", "The cache file " + file + " could not be written!");
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+            }
+        }
     }
 
     /**
@@ -137,6 +357,7 @@ public abstract class Shader {
      */
     protected final void bindAttribute(int attrib, String name) {
         GL20.glBindAttribLocation(program, attrib, name);
+        attributes.append(attrib).append('=').append(name).append(';');
     }
 
     /**
@@ -171,6 +392,8 @@ public abstract class Shader {
      * Starting/enable shaderprogram
      */
     public void start() {
+        if (!ready)
+            finishShader();
         GL20.glUseProgram(program);
     }
 
@@ -225,6 +448,17 @@ public abstract class Shader {
         GL20.glUniform2f(location, x, y);
     }
 
+    /**
+     * Loading a 2d integer vector into a uniform variable
+     * 
+     * @param location Location of the uniform variable
+     * @param x        First value of the vector
+     * @param y        Second value of the vector
+     */
+    protected final void setUniform2i(int location, int x, int y) {
+        GL20.glUniform2i(location, x, y);
+    }
+
     /**
      * Loading a 3d vector into a uniform variable
      * 
@@ -260,6 +494,16 @@ public abstract class Shader {
         GL20.glUniformMatrix4fv(location, false, matrix);
     }
 
+    /**
+     * Loading a vec4 array into a uniform variable
+     * 
+     * @param location Location of the uniform variable
+     * @param floats   float array to use (x0,y0,z0,w0,x1,y1,z1,w1,x2,...)
+     */
+    protected final void setUniformArray4f(int location, float[] floats) {
+        GL20.glUniform4fv(location, floats);
+    }
+
     /**
      * Loading a vec3 array into a uniform variable
      * 
@@ -321,4 +565,31 @@ public abstract class Shader {
         GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
         GL11.glBindTexture(type, texture);
     }
+
+    /**
+     * Shader stage of a program, until the program is linked
+     */
+    private static class Stage {
+
+        // Source code, type and pseudonym name of the stage
+        private final String[] code;
+        private final int type;
+        private final String name;
+
+        // Id of the compiled shader
+        private int id = 0;
+
+        /**
+         * Creating new shader stage
+         *
+         * @param code Source code of the stage
+         * @param type Type of the stage
+         * @param name Pseudonym name of the stage
+         */
+        private Stage(String[] code, int type, String name) {
+            this.code = code;
+            this.type = type;
+            this.name = name;
+        }
+    }
 }
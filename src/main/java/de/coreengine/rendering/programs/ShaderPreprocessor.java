@@ -0,0 +1,189 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import de.coreengine.asset.AssetPack;
+import de.coreengine.asset.FileLoader;
+import de.coreengine.util.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Preprocessor for glsl shader sources. Resolves #include "file" directives
+ * relative to the shader location, every file is included once per stage.
+ * Defines of shader variants are injected after the #version directive. Line
+ * numbers of compile errors are kept by #line directives, where the source
+ * string number is the included file in order of inclusion (0 = stage file).
+ *
+ * @author Darius Dinger
+ */
+public class ShaderPreprocessor {
+    private static final String INCLUDE_DIRECTIVE = "#include";
+    private static final String VERSION_DIRECTIVE = "#version";
+
+    // Already loaded include files by path
+    private static final HashMap<String, String[]> INCLUDES = new HashMap<>();
+
+    /**
+     * Processing the source of a shader stage
+     *
+     * @param code    Source code lines of the stage, with line breaks
+     * @param defines Names of the defines to inject
+     * @return Processed source code lines
+     */
+    public static String[] process(String[] code, String... defines) {
+        List<String> result = new ArrayList<>(code.length + defines.length + 2);
+        Set<String> included = new HashSet<>();
+
+        // Inject defines after the version or at top, if there is no version
+        boolean injected = false;
+        if (!hasVersion(code)) {
+            addDefines(result, defines, 1, 0);
+            injected = true;
+        }
+
+        for (int i = 0; i < code.length; i++) {
+            addLine(result, code[i], included, i + 2, 0);
+
+            if (!injected && code[i].trim().startsWith(VERSION_DIRECTIVE)) {
+                addDefines(result, defines, i + 2, 0);
+                injected = true;
+            }
+        }
+
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Getting the defines of a shader variant from its feature bits
+     *
+     * @param features Feature bits of the variant
+     * @param names    Define names of the feature bits, starting with bit 0
+     * @return Defines of all set feature bits
+     */
+    public static String[] getDefines(int features, String... names) {
+        List<String> defines = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            if ((features & (1 << i)) != 0)
+                defines.add(names[i]);
+        }
+        return defines.toArray(new String[0]);
+    }
+
+    /**
+     * Adding a source line to the result. Include directives are replaced by
+     * the processed include file.
+     *
+     * @param result   Result to add line to
+     * @param line     Source line to add
+     * @param included Already included files of the stage
+     * @param nextLine Number of the next line in the current source string
+     * @param source   Number of the current source string
+     */
+    private static void addLine(List<String> result, String line, Set<String> included, int nextLine,
+            int source) {
+        String trimmed = line.trim();
+        if (!trimmed.startsWith(INCLUDE_DIRECTIVE)) {
+            result.add(line);
+            return;
+        }
+
+        // Get file name between the quotes
+        int start = trimmed.indexOf('"'), end = trimmed.lastIndexOf('"');
+        if (start < 0 || end <= start) {
+            Logger.warn("Error by processing shader", "Invalid include directive: " + trimmed);
+            return;
+        }
+        String path = Shader.SHADERS_LOCATION + trimmed.substring(start + 1, end);
+        if (!included.add(path))
+            return;
+
+        String[] include = getInclude(path);
+        if (include == null) {
+            Logger.warn("Error by processing shader", "The include file " + path + " could not be found!");
+            return;
+        }
+
+        // Process include file as own source string
+        int includeSource = included.size();
+        result.add("#line 1 " + includeSource + "\n");
+        for (int i = 0; i < include.length; i++)
+            addLine(result, include[i], included, i + 2, includeSource);
+        result.add("\n#line " + nextLine + " " + source + "\n");
+    }
+
+    /**
+     * Adding defines and restoring the line number after them
+     *
+     * @param result   Result to add defines to
+     * @param defines  Names of the defines to add
+     * @param nextLine Number of the next line in the source string
+     * @param source   Number of the source string
+     */
+    private static void addDefines(List<String> result, String[] defines, int nextLine, int source) {
+        if (defines.length == 0)
+            return;
+
+        for (String define : defines)
+            result.add("#define " + define + "\n");
+        result.add("#line " + nextLine + " " + source + "\n");
+    }
+
+    /**
+     * @param code Source code lines
+     * @return Has the source code a version directive
+     */
+    private static boolean hasVersion(String[] code) {
+        for (String line : code) {
+            if (line.trim().startsWith(VERSION_DIRECTIVE))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loading an include file or getting it from the already loaded includes
+     *
+     * @param path Path of the include file
+     * @return Source code lines of the include file or null, if not found
+     */
+    private static String[] getInclude(String path) {
+        String[] include = INCLUDES.get(path);
+        if (include == null && (AssetPack.contains(path)
+                || ShaderPreprocessor.class.getClassLoader().getResource(path) != null)) {
+            include = FileLoader.getResource(path, true);
+            INCLUDES.put(path, include);
+        }
+        return include;
+    }
+}
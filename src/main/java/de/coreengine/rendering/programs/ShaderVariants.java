@@ -0,0 +1,72 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import java.util.HashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Cache of the variants of a shader, keyed by their feature bits. Variants are
+ * created on first use, so only permutations a scene needs are compiled.
+ *
+ * @param <T> Type of the shader
+ * @author Darius Dinger
+ */
+public class ShaderVariants<T extends Shader> {
+
+    // Factory to create a variant from its feature bits
+    private final IntFunction<T> factory;
+
+    // Created variants by their feature bits
+    private final HashMap<Integer, T> variants = new HashMap<>();
+
+    /**
+     * Creating new shader variant cache
+     *
+     * @param factory Factory to create a variant from its feature bits
+     */
+    public ShaderVariants(IntFunction<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Getting a variant of the shader, created if not created yet
+     *
+     * @param features Feature bits of the variant
+     * @return Shader variant
+     */
+    public T get(int features) {
+        T variant = variants.get(features);
+        if (variant == null) {
+            variant = factory.apply(features);
+            variants.put(features, variant);
+        }
+        return variant;
+    }
+}
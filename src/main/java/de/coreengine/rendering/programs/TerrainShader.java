@@ -29,11 +29,13 @@ package de.coreengine.rendering.programs;
 
 import de.coreengine.asset.AssetDatabase;
 import de.coreengine.asset.FileLoader;
+import de.coreengine.rendering.model.Material;
 import de.coreengine.rendering.renderable.terrain.TerrainConfig;
 import de.coreengine.rendering.renderable.terrain.TerrainTexturePack;
 import de.coreengine.util.Toolbox;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
 import org.lwjgl.opengl.GL32;
 import org.lwjgl.opengl.GL40;
 
@@ -47,17 +49,17 @@ import javax.vecmath.Vector3f;
  * @author Darius Dinger
  */
 public class TerrainShader extends Shader {
-    private final int blendMapUnit = 1, heightMapUnit = 2, lightMapUnit = 3, diffuseUnit = 4, diffuseRUnit = 5,
-            diffuseGUnit = 6, diffuseBUnit = 7, normalUnit = 8, normalRUnit = 9, normalGUnit = 10, normalBUnit = 11,
-            aoUnit = 12, aoRUnit = 13, aoGUnit = 14, aoBUnit = 15, specularUnit = 16, specularRUnit = 17,
-            specularGUnit = 18, specularBUnit = 19, displacementUnit = 20, displacementRUnit = 21,
-            displacementGUnit = 22, displacementBUnit = 23;
+    private static final int LAYERS = 4;
+
+    private final int blendMapUnit = 1, heightMapUnit = 2, lightMapUnit = 3, diffuseUnit = 4, normalUnit = 5,
+            specularUnit = 6, aoUnit = 7, displacementUnit = 8;
 
     // Uniform locations
-    private int chunkSizeLoc, chunkOffsetLoc, vpMatLoc, mMatLoc, camPosLoc, amplitudeLoc, tessAreaLoc, clipPlaneLoc,
-            diffuseLoc, diffuseRLoc, diffuseGLoc, diffuseBLoc, tilingLoc, tilingRLoc, tilingGLoc, tilingBLoc,
-            specularLoc, specularRLoc, specularGLoc, specularBLoc, displacementLoc, displacementRLoc, displacementGLoc,
-            displacementBLoc;
+    private int chunkSizeLoc, chunkOffsetLoc, vpMatLoc, mMatLoc, camPosLoc, amplitudeLoc, tessAreaLoc, clipPlaneLoc;
+
+    // Uniform locations of the layer arrays, indexed by blend map channel.
+    // Allocated in loadUniforms, because it can run before field initializers
+    private int[] diffuseLocs, tilingLocs, specularLocs, displacementLocs;
 
     @Override
     protected void addShaders() {
@@ -94,54 +96,26 @@ public class TerrainShader extends Shader {
 
         clipPlaneLoc = getUniformLocation("clipPlane");
 
-        tilingLoc = getUniformLocation("tiling");
-        tilingRLoc = getUniformLocation("tilingR");
-        tilingGLoc = getUniformLocation("tilingG");
-        tilingBLoc = getUniformLocation("tilingB");
-
-        diffuseLoc = getUniformLocation("diffuse");
-        diffuseRLoc = getUniformLocation("diffuseR");
-        diffuseGLoc = getUniformLocation("diffuseG");
-        diffuseBLoc = getUniformLocation("diffuseB");
-
-        specularLoc = getUniformLocation("specular");
-        specularRLoc = getUniformLocation("specularR");
-        specularGLoc = getUniformLocation("specularG");
-        specularBLoc = getUniformLocation("specularB");
-
-        displacementLoc = getUniformLocation("displacement");
-        displacementRLoc = getUniformLocation("displacementR");
-        displacementGLoc = getUniformLocation("displacementG");
-        displacementBLoc = getUniformLocation("displacementB");
+        diffuseLocs = new int[LAYERS];
+        tilingLocs = new int[LAYERS];
+        specularLocs = new int[LAYERS];
+        displacementLocs = new int[LAYERS];
+        for (int i = 0; i < LAYERS; i++) {
+            tilingLocs[i] = getUniformLocation("tiling[" + i + "]");
+            diffuseLocs[i] = getUniformLocation("diffuse[" + i + "]");
+            specularLocs[i] = getUniformLocation("specular[" + i + "]");
+            displacementLocs[i] = getUniformLocation("displacement[" + i + "]");
+        }
 
         bindTextureUnit("blendMap", blendMapUnit);
         bindTextureUnit("heightMap", heightMapUnit);
         bindTextureUnit("lightMap", lightMapUnit);
 
-        bindTextureUnit("diffuseTexture", diffuseUnit);
-        bindTextureUnit("diffuseRTexture", diffuseRUnit);
-        bindTextureUnit("diffuseGTexture", diffuseGUnit);
-        bindTextureUnit("diffuseBTexture", diffuseBUnit);
-
-        bindTextureUnit("aoTexture", aoUnit);
-        bindTextureUnit("aoRTexture", aoRUnit);
-        bindTextureUnit("aoGTexture", aoGUnit);
-        bindTextureUnit("aoBTexture", aoBUnit);
-
-        bindTextureUnit("specularTexture", specularUnit);
-        bindTextureUnit("specularRTexture", specularRUnit);
-        bindTextureUnit("specularGTexture", specularGUnit);
-        bindTextureUnit("specularBTexture", specularBUnit);
-
-        bindTextureUnit("displacementTexture", displacementUnit);
-        bindTextureUnit("displacementRTexture", displacementRUnit);
-        bindTextureUnit("displacementGTexture", displacementGUnit);
-        bindTextureUnit("displacementBTexture", displacementBUnit);
-
-        bindTextureUnit("normalTexture", normalUnit);
-        bindTextureUnit("normalRTexture", normalRUnit);
-        bindTextureUnit("normalGTexture", normalGUnit);
-        bindTextureUnit("normalBTexture", normalBUnit);
+        bindTextureUnit("diffuseTextures", diffuseUnit);
+        bindTextureUnit("normalTextures", normalUnit);
+        bindTextureUnit("specularTextures", specularUnit);
+        bindTextureUnit("aoTextures", aoUnit);
+        bindTextureUnit("displacementTextures", displacementUnit);
     }
 
     /**
@@ -167,53 +141,20 @@ public class TerrainShader extends Shader {
      * @param pack Terrain texture pack to load
      */
     private void setTexturePack(TerrainTexturePack pack) {
-        setUniform(tilingLoc, pack.getMaterial().tiling);
-        setUniform(tilingRLoc, pack.getRedMaterial().tiling);
-        setUniform(tilingGLoc, pack.getGreenMaterial().tiling);
-        setUniform(tilingBLoc, pack.getBlueMaterial().tiling);
-
-        setUniform(diffuseLoc, pack.getMaterial().diffuseColor);
-        setUniform(diffuseRLoc, pack.getRedMaterial().diffuseColor);
-        setUniform(diffuseGLoc, pack.getGreenMaterial().diffuseColor);
-        setUniform(diffuseBLoc, pack.getBlueMaterial().diffuseColor);
-
-        setUniform(displacementLoc, pack.getMaterial().displacementFactor);
-        setUniform(displacementRLoc, pack.getRedMaterial().displacementFactor);
-        setUniform(displacementGLoc, pack.getGreenMaterial().displacementFactor);
-        setUniform(displacementBLoc, pack.getBlueMaterial().displacementFactor);
-
-        setUniform(specularLoc, pack.getMaterial().shininess, pack.getMaterial().shineDamping);
-        setUniform(specularRLoc, pack.getRedMaterial().shininess, pack.getRedMaterial().shineDamping);
-        setUniform(specularGLoc, pack.getGreenMaterial().shininess, pack.getGreenMaterial().shineDamping);
-        setUniform(specularBLoc, pack.getBlueMaterial().shininess, pack.getBlueMaterial().shineDamping);
-
-        bindTexture(AssetDatabase.getTexture(pack.getMaterial().diffuseMap), diffuseUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getRedMaterial().diffuseMap), diffuseRUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getGreenMaterial().diffuseMap), diffuseGUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getBlueMaterial().diffuseMap), diffuseBUnit, GL11.GL_TEXTURE_2D);
-
-        bindTexture(AssetDatabase.getTexture(pack.getMaterial().specularMap), specularUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getRedMaterial().specularMap), specularRUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getGreenMaterial().specularMap), specularGUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getBlueMaterial().specularMap), specularBUnit, GL11.GL_TEXTURE_2D);
-
-        bindTexture(AssetDatabase.getTexture(pack.getMaterial().ambientOcclusionMap), aoUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getRedMaterial().ambientOcclusionMap), aoRUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getGreenMaterial().ambientOcclusionMap), aoGUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getBlueMaterial().ambientOcclusionMap), aoBUnit, GL11.GL_TEXTURE_2D);
-
-        bindTexture(AssetDatabase.getTexture(pack.getMaterial().displacementMap), displacementUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getRedMaterial().displacementMap), displacementRUnit,
-                GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getGreenMaterial().displacementMap), displacementGUnit,
-                GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getBlueMaterial().displacementMap), displacementBUnit,
-                GL11.GL_TEXTURE_2D);
-
-        bindTexture(AssetDatabase.getTexture(pack.getMaterial().normalMap), normalUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getRedMaterial().normalMap), normalRUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getGreenMaterial().normalMap), normalGUnit, GL11.GL_TEXTURE_2D);
-        bindTexture(AssetDatabase.getTexture(pack.getBlueMaterial().normalMap), normalBUnit, GL11.GL_TEXTURE_2D);
+        Material[] materials = pack.getLayerMaterials();
+        for (int i = 0; i < LAYERS; i++) {
+            setUniform(tilingLocs[i], materials[i].tiling);
+            setUniform(diffuseLocs[i], materials[i].diffuseColor);
+            setUniform(displacementLocs[i], materials[i].displacementFactor);
+            setUniform(specularLocs[i], materials[i].shininess, materials[i].shineDamping);
+        }
+
+        bindTexture(pack.getTextureArray(TerrainTexturePack.DIFFUSE), diffuseUnit, GL30.GL_TEXTURE_2D_ARRAY);
+        bindTexture(pack.getTextureArray(TerrainTexturePack.NORMAL), normalUnit, GL30.GL_TEXTURE_2D_ARRAY);
+        bindTexture(pack.getTextureArray(TerrainTexturePack.SPECULAR), specularUnit, GL30.GL_TEXTURE_2D_ARRAY);
+        bindTexture(pack.getTextureArray(TerrainTexturePack.AMBIENT_OCCLUSION), aoUnit, GL30.GL_TEXTURE_2D_ARRAY);
+        bindTexture(pack.getTextureArray(TerrainTexturePack.DISPLACEMENT), displacementUnit,
+                GL30.GL_TEXTURE_2D_ARRAY);
     }
 
     /**
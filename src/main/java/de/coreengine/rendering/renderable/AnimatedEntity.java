@@ -30,7 +30,10 @@ package de.coreengine.rendering.renderable;
 
 import de.coreengine.animation.Joint;
 import de.coreengine.asset.AssetDatabase;
+import de.coreengine.rendering.model.AnimatedModel;
+import de.coreengine.rendering.model.BakedAnimation;
 import de.coreengine.rendering.model.Transformation;
+import de.coreengine.util.Logger;
 
 /**
  * Class that represents an animated entity in the world
@@ -42,18 +45,87 @@ public class AnimatedEntity {
     // Transformation of the entity
     private Transformation transform = new Transformation();
 
-    // Model of the entity
+    // Model of the entity and its handle in the asset database
     private String model = null;
+    private int modelHandle = 0;
 
-    // Root joint of the models skeleton
+    // Root joint of the models skeleton, created when the model is loaded
     private Joint skeleton = null;
 
+    // Baked animation to play on the gpu, when rendered as baked animated entity,
+    // resolved by its name when the model is loaded
+    private BakedAnimation bakedAnimation = null;
+    private String bakedAnimationName = null;
+
+    // Time offset and speed of the baked animation
+    private float bakedTimeOffset = 0.0f, bakedSpeed = 1.0f;
+
+    // Current detail level of the entity, selected by the renderer
+    private int lod = 0;
+
     /**
+     * Setting the model of the entity. The model does not have to be loaded yet,
+     * the skeleton is created, when the model is loaded.
+     *
      * @param model New model of the entity
      */
     public void setModel(String model) {
         this.model = model;
-        this.skeleton = AssetDatabase.getAnimatedModel(model).getNewSkeletonInstance();
+        this.modelHandle = AssetDatabase.getAnimatedModelHandle(model);
+        this.skeleton = null;
+        this.bakedAnimation = null;
+    }
+
+    /**
+     * Setting the baked animation, this entity plays when its rendered as baked
+     * animated entity. The animation must be baked in the model before.
+     *
+     * @param animation  Name of the baked animation of the entities model
+     * @param timeOffset Time offset of this instance in the animation, to
+     *                   desynchronize crowds
+     */
+    public void setBakedAnimation(String animation, float timeOffset) {
+        this.bakedAnimationName = animation;
+        this.bakedAnimation = null;
+        this.bakedTimeOffset = timeOffset;
+
+        if (AssetDatabase.getAnimatedModel(modelHandle) != null && getBakedAnimation() == null)
+            Logger.warn("Error by setting baked animation",
+                    "The animation " + animation + " is not baked in the model " + model + "!");
+    }
+
+    /**
+     * @param bakedSpeed Playback speed of the baked animation
+     */
+    public void setBakedSpeed(float bakedSpeed) {
+        this.bakedSpeed = bakedSpeed;
+    }
+
+    /**
+     * @return Baked animation to play on the gpu or null, if not set or the model
+     *         is still loading
+     */
+    public BakedAnimation getBakedAnimation() {
+        if (bakedAnimation == null && bakedAnimationName != null) {
+            AnimatedModel animatedModel = AssetDatabase.getAnimatedModel(modelHandle);
+            if (animatedModel != null)
+                bakedAnimation = animatedModel.getBakedAnimation(bakedAnimationName);
+        }
+        return bakedAnimation;
+    }
+
+    /**
+     * @return Time offset of this instance in the baked animation
+     */
+    public float getBakedTimeOffset() {
+        return bakedTimeOffset;
+    }
+
+    /**
+     * @return Playback speed of the baked animation
+     */
+    public float getBakedSpeed() {
+        return bakedSpeed;
     }
 
     /**
@@ -71,9 +143,36 @@ public class AnimatedEntity {
     }
 
     /**
-     * @return Root joint of the models skeleton
+     * @return Handle of the model of the entity in the asset database
+     */
+    public int getModelHandle() {
+        return modelHandle;
+    }
+
+    /**
+     * @return Root joint of the models skeleton or null, if the model is still
+     *         loading
      */
     public Joint getSkeleton() {
+        if (skeleton == null) {
+            AnimatedModel animatedModel = AssetDatabase.getAnimatedModel(modelHandle);
+            if (animatedModel != null)
+                skeleton = animatedModel.getNewSkeletonInstance();
+        }
         return skeleton;
     }
+
+    /**
+     * @param lod New detail level of the entity
+     */
+    public void setLod(int lod) {
+        this.lod = lod;
+    }
+
+    /**
+     * @return Current detail level of the entity, selected by the renderer
+     */
+    public int getLod() {
+        return lod;
+    }
 }
@@ -27,6 +27,7 @@
  */
 package de.coreengine.rendering.renderable;
 
+import de.coreengine.asset.AssetDatabase;
 import de.coreengine.rendering.model.Transformation;
 
 /**
@@ -39,17 +40,22 @@ public class Entity {
     // Transformation of the entity
     private Transformation transform = new Transformation();
 
-    // Model of the entity
+    // Model of the entity and its handle in the asset database
     private String model = null;
+    private int modelHandle = 0;
 
     // Should the entity rotate and move with the camera
     private boolean rotateWithCam = false;
 
+    // Current detail level of the entity, selected by the renderer
+    private int lod = 0;
+
     /**
      * @param model New model of the entity
      */
     public void setModel(String model) {
         this.model = model;
+        this.modelHandle = AssetDatabase.getModelHandle(model);
     }
 
     /**
@@ -66,6 +72,13 @@ public class Entity {
         return model;
     }
 
+    /**
+     * @return Handle of the model of the entity in the asset database
+     */
+    public int getModelHandle() {
+        return modelHandle;
+    }
+
     /**
      * Should the entity rotate and move with the camera
      * 
@@ -81,4 +94,18 @@ public class Entity {
     public boolean isRotateWithCam() {
         return rotateWithCam;
     }
+
+    /**
+     * @param lod New detail level of the entity
+     */
+    public void setLod(int lod) {
+        this.lod = lod;
+    }
+
+    /**
+     * @return Current detail level of the entity, selected by the renderer
+     */
+    public int getLod() {
+        return lod;
+    }
 }
@@ -28,6 +28,7 @@
 
 package de.coreengine.rendering.renderable;
 
+import de.coreengine.asset.AssetDatabase;
 import de.coreengine.rendering.model.Material;
 import de.coreengine.util.Configuration;
 
@@ -41,8 +42,9 @@ public class Particle {
     private Vector2f size = new Vector2f(DEFAULT_SIZE[0], DEFAULT_SIZE[1]);
     private Vector3f position = new Vector3f();
 
-    // Particles current texture
+    // Particles current texture and its handle in the asset database
     private String texture = Material.TEXTURE_WHITE;
+    private int textureHandle = AssetDatabase.getTextureHandle(Material.TEXTURE_WHITE);
 
     /**
      * @return Particles current texture
@@ -51,6 +53,13 @@ public class Particle {
         return texture;
     }
 
+    /**
+     * @return Handle of the particles current texture in the asset database
+     */
+    public int getTextureHandle() {
+        return textureHandle;
+    }
+
     /**
      * Setting texture of the particle
      *
@@ -58,6 +67,7 @@ public class Particle {
      */
     public void setTexture(String texture) {
         this.texture = texture;
+        this.textureHandle = AssetDatabase.getTextureHandle(texture);
     }
 
     /**
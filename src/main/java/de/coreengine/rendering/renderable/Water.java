@@ -103,6 +103,11 @@ public class Water {
      * (Re)creating water reflection/refraction fbos
      */
     private void recreateFbos() {
+        if (reflectionFbo != null)
+            reflectionFbo.destroy();
+        if (refractionFbo != null)
+            refractionFbo.destroy();
+
         reflectionFbo = new FrameBufferObject((int) (Window.getWidth() * quality), (int) (Window.getHeight() * quality),
                 false);
         refractionFbo = new FrameBufferObject((int) (Window.getWidth() * quality), (int) (Window.getHeight() * quality),
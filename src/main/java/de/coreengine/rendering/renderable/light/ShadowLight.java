@@ -75,6 +75,9 @@ public class ShadowLight {
      * (Re)creating shadow map fbo
      */
     private void recreateFbo() {
+        if (shadowMap != null)
+            shadowMap.destroy();
+
         shadowMap = new FrameBufferObject((int) (Window.getWidth() * quality), (int) (Window.getHeight() * quality),
                 false);
     }
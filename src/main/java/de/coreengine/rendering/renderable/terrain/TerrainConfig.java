@@ -115,11 +115,14 @@ public class TerrainConfig {
     }
 
     /**
-     * Setting the new texture pack of the terrain
+     * Setting the new texture pack of the terrain. The texture arrays of the
+     * replaced pack are deleted.
      * 
      * @param texturePack New texture pack
      */
     public void setTexturePack(TerrainTexturePack texturePack) {
+        if (this.texturePack != null && this.texturePack != texturePack)
+            this.texturePack.destroy();
         this.texturePack = texturePack;
     }
 
@@ -27,15 +27,31 @@
  */
 package de.coreengine.rendering.renderable.terrain;
 
+import de.coreengine.asset.AssetDatabase;
+import de.coreengine.asset.TextureResidency;
 import de.coreengine.rendering.model.Material;
+import de.coreengine.util.gl.TextureArray;
+import de.coreengine.util.gl.UploadScheduler;
+
+import java.util.Arrays;
 
 /**
- * Class that represents a texture pack for a terrain
+ * Class that represents a texture pack for a terrain. The maps of all materials
+ * are packed into one texture array per map type, with one layer per blend map
+ * channel (red, green, blue, main).
  *
  * @author Darius Dinger
  */
 public class TerrainTexturePack {
 
+    // Map types, index of the texture arrays
+    public static final int DIFFUSE = 0, NORMAL = 1, SPECULAR = 2, AMBIENT_OCCLUSION = 3, DISPLACEMENT = 4;
+    private static final int MAP_TYPES = 5, LAYERS = 4;
+
+    // Color of layers without texture by map type
+    private static final float[][] DEFAULT_COLORS = { { 1, 1, 1, 1 }, { 0.5f, 0.5f, 1, 1 }, { 0, 0, 0, 1 },
+            { 1, 1, 1, 1 }, { 0, 0, 0, 1 } };
+
     // Materials for the terrain
     // main material and red, green, blue material from blend map
     private final Material material = new Material();
@@ -43,6 +59,126 @@ public class TerrainTexturePack {
     private final Material gMaterial = new Material();
     private final Material bMaterial = new Material();
 
+    // Materials ordered by blend map channel
+    private final Material[] layerMaterials = { rMaterial, gMaterial, bMaterial, material };
+
+    // Texture arrays by map type
+    private final TextureArray[] textureArrays = new TextureArray[MAP_TYPES];
+
+    // Current texture handles of the maps, refilled every update
+    private final int[] handles = new int[MAP_TYPES * LAYERS];
+
+    // Texture handles and textures, the arrays were built from
+    private final int[] builtHandles = new int[MAP_TYPES * LAYERS], builtTextures = new int[MAP_TYPES * LAYERS];
+
+    // Texture version of the asset database at the last check, -1 to rebuild
+    private int checkedVersion = -1;
+
+    /**
+     * Creating new texture pack with default materials
+     */
+    public TerrainTexturePack() {
+        for (int i = 0; i < MAP_TYPES; i++)
+            textureArrays[i] = new TextureArray();
+    }
+
+    /**
+     * Rebuilding the texture arrays, if a map of a material was changed or a
+     * texture was (re)loaded. The maps are marked as used every update, so they
+     * stay resident and evicted maps are reloaded, before they are packed.
+     * Replacing a texture by its low resolution fallback does not cause a
+     * rebuild. Called by the master renderer once per frame for every rendered
+     * terrain, before any render pass.
+     */
+    public void update() {
+        updateHandles();
+        for (int handle : handles)
+            AssetDatabase.getTexture(handle);
+
+        if (checkedVersion == AssetDatabase.getTextureVersion() && Arrays.equals(handles, builtHandles))
+            return;
+        checkedVersion = AssetDatabase.getTextureVersion();
+
+        boolean changed = !Arrays.equals(handles, builtHandles) || textureArrays[0].getTexture() == 0;
+        for (int i = 0; i < handles.length && !changed; i++) {
+            int texture = AssetDatabase.peekTexture(handles[i]);
+            changed = texture != builtTextures[i] && !TextureResidency.isEvicted(handles[i]);
+        }
+        if (!changed)
+            return;
+
+        // Keep the current arrays until evicted maps are reloaded, instead of packing their fallback
+        if (textureArrays[0].getTexture() != 0) {
+            for (int handle : handles) {
+                if (TextureResidency.isEvicted(handle))
+                    return;
+            }
+        }
+
+        build();
+    }
+
+    /**
+     * Building the texture arrays from the current maps of the materials
+     */
+    private void build() {
+
+        // Layer textures must be complete
+        UploadScheduler.flush();
+
+        for (int type = 0; type < MAP_TYPES; type++) {
+            int[] sources = new int[LAYERS];
+            for (int layer = 0; layer < LAYERS; layer++) {
+                int i = type * LAYERS + layer;
+                builtHandles[i] = handles[i];
+                builtTextures[i] = sources[layer] = AssetDatabase.peekTexture(handles[i]);
+            }
+            textureArrays[type].build(sources, DEFAULT_COLORS[type]);
+        }
+    }
+
+    /**
+     * Getting the texture handles of all maps, map type after map type and layer
+     * after layer
+     */
+    private void updateHandles() {
+        for (int layer = 0; layer < LAYERS; layer++) {
+            Material mat = layerMaterials[layer];
+            handles[DIFFUSE * LAYERS + layer] = mat.getDiffuseMapHandle();
+            handles[NORMAL * LAYERS + layer] = mat.getNormalMapHandle();
+            handles[SPECULAR * LAYERS + layer] = mat.getSpecularMapHandle();
+            handles[AMBIENT_OCCLUSION * LAYERS + layer] = mat.getAmbientOcclusionMapHandle();
+            handles[DISPLACEMENT * LAYERS + layer] = mat.getDisplacementMapHandle();
+        }
+    }
+
+    /**
+     * Deleting the texture arrays. They are rebuilt at the next update.
+     */
+    public void destroy() {
+        for (TextureArray textureArray : textureArrays)
+            textureArray.delete();
+        checkedVersion = -1;
+    }
+
+    /**
+     * @param type Map type (DIFFUSE, NORMAL, SPECULAR, AMBIENT_OCCLUSION,
+     *             DISPLACEMENT)
+     * @return Texture array of this map type, layer index is the blend map
+     *         channel (red, green, blue, main)
+     */
+    public int getTextureArray(int type) {
+        return textureArrays[type].getTexture();
+    }
+
+    /**
+     * @return Materials of the layers, ordered by blend map channel (red, green,
+     *         blue, main)
+     */
+    public Material[] getLayerMaterials() {
+        return layerMaterials;
+    }
+
     /**
      * @return Main material of the terrain. (no r,g, b in blend map or no blend
      *         map)
@@ -32,6 +32,7 @@ import de.coreengine.animation.Joint;
 import de.coreengine.framework.Keyboard;
 import de.coreengine.rendering.model.Mesh;
 import de.coreengine.rendering.programs.AnimatedEntityShader;
+import de.coreengine.rendering.programs.ShaderVariants;
 import de.coreengine.rendering.renderable.AnimatedEntity;
 import de.coreengine.rendering.renderable.Camera;
 import de.coreengine.util.Toolbox;
@@ -51,14 +52,41 @@ import java.util.List;
  */
 public class AnimatedEntityRenderer {
 
-    private AnimatedEntityShader shader = new AnimatedEntityShader();
+    // Shader variants by feature bits
+    private final ShaderVariants<AnimatedEntityShader> shaders = new ShaderVariants<>(AnimatedEntityShader::new);
+
+    // Joint matrices of all animated entities of the current frame
+    private final JointPalette palette = new JointPalette();
+
+    /**
+     * Collecting and uploading the joint palettes of all animated entities, that
+     * will be rendered this frame. Must be called once per frame before the first
+     * render call.
+     *
+     * @param entities Entities to render this frame
+     */
+    void prepare(HashMap<Mesh, List<AnimatedEntity>> entities) {
+        palette.build(entities);
+    }
+
+    /**
+     * Creating the shader variants, before any variant is used. So all programs
+     * are compiled together.
+     *
+     * @param clipped Also create the variant with clip plane
+     */
+    void createShaders(boolean clipped) {
+        shaders.get(0);
+        if (clipped)
+            shaders.get(AnimatedEntityShader.CLIP_PLANE);
+    }
 
     /**
      * Renders a list of animated entities into the bound framebuffer
      *
      * @param entities  Entity list to render
      * @param cam       Camera to render from
-     * @param clipPlane Clip plane of the entities
+     * @param clipPlane Clip plane of the entities or null, if nothing is clipped
      */
     void render(HashMap<Mesh, List<AnimatedEntity>> entities, Camera cam, Vector4f clipPlane) {
 
@@ -70,10 +98,13 @@ public class AnimatedEntityRenderer {
             return;
         }
 
-        // Setup shader
+        // Setup shader variant of the pass
+        AnimatedEntityShader shader = shaders.get(clipPlane != null ? AnimatedEntityShader.CLIP_PLANE : 0);
         shader.start();
         shader.setCamera(cam);
-        shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+        if (clipPlane != null)
+            shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+        shader.setJointPalette(palette.getTexture());
 
         for (Mesh mesh : entities.keySet()) {
 
@@ -88,11 +119,15 @@ public class AnimatedEntityRenderer {
             // Iterate instanced entities
             for (AnimatedEntity entity : entities.get(mesh)) {
 
-                // Prepare entity
-                shader.prepareEntity(entity);
+                // Prepare entity, skip if its not in the palette
+                int paletteOffset = palette.getOffset(entity);
+                if (paletteOffset < 0)
+                    continue;
+                shader.prepareEntity(entity, paletteOffset);
 
                 // Render entity
-                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(), GL11.GL_UNSIGNED_INT, 0);
+                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(), mesh.getIndexBuffer().getType(),
+                        0);
             }
 
             // Unbind mesh data
@@ -0,0 +1,211 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.renderer;
+
+import de.coreengine.rendering.model.BakedAnimation;
+import de.coreengine.rendering.model.Mesh;
+import de.coreengine.rendering.programs.BakedAnimatedEntityShader;
+import de.coreengine.rendering.programs.ShaderVariants;
+import de.coreengine.rendering.renderable.AnimatedEntity;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.util.gl.MemoryDumper;
+import de.coreengine.util.gl.VertexArrayObject;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL31;
+
+import javax.vecmath.Vector4f;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Renderer that can render animated entities with baked animations instanced
+ * into the world. One draw call per mesh and baked animation.
+ *
+ * @author Darius Dinger
+ */
+public class BakedAnimatedEntityRenderer {
+    private static final int MAX_INSTANCES = 4096;
+
+    // Instance data: Transformation matrix (4 rows) and animation data (1 row)
+    private static final int INSTANCE_ROWS = 5, INSTANCE_FIRST_ROW = 6, INSTANCE_SIZE = INSTANCE_ROWS * 4;
+
+    // Shader variants by feature bits
+    private final ShaderVariants<BakedAnimatedEntityShader> shaders = new ShaderVariants<>(
+            BakedAnimatedEntityShader::new);
+
+    // Shared instance buffer and its cpu side data
+    private final int instanceVbo;
+    private final FloatBuffer instanceData = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_SIZE);
+
+    // Vaos, the instance buffer is already attached to, lod meshes can share one vao
+    private final Set<VertexArrayObject> attachedVaos = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // Entities of the current mesh, grouped by their baked animation. Only the
+    // batches of the animations of the last mesh are kept, emptied for reuse
+    private final HashMap<BakedAnimation, List<AnimatedEntity>> animationBatches = new HashMap<>();
+
+    /**
+     * Creating new baked animated entity renderer and its instance buffer
+     */
+    BakedAnimatedEntityRenderer() {
+        instanceVbo = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, MAX_INSTANCES * INSTANCE_SIZE * 4, GL15.GL_STREAM_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        MemoryDumper.add(MemoryDumper.Type.VBO, instanceVbo, MAX_INSTANCES * INSTANCE_SIZE * 4, this);
+    }
+
+    /**
+     * Creating the shader variants, before any variant is used. So all programs
+     * are compiled together.
+     *
+     * @param clipped Also create the variant with clip plane
+     */
+    void createShaders(boolean clipped) {
+        shaders.get(0);
+        if (clipped)
+            shaders.get(BakedAnimatedEntityShader.CLIP_PLANE);
+    }
+
+    /**
+     * Renders a list of baked animated entities instanced into the bound
+     * framebuffer
+     *
+     * @param entities  Entity list to render
+     * @param cam       Camera to render from
+     * @param clipPlane Clip plane of the entities or null, if nothing is clipped
+     */
+    void render(HashMap<Mesh, List<AnimatedEntity>> entities, Camera cam, Vector4f clipPlane) {
+        if (entities.isEmpty())
+            return;
+
+        double time = GLFW.glfwGetTime();
+
+        // Setup shader variant of the pass
+        BakedAnimatedEntityShader shader = shaders.get(clipPlane != null ? BakedAnimatedEntityShader.CLIP_PLANE : 0);
+        shader.start();
+        shader.setCamera(cam);
+        if (clipPlane != null)
+            shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+
+        for (Mesh mesh : entities.keySet()) {
+
+            // Attach shared instance buffer once per vao
+            if (attachedVaos.add(mesh.getVao()))
+                mesh.getVao().attachInstancedVertexBuffer(instanceVbo, 4, INSTANCE_FIRST_ROW, INSTANCE_ROWS);
+
+            // Bind mesh data
+            mesh.getVao().bind();
+            mesh.getVao().enableAttributes();
+            mesh.getIndexBuffer().bind();
+
+            // Load material into shader
+            shader.prepareMaterial(mesh.getMaterial());
+
+            // Group entities of this mesh by baked animation
+            for (AnimatedEntity entity : entities.get(mesh)) {
+                if (entity.getBakedAnimation() != null)
+                    animationBatches.computeIfAbsent(entity.getBakedAnimation(), k -> new ArrayList<>()).add(entity);
+            }
+
+            for (BakedAnimation animation : animationBatches.keySet()) {
+                List<AnimatedEntity> batch = animationBatches.get(animation);
+                if (batch.isEmpty())
+                    continue;
+
+                shader.prepareAnimation(animation);
+
+                // Render batch in chunks of max instances
+                for (int first = 0; first < batch.size(); first += MAX_INSTANCES) {
+                    int count = Math.min(MAX_INSTANCES, batch.size() - first);
+                    uploadInstances(batch, first, count, animation, time);
+                    GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(),
+                            mesh.getIndexBuffer().getType(), 0, count);
+                }
+            }
+
+            // Drop batches, this mesh did not use, and empty the others for the next mesh
+            animationBatches.values().removeIf(List::isEmpty);
+            animationBatches.values().forEach(List::clear);
+
+            // Unbind mesh data
+            mesh.getIndexBuffer().unbind();
+            mesh.getVao().disableAttributes();
+            mesh.getVao().unbind();
+        }
+
+        // Stop shader
+        shader.stop();
+    }
+
+    /**
+     * Filling the instance data of a chunk of entities into the instance buffer
+     *
+     * @param batch     Entities to upload
+     * @param first     First entity of the chunk
+     * @param count     Count of entities in the chunk
+     * @param animation Baked animation of the entities
+     * @param time      Current global time in seconds
+     */
+    private void uploadInstances(List<AnimatedEntity> batch, int first, int count, BakedAnimation animation,
+            double time) {
+        instanceData.clear();
+
+        for (int i = first; i < first + count; i++) {
+            AnimatedEntity entity = batch.get(i);
+            instanceData.put(entity.getTransform().getTransMatArr());
+
+            // Calculate looped animation time of the instance in double precision
+            double animationTime = time * entity.getBakedSpeed() + entity.getBakedTimeOffset();
+            if (animation.getLength() > 0.0f) {
+                animationTime %= animation.getLength();
+                if (animationTime < 0.0)
+                    animationTime += animation.getLength();
+            } else
+                animationTime = 0.0;
+
+            instanceData.put((float) animationTime).put(0.0f).put(0.0f).put(0.0f);
+        }
+        instanceData.flip();
+
+        // Orphan old storage and upload new instance data
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, MAX_INSTANCES * INSTANCE_SIZE * 4, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instanceData);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+}
@@ -29,11 +29,13 @@ package de.coreengine.rendering.renderer;
 
 import de.coreengine.rendering.model.Mesh;
 import de.coreengine.rendering.programs.EntityShader;
+import de.coreengine.rendering.programs.ShaderVariants;
 import de.coreengine.rendering.renderable.Camera;
 import de.coreengine.rendering.renderable.Entity;
 import org.lwjgl.opengl.GL11;
 
 import javax.vecmath.Vector4f;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -44,23 +46,74 @@ import java.util.List;
  */
 public class EntityRenderer {
 
-    private EntityShader shader = new EntityShader();
+    // Shader variants by feature bits
+    private final ShaderVariants<EntityShader> shaders = new ShaderVariants<>(EntityShader::new);
 
     /**
-     * Renders a list of entities into the bound framebuffer
+     * Creating the shader variants of the meshes, that are rendered this frame,
+     * before any variant is used. So all programs are compiled together.
+     *
+     * @param meshes  Meshes to render
+     * @param clipped Also create the variants with clip plane
+     */
+    void createShaders(Collection<Mesh> meshes, boolean clipped) {
+        for (Mesh mesh : meshes) {
+            int features = EntityShader.getFeatures(mesh.getMaterial(), null);
+            shaders.get(features);
+            if (clipped)
+                shaders.get(features | EntityShader.CLIP_PLANE);
+        }
+    }
+
+    /**
+     * Renders a list of entities into the bound framebuffer. Every mesh is
+     * rendered with the cheapest shader variant for its material, meshes are
+     * grouped by variant.
      * 
-     * @param entities  Entity map to render
-     * @param cam       Camera to render from
-     * @param clipPlane Clip plane of the entities
+     * @param entities     Entity map to render
+     * @param cam          Camera to render from
+     * @param clipPlane    Clip plane of the entities or null, if nothing is
+     *                     clipped
+     * @param skipIndirect Skip entities, that were already rendered by the
+     *                     {@link IndirectEntityRenderer}
      */
-    void render(HashMap<Mesh, List<Entity>> entities, Camera cam, Vector4f clipPlane) {
+    void render(HashMap<Mesh, List<Entity>> entities, Camera cam, Vector4f clipPlane, boolean skipIndirect) {
+        int clipFeature = clipPlane != null ? EntityShader.CLIP_PLANE : 0;
+        render(entities, cam, clipPlane, clipFeature, skipIndirect);
+        render(entities, cam, clipPlane, clipFeature | EntityShader.DISPLACEMENT, skipIndirect);
+    }
 
-        // Setup shader
-        shader.start();
-        shader.setCamera(cam, false);
-        shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+    /**
+     * Renders all entities, whose material needs a specific shader variant
+     *
+     * @param entities     Entity map to render
+     * @param cam          Camera to render from
+     * @param clipPlane    Clip plane of the entities or null, if nothing is
+     *                     clipped
+     * @param features     Feature bits of the variant to render
+     * @param skipIndirect Skip entities, that were already rendered indirect
+     */
+    private void render(HashMap<Mesh, List<Entity>> entities, Camera cam, Vector4f clipPlane, int features,
+            boolean skipIndirect) {
+        EntityShader shader = null;
 
         for (Mesh mesh : entities.keySet()) {
+            if (EntityShader.getFeatures(mesh.getMaterial(), clipPlane) != features)
+                continue;
+
+            // Indirect meshes only leave the entities, that rotate with the cam
+            boolean indirect = skipIndirect && IndirectEntityRenderer.isIndirect(mesh);
+            if (indirect && entities.get(mesh).stream().noneMatch(Entity::isRotateWithCam))
+                continue;
+
+            // Setup shader on first mesh of the variant
+            if (shader == null) {
+                shader = shaders.get(features);
+                shader.start();
+                shader.setCamera(cam, false);
+                if (clipPlane != null)
+                    shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+            }
 
             // Bind mesh data
             mesh.getVao().bind();
@@ -72,6 +125,8 @@ public class EntityRenderer {
 
             // Iterate instanced entities
             for (Entity entity : entities.get(mesh)) {
+                if (indirect && !entity.isRotateWithCam())
+                    continue;
 
                 // Prepare entity
                 shader.prepareEntity(entity);
@@ -81,7 +136,8 @@ public class EntityRenderer {
                     shader.setCamera(cam, true);
 
                 // Render entity
-                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(), GL11.GL_UNSIGNED_INT, 0);
+                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(), mesh.getIndexBuffer().getType(),
+                        0);
 
                 // Undo cam rotation, when entity rot with cam
                 if (entity.isRotateWithCam())
@@ -95,6 +151,7 @@ public class EntityRenderer {
         }
 
         // Stop shader
-        shader.stop();
+        if (shader != null)
+            shader.stop();
     }
 }
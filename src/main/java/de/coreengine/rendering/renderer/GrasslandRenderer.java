@@ -70,8 +70,8 @@ public class GrasslandRenderer {
 
                 // Render call
                 GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES,
-                        terrain.getGrassland().getMesh().getIndexBuffer().getSize(), GL11.GL_UNSIGNED_INT, 0,
-                        instances);
+                        terrain.getGrassland().getMesh().getIndexBuffer().getSize(),
+                        terrain.getGrassland().getMesh().getIndexBuffer().getType(), 0, instances);
 
                 // Unbind vao and indices
                 terrain.getGrassland().getMesh().getIndexBuffer().unbind();
@@ -0,0 +1,256 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.renderer;
+
+import de.coreengine.asset.AssetDatabase;
+import de.coreengine.rendering.ImpostorBuffer;
+import de.coreengine.rendering.model.Impostor;
+import de.coreengine.rendering.model.Mesh;
+import de.coreengine.rendering.model.Model;
+import de.coreengine.rendering.programs.ImpostorBakeShader;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import de.coreengine.util.gl.UploadScheduler;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+import javax.vecmath.Vector3f;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Class that bakes impostors of models. The model is rendered orthographic from
+ * the directions of an octahedral grid into one view of an atlas each. The
+ * views contain the color and the model space normal and depth, so distant
+ * entities can be drawn as lighted camera facing quads.
+ *
+ * @author Darius Dinger
+ */
+public class ImpostorBaker {
+
+    // Count of views per side of the octahedral grid and size of one view
+    private static final int FRAMES = Configuration.getValuei("IMPOSTOR_FRAMES");
+    private static final int FRAME_SIZE = Configuration.getValuei("IMPOSTOR_FRAME_SIZE");
+
+    // Max count of queued impostors, that are baked per frame
+    private static final int BAKES_PER_FRAME = Configuration.getValuei("IMPOSTOR_BAKES_PER_FRAME");
+
+    // Models waiting for their impostor, in order of their request
+    private static final Set<Model> QUEUE = new LinkedHashSet<>();
+
+    // Models, whose impostor could not be baked, so they are not requested again
+    private static final Set<Model> FAILED = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // Shader to render the views, created with the first bake
+    private static ImpostorBakeShader shader = null;
+
+    // Clear color to restore after baking
+    private static final FloatBuffer CLEAR_COLOR = BufferUtils.createFloatBuffer(16);
+
+    /**
+     * Queuing the impostor bake of a model, it is baked by {@link #update()}
+     * within the per frame budget. Does nothing, if the model already has an
+     * impostor or its bake failed before.
+     *
+     * @param model Model to bake impostor from
+     */
+    public static void request(Model model) {
+        if (model.getImpostor() == null && !FAILED.contains(model))
+            QUEUE.add(model);
+    }
+
+    /**
+     * Baking the next queued impostors, at most the configured count per frame.
+     * Must be called outside of a render pass.
+     */
+    public static void update() {
+        Iterator<Model> queued = QUEUE.iterator();
+        for (int i = 0; i < BAKES_PER_FRAME && queued.hasNext(); i++) {
+            Model model = queued.next();
+            queued.remove();
+            if (model.getImpostor() == null)
+                bake(model);
+        }
+    }
+
+    /**
+     * Baking the impostor of a model from the database and setting it as impostor
+     * of the model
+     *
+     * @param name Name of the model in the database
+     * @return Baked impostor or null, if baking is not possible
+     */
+    public static Impostor bake(String name) {
+        Model model = AssetDatabase.getModel(name);
+        if (model == null) {
+            Logger.warn("Error by baking impostor", "The model " + name + " could not be found! Returning null");
+            return null;
+        }
+
+        return bake(model);
+    }
+
+    /**
+     * Baking the impostor of a model and setting it as impostor of the model. If
+     * baking is not possible, the model is not requested again.
+     *
+     * @param model Model to bake impostor from
+     * @return Baked impostor or null, if baking is not possible
+     */
+    public static Impostor bake(Model model) {
+        if (model.getBoundingRadius() <= 0.0f || FRAMES <= 0 || FRAME_SIZE <= 0) {
+            Logger.warn("Error by baking impostor", "The model is empty or the impostor size is invalid! "
+                    + "Returning null");
+            FAILED.add(model);
+            return null;
+        }
+
+        if (shader == null)
+            shader = new ImpostorBakeShader();
+
+        // Model buffers and textures must be complete for the atlas
+        UploadScheduler.flush();
+
+        float radius = model.getBoundingRadius();
+        ImpostorBuffer buffer = new ImpostorBuffer(FRAMES * FRAME_SIZE);
+
+        // Save and setup gl state, background must be transparent and unblended
+        boolean blend = GL11.glIsEnabled(GL11.GL_BLEND), depthTest = GL11.glIsEnabled(GL11.GL_DEPTH_TEST);
+        GL11.glGetFloatv(GL11.GL_COLOR_CLEAR_VALUE, CLEAR_COLOR);
+        GL11.glDisable(GL11.GL_BLEND);
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GL11.glClearColor(0, 0, 0, 0);
+
+        buffer.bind(GL30.GL_COLOR_ATTACHMENT0);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        shader.start();
+
+        // Render every view into its part of the atlas
+        for (int y = 0; y < FRAMES; y++) {
+            for (int x = 0; x < FRAMES; x++) {
+                GL11.glViewport(x * FRAME_SIZE, y * FRAME_SIZE, FRAME_SIZE, FRAME_SIZE);
+                shader.setFrameMatrix(getFrameMatrix(x, y, radius));
+
+                for (Mesh mesh : model.getMeshes()) {
+                    if (mesh == null)
+                        continue;
+
+                    mesh.getVao().bind();
+                    mesh.getVao().enableAttributes();
+                    mesh.getIndexBuffer().bind();
+
+                    shader.prepareMaterial(mesh.getMaterial());
+                    GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(),
+                            mesh.getIndexBuffer().getType(), 0);
+
+                    mesh.getIndexBuffer().unbind();
+                    mesh.getVao().disableAttributes();
+                    mesh.getVao().unbind();
+                }
+            }
+        }
+
+        shader.stop();
+        buffer.unbind();
+        buffer.generateMipmaps();
+
+        // Restore gl state
+        if (blend)
+            GL11.glEnable(GL11.GL_BLEND);
+        if (!depthTest)
+            GL11.glDisable(GL11.GL_DEPTH_TEST);
+        GL11.glClearColor(CLEAR_COLOR.get(0), CLEAR_COLOR.get(1), CLEAR_COLOR.get(2), CLEAR_COLOR.get(3));
+
+        Impostor impostor = new Impostor(buffer.getColorBuffer(), buffer.getNormalDepthBuffer(), FRAMES, radius);
+        buffer.release(impostor);
+        model.setImpostor(impostor);
+        return impostor;
+    }
+
+    /**
+     * Calculating the orthographic view projection matrix of a view. The view
+     * looks from the direction of the octahedral grid cell onto the model origin
+     * and covers the bounding sphere of the model.
+     *
+     * @param x      X index of the view in the grid
+     * @param y      Y index of the view in the grid
+     * @param radius Radius of the bounding sphere of the model
+     * @return Column major view projection matrix
+     */
+    private static float[] getFrameMatrix(int x, int y, float radius) {
+        Vector3f dir = decodeDirection((x + 0.5f) / FRAMES, (y + 0.5f) / FRAMES);
+
+        // Same basis as used by the impostor shader
+        Vector3f right = new Vector3f(), up = new Vector3f();
+        right.cross(Math.abs(dir.y) > 0.999f ? new Vector3f(0, 0, 1) : new Vector3f(0, 1, 0), dir);
+        right.normalize();
+        up.cross(dir, right);
+
+        // Rows: right, up and negative view direction, scaled to the bounding sphere
+        float[] mat = new float[16];
+        float[][] rows = { { right.x, right.y, right.z }, { up.x, up.y, up.z }, { -dir.x, -dir.y, -dir.z } };
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                mat[c * 4 + r] = rows[r][c] / radius;
+            }
+        }
+        mat[15] = 1.0f;
+
+        return mat;
+    }
+
+    /**
+     * Decoding the direction of an octahedral grid position. The upper hemisphere
+     * (y &gt;= 0) is in the inner diamond, the lower hemisphere is folded outwards.
+     *
+     * @param u Horizontal grid position in [0, 1]
+     * @param v Vertical grid position in [0, 1]
+     * @return Normalized direction
+     */
+    private static Vector3f decodeDirection(float u, float v) {
+        float px = u * 2.0f - 1.0f, pz = v * 2.0f - 1.0f;
+        float py = 1.0f - Math.abs(px) - Math.abs(pz);
+
+        if (py < 0.0f) {
+            float fx = (1.0f - Math.abs(pz)) * (px >= 0.0f ? 1.0f : -1.0f);
+            float fz = (1.0f - Math.abs(px)) * (pz >= 0.0f ? 1.0f : -1.0f);
+            px = fx;
+            pz = fz;
+        }
+
+        Vector3f dir = new Vector3f(px, py, pz);
+        dir.normalize();
+        return dir;
+    }
+}
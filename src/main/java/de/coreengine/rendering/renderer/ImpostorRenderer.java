@@ -0,0 +1,141 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.renderer;
+
+import de.coreengine.rendering.model.Impostor;
+import de.coreengine.rendering.programs.ImpostorShader;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.rendering.renderable.Entity;
+import de.coreengine.util.gl.IndexBuffer;
+import de.coreengine.util.gl.VertexArrayObject;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL31;
+
+import javax.vecmath.Vector4f;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Renderer that draws distant entities instanced as camera facing quads, that
+ * sample the nearest views of the impostor of their model. One draw call per
+ * impostor.
+ *
+ * @author Darius Dinger
+ */
+public class ImpostorRenderer {
+    private static final int MAX_INSTANCES = 4096;
+
+    // Instance data: Transformation matrix (4 rows)
+    private static final int INSTANCE_ROWS = 4, INSTANCE_FIRST_ROW = 1, INSTANCE_SIZE = INSTANCE_ROWS * 4;
+
+    private ImpostorShader shader = new ImpostorShader();
+
+    // Quad with the corners in row 0 and the instance buffer
+    private final VertexArrayObject vao = new VertexArrayObject();
+    private final IndexBuffer indexBuffer;
+    private final int instanceVbo;
+    private final FloatBuffer instanceData = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_SIZE);
+
+    /**
+     * Creating new impostor renderer, its quad and instance buffer
+     */
+    ImpostorRenderer() {
+        vao.addVertexBuffer(new float[] { -1, -1, 1, -1, 1, 1, -1, 1 }, 2, 0);
+        indexBuffer = vao.addIndexBuffer(new int[] { 3, 0, 2, 2, 0, 1 });
+        instanceVbo = vao.addInstancedVertexBuffer(MAX_INSTANCES, 4, INSTANCE_FIRST_ROW, INSTANCE_ROWS);
+    }
+
+    /**
+     * Renders impostors of a list of entities instanced into the bound
+     * framebuffer
+     *
+     * @param impostors Entity map to render
+     * @param cam       Camera to render from
+     * @param clipPlane Clip plane of the impostors
+     */
+    void render(HashMap<Impostor, List<Entity>> impostors, Camera cam, Vector4f clipPlane) {
+        if (impostors.isEmpty())
+            return;
+
+        // Setup shader
+        shader.start();
+        shader.setCamera(cam);
+        shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+
+        // Bind quad
+        vao.bind();
+        vao.enableAttributes();
+        indexBuffer.bind();
+
+        for (Impostor impostor : impostors.keySet()) {
+            List<Entity> batch = impostors.get(impostor);
+            shader.prepareImpostor(impostor);
+
+            // Render batch in chunks of max instances
+            for (int first = 0; first < batch.size(); first += MAX_INSTANCES) {
+                int count = Math.min(MAX_INSTANCES, batch.size() - first);
+                uploadInstances(batch, first, count);
+                GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, indexBuffer.getSize(), indexBuffer.getType(), 0,
+                        count);
+            }
+        }
+
+        // Unbind quad
+        indexBuffer.unbind();
+        vao.disableAttributes();
+        vao.unbind();
+
+        // Stop shader
+        shader.stop();
+    }
+
+    /**
+     * Filling the transformation matrices of a chunk of entities into the
+     * instance buffer
+     *
+     * @param batch Entities to upload
+     * @param first First entity of the chunk
+     * @param count Count of entities in the chunk
+     */
+    private void uploadInstances(List<Entity> batch, int first, int count) {
+        instanceData.clear();
+        for (int i = first; i < first + count; i++)
+            instanceData.put(batch.get(i).getTransform().getTransMatArr());
+        instanceData.flip();
+
+        // Orphan old storage and upload new instance data
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, MAX_INSTANCES * INSTANCE_SIZE * 4, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instanceData);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+}
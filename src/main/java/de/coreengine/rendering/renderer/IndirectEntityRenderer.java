@@ -0,0 +1,510 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.renderer;
+
+import de.coreengine.rendering.HiZBuffer;
+import de.coreengine.rendering.model.Material;
+import de.coreengine.rendering.model.Mesh;
+import de.coreengine.rendering.model.Transformation;
+import de.coreengine.rendering.programs.EntityCullShader;
+import de.coreengine.rendering.programs.EntityShader;
+import de.coreengine.rendering.programs.IndirectEntityShader;
+import de.coreengine.rendering.programs.IndirectShadowMapShader;
+import de.coreengine.rendering.programs.ShaderVariants;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.rendering.renderable.Entity;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.gl.MeshPool;
+import de.coreengine.util.gl.StorageBuffer;
+import de.coreengine.util.gl.VertexArrayObject;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL42;
+import org.lwjgl.opengl.GL43;
+
+import javax.vecmath.Matrix4f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Renderer that renders all pooled entities with one multi draw indirect call
+ * per pool page and texture set. Transformations and materials are streamed
+ * into shader storage buffers once per frame. Every pass culls the instances
+ * on the gpu with a compute shader, that writes the instance counts of the
+ * draw commands, so there is no cpu round trip between culling and drawing.
+ * The main pass also culls against the depth pyramid of the last frame.
+ *
+ * @author Darius Dinger
+ */
+public class IndirectEntityRenderer {
+    private static final boolean GPU_CULLING = Configuration.getValuei("MESH_POOL_GPU_CULLING") != 0;
+
+    // Ints of one draw elements indirect command: count, instance count, first
+    // index, base vertex, base instance
+    private static final int COMMAND_SIZE = 5;
+
+    // Floats of one material: diffuse color, glow color, parameters (vec4 each)
+    private static final int MATERIAL_SIZE = 12;
+
+    // Shaders of the color, the shadow and the culling pass
+    private final ShaderVariants<IndirectEntityShader> shaders = new ShaderVariants<>(IndirectEntityShader::new);
+    private final IndirectShadowMapShader shadowShader = new IndirectShadowMapShader();
+    private final ShaderVariants<EntityCullShader> cullShaders = new ShaderVariants<>(EntityCullShader::new);
+
+    // Gpu buffers of the frame
+    private final StorageBuffer commandBuffer = new StorageBuffer(), drawDataBuffer = new StorageBuffer(),
+            transformBuffer = new StorageBuffer(), materialBuffer = new StorageBuffer(),
+            instanceBuffer = new StorageBuffer(), sphereBuffer = new StorageBuffer();
+
+    // Cpu side data of the frame, grows when needed
+    private IntBuffer commands = BufferUtils.createIntBuffer(COMMAND_SIZE * 256);
+    private IntBuffer drawData = BufferUtils.createIntBuffer(2 * 1024);
+    private IntBuffer instances = BufferUtils.createIntBuffer(4 * 1024);
+    private FloatBuffer spheres = BufferUtils.createFloatBuffer(4 * 1024);
+    private FloatBuffer transforms = BufferUtils.createFloatBuffer(16 * 1024);
+    private FloatBuffer materials = BufferUtils.createFloatBuffer(MATERIAL_SIZE * 64);
+
+    // Materials of the frame and their index in the material buffer
+    private final IdentityHashMap<Material, Integer> materialIndices = new IdentityHashMap<>();
+
+    // Meshes of the frame grouped by pool page and texture set
+    private final HashMap<Batch, Batch> batches = new HashMap<>();
+    private final List<Batch> batchOrder = new ArrayList<>();
+    private final Batch probe = new Batch();
+
+    // Count of draw commands and instances of the frame
+    private int commandCount = 0, instanceCount = 0;
+
+    // Count of pool pages, the draw data buffer is already attached to
+    private int attachedPages = 0;
+
+    /**
+     * Checking, if a mesh can be rendered by this renderer. Only pooled meshes,
+     * whose material needs no displacement, are rendered indirect.
+     *
+     * @param mesh Mesh to check
+     * @return Can the mesh be rendered indirect
+     */
+    static boolean isIndirect(Mesh mesh) {
+        return mesh.getPoolAllocation() != null && EntityShader.getFeatures(mesh.getMaterial(), null) == 0;
+    }
+
+    /**
+     * Creating the shader variants of the draw and cull passes, before any
+     * variant is used. So all programs are compiled together.
+     *
+     * @param clipped   Also create the variants with clip plane
+     * @param occlusion Also create the cull variant with occlusion culling
+     */
+    void createShaders(boolean clipped, boolean occlusion) {
+        shaders.get(0);
+        cullShaders.get(0);
+        if (clipped)
+            shaders.get(IndirectEntityShader.CLIP_PLANE);
+        if (occlusion)
+            cullShaders.get(EntityCullShader.OCCLUSION);
+    }
+
+    /**
+     * Renders all indirect entities of the frame into the bound framebuffer.
+     * Entities, that rotate with the camera are skipped and have to be rendered
+     * by the {@link EntityRenderer}.
+     *
+     * @param cam       Camera to render from
+     * @param clipPlane Clip plane of the entities or null, if nothing is clipped
+     * @param occlusion Depth pyramid to cull against or null
+     */
+    void render(Camera cam, Vector4f clipPlane, HiZBuffer occlusion) {
+        if (commandCount == 0)
+            return;
+
+        cull(cam.getViewProjectionMatrix(), clipPlane, occlusion, cam.getPosition());
+
+        IndirectEntityShader shader = shaders.get(clipPlane != null ? IndirectEntityShader.CLIP_PLANE : 0);
+        shader.start();
+        shader.setCamera(cam);
+        if (clipPlane != null)
+            shader.setClipPlane(clipPlane.x, clipPlane.y, clipPlane.z, clipPlane.w);
+        transformBuffer.bindStorage(IndirectEntityShader.TRANSFORMS_BINDING);
+        materialBuffer.bindStorage(IndirectEntityShader.MATERIALS_BINDING);
+        commandBuffer.bind(GL40.GL_DRAW_INDIRECT_BUFFER);
+
+        // Batches are sorted by page, so every page is bound once
+        int boundPage = -1;
+        for (Batch batch : batchOrder) {
+            if (batch.page != boundPage) {
+                if (boundPage != -1)
+                    unbindPage(boundPage);
+                bindPage(batch.page);
+                boundPage = batch.page;
+            }
+
+            shader.prepareTextures(batch.meshes.get(0).getMaterial());
+            draw(batch.firstCommand, batch.commandCount);
+        }
+        unbindPage(boundPage);
+
+        commandBuffer.unbind(GL40.GL_DRAW_INDIRECT_BUFFER);
+        shader.stop();
+    }
+
+    /**
+     * Renders the depth of all indirect entities of the frame into the bound
+     * shadow map. Textures are not needed, so all commands of a page are drawn
+     * with one call.
+     *
+     * @param vpMat View projection matrix of the shadow light
+     */
+    void renderShadow(Matrix4f vpMat) {
+        if (commandCount == 0)
+            return;
+
+        cull(vpMat, null, null, null);
+
+        shadowShader.start();
+        shadowShader.setVPMat(vpMat);
+        transformBuffer.bindStorage(IndirectEntityShader.TRANSFORMS_BINDING);
+        commandBuffer.bind(GL40.GL_DRAW_INDIRECT_BUFFER);
+
+        // Commands of a page are contiguous, because batches are sorted by page
+        for (int i = 0; i < batchOrder.size();) {
+            Batch first = batchOrder.get(i);
+            int count = 0;
+            for (; i < batchOrder.size() && batchOrder.get(i).page == first.page; i++)
+                count += batchOrder.get(i).commandCount;
+
+            bindPage(first.page);
+            draw(first.firstCommand, count);
+            unbindPage(first.page);
+        }
+
+        commandBuffer.unbind(GL40.GL_DRAW_INDIRECT_BUFFER);
+        shadowShader.stop();
+    }
+
+    /**
+     * Drawing a range of the indirect commands from the bound page
+     *
+     * @param firstCommand First command to draw
+     * @param count        Count of commands to draw
+     */
+    private void draw(int firstCommand, int count) {
+        GL43.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT,
+                (long) firstCommand * COMMAND_SIZE * 4, count, 0);
+    }
+
+    /**
+     * Culling the instances of the frame against the frustum of a pass. Resets
+     * the instance counts of the commands and lets the compute shader count
+     * and compact the visible instances. Without gpu culling the commands of
+     * the frame already contain all instances.
+     *
+     * @param vp        View projection matrix of the pass
+     * @param clipPlane Clip plane of the pass or null, if nothing is clipped
+     * @param occlusion Depth pyramid to cull against or null
+     * @param camPos    Camera position of the pass, only needed for occlusion
+     */
+    private void cull(Matrix4f vp, Vector4f clipPlane, HiZBuffer occlusion, Vector3f camPos) {
+        if (!GPU_CULLING)
+            return;
+
+        commandBuffer.upload(commands);
+        drawDataBuffer.allocate((long) instanceCount * 2 * 4);
+
+        // Occlusion variant only, if the pyramid is captured near the camera
+        boolean occlusionCulling = occlusion != null && occlusion.isUsable(camPos);
+        EntityCullShader cullShader = cullShaders.get(occlusionCulling ? EntityCullShader.OCCLUSION : 0);
+        cullShader.start();
+        cullShader.setFrustum(vp, clipPlane);
+        if (occlusionCulling)
+            cullShader.setOcclusion(occlusion, camPos);
+        cullShader.setInstanceCount(instanceCount);
+        instanceBuffer.bindStorage(EntityCullShader.INSTANCES_BINDING);
+        sphereBuffer.bindStorage(EntityCullShader.SPHERES_BINDING);
+        commandBuffer.bindStorage(EntityCullShader.COMMANDS_BINDING);
+        drawDataBuffer.bindStorage(EntityCullShader.VISIBLE_BINDING);
+
+        int groups = (instanceCount + EntityCullShader.WORK_GROUP_SIZE - 1) / EntityCullShader.WORK_GROUP_SIZE;
+        GL43.glDispatchCompute(groups, 1, 1);
+        cullShader.stop();
+
+        // Make commands and draw data visible to the indirect draws
+        GL42.glMemoryBarrier(GL42.GL_COMMAND_BARRIER_BIT | GL42.GL_VERTEX_ATTRIB_ARRAY_BARRIER_BIT);
+    }
+
+    /**
+     * Grouping the meshes into batches and filling and uploading the commands,
+     * instances, transformations and materials of the frame. Has to be called
+     * once per frame before the first pass.
+     *
+     * @param entities Entity map of the frame
+     */
+    void prepare(HashMap<Mesh, List<Entity>> entities) {
+        batches.clear();
+        batchOrder.clear();
+        materialIndices.clear();
+        commands.clear();
+        drawData.clear();
+        instances.clear();
+        spheres.clear();
+        transforms.clear();
+        materials.clear();
+        commandCount = 0;
+        instanceCount = 0;
+
+        // Group meshes by page and texture set
+        for (Mesh mesh : entities.keySet()) {
+            if (!isIndirect(mesh))
+                continue;
+
+            probe.set(mesh.getPoolAllocation().getPage(), mesh.getMaterial());
+            Batch batch = batches.get(probe);
+            if (batch == null) {
+                batch = new Batch();
+                batch.set(probe.page, mesh.getMaterial());
+                batches.put(batch, batch);
+                batchOrder.add(batch);
+            }
+            batch.meshes.add(mesh);
+        }
+        batchOrder.sort((a, b) -> Integer.compare(a.page, b.page));
+
+        // Fill one command per mesh, one instance per entity
+        for (Batch batch : batchOrder) {
+            batch.firstCommand = commandCount;
+
+            for (Mesh mesh : batch.meshes) {
+                int firstInstance = instanceCount;
+                int material = getMaterialIndex(mesh.getMaterial());
+
+                for (Entity entity : entities.get(mesh)) {
+                    if (entity.isRotateWithCam())
+                        continue;
+
+                    transforms = ensure(transforms, 16);
+                    transforms.put(entity.getTransform().getTransMatArr());
+                    addInstance(entity.getTransform(), mesh.getBoundingRadius(), material);
+                }
+
+                if (instanceCount == firstInstance)
+                    continue;
+
+                // Culling counts the instances of the command on the gpu
+                MeshPool.Allocation allocation = mesh.getPoolAllocation();
+                commands = ensure(commands, COMMAND_SIZE);
+                commands.put(allocation.getIndexCount()).put(GPU_CULLING ? 0 : instanceCount - firstInstance)
+                        .put(allocation.getFirstIndex()).put(allocation.getBaseVertex()).put(firstInstance);
+                commandCount++;
+            }
+
+            batch.commandCount = commandCount - batch.firstCommand;
+        }
+        batchOrder.removeIf(batch -> batch.commandCount == 0);
+        if (commandCount == 0)
+            return;
+
+        // Attach draw data to new pool pages
+        for (; attachedPages < MeshPool.getPageCount(); attachedPages++)
+            MeshPool.getVao(attachedPages).attachInstancedIntegerVertexBuffer(drawDataBuffer.getId(), 2,
+                    IndirectEntityShader.DRAW_DATA_ROW);
+
+        // Upload frame data, commands are uploaded per pass with gpu culling
+        commands.flip();
+        transforms.flip();
+        materials.flip();
+        transformBuffer.upload(transforms);
+        materialBuffer.upload(materials);
+        if (GPU_CULLING) {
+            instances.flip();
+            spheres.flip();
+            instanceBuffer.upload(instances);
+            sphereBuffer.upload(spheres);
+        } else {
+            drawData.flip();
+            commandBuffer.upload(commands);
+            drawDataBuffer.upload(drawData);
+        }
+    }
+
+    /**
+     * Adding the culling or draw data of an instance
+     *
+     * @param transform Transformation of the instance
+     * @param radius    Bounding radius of the mesh
+     * @param material  Index of the material of the instance
+     */
+    private void addInstance(Transformation transform, float radius, int material) {
+        if (GPU_CULLING) {
+            float scale = Math.max(Math.abs(transform.getScaleX()),
+                    Math.max(Math.abs(transform.getScaleY()), Math.abs(transform.getScaleZ())));
+            instances = ensure(instances, 4);
+            instances.put(commandCount).put(instanceCount).put(material).put(0);
+            spheres = ensure(spheres, 4);
+            spheres.put(transform.getPosX()).put(transform.getPosY()).put(transform.getPosZ()).put(radius * scale);
+        } else {
+            drawData = ensure(drawData, 2);
+            drawData.put(instanceCount).put(material);
+        }
+        instanceCount++;
+    }
+
+    /**
+     * Getting the index of a material in the material buffer and adding it, if
+     * its the first use in this frame
+     *
+     * @param mat Material to get index of
+     * @return Index of the material
+     */
+    private int getMaterialIndex(Material mat) {
+        Integer index = materialIndices.get(mat);
+        if (index != null)
+            return index;
+
+        index = materialIndices.size();
+        materialIndices.put(mat, index);
+
+        materials = ensure(materials, MATERIAL_SIZE);
+        materials.put(mat.diffuseColor.getRed()).put(mat.diffuseColor.getGreen()).put(mat.diffuseColor.getBlue())
+                .put(1.0f);
+        materials.put(mat.glowColor.getRed()).put(mat.glowColor.getGreen()).put(mat.glowColor.getBlue()).put(1.0f);
+        materials.put(mat.tiling).put(mat.shininess).put(mat.shineDamping).put(0.0f);
+        return index;
+    }
+
+    /**
+     * Binding vao and index buffer of a pool page
+     *
+     * @param page Index of the page
+     */
+    private void bindPage(int page) {
+        VertexArrayObject vao = MeshPool.getVao(page);
+        vao.bind();
+        vao.enableAttributes();
+        MeshPool.getIndexBuffer(page).bind();
+    }
+
+    /**
+     * Unbinding vao and index buffer of a pool page
+     *
+     * @param page Index of the page
+     */
+    private void unbindPage(int page) {
+        VertexArrayObject vao = MeshPool.getVao(page);
+        MeshPool.getIndexBuffer(page).unbind();
+        vao.disableAttributes();
+        vao.unbind();
+    }
+
+    /**
+     * Growing a buffer, if it has not enough space for more values
+     *
+     * @param buffer Buffer to check
+     * @param count  Count of values to put
+     * @return Buffer with enough space (same or grown copy)
+     */
+    private static IntBuffer ensure(IntBuffer buffer, int count) {
+        if (buffer.remaining() >= count)
+            return buffer;
+
+        buffer.flip();
+        IntBuffer grown = BufferUtils.createIntBuffer(Math.max(buffer.capacity() * 2, buffer.limit() + count));
+        return grown.put(buffer);
+    }
+
+    /**
+     * Growing a buffer, if it has not enough space for more values
+     *
+     * @param buffer Buffer to check
+     * @param count  Count of values to put
+     * @return Buffer with enough space (same or grown copy)
+     */
+    private static FloatBuffer ensure(FloatBuffer buffer, int count) {
+        if (buffer.remaining() >= count)
+            return buffer;
+
+        buffer.flip();
+        FloatBuffer grown = BufferUtils.createFloatBuffer(Math.max(buffer.capacity() * 2, buffer.limit() + count));
+        return grown.put(buffer);
+    }
+
+    /**
+     * Meshes of one pool page, that share the same texture set and can be drawn
+     * with one multi draw call
+     */
+    private static class Batch {
+
+        // Pool page and texture handles of the material
+        private int page, diffuse, normal, specular, ao, glow;
+
+        // Meshes and commands of the batch
+        private final List<Mesh> meshes = new ArrayList<>();
+        private int firstCommand, commandCount;
+
+        /**
+         * Setting the key of the batch
+         *
+         * @param page Pool page of the meshes
+         * @param mat  Material to get texture set from
+         */
+        private void set(int page, Material mat) {
+            this.page = page;
+            diffuse = mat.getDiffuseMapHandle();
+            normal = mat.getNormalMapHandle();
+            specular = mat.getSpecularMapHandle();
+            ao = mat.getAmbientOcclusionMapHandle();
+            glow = mat.getGlowMapHandle();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Batch))
+                return false;
+            Batch b = (Batch) o;
+            return page == b.page && diffuse == b.diffuse && normal == b.normal && specular == b.specular
+                    && ao == b.ao && glow == b.glow;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = page;
+            hash = hash * 31 + diffuse;
+            hash = hash * 31 + normal;
+            hash = hash * 31 + specular;
+            hash = hash * 31 + ao;
+            return hash * 31 + glow;
+        }
+    }
+}
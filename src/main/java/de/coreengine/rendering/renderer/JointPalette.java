@@ -0,0 +1,172 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.renderer;
+
+import de.coreengine.animation.Joint;
+import de.coreengine.rendering.model.Mesh;
+import de.coreengine.rendering.renderable.AnimatedEntity;
+import de.coreengine.util.Logger;
+import de.coreengine.util.gl.TextureBuffer;
+import org.lwjgl.BufferUtils;
+
+import javax.vecmath.Matrix4f;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Class that collects the joint matrices of all animated entities of a frame
+ * into one buffer texture. So every skeleton size is supported and all skinned
+ * entities share one upload.
+ *
+ * @author Darius Dinger
+ */
+class JointPalette {
+
+    // Buffer texture that holds all palettes on the gpu
+    private final TextureBuffer buffer = new TextureBuffer();
+
+    // Cpu side palette data, grows if needed
+    private FloatBuffer data = BufferUtils.createFloatBuffer(64 * 16);
+
+    // Offset of the first joint matrix of every entity in the palette
+    private final IdentityHashMap<AnimatedEntity, Integer> offsets = new IdentityHashMap<>();
+
+    // Max count of joint matrices, the buffer texture can hold
+    private final int maxMatrices = TextureBuffer.getMaxTexels() / 4;
+
+    /**
+     * Collecting the joint matrices of all entities into the palette and
+     * uploading it to the gpu
+     *
+     * @param entities Animated entities of this frame
+     */
+    void build(HashMap<Mesh, List<AnimatedEntity>> entities) {
+        offsets.clear();
+        data.clear();
+
+        int matrixCount = 0;
+        for (List<AnimatedEntity> batch : entities.values()) {
+            for (AnimatedEntity entity : batch) {
+
+                // Entities with multiple meshes only need their palette once
+                if (offsets.containsKey(entity))
+                    continue;
+
+                int size = entity.getSkeleton().getSkeletonSize();
+                if (matrixCount + size > maxMatrices) {
+                    Logger.warn("Joint palette overflow", "The joint palettes of this frame exceed the max buffer "
+                            + "texture size! Remaining animated entities are not rendered.");
+                    upload(matrixCount);
+                    return;
+                }
+
+                ensureCapacity((matrixCount + size) * 16);
+                addJointMatrices(entity.getSkeleton(), matrixCount, size);
+                offsets.put(entity, matrixCount);
+                matrixCount += size;
+            }
+        }
+
+        upload(matrixCount);
+    }
+
+    /**
+     * Uploading the collected palette data
+     *
+     * @param matrixCount Count of matrices in the palette
+     */
+    private void upload(int matrixCount) {
+        data.position(matrixCount * 16);
+        data.flip();
+        if (data.remaining() > 0)
+            buffer.upload(data);
+    }
+
+    /**
+     * Growing the cpu side palette data, if its to small
+     *
+     * @param floats Needed size in floats
+     */
+    private void ensureCapacity(int floats) {
+        if (data.capacity() >= floats)
+            return;
+
+        FloatBuffer newData = BufferUtils.createFloatBuffer(Math.max(floats, data.capacity() * 2));
+        data.position(0);
+        newData.put(data);
+        newData.clear();
+        data = newData;
+    }
+
+    /**
+     * Adding this joints matrix and all children joint matrices into the palette
+     * at their specific position. Matrices are stored column major.
+     *
+     * @param joint  Joint to add matrices from
+     * @param offset Offset of the skeletons first matrix in the palette
+     * @param size   Count of matrices of the skeleton
+     */
+    private void addJointMatrices(Joint joint, int offset, int size) {
+
+        // Check if joint fits into the skeletons palette
+        if (joint.getIndex() >= 0 && joint.getIndex() < size) {
+
+            // Fill up matrix
+            Matrix4f mat = joint.getAnimatedTransform();
+            int pos = (offset + joint.getIndex()) * 16;
+            for (int c = 0; c < 4; c++) {
+                for (int r = 0; r < 4; r++) {
+                    data.put(pos + c * 4 + r, mat.getElement(r, c));
+                }
+            }
+        }
+
+        // Fill up children matrices
+        for (Joint child : joint.getChildren())
+            addJointMatrices(child, offset, size);
+    }
+
+    /**
+     * @param entity Entity to get palette offset for
+     * @return Offset of the entities first joint matrix or -1, if not in palette
+     */
+    int getOffset(AnimatedEntity entity) {
+        Integer offset = offsets.get(entity);
+        return offset == null ? -1 : offset;
+    }
+
+    /**
+     * @return Buffer texture, that contains the palettes
+     */
+    int getTexture() {
+        return buffer.getTexture();
+    }
+}
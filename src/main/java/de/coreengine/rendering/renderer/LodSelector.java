@@ -0,0 +1,104 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.renderer;
+
+import de.coreengine.rendering.model.Model;
+import de.coreengine.rendering.model.Transformation;
+import de.coreengine.rendering.renderable.Camera;
+import de.coreengine.util.Configuration;
+
+/**
+ * Class that selects the detail level of entities by the size of their model on
+ * the screen. A hysteresis around every switch size prevents entities from
+ * flickering between two levels, when they stay near the switch distance.
+ *
+ * @author Darius Dinger
+ */
+class LodSelector {
+
+    // Screen sizes (bounding sphere diameter / screen height), where the next
+    // lower detail level starts
+    private static final float[] SCREEN_SIZES = Configuration.getValuefa("LOD_SCREEN_SIZES");
+
+    // Relative band around every screen size, where the current level is kept
+    private static final float HYSTERESIS = Configuration.getValuef("LOD_HYSTERESIS");
+
+    /**
+     * Selecting the detail level of an entity
+     *
+     * @param model     Model of the entity
+     * @param transform Transformation of the entity
+     * @param camera    Camera the entity is rendered from
+     * @param current   Current detail level of the entity
+     * @return New detail level of the entity
+     */
+    static int select(Model model, Transformation transform, Camera camera, int current) {
+        int maxLevel = Math.min(model.getLodCount(), SCREEN_SIZES.length);
+        if (maxLevel == 0)
+            return 0;
+
+        float screenSize = getScreenSize(model, transform, camera);
+        int level = Math.max(0, Math.min(current, maxLevel));
+
+        // Switch to lower details, if the entity is clearly below the switch size
+        while (level < maxLevel && screenSize < SCREEN_SIZES[level] * (1.0f - HYSTERESIS))
+            level++;
+
+        // Switch to higher details, if the entity is clearly above the switch size
+        while (level > 0 && screenSize > SCREEN_SIZES[level - 1] * (1.0f + HYSTERESIS))
+            level--;
+
+        return level;
+    }
+
+    /**
+     * Calculating the projected size of the bounding sphere of a model, relative
+     * to the screen height
+     *
+     * @param model     Model to calculate size of
+     * @param transform Transformation of the model
+     * @param camera    Camera to project with
+     * @return Screen size of the model
+     */
+    private static float getScreenSize(Model model, Transformation transform, Camera camera) {
+        float scale = Math.max(Math.abs(transform.getScaleX()),
+                Math.max(Math.abs(transform.getScaleY()), Math.abs(transform.getScaleZ())));
+        float radius = model.getBoundingRadius() * scale;
+
+        float dx = transform.getPosX() - camera.getPosition().x;
+        float dy = transform.getPosY() - camera.getPosition().y;
+        float dz = transform.getPosZ() - camera.getPosition().z;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance <= radius)
+            return Float.MAX_VALUE;
+
+        float halfHeight = distance * (float) Math.tan(Math.toRadians(camera.getFov() / 2.0f));
+        return radius / halfHeight;
+    }
+}
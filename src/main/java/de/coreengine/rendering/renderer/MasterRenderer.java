@@ -32,13 +32,19 @@ import de.coreengine.framework.Keyboard;
 import de.coreengine.framework.Mouse;
 import de.coreengine.framework.Window;
 import de.coreengine.rendering.GBuffer;
+import de.coreengine.rendering.HiZBuffer;
 import de.coreengine.rendering.model.Color;
+import de.coreengine.rendering.model.Impostor;
 import de.coreengine.rendering.model.Mesh;
+import de.coreengine.rendering.model.Model;
 import de.coreengine.rendering.renderable.*;
 import de.coreengine.rendering.renderable.gui.GUIPane;
 import de.coreengine.rendering.renderable.light.*;
 import de.coreengine.rendering.renderable.terrain.Terrain;
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Lazy;
 import de.coreengine.util.Toolbox;
+import de.coreengine.util.gl.MeshPool;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL11;
@@ -60,6 +66,11 @@ import java.util.List;
 public class MasterRenderer {
     private static Vector4f CLIP_PLANE_RENDER_ALL = new Vector4f(0, 1, 0, 999999);
 
+    // Distance, where entities are rendered as impostor and should missing
+    // impostors be baked on first use
+    private static final float IMPOSTOR_DISTANCE = Configuration.getValuef("IMPOSTOR_DISTANCE");
+    private static final boolean IMPOSTOR_AUTO_BAKE = Configuration.getValuei("IMPOSTOR_AUTO_BAKE") != 0;
+
     // GBuffer to render into
     private static GBuffer GBUFFER;
     private static GBuffer OUTPUT_GBUFFER;
@@ -68,20 +79,32 @@ public class MasterRenderer {
     private static final Color PICKED_COLOR = new Color();
     private static final FloatBuffer PICK_DATA = BufferUtils.createFloatBuffer(4);
 
-    // All renderer instances
-    private static final TerrainRenderer TERRAIN_RENDERER = new TerrainRenderer();
+    // Renderer, that is always used
     private static final DeferredRenderer DEFFERED_RENDERER = new DeferredRenderer();
-    private static final GrasslandRenderer GRASSLAND_RENDERER = new GrasslandRenderer();
-    private static final WaterRenderer WATER_RENDERER = new WaterRenderer();
-    private static final GUIRenderer GUI_RENDERER = new GUIRenderer();
-    private static final SunMoonRenderer SUN_RENDERER = new SunMoonRenderer();
-    private static final LensFlareRenderer LENS_FLARE_RENDERER = new LensFlareRenderer();
-    private static final SkyboxRenderer SKYBOX_RENDERER = new SkyboxRenderer();
-    private static final EntityRenderer ENTITY_RENDERER = new EntityRenderer();
-    private static final AnimatedEntityRenderer ANIMATED_ENTITY_RENDERER = new AnimatedEntityRenderer();
-    private static final FontRenderer FONT_RENDERER = new FontRenderer();
-    private static final ParticleRenderer PARTICLE_RENDERER = new ParticleRenderer();
-    private static final ShadowMapRenderer SHADOW_MAP_RENDERER = new ShadowMapRenderer();
+
+    // All other renderer instances, created on first use so scenes don't
+    // compile shaders of features they never use
+    private static final Lazy<TerrainRenderer> TERRAIN_RENDERER = new Lazy<>(TerrainRenderer::new);
+    private static final Lazy<GrasslandRenderer> GRASSLAND_RENDERER = new Lazy<>(GrasslandRenderer::new);
+    private static final Lazy<WaterRenderer> WATER_RENDERER = new Lazy<>(WaterRenderer::new);
+    private static final Lazy<GUIRenderer> GUI_RENDERER = new Lazy<>(GUIRenderer::new);
+    private static final Lazy<SunMoonRenderer> SUN_RENDERER = new Lazy<>(SunMoonRenderer::new);
+    private static final Lazy<LensFlareRenderer> LENS_FLARE_RENDERER = new Lazy<>(LensFlareRenderer::new);
+    private static final Lazy<SkyboxRenderer> SKYBOX_RENDERER = new Lazy<>(SkyboxRenderer::new);
+    private static final Lazy<EntityRenderer> ENTITY_RENDERER = new Lazy<>(EntityRenderer::new);
+    private static final Lazy<IndirectEntityRenderer> INDIRECT_ENTITY_RENDERER = new Lazy<>(
+            IndirectEntityRenderer::new);
+    private static final Lazy<AnimatedEntityRenderer> ANIMATED_ENTITY_RENDERER = new Lazy<>(
+            AnimatedEntityRenderer::new);
+    private static final Lazy<BakedAnimatedEntityRenderer> BAKED_ANIMATED_ENTITY_RENDERER = new Lazy<>(
+            BakedAnimatedEntityRenderer::new);
+    private static final Lazy<ImpostorRenderer> IMPOSTOR_RENDERER = new Lazy<>(ImpostorRenderer::new);
+    private static final Lazy<FontRenderer> FONT_RENDERER = new Lazy<>(FontRenderer::new);
+    private static final Lazy<ParticleRenderer> PARTICLE_RENDERER = new Lazy<>(ParticleRenderer::new);
+    private static final Lazy<ShadowMapRenderer> SHADOW_MAP_RENDERER = new Lazy<>(ShadowMapRenderer::new);
+
+    // Depth pyramid of the last frame for occlusion culling
+    private static final Lazy<HiZBuffer> HIZ_BUFFER = new Lazy<>(HiZBuffer::new);
 
     // Singleton render stuff
     private static Camera camera = new Camera();
@@ -93,8 +116,11 @@ public class MasterRenderer {
 
     // Lists/maps that contains the stuff to render in the next frame
     private static final HashMap<Mesh, List<Entity>> ENTITIES = new HashMap<>();
+    private static final HashMap<Impostor, List<Entity>> IMPOSTORS = new HashMap<>();
+    private static final HashMap<Mesh, List<Entity>> IMPOSTOR_SHADOWS = new HashMap<>();
     private static final HashMap<Mesh, List<AnimatedEntity>> ANIMATED_ENTITIES = new HashMap<>();
-    private static final HashMap<String, List<Particle>> PARTICLES = new HashMap<>();
+    private static final HashMap<Mesh, List<AnimatedEntity>> BAKED_ANIMATED_ENTITIES = new HashMap<>();
+    private static final HashMap<Integer, List<Particle>> PARTICLES = new HashMap<>();
     private static final List<Terrain> TERRAINS = new LinkedList<>();
     private static final List<Water> WATERS = new LinkedList<>();
     private static final List<GUIPane> GUIS_2D = new LinkedList<>();
@@ -127,6 +153,11 @@ public class MasterRenderer {
      * (Re)creating the render gbuffers
      */
     private static void recreateGBuffers() {
+        if (GBUFFER != null)
+            GBUFFER.destroy();
+        if (OUTPUT_GBUFFER != null)
+            OUTPUT_GBUFFER.destroy();
+
         GBUFFER = new GBuffer();
         OUTPUT_GBUFFER = new GBuffer();
     }
@@ -144,6 +175,23 @@ public class MasterRenderer {
         if (moon != null)
             moon.addLights();
 
+        createRenderers();
+
+        // Bake requested impostors within the frame budget, before any pass
+        ImpostorBaker.update();
+
+        // Rebuild changed terrain texture packs, before any pass binds them
+        for (Terrain terrain : TERRAINS)
+            terrain.getConfig().getTexturePack().update();
+
+        // Upload joint palettes once for all passes
+        if (!ANIMATED_ENTITIES.isEmpty())
+            ANIMATED_ENTITY_RENDERER.get().prepare(ANIMATED_ENTITIES);
+
+        // Upload pooled entities once for all passes
+        if (MeshPool.isEnabled())
+            INDIRECT_ENTITY_RENDERER.get().prepare(ENTITIES);
+
         preRender();
 
         // DEBUG - ENABLE LINE RENDER MODE
@@ -165,6 +213,47 @@ public class MasterRenderer {
         getPickColor();
     }
 
+    /**
+     * Creating the renderers and shader variants of everything, that is rendered
+     * this frame, before any of them is used. Programs are compiled and linked
+     * without querying their status, so the driver can work on all new programs
+     * together, instead of blocking on each one when it is used first.
+     */
+    private static void createRenderers() {
+        boolean clipped = !WATERS.isEmpty();
+        if (!TERRAINS.isEmpty()) {
+            TERRAIN_RENDERER.get();
+            GRASSLAND_RENDERER.get();
+        }
+        if (!ENTITIES.isEmpty()) {
+            ENTITY_RENDERER.get().createShaders(ENTITIES.keySet(), clipped);
+            if (MeshPool.isEnabled())
+                INDIRECT_ENTITY_RENDERER.get().createShaders(clipped, HiZBuffer.isEnabled());
+        }
+        if (!IMPOSTORS.isEmpty())
+            IMPOSTOR_RENDERER.get();
+        if (!ANIMATED_ENTITIES.isEmpty())
+            ANIMATED_ENTITY_RENDERER.get().createShaders(clipped);
+        if (!BAKED_ANIMATED_ENTITIES.isEmpty())
+            BAKED_ANIMATED_ENTITY_RENDERER.get().createShaders(clipped);
+        if (clipped)
+            WATER_RENDERER.get();
+        if (!GUIS_2D.isEmpty() || !GUIS_3D.isEmpty()) {
+            GUI_RENDERER.get();
+            FONT_RENDERER.get();
+        }
+        if (!PARTICLES.isEmpty())
+            PARTICLE_RENDERER.get();
+        if (sun != null || moon != null)
+            SUN_RENDERER.get();
+        if (skybox != null)
+            SKYBOX_RENDERER.get();
+        if (lensFlare != null)
+            LENS_FLARE_RENDERER.get();
+        if (shadowLight != null)
+            SHADOW_MAP_RENDERER.get();
+    }
+
     /**
      * Prerender stuff like water reflections and refractions, shadow maps,
      * relfection cubemaps etc.
@@ -186,9 +275,7 @@ public class MasterRenderer {
 
             w.getReflectionFbo().bind(GL30.GL_COLOR_ATTACHMENT0);
             clear();
-            TERRAIN_RENDERER.render(TERRAINS, camera, w.getClipPlane());
-            ENTITY_RENDERER.render(ENTITIES, camera, w.getClipPlane());
-            ANIMATED_ENTITY_RENDERER.render(ANIMATED_ENTITIES, camera, w.getClipPlane());
+            renderScene(w.getClipPlane());
             w.getReflectionFbo().unbind();
 
             w.getClipPlane().y = (-1);
@@ -200,9 +287,7 @@ public class MasterRenderer {
 
             w.getRefractionFbo().bind(GL30.GL_COLOR_ATTACHMENT0);
             clear();
-            TERRAIN_RENDERER.render(TERRAINS, camera, w.getClipPlane());
-            ENTITY_RENDERER.render(ENTITIES, camera, w.getClipPlane());
-            ANIMATED_ENTITY_RENDERER.render(ANIMATED_ENTITIES, camera, w.getClipPlane());
+            renderScene(w.getClipPlane());
             w.getRefractionFbo().unbind();
             w.getClipPlane().w = (clipDistance);
         });
@@ -210,10 +295,56 @@ public class MasterRenderer {
 
         // Prerender shadow map
         if (shadowLight != null) {
-            SHADOW_MAP_RENDERER.render(ENTITIES, GUIS_3D, shadowLight);
+            SHADOW_MAP_RENDERER.get().render(ENTITIES, IMPOSTOR_SHADOWS, GUIS_3D, shadowLight,
+                    MeshPool.isEnabled() ? INDIRECT_ENTITY_RENDERER.get() : null);
         }
     }
 
+    /**
+     * Rendering terrains and all kinds of entities of the scene into the bound
+     * framebuffer of a clipped pass (e.g. water reflection and refraction)
+     *
+     * @param clipPlane Clip plane of the scene
+     */
+    private static void renderScene(Vector4f clipPlane) {
+        renderTerrains(clipPlane, null);
+        renderEntities(clipPlane, null);
+    }
+
+    /**
+     * Rendering the terrains into the bound framebuffer
+     *
+     * @param clipPlane Clip plane of the terrains or null, if nothing is clipped
+     * @param occlusion Depth pyramid to cull terrain nodes against or null
+     */
+    private static void renderTerrains(Vector4f clipPlane, HiZBuffer occlusion) {
+        if (!TERRAINS.isEmpty())
+            TERRAIN_RENDERER.get().render(TERRAINS, camera, clipPlane != null ? clipPlane : CLIP_PLANE_RENDER_ALL,
+                    occlusion);
+    }
+
+    /**
+     * Rendering all kinds of entities into the bound framebuffer. Entities are
+     * rendered with shader variants without clip plane, if nothing is clipped.
+     * Pooled entities are culled on the gpu and rendered indirect.
+     *
+     * @param clipPlane Clip plane of the entities or null, if nothing is clipped
+     * @param occlusion Depth pyramid to cull pooled entities against or null
+     */
+    private static void renderEntities(Vector4f clipPlane, HiZBuffer occlusion) {
+        if (!ENTITIES.isEmpty()) {
+            if (MeshPool.isEnabled())
+                INDIRECT_ENTITY_RENDERER.get().render(camera, clipPlane, occlusion);
+            ENTITY_RENDERER.get().render(ENTITIES, camera, clipPlane, MeshPool.isEnabled());
+        }
+        if (!IMPOSTORS.isEmpty())
+            IMPOSTOR_RENDERER.get().render(IMPOSTORS, camera, clipPlane != null ? clipPlane : CLIP_PLANE_RENDER_ALL);
+        if (!ANIMATED_ENTITIES.isEmpty())
+            ANIMATED_ENTITY_RENDERER.get().render(ANIMATED_ENTITIES, camera, clipPlane);
+        if (!BAKED_ANIMATED_ENTITIES.isEmpty())
+            BAKED_ANIMATED_ENTITY_RENDERER.get().render(BAKED_ANIMATED_ENTITIES, camera, clipPlane);
+    }
+
     /**
      * Rendering all 3 dimensional elements into the gbuffer
      */
@@ -245,41 +376,54 @@ public class MasterRenderer {
 
         // Rendring skybox
         if (skybox != null)
-            SKYBOX_RENDERER.render(skybox, camera);
+            SKYBOX_RENDERER.get().render(skybox, camera);
+
+        // The main pass is culled against the depth of the last frame
+        HiZBuffer occlusion = HiZBuffer.isEnabled() ? HIZ_BUFFER.get() : null;
 
-        // Rendering terrains
-        TERRAIN_RENDERER.render(TERRAINS, camera, CLIP_PLANE_RENDER_ALL);
-        GRASSLAND_RENDERER.renderGrassland(TERRAINS, camera);
+        // Rendering terrains and their grassland
+        renderTerrains(null, occlusion);
+        if (!TERRAINS.isEmpty())
+            GRASSLAND_RENDERER.get().renderGrassland(TERRAINS, camera);
         TERRAINS.clear();
 
         // Rendering waters
-        WATER_RENDERER.render(WATERS, camera);
+        if (!WATERS.isEmpty())
+            WATER_RENDERER.get().render(WATERS, camera);
         WATERS.clear();
 
         // Rendering 3d guis
-        GUI_RENDERER.render(GUIS_3D, camera, true);
-        FONT_RENDERER.render(GUIS_3D, camera, true);
+        if (!GUIS_3D.isEmpty()) {
+            GUI_RENDERER.get().render(GUIS_3D, camera, true);
+            FONT_RENDERER.get().render(GUIS_3D, camera, true);
+        }
         GUIS_3D.clear();
 
-        // Rendering entities
-        ENTITY_RENDERER.render(ENTITIES, camera, CLIP_PLANE_RENDER_ALL);
+        // Rendering entities, impostors of distant entities and animated entities
+        renderEntities(null, occlusion);
         ENTITIES.clear();
-
-        // Rendering animated entities
-        ANIMATED_ENTITY_RENDERER.render(ANIMATED_ENTITIES, camera, CLIP_PLANE_RENDER_ALL);
+        IMPOSTORS.clear();
+        IMPOSTOR_SHADOWS.clear();
         ANIMATED_ENTITIES.clear();
+        BAKED_ANIMATED_ENTITIES.clear();
+
+        // Capture depth of the opaque scene for occlusion culling of the next
+        // frame
+        if (occlusion != null)
+            occlusion.capture(GBUFFER.getDepthAttachment(), camera);
 
         // Rendering particles
-        PARTICLE_RENDERER.render(PARTICLES, camera);
+        if (!PARTICLES.isEmpty())
+            PARTICLE_RENDERER.get().render(PARTICLES, camera);
         PARTICLES.clear();
 
         // Rendering sun
         if (sun != null)
-            SUN_RENDERER.render(sun, camera);
+            SUN_RENDERER.get().render(sun, camera);
 
         // Rendering moon
         if (moon != null)
-            SUN_RENDERER.render(moon, camera);
+            SUN_RENDERER.get().render(moon, camera);
 
         // Stop lighted section and restore rendermode
         GBUFFER.unbind();
@@ -330,11 +474,13 @@ public class MasterRenderer {
         OUTPUT_GBUFFER.bind(GL30.GL_COLOR_ATTACHMENT0);
 
         if (lensFlare != null)
-            LENS_FLARE_RENDERER.render(lensFlare);
+            LENS_FLARE_RENDERER.get().render(lensFlare);
 
         // Rendering 2d guis and texts
-        GUI_RENDERER.render(GUIS_2D, camera, false);
-        FONT_RENDERER.render(GUIS_2D, camera, false);
+        if (!GUIS_2D.isEmpty()) {
+            GUI_RENDERER.get().render(GUIS_2D, camera, false);
+            FONT_RENDERER.get().render(GUIS_2D, camera, false);
+        }
         GUIS_2D.clear();
 
         OUTPUT_GBUFFER.unbind();
@@ -496,30 +642,100 @@ public class MasterRenderer {
 
     /**
      * Adding a new entity to the entity renderlist. So it will be rendered in the
-     * next frame.
+     * next frame. Entities beyond the impostor distance are rendered as impostor
+     * of their model, if available, else its bake is queued and they are rendered
+     * at full detail meanwhile. Their shadows are still rendered from the
+     * lowest detail level of their model. Entities, whose model is still loading,
+     * are skipped.
      * 
      * @param entity Entity to add
      */
     public static void renderEntity(Entity entity) {
-        for (Mesh mesh : AssetDatabase.getModel(entity.getModel()).getMeshes()) {
+        Model model = AssetDatabase.getModel(entity.getModelHandle());
+        if (model == null)
+            return;
+
+        // Render distant entities as impostor
+        if (!entity.isRotateWithCam() && isBeyondImpostorDistance(entity)) {
+            if (model.getImpostor() == null && IMPOSTOR_AUTO_BAKE)
+                ImpostorBaker.request(model);
+
+            if (model.getImpostor() != null) {
+                IMPOSTORS.computeIfAbsent(model.getImpostor(), k -> new ArrayList<>()).add(entity);
+                if (shadowLight != null) {
+                    for (Mesh mesh : model.getMeshes())
+                        IMPOSTOR_SHADOWS.computeIfAbsent(mesh.getLod(mesh.getLodCount()), k -> new ArrayList<>())
+                                .add(entity);
+                }
+                return;
+            }
+        }
 
-            // Get batch for this mesh, if null -> create, then add entity to batch
-            List<Entity> batch = ENTITIES.computeIfAbsent(mesh, k -> new ArrayList<>());
+        entity.setLod(LodSelector.select(model, entity.getTransform(), camera, entity.getLod()));
+        for (Mesh mesh : model.getMeshes()) {
+
+            // Get batch for the lod of this mesh, if null -> create, then add entity
+            // to batch
+            List<Entity> batch = ENTITIES.computeIfAbsent(mesh.getLod(entity.getLod()), k -> new ArrayList<>());
             batch.add(entity);
         }
     }
 
+    /**
+     * Checking, if an entity is further away from the camera than the impostor
+     * distance
+     *
+     * @param entity Entity to check
+     * @return Is entity beyond the impostor distance
+     */
+    private static boolean isBeyondImpostorDistance(Entity entity) {
+        float dx = entity.getTransform().getPosX() - camera.getPosition().x;
+        float dy = entity.getTransform().getPosY() - camera.getPosition().y;
+        float dz = entity.getTransform().getPosZ() - camera.getPosition().z;
+        return dx * dx + dy * dy + dz * dz > IMPOSTOR_DISTANCE * IMPOSTOR_DISTANCE;
+    }
+
     /**
      * Adding a new animated entity to the animated entity renderlist. So it will be
-     * rendered in the next frame.
+     * rendered in the next frame. Entities, whose model is still loading, are
+     * skipped.
      *
      * @param entity Entity to add
      */
     public static void renderAnimatedEntity(AnimatedEntity entity) {
-        for (Mesh mesh : AssetDatabase.getAnimatedModel(entity.getModel()).getMeshes()) {
+        Model model = AssetDatabase.getAnimatedModel(entity.getModelHandle());
+        if (model == null)
+            return;
+        entity.setLod(LodSelector.select(model, entity.getTransform(), camera, entity.getLod()));
+        for (Mesh mesh : model.getMeshes()) {
+
+            // Get batch for the lod of this mesh, if null -> create, then add entity
+            // to batch
+            List<AnimatedEntity> batch = ANIMATED_ENTITIES.computeIfAbsent(mesh.getLod(entity.getLod()),
+                    k -> new ArrayList<>());
+            batch.add(entity);
+        }
+    }
 
-            // Get batch for this mesh, if null -> create, then add entity to batch
-            List<AnimatedEntity> batch = ANIMATED_ENTITIES.computeIfAbsent(mesh, k -> new ArrayList<>());
+    /**
+     * Adding a new animated entity to the baked animated entity renderlist. So it
+     * will be rendered instanced with its baked animation in the next frame. The
+     * skeleton of the entity is ignored. Entities, whose model is still loading,
+     * are skipped.
+     *
+     * @param entity Entity to add
+     */
+    public static void renderBakedAnimatedEntity(AnimatedEntity entity) {
+        Model model = AssetDatabase.getAnimatedModel(entity.getModelHandle());
+        if (model == null)
+            return;
+        entity.setLod(LodSelector.select(model, entity.getTransform(), camera, entity.getLod()));
+        for (Mesh mesh : model.getMeshes()) {
+
+            // Get batch for the lod of this mesh, if null -> create, then add entity
+            // to batch
+            List<AnimatedEntity> batch = BAKED_ANIMATED_ENTITIES.computeIfAbsent(mesh.getLod(entity.getLod()),
+                    k -> new ArrayList<>());
             batch.add(entity);
         }
     }
@@ -589,10 +805,10 @@ public class MasterRenderer {
      * @param particle Particle to add
      */
     public static void renderParticle(Particle particle) {
-        if (!PARTICLES.containsKey(particle.getTexture())) {
-            PARTICLES.put(particle.getTexture(), new ArrayList<>());
+        if (!PARTICLES.containsKey(particle.getTextureHandle())) {
+            PARTICLES.put(particle.getTextureHandle(), new ArrayList<>());
         }
-        PARTICLES.get(particle.getTexture()).add(particle);
+        PARTICLES.get(particle.getTextureHandle()).add(particle);
     }
 
     /**
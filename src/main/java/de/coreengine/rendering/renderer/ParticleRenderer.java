@@ -49,10 +49,10 @@ public class ParticleRenderer {
     /**
      * Rendering a batch of particles sortet by texture
      *
-     * @param particles Particle batches, sortet by textures
+     * @param particles Particle batches, sortet by texture handles
      * @param cam       Camera to render particles from
      */
-    public void render(HashMap<String, List<Particle>> particles, Camera cam) {
+    public void render(HashMap<Integer, List<Particle>> particles, Camera cam) {
 
         Mesh model = Quad2D.getInstance();
 
@@ -63,7 +63,7 @@ public class ParticleRenderer {
         model.getVao().enableAttributes();
 
         // Iterate particle textures
-        for (String tex : particles.keySet()) {
+        for (int tex : particles.keySet()) {
             int texId = AssetDatabase.getTexture(tex);
             shader.prepareParticles(texId);
 
@@ -61,6 +61,11 @@ public class PostProcesser {
      * (Re)creating the pp fbos
      */
     private static void recreateFbos() {
+        if (input != null)
+            input.destroy();
+        if (output != null)
+            output.destroy();
+
         input = new FrameBufferObject(Window.getWidth(), Window.getHeight(), false);
         output = new FrameBufferObject(Window.getWidth(), Window.getHeight(), false);
     }
@@ -48,10 +48,15 @@ public class ShadowMapRenderer {
      * light. Only the depth information will be rendered!
      *
      * @param entities    Entities to render
+     * @param impostors   Entities, that are rendered as impostor in the main
+     *                    pass, batched by their lowest detail level
      * @param guis        3 Dimensional GUIs to render
      * @param shadowLight Shadow Light to render from
+     * @param indirect    Renderer of the pooled entities or null, if all
+     *                    entities are rendered here
      */
-    void render(HashMap<Mesh, List<Entity>> entities, List<GUIPane> guis, ShadowLight shadowLight) {
+    void render(HashMap<Mesh, List<Entity>> entities, HashMap<Mesh, List<Entity>> impostors, List<GUIPane> guis,
+            ShadowLight shadowLight, IndirectEntityRenderer indirect) {
         GL11.glCullFace(GL11.GL_FRONT);
         shadowLight.getShadowMap().bind(GL30.GL_COLOR_ATTACHMENT0);
         GL11.glClearColor(0, 0, 0, 1);
@@ -60,8 +65,34 @@ public class ShadowMapRenderer {
         shader.start();
         shader.setVPMat(shadowLight.getVpMat());
 
+        renderEntities(entities, indirect);
+        renderEntities(impostors, null);
+
+        shader.stop();
+
+        // Render pooled entities culled against the shadow frustum
+        if (indirect != null)
+            indirect.renderShadow(shadowLight.getVpMat());
+
+        shadowLight.getShadowMap().unbind();
+        GL11.glCullFace(GL11.GL_BACK);
+    }
+
+    /**
+     * Rendering batches of entities with the started shader
+     *
+     * @param entities Entities to render, batched by mesh
+     * @param indirect Renderer of the pooled entities or null, if all entities
+     *                 are rendered here
+     */
+    private void renderEntities(HashMap<Mesh, List<Entity>> entities, IndirectEntityRenderer indirect) {
         for (Mesh mesh : entities.keySet()) {
 
+            // Indirect meshes only leave the entities, that rotate with the cam
+            boolean skip = indirect != null && IndirectEntityRenderer.isIndirect(mesh);
+            if (skip && entities.get(mesh).stream().noneMatch(Entity::isRotateWithCam))
+                continue;
+
             // Bind mesh data
             mesh.getVao().bind();
             mesh.getVao().enableAttributes();
@@ -69,12 +100,15 @@ public class ShadowMapRenderer {
 
             // Iterate instanced entities
             for (Entity entity : entities.get(mesh)) {
+                if (skip && !entity.isRotateWithCam())
+                    continue;
 
                 // Prepare entity
                 shader.prepareEntity(entity);
 
                 // Render entity
-                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(), GL11.GL_UNSIGNED_INT, 0);
+                GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndexBuffer().getSize(), mesh.getIndexBuffer().getType(),
+                        0);
             }
 
             // Unbind mesh data
@@ -82,9 +116,5 @@ public class ShadowMapRenderer {
             mesh.getVao().disableAttributes();
             mesh.getVao().unbind();
         }
-
-        shader.stop();
-        shadowLight.getShadowMap().unbind();
-        GL11.glCullFace(GL11.GL_BACK);
     }
 }
@@ -27,6 +27,7 @@
  */
 package de.coreengine.rendering.renderer;
 
+import de.coreengine.rendering.HiZBuffer;
 import de.coreengine.rendering.model.singletons.TerrainMesh;
 import de.coreengine.rendering.programs.TerrainShader;
 import de.coreengine.rendering.renderable.Camera;
@@ -54,8 +55,9 @@ public class TerrainRenderer {
      * @param terrains  Terrains to render
      * @param camera    Camera to render from
      * @param clipPlane Clipplane to clip terrain
+     * @param occlusion Depth pyramid to cull terrain nodes against or null
      */
-    void render(List<Terrain> terrains, Camera camera, Vector4f clipPlane) {
+    void render(List<Terrain> terrains, Camera camera, Vector4f clipPlane, HiZBuffer occlusion) {
 
         TerrainMesh mesh = TerrainMesh.getInstance();
 
@@ -76,7 +78,7 @@ public class TerrainRenderer {
             shader.setTerrainConfig(terrain.getConfig());
 
             // Render terrain nodes
-            renderNode(terrain.getTerrainQuadtree(), mesh);
+            renderNode(terrain.getTerrainQuadtree(), mesh, terrain, camera, occlusion);
         });
 
         // Stop shader and unbind terrain mesh data and index buffer
@@ -88,10 +90,18 @@ public class TerrainRenderer {
     /**
      * Rendering a node from the terrain quad tree
      * 
-     * @param node Node to render
-     * @param mesh Mesh1 to use for render
+     * @param node      Node to render
+     * @param mesh      Mesh1 to use for render
+     * @param terrain   Terrain of the node
+     * @param camera    Camera to render from
+     * @param occlusion Depth pyramid to cull the node against or null
      */
-    private void renderNode(TerrainNode node, TerrainMesh mesh) {
+    private void renderNode(TerrainNode node, TerrainMesh mesh, Terrain terrain, Camera camera,
+            HiZBuffer occlusion) {
+
+        // Skip node and all its childs, if it was hidden
+        if (occlusion != null && isOccluded(node, terrain, camera, occlusion))
+            return;
 
         // Render node if its a leaf
         if (node.isLeaf()) {
@@ -125,10 +135,31 @@ public class TerrainRenderer {
 
         // Render all childs of this node, if node isnt a leaf
         for (TerrainNode child : node.getChilds()) {
-            renderNode(child, mesh);
+            renderNode(child, mesh, terrain, camera, occlusion);
         }
     }
 
+    /**
+     * Testing the bounding box of a terrain node against the depth pyramid. The
+     * box covers the full height range of the terrain.
+     *
+     * @param node      Node to test
+     * @param terrain   Terrain of the node
+     * @param camera    Camera to render from
+     * @param occlusion Depth pyramid to test against
+     * @return True, if the node was hidden for sure
+     */
+    private static boolean isOccluded(TerrainNode node, Terrain terrain, Camera camera, HiZBuffer occlusion) {
+        float scale = terrain.getScale();
+        float height = terrain.getConfig().getAmplitude() * scale;
+        float minX = terrain.getX() + node.getPosition().x * scale;
+        float minZ = terrain.getZ() + node.getPosition().y * scale;
+        float size = node.getSize() * scale;
+
+        return occlusion.isOccluded(minX, terrain.getY() + Math.min(0.0f, height), minZ, minX + size,
+                terrain.getY() + Math.max(0.0f, height), minZ + size, camera.getPosition());
+    }
+
     /**
      * Checks wich index buffer must be used to get the right morphing
      * 
@@ -45,7 +45,7 @@ public class AudioSource {
      */
     public AudioSource() {
         id = AL10.alGenSources();
-        MemoryDumper.addAudioSource(id);
+        MemoryDumper.add(MemoryDumper.Type.AUDIO_SOURCE, id, 0, this);
     }
 
     /**
@@ -27,6 +27,11 @@
  */
 package de.coreengine.system;
 
+import de.coreengine.animation.AnimationLod;
+import de.coreengine.asset.AssetPack;
+import de.coreengine.asset.AsyncAssetLoader;
+import de.coreengine.asset.LoaderContext;
+import de.coreengine.asset.TextureResidency;
 import de.coreengine.framework.GLFW;
 import de.coreengine.framework.Keyboard;
 import de.coreengine.framework.Mouse;
@@ -39,6 +44,7 @@ import de.coreengine.util.Configuration;
 import de.coreengine.util.FrameTimer;
 import de.coreengine.util.Logger;
 import de.coreengine.util.gl.MemoryDumper;
+import de.coreengine.util.gl.UploadScheduler;
 import org.lwjgl.opengl.GL;
 
 import javax.swing.*;
@@ -72,12 +78,16 @@ public class Game {
      */
     public static void init(int windowWidth, int windowHeight, String windowTitle, boolean startFullscreen) {
 
+        // Mount asset packs, before anything is loaded
+        AssetPack.init();
+
         // Init glfw and create window
         GLFW.init();
         Window.create(windowWidth, windowHeight, windowTitle, startFullscreen);
 
-        // Init GL
+        // Init GL and start loader thread, if the window has a loader context
         GL.createCapabilities();
+        LoaderContext.init();
 
         // Init AL
         AL.init();
@@ -160,6 +170,12 @@ public class Game {
     public static void tick() {
         Scene curScene = getCurrentScene();
 
+        // Upload assets, that were loaded asynchronous, stream pending data and
+        // keep textures in budget
+        AsyncAssetLoader.update();
+        UploadScheduler.update();
+        TextureResidency.update();
+
         // Tick current scene
         if (curScene != null) {
 
@@ -186,6 +202,7 @@ public class Game {
         Keyboard.update();
         Mouse.update();
         FrameTimer.update();
+        AnimationLod.update();
 
         Window.update();
     }
@@ -196,6 +213,7 @@ public class Game {
      * @param code Exit code (0 == Success, else Errror)
      */
     public static void exit(int code) {
+        LoaderContext.stop();
         MemoryDumper.dumpMemory();
         GLFW.deinit();
         AL.deinit();
@@ -29,6 +29,7 @@
 package de.coreengine.system.gameObjects;
 
 import de.coreengine.animation.Animation;
+import de.coreengine.animation.AnimationLod;
 import de.coreengine.animation.Animator;
 import de.coreengine.asset.AssetDatabase;
 import de.coreengine.rendering.model.AnimatedModel;
@@ -60,6 +61,13 @@ public class Animated extends GameObject {
     // Is the animation paused
     private boolean pause = true;
 
+    // Should the animation lod be used and the current lod level
+    private boolean lodEnabled = true;
+    private int lodLevel = AnimationLod.LOD_FULL;
+
+    // Stagger id to spread reduced updates over multiple frames
+    private final int staggerId = AnimationLod.nextStaggerId();
+
     /**
      * Play / resume the animation
      */
@@ -87,9 +95,19 @@ public class Animated extends GameObject {
      * Reposing the skeleton to the current animation pose
      */
     private void reposeSkeleton() {
-        if (currentAnimation == null)
+        reposeSkeleton(false);
+    }
+
+    /**
+     * Reposing the skeleton to the current animation pose
+     *
+     * @param skipLeafJoints Should the leaf joints keep their last pose
+     */
+    private void reposeSkeleton(boolean skipLeafJoints) {
+        Animation animation = getCurrentAnimation();
+        if (animation == null || animatedEntity.getSkeleton() == null)
             return;
-        Animator.applyAnimation(animatedEntity.getSkeleton(), getCurrentAnimation(), currentTime);
+        Animator.applyAnimation(animatedEntity.getSkeleton(), animation, currentTime, skipLeafJoints);
     }
 
     @Override
@@ -102,31 +120,54 @@ public class Animated extends GameObject {
             return;
         }
 
+        // Skip the update, while the model is not loaded
+        Animation curAnimation = getCurrentAnimation();
+        if (curAnimation == null) {
+            super.onUpdate();
+            return;
+        }
+
         // Increase animation time
         currentTime += FrameTimer.getTslf() * animationSpeed;
 
         // Is animation finished
-        Animation curAnimation = getCurrentAnimation();
+        boolean finished = false;
         if (currentTime >= curAnimation.getLength()) {
             if (loop)
                 currentTime %= curAnimation.getLength();
             else {
                 currentTime = curAnimation.getLength();
                 pause();
+                finished = true;
             }
         }
 
-        // Animate skeleton of the entity
-        reposeSkeleton();
+        // Animate skeleton of the entity, if its this instances turn at its lod level. The last pose of a
+        // finished animation is always fully evaluated, because it is kept after the animation stops
+        lodLevel = lodEnabled ? AnimationLod.getLevel(animatedEntity.getTransform(), MasterRenderer.getCamera())
+                : AnimationLod.LOD_FULL;
+        if (finished || !lodEnabled || AnimationLod.shouldUpdate(lodLevel, staggerId))
+            reposeSkeleton(!finished && AnimationLod.skipLeafJoints(lodLevel));
 
         super.onUpdate();
     }
 
     /**
-     * @return Current playing animation or null, if no animation selected
+     * @return Current playing animation or null, if no animation selected or the
+     *         model is not loaded
      */
     private Animation getCurrentAnimation() {
-        return AssetDatabase.getAnimatedModel(animatedEntity.getModel()).getAnimations().get(currentAnimation);
+        AnimatedModel model = getModel();
+        if (currentAnimation == null || model == null)
+            return null;
+        return model.getAnimations().get(currentAnimation);
+    }
+
+    /**
+     * @return Model of the animated entity or null, if not set or not loaded
+     */
+    private AnimatedModel getModel() {
+        return animatedEntity == null ? null : AssetDatabase.getAnimatedModel(animatedEntity.getModelHandle());
     }
 
     /**
@@ -139,13 +180,14 @@ public class Animated extends GameObject {
     }
 
     /**
-     * @return All available animations
+     * @return All available animations, empty while the model is loading
      */
     public Set<String> getAnimations() {
-        if (animatedEntity == null)
+        AnimatedModel model = getModel();
+        if (model == null)
             return new HashSet<>();
         else
-            return AssetDatabase.getAnimatedModel(animatedEntity.getModel()).getAnimations().keySet();
+            return model.getAnimations().keySet();
     }
 
     @Override
@@ -163,6 +205,23 @@ public class Animated extends GameObject {
         this.loop = loop;
     }
 
+    /**
+     * Enable or disable the distance based animation lod for this instance. If
+     * disabled, the skeleton is fully evaluated every frame.
+     *
+     * @param lodEnabled Should the animation lod be used
+     */
+    public void setLodEnabled(boolean lodEnabled) {
+        this.lodEnabled = lodEnabled;
+    }
+
+    /**
+     * @return Lod level, the instance was updated with in the last update
+     */
+    public int getLodLevel() {
+        return lodLevel;
+    }
+
     /**
      * Setting the current time of the animation
      *
@@ -186,14 +245,14 @@ public class Animated extends GameObject {
 
     /**
      * Setting the animation, that should be played. If the animation doesnt exist
-     * or the anmated entity isnt set, animation will not be setted and this method
-     * returns false. Pass null to unset animation
+     * or the anmated entity isnt set or its model is still loading, animation will
+     * not be setted and this method returns false. Pass null to unset animation
      *
      * @param animation Animation to play
      */
     public boolean setAnimation(String animation) {
-        AnimatedModel model = AssetDatabase.getAnimatedModel(animatedEntity.getModel());
-        if (animatedEntity != null && model.getAnimations().containsKey(animation)) {
+        AnimatedModel model = getModel();
+        if (model != null && model.getAnimations().containsKey(animation)) {
             this.currentAnimation = animation;
             stop();
             return true;
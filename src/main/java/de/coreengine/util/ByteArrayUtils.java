@@ -52,9 +52,10 @@ public class ByteArrayUtils {
         for (byte[] b : in)
             newSize += b.length;
         byte[] out = new byte[newSize];
-        for (byte[] ba : in)
-            for (byte b : ba)
-                out[counter++] = b;
+        for (byte[] ba : in) {
+            System.arraycopy(ba, 0, out, counter, ba.length);
+            counter += ba.length;
+        }
         return out;
     }
 
@@ -160,6 +161,21 @@ public class ByteArrayUtils {
         return toBytes(floats);
     }
 
+    /**
+     * Putting a matrix4f into a buffer, in the same format as
+     * {@link #toBytes(Matrix4f[])}
+     *
+     * @param out    Buffer to put matrix into
+     * @param matrix Matrix to put
+     */
+    public static void put(ByteBuffer out, Matrix4f matrix) {
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                out.putFloat(matrix.getElement(r, c));
+            }
+        }
+    }
+
     /**
      * Converting a byte array into a matrix4f array
      *
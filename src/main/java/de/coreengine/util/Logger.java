@@ -36,7 +36,7 @@ import java.util.Date;
 import java.util.List;
 
 /**
- * Class to manage logging
+ * Class to manage logging. Can be used from every thread
  *
  * @author Darius Dinger
  */
@@ -56,7 +56,7 @@ public class Logger {
      * @param header Error header
      * @param msg    Error message
      */
-    public static void err(String header, String msg) {
+    public static synchronized void err(String header, String msg) {
         LOG_CACHE.add("| " + getTimeStamp() + " | E | [" + header + "] " + msg);
 
         try {
@@ -72,7 +72,7 @@ public class Logger {
      * @param header Warning header
      * @param msg    Warning message
      */
-    public static void warn(String header, String msg) {
+    public static synchronized void warn(String header, String msg) {
         String log = "| " + getTimeStamp() + " | W | [" + header + "] " + msg;
         System.out.println(log);
         LOG_CACHE.add(log);
@@ -84,7 +84,7 @@ public class Logger {
      * @param header Info header
      * @param msg    Info message
      */
-    public static void info(String header, String msg) {
+    public static synchronized void info(String header, String msg) {
         String log = "| " + getTimeStamp() + " | I | [" + header + "] " + msg;
         System.out.println(log);
         LOG_CACHE.add(log);
@@ -102,7 +102,7 @@ public class Logger {
      * Saving current log into file relative to application.<br>
      * File format: log_dd-MM-yyyy HH:mm:ss.log
      */
-    public static void saveLog() {
+    public static synchronized void saveLog() {
         try {
             FileLoader.writeFile("log_" + getTimeStamp().replaceAll(":", "-").replaceAll(" ", "_") + ".log",
                     LOG_CACHE.toArray(new String[0]));
@@ -41,6 +41,8 @@ import com.bulletphysics.dynamics.constraintsolver.ConstraintSolver;
 import com.bulletphysics.dynamics.constraintsolver.SequentialImpulseConstraintSolver;
 import com.bulletphysics.linearmath.DefaultMotionState;
 import com.bulletphysics.util.ObjectArrayList;
+import de.coreengine.util.gl.MemoryDumper;
+import org.lwjgl.system.MemoryUtil;
 
 import javax.vecmath.Vector3f;
 import java.nio.ByteBuffer;
@@ -84,19 +86,20 @@ public class Physics {
      */
     public static BvhTriangleMeshShape createTriangleMeshShape(float[] vertices, int[][] indices) {
 
-        // Create index vertex array
+        // Create index vertex array, all index groups share the vertices
         TriangleIndexVertexArray tiva = new TriangleIndexVertexArray();
+        ByteBuffer vertexBase = allocate(vertices.length * 4);
+        vertexBase.asFloatBuffer().put(vertices);
 
         for (int[] i : indices) {
 
             IndexedMesh mesh = new IndexedMesh();
             mesh.numTriangles = i.length / 3;
-            mesh.triangleIndexBase = ByteBuffer.allocateDirect(i.length * 4).order(ByteOrder.nativeOrder());
+            mesh.triangleIndexBase = allocate(i.length * 4);
             mesh.triangleIndexBase.asIntBuffer().put(i);
             mesh.triangleIndexStride = 3 * 4;
             mesh.numVertices = vertices.length / 3;
-            mesh.vertexBase = ByteBuffer.allocateDirect(vertices.length * 4).order(ByteOrder.nativeOrder());
-            mesh.vertexBase.asFloatBuffer().put(vertices);
+            mesh.vertexBase = vertexBase;
             mesh.vertexStride = 3 * 4;
             tiva.addIndexedMesh(mesh);
         }
@@ -119,11 +122,11 @@ public class Physics {
 
         IndexedMesh mesh = new IndexedMesh();
         mesh.numTriangles = indices.length / 3;
-        mesh.triangleIndexBase = ByteBuffer.allocateDirect(indices.length * 4).order(ByteOrder.nativeOrder());
+        mesh.triangleIndexBase = allocate(indices.length * 4);
         mesh.triangleIndexBase.asIntBuffer().put(indices);
         mesh.triangleIndexStride = 3 * 4;
         mesh.numVertices = vertices.length / 3;
-        mesh.vertexBase = ByteBuffer.allocateDirect(vertices.length * 4).order(ByteOrder.nativeOrder());
+        mesh.vertexBase = allocate(vertices.length * 4);
         mesh.vertexBase.asFloatBuffer().put(vertices);
         mesh.vertexStride = 3 * 4;
         tiva.addIndexedMesh(mesh);
@@ -189,4 +192,17 @@ public class Physics {
         body.getCollisionShape().setLocalScaling(new Vector3f(sx, sy, sz));
         physicWorld.updateSingleAabb(body);
     }
+
+    /**
+     * Allocating a direct buffer in native order for jbullet and tracking its
+     * size. The buffer is freed by the garbage collector with its shape.
+     *
+     * @param bytes Size of the buffer in bytes
+     * @return Allocated buffer
+     */
+    private static ByteBuffer allocate(int bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        MemoryDumper.add(MemoryDumper.Type.DIRECT, MemoryUtil.memAddress(buffer), bytes, "Physics", buffer);
+        return buffer;
+    }
 }
@@ -27,6 +27,7 @@
  */
 package de.coreengine.util.gl;
 
+import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
 
 /**
@@ -42,15 +43,33 @@ public class IndexBuffer {
     // Size of the index buffer
     private int size;
 
+    // Gl type of the indices
+    private int type;
+
+    // Are the indices uploaded, or still streamed by the upload scheduler
+    private boolean uploaded = true;
+
     /**
-     * Creates new Index buffer
+     * Creates new Index buffer with int indices
      * 
      * @param id   Id of the new index buffer
      * @param size Size of the new index buffer
      */
     public IndexBuffer(int id, int size) {
+        this(id, size, GL11.GL_UNSIGNED_INT);
+    }
+
+    /**
+     * Creates new Index buffer
+     *
+     * @param id   Id of the new index buffer
+     * @param size Size of the new index buffer
+     * @param type Gl type of the indices (GL_UNSIGNED_INT or GL_UNSIGNED_SHORT)
+     */
+    public IndexBuffer(int id, int size, int type) {
         this.id = id;
         this.size = size;
+        this.type = type;
     }
 
     /**
@@ -75,9 +94,24 @@ public class IndexBuffer {
     }
 
     /**
-     * @return Index buffers size
+     * @return Index buffers size, 0 while the indices are still uploading
      */
     public int getSize() {
-        return size;
+        return uploaded ? size : 0;
+    }
+
+    /**
+     * @param uploaded Are the indices uploaded, or still streamed by the upload
+     *                 scheduler
+     */
+    void setUploaded(boolean uploaded) {
+        this.uploaded = uploaded;
+    }
+
+    /**
+     * @return Gl type of the indices, to pass into the draw calls
+     */
+    public int getType() {
+        return type;
     }
 }
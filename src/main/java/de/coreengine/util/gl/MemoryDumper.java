@@ -25,139 +25,341 @@
  * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
  * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
+
 package de.coreengine.util.gl;
 
-import de.coreengine.util.Toolbox;
+import de.coreengine.util.Logger;
 import org.lwjgl.openal.AL10;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.stb.STBImage;
+
+import java.lang.ref.WeakReference;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeMap;
 
 /**
- * Class that clean up memory after game quits
+ * Class that tracks all opengl, openal and native resources with their size and
+ * owner. Resources can be deleted at any time and all remaining resources are
+ * deleted after game quits. Can be used from every thread.<br>
+ * <br>
+ * If a resource is added with an owner object, it is reported as leak, when the
+ * owner was garbage collected without deleting the resource. Direct buffers are
+ * freed by the garbage collector, so they are only counted while their owner is
+ * alive.
  *
  * @author Darius Dinger
  */
 public class MemoryDumper {
 
-    // Arrays of all 'to dump' opengl ids
-    private static int[] VBOS = {};
-    private static int[] VAOS = {};
-    private static int[] SHADERS = {};
-    private static int[] PROGRAMS = {};
-    private static int[] RENDERBUFFERS = {};
-    private static int[] FRAMEBUFFERS = {};
-    private static int[] TEXTURES = {};
-    private static int[] SOUND_BUFFERS = {};
-    private static int[] SOUND_SOURCES = {};
+    /**
+     * Type of a tracked resource
+     */
+    public enum Type {
+        VBO, VAO, SHADER, PROGRAM, RENDERBUFFER, FRAMEBUFFER, TEXTURE, AUDIO_BUFFER, AUDIO_SOURCE,
+
+        /**
+         * Image data, that was allocated by stb image
+         */
+        IMAGE,
+
+        /**
+         * Direct buffer, that is freed by the garbage collector
+         */
+        DIRECT
+    }
 
     /**
-     * Dumping all memory saved opengl stuff. ATTENTION: Only dump, if program is
-     * over (at exit)
+     * Tracked resource
      */
-    public static void dumpMemory() {
+    private static class Resource {
+
+        // Type, id and size in bytes
+        private final Type type;
+        private final long id;
+        private long bytes;
 
-        // Dump vertex array objects and buffers
-        GL15.glDeleteBuffers(VBOS);
-        GL30.glDeleteVertexArrays(VAOS);
+        // Owner tag and owner object or null, if not owned by an object
+        private final String tag;
+        private final WeakReference<Object> owner;
+
+        private Resource(Type type, long id, long bytes, String tag, Object owner) {
+            this.type = type;
+            this.id = id;
+            this.bytes = bytes;
+            this.tag = tag;
+            this.owner = owner == null ? null : new WeakReference<>(owner);
+        }
+
+        /**
+         * @return Was the owner object garbage collected
+         */
+        private boolean isOrphaned() {
+            return owner != null && owner.get() == null;
+        }
+    }
+
+    // Tracked resources by type and id
+    private static final EnumMap<Type, HashMap<Long, Resource>> RESOURCES = new EnumMap<>(Type.class);
+    static {
+        for (Type type : Type.values())
+            RESOURCES.put(type, new HashMap<>());
+    }
+
+    // Live bytes by type
+    private static final long[] BYTES = new long[Type.values().length];
+
+    /**
+     * Adding a resource to track. The owner tag is the class name of the owner.
+     *
+     * @param type  Type of the resource
+     * @param id    Id of the resource (address for native memory)
+     * @param bytes Size of the resource in bytes
+     * @param owner Owner object, to detect leaks, or a tag string, if the
+     *              resource is owned for the whole runtime
+     */
+    public static void add(Type type, long id, long bytes, Object owner) {
+        if (owner instanceof String)
+            add(type, id, bytes, (String) owner, null);
+        else
+            add(type, id, bytes, owner == null ? "Unknown" : owner.getClass().getSimpleName(), owner);
+    }
 
-        // Dump textures
-        GL11.glDeleteTextures(TEXTURES);
+    /**
+     * Adding a resource to track
+     *
+     * @param type  Type of the resource
+     * @param id    Id of the resource (address for native memory)
+     * @param bytes Size of the resource in bytes
+     * @param tag   Tag of the owner
+     * @param owner Owner object, to detect leaks, or null
+     */
+    public static synchronized void add(Type type, long id, long bytes, String tag, Object owner) {
+        Resource old = RESOURCES.get(type).put(id, new Resource(type, id, bytes, tag, owner));
+        if (old != null)
+            BYTES[type.ordinal()] -= old.bytes;
+        BYTES[type.ordinal()] += bytes;
+    }
 
-        // Dump shaders and shader programs
-        for (int shader : SHADERS)
-            GL20.glDeleteShader(shader);
-        for (int program : PROGRAMS)
-            GL20.glDeleteProgram(program);
+    /**
+     * Handing a tracked resource over to a new owner
+     *
+     * @param type  Type of the resource
+     * @param id    Id of the resource
+     * @param owner New owner object
+     */
+    public static synchronized void setOwner(Type type, long id, Object owner) {
+        Resource resource = RESOURCES.get(type).get(id);
+        if (resource != null)
+            add(type, id, resource.bytes, owner);
+    }
 
-        // Dump renderbuffers and fbos
-        GL30.glDeleteRenderbuffers(RENDERBUFFERS);
-        GL30.glDeleteFramebuffers(FRAMEBUFFERS);
+    /**
+     * Updating the size of a tracked resource
+     *
+     * @param type  Type of the resource
+     * @param id    Id of the resource
+     * @param bytes New size of the resource in bytes
+     */
+    public static synchronized void resize(Type type, long id, long bytes) {
+        Resource resource = RESOURCES.get(type).get(id);
+        if (resource == null)
+            return;
 
-        // Dump audios and audio sources
-        AL10.alDeleteBuffers(SOUND_BUFFERS);
-        AL10.alDeleteSources(SOUND_SOURCES);
+        BYTES[type.ordinal()] += bytes - resource.bytes;
+        resource.bytes = bytes;
     }
 
     /**
-     * Adding vao to dump after program exits
-     * 
-     * @param vaoId Vao to dump at exit
+     * Deleting a resource now and stop tracking it. Gl resources must be deleted
+     * on a thread with a gl context.
+     *
+     * @param type Type of the resource
+     * @param id   Id of the resource
      */
-    static void addVao(int vaoId) {
-        VAOS = Toolbox.addElement(VAOS, vaoId);
+    public static synchronized void delete(Type type, long id) {
+        Resource resource = RESOURCES.get(type).remove(id);
+        if (resource != null)
+            BYTES[type.ordinal()] -= resource.bytes;
+        deleteResource(type, id);
     }
 
     /**
-     * Adding vbo to dump after program exits
-     * 
-     * @param vboId Vbo to dump at exit
+     * Dumping all remaining resources. Leaks are reported before. ATTENTION: Only
+     * dump, if program is over (at exit)
      */
-    static void addVbo(int vboId) {
-        VBOS = Toolbox.addElement(VBOS, vboId);
+    public static synchronized void dumpMemory() {
+        checkLeaks();
+
+        for (Type type : Type.values()) {
+            for (long id : RESOURCES.get(type).keySet())
+                deleteResource(type, id);
+            RESOURCES.get(type).clear();
+            BYTES[type.ordinal()] = 0;
+        }
     }
 
     /**
-     * Adding shader program to dump after program exits
-     * 
-     * @param programId Program to dump at exit
+     * Reporting all resources, whose owner was garbage collected without deleting
+     * them, grouped by type and owner tag
+     *
+     * @return Count of leaked resources
      */
-    public static void addProgramm(int programId) {
-        PROGRAMS = Toolbox.addElement(PROGRAMS, programId);
+    public static synchronized int checkLeaks() {
+        purgeDirectBuffers();
+
+        TreeMap<String, long[]> leaks = new TreeMap<>();
+        for (HashMap<Long, Resource> resources : RESOURCES.values()) {
+            for (Resource resource : resources.values()) {
+                if (resource.isOrphaned()) {
+                    long[] leak = leaks.computeIfAbsent(resource.type + " of " + resource.tag, k -> new long[2]);
+                    leak[0]++;
+                    leak[1] += resource.bytes;
+                }
+            }
+        }
+
+        int count = 0;
+        for (String key : leaks.keySet()) {
+            long[] leak = leaks.get(key);
+            Logger.warn("Resource leak", leak[0] + "x " + key + " (" + leak[1] + " bytes) not deleted!");
+            count += leak[0];
+        }
+        return count;
     }
 
     /**
-     * Adding shader to dump after program exits
-     * 
-     * @param shaderId Shader to dump at exit
+     * @param type Type of the resources
+     * @return Live bytes of all resources of this type
      */
-    public static void addShader(int shaderId) {
-        SHADERS = Toolbox.addElement(SHADERS, shaderId);
+    public static synchronized long getBytes(Type type) {
+        if (type == Type.DIRECT)
+            purgeDirectBuffers();
+        return BYTES[type.ordinal()];
     }
 
     /**
-     * Adding framebuffer to dump after program exits
-     * 
-     * @param framebufferId Framebuffer to dump at exit
+     * @param type Type of the resources
+     * @return Count of live resources of this type
      */
-    public static void addFramebuffer(int framebufferId) {
-        FRAMEBUFFERS = Toolbox.addElement(FRAMEBUFFERS, framebufferId);
+    public static synchronized int getCount(Type type) {
+        if (type == Type.DIRECT)
+            purgeDirectBuffers();
+        return RESOURCES.get(type).size();
     }
 
     /**
-     * Adding renderbuffer to dump after program exits
-     * 
-     * @param renderbufferId Renderbuffer to dump at exit
+     * @return Report of the live count and bytes of every type and the live
+     *         bytes of every owner tag
      */
-    public static void addRenderbuffer(int renderbufferId) {
-        RENDERBUFFERS = Toolbox.addElement(RENDERBUFFERS, renderbufferId);
+    public static synchronized String getReport() {
+        purgeDirectBuffers();
+
+        StringBuilder report = new StringBuilder();
+        TreeMap<String, Long> owners = new TreeMap<>();
+        long total = 0;
+        for (Type type : Type.values()) {
+            HashMap<Long, Resource> resources = RESOURCES.get(type);
+            if (resources.isEmpty())
+                continue;
+
+            report.append(type).append(": ").append(resources.size()).append(" (")
+                    .append(BYTES[type.ordinal()]).append(" bytes)\n");
+            total += BYTES[type.ordinal()];
+            for (Resource resource : resources.values())
+                owners.merge(resource.tag, resource.bytes, Long::sum);
+        }
+
+        report.append("Total: ").append(total).append(" bytes\n");
+        for (String tag : owners.keySet())
+            report.append("  ").append(tag).append(": ").append(owners.get(tag)).append(" bytes\n");
+        return report.toString();
     }
 
     /**
-     * Adding texture to dump after program exits
-     * 
-     * @param textureId TextureData id to dump at exit
+     * Getting the size of a pixel of a texture or renderbuffer format
+     *
+     * @param internalFormat Internal format of the texture or renderbuffer
+     * @return Size of one pixel in bytes
      */
-    public static void addTexture(int textureId) {
-        TEXTURES = Toolbox.addElement(TEXTURES, textureId);
+    public static int getBytesPerPixel(int internalFormat) {
+        switch (internalFormat) {
+        case GL30.GL_R8:
+            return 1;
+        case GL30.GL_R16F:
+            return 2;
+        case GL30.GL_RGBA16F:
+        case GL30.GL_RGB16F:
+            return 8;
+        case GL30.GL_RGBA32F:
+        case GL30.GL_RGB32F:
+            return 16;
+        case GL14.GL_DEPTH_COMPONENT16:
+            return 2;
+        default:
+            return 4;
+        }
     }
 
     /**
-     * Adding audio buffer to dump after programm exits
-     * 
-     * @param buffer Audio buffer id to dump at exit
+     * Stop tracking direct buffers, that were freed by the garbage collector
      */
-    public static void addAudioBuffer(int buffer) {
-        SOUND_BUFFERS = Toolbox.addElement(SOUND_BUFFERS, buffer);
+    private static void purgeDirectBuffers() {
+        Iterator<Resource> resources = RESOURCES.get(Type.DIRECT).values().iterator();
+        while (resources.hasNext()) {
+            Resource resource = resources.next();
+            if (resource.isOrphaned()) {
+                BYTES[Type.DIRECT.ordinal()] -= resource.bytes;
+                resources.remove();
+            }
+        }
     }
 
     /**
-     * Adding audio source to dump after programm exits
-     * 
-     * @param source Audio source id to dump at exit
+     * Deleting a resource in opengl, openal or native memory
+     *
+     * @param type Type of the resource
+     * @param id   Id of the resource
      */
-    public static void addAudioSource(int source) {
-        SOUND_SOURCES = Toolbox.addElement(SOUND_SOURCES, source);
+    private static void deleteResource(Type type, long id) {
+        switch (type) {
+        case VBO:
+            GL15.glDeleteBuffers((int) id);
+            break;
+        case VAO:
+            GL30.glDeleteVertexArrays((int) id);
+            break;
+        case SHADER:
+            GL20.glDeleteShader((int) id);
+            break;
+        case PROGRAM:
+            GL20.glDeleteProgram((int) id);
+            break;
+        case RENDERBUFFER:
+            GL30.glDeleteRenderbuffers((int) id);
+            break;
+        case FRAMEBUFFER:
+            GL30.glDeleteFramebuffers((int) id);
+            break;
+        case TEXTURE:
+            GL11.glDeleteTextures((int) id);
+            break;
+        case AUDIO_BUFFER:
+            AL10.alDeleteBuffers((int) id);
+            break;
+        case AUDIO_SOURCE:
+            AL10.alDeleteSources((int) id);
+            break;
+        case IMAGE:
+            STBImage.nstbi_image_free(id);
+            break;
+        case DIRECT:
+            break;
+        }
     }
 }
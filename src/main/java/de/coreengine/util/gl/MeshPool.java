@@ -0,0 +1,286 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.util.gl;
+
+import de.coreengine.util.Configuration;
+import de.coreengine.util.Logger;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of static meshes, that are sub allocated into a few large shared vertex
+ * and index buffers with a common vertex layout. So meshes of different models
+ * can be drawn from one vao with one multi draw indirect call. Pages are
+ * created when needed, allocations live until the application exits.
+ *
+ * @author Darius Dinger
+ */
+public class MeshPool {
+    private static final boolean ENABLED = Configuration.getValuei("MESH_POOL_ENABLED") != 0;
+    private static final int PAGE_VERTICES = Configuration.getValuei("MESH_POOL_PAGE_VERTICES");
+    private static final int PAGE_INDICES = Configuration.getValuei("MESH_POOL_PAGE_INDICES");
+
+    /**
+     * Common vertex layout of all pooled meshes: Position (3 floats), texture
+     * coordinates (2 floats), normal and tangent (10-10-10-2 integers)
+     */
+    public static final VertexLayout LAYOUT = new VertexLayout().addAttribute(0, 3, GL11.GL_FLOAT, false)
+            .addAttribute(1, 2, GL11.GL_FLOAT, false).addAttribute(2, 4, GL33.GL_INT_2_10_10_10_REV, true)
+            .addAttribute(3, 4, GL33.GL_INT_2_10_10_10_REV, true);
+
+    // Pages of the pool
+    private static final List<Page> PAGES = new ArrayList<>();
+
+    // Is pooling supported by the driver, null if not checked yet
+    private static Boolean supported = null;
+
+    /**
+     * Checking, if meshes should be pooled. Only enabled on OpenGL 4.3, so the
+     * pool can be drawn with multi draw indirect and per draw data can be read
+     * from shader storage buffers.
+     *
+     * @return Is the mesh pool enabled and supported
+     */
+    public static boolean isEnabled() {
+        if (supported == null)
+            supported = GL.getCapabilities().OpenGL43;
+        return ENABLED && supported;
+    }
+
+    /**
+     * Adding the vertices of a mesh to the pool. The page is chosen, so it has
+     * space for the vertices and for all indices of the mesh and its detail
+     * levels, which are reserved until they are added.
+     *
+     * @param vertices    Interleaved vertex data
+     * @param layout      Layout of the vertex data, must match {@link #LAYOUT}
+     * @param vertexCount Count of vertices
+     * @param indexCount  Count of indices of the mesh and all its detail levels
+     * @return Allocation of the vertices without indices or null, if the
+     *         vertices can not be pooled
+     */
+    public static Allocation addVertices(ByteBuffer vertices, VertexLayout layout, int vertexCount,
+            int indexCount) {
+        if (!matchesLayout(layout)) {
+            Logger.warn("Error by pooling mesh", "The vertex layout does not match the pool layout!");
+            return null;
+        }
+        if (vertexCount > PAGE_VERTICES) {
+            Logger.warn("Error by pooling mesh",
+                    "The mesh has more vertices (" + vertexCount + ") than a pool page! Mesh is not pooled");
+            return null;
+        }
+        if (indexCount > PAGE_INDICES) {
+            Logger.warn("Error by pooling mesh",
+                    "The mesh has more indices (" + indexCount + ") than a pool page! Mesh is not pooled");
+            return null;
+        }
+
+        // Find page with enough space or create new one
+        Page page = null;
+        for (Page candidate : PAGES) {
+            if (candidate.usedVertices + vertexCount <= PAGE_VERTICES
+                    && candidate.usedIndices + candidate.reservedIndices + indexCount <= PAGE_INDICES) {
+                page = candidate;
+                break;
+            }
+        }
+        if (page == null) {
+            page = new Page(PAGES.size());
+            PAGES.add(page);
+        }
+
+        // Upload vertices into the free space
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, page.vbo);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, (long) page.usedVertices * LAYOUT.getStride(), vertices);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        Allocation allocation = new Allocation(page.index, page.usedVertices, 0, 0);
+        page.usedVertices += vertexCount;
+        page.reservedIndices += indexCount;
+        return allocation;
+    }
+
+    /**
+     * Adding the indices of a mesh or of a detail level to the pool. The
+     * indices are relative to the pooled vertices of the mesh and use the space,
+     * that was reserved by {@link #addVertices(ByteBuffer, VertexLayout, int, int)}.
+     *
+     * @param vertices Allocation of the vertices of the mesh
+     * @param indices  Indices to add
+     * @return Allocation of the vertices and indices or null, if the page of the
+     *         vertices has not enough space for the indices
+     */
+    public static Allocation addIndices(Allocation vertices, IntBuffer indices) {
+        Page page = PAGES.get(vertices.page);
+        int count = indices.remaining();
+        if (page.usedIndices + count > PAGE_INDICES) {
+            Logger.warn("Error by pooling mesh", "The indices of the mesh do not fit into its pool page!");
+            return null;
+        }
+
+        // Upload indices into the free space
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, page.indexBuffer.getId());
+        GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, (long) page.usedIndices * 4, indices);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        Allocation allocation = new Allocation(vertices.page, vertices.baseVertex, page.usedIndices, count);
+        page.usedIndices += count;
+        page.reservedIndices = Math.max(0, page.reservedIndices - count);
+        return allocation;
+    }
+
+    /**
+     * @param page Index of the page
+     * @return Vao of the page
+     */
+    public static VertexArrayObject getVao(int page) {
+        return PAGES.get(page).vao;
+    }
+
+    /**
+     * @param page Index of the page
+     * @return Index buffer of the page, indices are always 32 bit
+     */
+    public static IndexBuffer getIndexBuffer(int page) {
+        return PAGES.get(page).indexBuffer;
+    }
+
+    /**
+     * @return Count of pages in the pool
+     */
+    public static int getPageCount() {
+        return PAGES.size();
+    }
+
+    /**
+     * @param layout Layout to check
+     * @return Is the layout equal to the pool layout
+     */
+    private static boolean matchesLayout(VertexLayout layout) {
+        if (layout.getStride() != LAYOUT.getStride() || layout.getAttributeCount() != LAYOUT.getAttributeCount())
+            return false;
+
+        for (int i = 0; i < LAYOUT.getAttributeCount(); i++) {
+            if (layout.getRow(i) != LAYOUT.getRow(i) || layout.getType(i) != LAYOUT.getType(i)
+                    || layout.getDimension(i) != LAYOUT.getDimension(i)
+                    || layout.getOffset(i) != LAYOUT.getOffset(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Part of the pool, that contains the vertices and indices of a mesh or of
+     * one of its detail levels
+     */
+    public static class Allocation {
+
+        // Page, first vertex, first index and count of indices
+        private final int page, baseVertex, firstIndex, indexCount;
+
+        /**
+         * Creating new allocation
+         *
+         * @param page       Index of the page
+         * @param baseVertex First vertex of the mesh in the page
+         * @param firstIndex First index of the mesh in the page
+         * @param indexCount Count of indices of the mesh
+         */
+        private Allocation(int page, int baseVertex, int firstIndex, int indexCount) {
+            this.page = page;
+            this.baseVertex = baseVertex;
+            this.firstIndex = firstIndex;
+            this.indexCount = indexCount;
+        }
+
+        /**
+         * @return Index of the page
+         */
+        public int getPage() {
+            return page;
+        }
+
+        /**
+         * @return First vertex of the mesh in the page, added to every index
+         */
+        public int getBaseVertex() {
+            return baseVertex;
+        }
+
+        /**
+         * @return First index of the mesh in the page
+         */
+        public int getFirstIndex() {
+            return firstIndex;
+        }
+
+        /**
+         * @return Count of indices of the mesh
+         */
+        public int getIndexCount() {
+            return indexCount;
+        }
+    }
+
+    /**
+     * Shared vertex and index buffer of the pool
+     */
+    private static class Page {
+
+        // Index of the page in the pool
+        private final int index;
+
+        // Vao with the shared vertex buffer and the shared index buffer
+        private final VertexArrayObject vao = new VertexArrayObject();
+        private final int vbo;
+        private final IndexBuffer indexBuffer;
+
+        // Used vertices and indices and indices reserved for pooled vertices
+        private int usedVertices = 0, usedIndices = 0, reservedIndices = 0;
+
+        /**
+         * Creating new page and its buffers
+         *
+         * @param index Index of the page in the pool
+         */
+        private Page(int index) {
+            this.index = index;
+            vbo = vao.addVertexBuffer((long) PAGE_VERTICES * LAYOUT.getStride(), LAYOUT);
+            indexBuffer = vao.addIndexBuffer(PAGE_INDICES);
+        }
+    }
+}
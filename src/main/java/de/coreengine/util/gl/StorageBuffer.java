@@ -0,0 +1,144 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.util.gl;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL43;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Class that represents an opengl buffer, that is refilled every frame. Can be
+ * bound as shader storage buffer, indirect command buffer or vertex buffer.
+ *
+ * @author Darius Dinger
+ */
+public class StorageBuffer {
+
+    // Buffer id
+    private final int id;
+
+    // Current size of the buffer storage in bytes
+    private long capacity = 0;
+
+    /**
+     * Creates new empty storage buffer and generate the buffer in opengl
+     */
+    public StorageBuffer() {
+        id = GL15.glGenBuffers();
+        MemoryDumper.add(MemoryDumper.Type.VBO, id, 0, this);
+    }
+
+    /**
+     * Uploading new data into the buffer. The old storage gets orphaned, so the
+     * upload doesnt stall on draws, that still use the old data.
+     *
+     * @param data Data to upload, from position to limit
+     */
+    public void upload(IntBuffer data) {
+        orphan((long) data.remaining() * 4);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Uploading new data into the buffer. The old storage gets orphaned, so the
+     * upload doesnt stall on draws, that still use the old data.
+     *
+     * @param data Data to upload, from position to limit
+     */
+    public void upload(FloatBuffer data) {
+        orphan((long) data.remaining() * 4);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Allocating new storage of at least the requested size without data, e.g.
+     * for buffers written by compute shaders
+     *
+     * @param bytes Min size of the storage in bytes
+     */
+    public void allocate(long bytes) {
+        orphan(bytes);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Binding the buffer and orphaning its storage. Storage only grows, so it
+     * can be reused for smaller uploads.
+     *
+     * @param bytes Min size of the new storage in bytes
+     */
+    private void orphan(long bytes) {
+        if (bytes > capacity) {
+            capacity = bytes;
+            MemoryDumper.resize(MemoryDumper.Type.VBO, id, capacity);
+        }
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, id);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, capacity, GL15.GL_STREAM_DRAW);
+    }
+
+    /**
+     * Binding the buffer to an indexed shader storage binding point
+     *
+     * @param binding Binding point of the buffer block in the shader
+     */
+    public void bindStorage(int binding) {
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, binding, id);
+    }
+
+    /**
+     * Binding the buffer to a target (e.g. GL_DRAW_INDIRECT_BUFFER)
+     *
+     * @param target Target to bind buffer to
+     */
+    public void bind(int target) {
+        GL15.glBindBuffer(target, id);
+    }
+
+    /**
+     * Unbinding the buffer from a target
+     *
+     * @param target Target to unbind buffer from
+     */
+    public void unbind(int target) {
+        GL15.glBindBuffer(target, 0);
+    }
+
+    /**
+     * @return Id of the opengl buffer
+     */
+    public int getId() {
+        return id;
+    }
+}
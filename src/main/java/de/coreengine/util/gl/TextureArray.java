@@ -0,0 +1,159 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.util.gl;
+
+import de.coreengine.util.Configuration;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL46;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class that represent an opengl 2d texture array with mipmaps. The layers are
+ * built from 2d textures of any size, that are scaled on the gpu to the common
+ * size of the array, so a shader can sample all of them from one texture unit
+ * by the layer index.
+ *
+ * @author Darius Dinger
+ */
+public class TextureArray {
+    private static final int MAX_SIZE = Configuration.getValuei("TEXTURE_ARRAY_MAX_SIZE");
+
+    // Texture id, 0 if not built
+    private int texture = 0;
+
+    // Width/height and layer count of the array
+    private int size = 0, layers = 0;
+
+    /**
+     * (Re)building the array from 2d textures. The common size is the biggest
+     * size of the sources, limited by the max array size. Layers without texture
+     * are filled with the default color.
+     *
+     * @param sources      Opengl 2d textures of the layers, 0 for none
+     * @param defaultColor Rgba color of layers without texture
+     */
+    public void build(int[] sources, float[] defaultColor) {
+        delete();
+
+        // Get common size of the layers
+        int[] widths = new int[sources.length], heights = new int[sources.length];
+        size = 1;
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == 0)
+                continue;
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, sources[i]);
+            widths[i] = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH);
+            heights[i] = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT);
+            size = Math.max(size, Math.max(widths[i], heights[i]));
+        }
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        size = Math.min(size, MAX_SIZE);
+        layers = sources.length;
+
+        // Allocate array with full mip chain
+        texture = GL11.glGenTextures();
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, texture, (long) size * size * 4 * layers * 4 / 3, this);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, texture);
+        GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8, size, size, layers, 0, GL11.GL_RGBA,
+                GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+
+        // Scale sources into the layers, current framebuffers are restored after
+        int drawFbo = GL11.glGetInteger(GL30.GL_DRAW_FRAMEBUFFER_BINDING);
+        int readFbo = GL11.glGetInteger(GL30.GL_READ_FRAMEBUFFER_BINDING);
+        int[] fbos = new int[2];
+        GL30.glGenFramebuffers(fbos);
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fbos[0]);
+        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, fbos[1]);
+        GL11.glReadBuffer(GL30.GL_COLOR_ATTACHMENT0);
+        GL11.glDrawBuffer(GL30.GL_COLOR_ATTACHMENT0);
+
+        for (int i = 0; i < layers; i++) {
+            GL30.glFramebufferTextureLayer(GL30.GL_DRAW_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, texture, 0, i);
+            if (sources[i] == 0) {
+                GL30.glClearBufferfv(GL11.GL_COLOR, 0, defaultColor);
+                continue;
+            }
+
+            GL30.glFramebufferTexture2D(GL30.GL_READ_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL11.GL_TEXTURE_2D,
+                    sources[i], 0);
+            GL30.glBlitFramebuffer(0, 0, widths[i], heights[i], 0, 0, size, size, GL11.GL_COLOR_BUFFER_BIT,
+                    GL11.GL_LINEAR);
+        }
+
+        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, drawFbo);
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, readFbo);
+        GL30.glDeleteFramebuffers(fbos);
+
+        // Generate mip maps and setup filtering
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, texture);
+        GL30.glGenerateMipmap(GL30.GL_TEXTURE_2D_ARRAY);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        if (GL.getCapabilities().GL_EXT_texture_filter_anisotropic) {
+            float amount = Float.min(4.0f, GL11.glGetFloat(GL46.GL_MAX_TEXTURE_MAX_ANISOTROPY));
+            GL11.glTexParameterf(GL30.GL_TEXTURE_2D_ARRAY, GL46.GL_TEXTURE_MAX_ANISOTROPY, amount);
+        }
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * Deleting the array in opengl. It can be built again afterwards.
+     */
+    public void delete() {
+        if (texture != 0)
+            MemoryDumper.delete(MemoryDumper.Type.TEXTURE, texture);
+        texture = 0;
+    }
+
+    /**
+     * @return Texture id of the array or 0, if not built
+     */
+    public int getTexture() {
+        return texture;
+    }
+
+    /**
+     * @return Width and height of the layers in pixels
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Count of layers
+     */
+    public int getLayers() {
+        return layers;
+    }
+}
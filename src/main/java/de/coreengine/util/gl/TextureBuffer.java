@@ -0,0 +1,101 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.util.gl;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Class that represent an opengl buffer texture with RGBA32F texels. Can be
+ * read in shaders with texelFetch on a samplerBuffer.
+ *
+ * @author Darius Dinger
+ */
+public class TextureBuffer {
+
+    // Buffer and texture id
+    private final int buffer, texture;
+
+    // Current size of the buffer storage in floats
+    private int capacity = 0;
+
+    /**
+     * Creates new texture buffer and generate buffer and texture in opengl
+     */
+    public TextureBuffer() {
+        buffer = GL15.glGenBuffers();
+        texture = GL11.glGenTextures();
+        MemoryDumper.add(MemoryDumper.Type.VBO, buffer, 0, this);
+        MemoryDumper.add(MemoryDumper.Type.TEXTURE, texture, 0, this);
+
+        // Attach buffer to texture
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, 0, GL15.GL_STREAM_DRAW);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, texture);
+        GL31.glTexBuffer(GL31.GL_TEXTURE_BUFFER, GL30.GL_RGBA32F, buffer);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, 0);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    /**
+     * Uploading new data into the buffer. The old storage gets orphaned, so the
+     * upload doesnt stall on draws, that still use the old data.
+     *
+     * @param data Data to upload, from position to limit
+     */
+    public void upload(FloatBuffer data) {
+        if (data.remaining() > capacity) {
+            capacity = data.remaining();
+            MemoryDumper.resize(MemoryDumper.Type.VBO, buffer, (long) capacity * 4);
+        }
+
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, (long) capacity * 4, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL31.GL_TEXTURE_BUFFER, 0, data);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    /**
+     * @return Max count of texels a texture buffer can hold
+     */
+    public static int getMaxTexels() {
+        return GL11.glGetInteger(GL31.GL_MAX_TEXTURE_BUFFER_SIZE);
+    }
+
+    /**
+     * @return Texture id of the buffer texture
+     */
+    public int getTexture() {
+        return texture;
+    }
+}
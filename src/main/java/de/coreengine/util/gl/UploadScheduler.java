@@ -0,0 +1,443 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.util.gl;
+
+import de.coreengine.util.Configuration;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+/**
+ * Class that streams big buffer and texture uploads over multiple frames, so
+ * loading assets doesnt cause frame spikes. The storage is allocated
+ * immediately, the data is copied through a ring of staging buffers (pixel
+ * buffer objects for textures) within a byte budget per frame.<br>
+ * <br>
+ * Buffer uploads are processed first and in order. Texture levels are
+ * processed smallest first over all textures, every texture samples from its
+ * smallest completely uploaded level, so it gets sharper frame by frame.
+ *
+ * @author Darius Dinger
+ */
+public class UploadScheduler {
+    private static final boolean STREAMING = Configuration.getValuei("UPLOAD_STREAMING") != 0;
+    private static final int BUDGET = Configuration.getValuei("UPLOAD_BUDGET") * 1024;
+    private static final int MIN_SIZE = Configuration.getValuei("UPLOAD_MIN_SIZE") * 1024;
+    private static final int STAGING_SIZE = Configuration.getValuei("UPLOAD_STAGING_SIZE") * 1024;
+    private static final int STAGING_COUNT = Configuration.getValuei("UPLOAD_STAGING_BUFFERS");
+
+    /**
+     * Pending upload of a buffer or a level of a texture
+     */
+    private static class Upload implements Comparable<Upload> {
+
+        // Remaining data to upload and the buffer, the data is a view of
+        private final ByteBuffer data;
+        private final Buffer source;
+
+        // Target buffer or texture
+        private final int buffer, texture;
+
+        // Level and size of the texture level
+        private final int level, width, height;
+
+        // Called, when all data is uploaded
+        private final Runnable onDone;
+
+        // Order of scheduling, to keep levels of same size in order
+        private final long order;
+
+        // Next row of the texture level
+        private int row = 0;
+
+        private Upload(ByteBuffer data, Buffer source, int buffer, int texture, int level, int width, int height,
+                Runnable onDone) {
+            this.data = data;
+            this.source = source;
+            this.buffer = buffer;
+            this.texture = texture;
+            this.level = level;
+            this.width = width;
+            this.height = height;
+            this.onDone = onDone;
+            this.order = scheduled++;
+        }
+
+        @Override
+        public int compareTo(Upload o) {
+            int size = Integer.compare(data.capacity(), o.data.capacity());
+            return size != 0 ? size : Long.compare(order, o.order);
+        }
+    }
+
+    // Count of scheduled uploads
+    private static long scheduled = 0;
+
+    // Pending uploads
+    private static final ArrayDeque<Upload> BUFFER_UPLOADS = new ArrayDeque<>();
+    private static final PriorityQueue<Upload> TEXTURE_UPLOADS = new PriorityQueue<>();
+
+    // Ring of staging buffers
+    private static int[] staging = null;
+    private static int nextStaging = 0;
+
+    /**
+     * @return Are big uploads streamed over multiple frames
+     */
+    public static boolean isStreaming() {
+        return STREAMING;
+    }
+
+    /**
+     * @return Count of pending buffer and texture level uploads
+     */
+    public static int getPendingCount() {
+        return BUFFER_UPLOADS.size() + TEXTURE_UPLOADS.size();
+    }
+
+    /**
+     * Filling the buffer, that is bound to the target. Big buffers get their
+     * storage immediately and are filled by the scheduler, small buffers are
+     * filled directly.
+     *
+     * @param target Target, the buffer is bound to
+     * @param buffer Id of the bound buffer
+     * @param data   Data to fill into the buffer
+     * @param onDone Called, when the data is uploaded or null
+     * @return True, if the upload was scheduled, false if the buffer was filled
+     *         directly
+     */
+    public static boolean bufferData(int target, int buffer, float[] data, Runnable onDone) {
+        if (!STREAMING || data.length * 4 < MIN_SIZE) {
+            GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+            return false;
+        }
+
+        FloatBuffer copy = BufferUtils.createFloatBuffer(data.length);
+        copy.put(data).flip();
+        return bufferData(target, buffer, copy, onDone);
+    }
+
+    /**
+     * Filling the buffer, that is bound to the target. Big buffers get their
+     * storage immediately and are filled by the scheduler, small buffers are
+     * filled directly.
+     *
+     * @param target Target, the buffer is bound to
+     * @param buffer Id of the bound buffer
+     * @param data   Data to fill into the buffer
+     * @param onDone Called, when the data is uploaded or null
+     * @return True, if the upload was scheduled, false if the buffer was filled
+     *         directly
+     */
+    public static boolean bufferData(int target, int buffer, int[] data, Runnable onDone) {
+        if (!STREAMING || data.length * 4 < MIN_SIZE) {
+            GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+            return false;
+        }
+
+        IntBuffer copy = BufferUtils.createIntBuffer(data.length);
+        copy.put(data).flip();
+        return bufferData(target, buffer, copy, onDone);
+    }
+
+    /**
+     * Filling the buffer, that is bound to the target. Big buffers get their
+     * storage immediately and are filled by the scheduler, small buffers are
+     * filled directly.
+     *
+     * @param target Target, the buffer is bound to
+     * @param buffer Id of the bound buffer
+     * @param data   Data to fill into the buffer
+     * @param onDone Called, when the data is uploaded or null
+     * @return True, if the upload was scheduled, false if the buffer was filled
+     *         directly
+     */
+    public static boolean bufferData(int target, int buffer, ByteBuffer data, Runnable onDone) {
+        if (!STREAMING || data.remaining() < MIN_SIZE || !data.isDirect()) {
+            GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+            return false;
+        }
+
+        GL15.glBufferData(target, data.remaining(), GL15.GL_STATIC_DRAW);
+        BUFFER_UPLOADS.add(new Upload(data.slice(), data, buffer, 0, 0, 0, 0, onDone));
+        return true;
+    }
+
+    /**
+     * Filling the buffer, that is bound to the target. Big buffers get their
+     * storage immediately and are filled by the scheduler, small buffers are
+     * filled directly.
+     *
+     * @param target Target, the buffer is bound to
+     * @param buffer Id of the bound buffer
+     * @param data   Data to fill into the buffer
+     * @param onDone Called, when the data is uploaded or null
+     * @return True, if the upload was scheduled, false if the buffer was filled
+     *         directly
+     */
+    public static boolean bufferData(int target, int buffer, FloatBuffer data, Runnable onDone) {
+        if (!STREAMING || data.remaining() * 4 < MIN_SIZE || !data.isDirect()) {
+            GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+            return false;
+        }
+
+        GL15.glBufferData(target, (long) data.remaining() * 4, GL15.GL_STATIC_DRAW);
+        BUFFER_UPLOADS.add(new Upload(MemoryUtil.memByteBuffer(data), data, buffer, 0, 0, 0, 0, onDone));
+        return true;
+    }
+
+    /**
+     * Filling the buffer, that is bound to the target. Big buffers get their
+     * storage immediately and are filled by the scheduler, small buffers are
+     * filled directly.
+     *
+     * @param target Target, the buffer is bound to
+     * @param buffer Id of the bound buffer
+     * @param data   Data to fill into the buffer
+     * @param onDone Called, when the data is uploaded or null
+     * @return True, if the upload was scheduled, false if the buffer was filled
+     *         directly
+     */
+    public static boolean bufferData(int target, int buffer, IntBuffer data, Runnable onDone) {
+        if (!STREAMING || data.remaining() * 4 < MIN_SIZE || !data.isDirect()) {
+            GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+            return false;
+        }
+
+        GL15.glBufferData(target, (long) data.remaining() * 4, GL15.GL_STATIC_DRAW);
+        BUFFER_UPLOADS.add(new Upload(MemoryUtil.memByteBuffer(data), data, buffer, 0, 0, 0, 0, onDone));
+        return true;
+    }
+
+    /**
+     * Filling the buffer, that is bound to the target. Big buffers get their
+     * storage immediately and are filled by the scheduler, small buffers are
+     * filled directly.
+     *
+     * @param target Target, the buffer is bound to
+     * @param buffer Id of the bound buffer
+     * @param data   Data to fill into the buffer
+     * @param onDone Called, when the data is uploaded or null
+     * @return True, if the upload was scheduled, false if the buffer was filled
+     *         directly
+     */
+    public static boolean bufferData(int target, int buffer, ShortBuffer data, Runnable onDone) {
+        if (!STREAMING || data.remaining() * 2 < MIN_SIZE || !data.isDirect()) {
+            GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+            return false;
+        }
+
+        GL15.glBufferData(target, (long) data.remaining() * 2, GL15.GL_STATIC_DRAW);
+        BUFFER_UPLOADS.add(new Upload(MemoryUtil.memByteBuffer(data), data, buffer, 0, 0, 0, 0, onDone));
+        return true;
+    }
+
+    /**
+     * Scheduling the upload of a rgba8 texture level. The storage of the level
+     * must already be allocated. When the level is uploaded, it becomes the base
+     * level of the texture.
+     *
+     * @param texture Texture to upload level into
+     * @param level   Mip level to upload
+     * @param width   Width of the level in pixels
+     * @param height  Height of the level in pixels
+     * @param data    Rgba8 pixel data of the level
+     */
+    public static void scheduleTextureLevel(int texture, int level, int width, int height, ByteBuffer data) {
+        scheduleTextureLevel(texture, level, width, height, data, null);
+    }
+
+    /**
+     * Scheduling the upload of a rgba8 texture level. The storage of the level
+     * must already be allocated. When the level is uploaded, it becomes the base
+     * level of the texture.
+     *
+     * @param texture Texture to upload level into
+     * @param level   Mip level to upload
+     * @param width   Width of the level in pixels
+     * @param height  Height of the level in pixels
+     * @param data    Rgba8 pixel data of the level
+     * @param onDone  Called, when the level is uploaded or null
+     */
+    public static void scheduleTextureLevel(int texture, int level, int width, int height, ByteBuffer data,
+            Runnable onDone) {
+        TEXTURE_UPLOADS.add(new Upload(data.slice(), data, 0, texture, level, width, height, onDone));
+    }
+
+    /**
+     * Uploading pending data within the byte budget of this frame. Must be called
+     * once per frame on the main thread.
+     */
+    public static void update() {
+        upload(BUDGET);
+    }
+
+    /**
+     * Uploading all pending data immediately, e.g. before rendering something
+     * offscreen, that needs complete buffers and textures.
+     */
+    public static void flush() {
+        upload(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Uploading pending data, buffers first and then texture levels smallest
+     * first. Every call uploads at least one chunk, if something is pending.
+     *
+     * @param budget Max bytes to upload
+     */
+    private static void upload(int budget) {
+        if (BUFFER_UPLOADS.isEmpty() && TEXTURE_UPLOADS.isEmpty())
+            return;
+
+        if (staging == null) {
+            staging = new int[Math.max(1, STAGING_COUNT)];
+            for (int i = 0; i < staging.length; i++) {
+                staging[i] = GL15.glGenBuffers();
+                MemoryDumper.add(MemoryDumper.Type.VBO, staging[i], STAGING_SIZE, "UploadScheduler", null);
+            }
+        }
+
+        while (budget > 0) {
+            if (!BUFFER_UPLOADS.isEmpty()) {
+                Upload upload = BUFFER_UPLOADS.peek();
+                budget -= uploadBufferChunk(upload, budget);
+                if (!upload.data.hasRemaining()) {
+                    BUFFER_UPLOADS.poll();
+                    if (upload.onDone != null)
+                        upload.onDone.run();
+                }
+            } else if (!TEXTURE_UPLOADS.isEmpty()) {
+                Upload upload = TEXTURE_UPLOADS.peek();
+                budget -= uploadTextureChunk(upload, budget);
+                if (upload.row >= upload.height) {
+                    TEXTURE_UPLOADS.poll();
+                    if (upload.onDone != null)
+                        upload.onDone.run();
+                }
+            } else
+                break;
+        }
+    }
+
+    /**
+     * Uploading the next chunk of a buffer by copying it from a staging buffer
+     *
+     * @param upload Buffer upload to continue
+     * @param budget Remaining bytes of the budget
+     * @return Uploaded bytes
+     */
+    private static int uploadBufferChunk(Upload upload, int budget) {
+        int offset = upload.data.position();
+        int size = Math.min(upload.data.remaining(), Math.min(STAGING_SIZE, Math.max(budget, 1)));
+
+        ByteBuffer chunk = upload.data.duplicate();
+        chunk.limit(offset + size);
+        upload.data.position(offset + size);
+
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, fillStaging(GL31.GL_COPY_READ_BUFFER, chunk));
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, upload.buffer);
+        GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, 0, offset, size);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+
+        return size;
+    }
+
+    /**
+     * Uploading the next rows of a texture level from a pixel buffer object. If
+     * the level is complete, it becomes the base level of the texture.
+     *
+     * @param upload Texture level upload to continue
+     * @param budget Remaining bytes of the budget
+     * @return Uploaded bytes
+     */
+    private static int uploadTextureChunk(Upload upload, int budget) {
+        int rowSize = upload.width * 4;
+        int rows = Math.max(1, Math.min(STAGING_SIZE, budget) / rowSize);
+        rows = Math.min(rows, upload.height - upload.row);
+
+        ByteBuffer chunk = upload.data.duplicate();
+        chunk.position(upload.row * rowSize).limit((upload.row + rows) * rowSize);
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, fillStaging(GL21.GL_PIXEL_UNPACK_BUFFER, chunk));
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, upload.texture);
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, upload.level, 0, upload.row, upload.width, rows, GL11.GL_RGBA,
+                GL11.GL_UNSIGNED_BYTE, 0);
+        GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+
+        // Sample from the new level, when complete
+        upload.row += rows;
+        if (upload.row >= upload.height)
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL, upload.level);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+        return rows * rowSize;
+    }
+
+    /**
+     * Copying data into the next staging buffer of the ring. The old storage of
+     * the staging buffer gets orphaned, so the copy doesnt wait for the gpu.
+     *
+     * @param target Target to bind the staging buffer to
+     * @param data   Data to copy
+     * @return Staging buffer, that is bound to the target
+     */
+    private static int fillStaging(int target, ByteBuffer data) {
+        int buffer = staging[nextStaging];
+        nextStaging = (nextStaging + 1) % staging.length;
+
+        GL15.glBindBuffer(target, buffer);
+        GL15.glBufferData(target, data.remaining(), GL15.GL_STREAM_DRAW);
+        ByteBuffer mapped = GL30.glMapBufferRange(target, 0, data.remaining(),
+                GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_BUFFER_BIT);
+        if (mapped != null) {
+            mapped.put(data);
+            GL15.glUnmapBuffer(target);
+        } else
+            GL15.glBufferSubData(target, 0, data);
+
+        return buffer;
+    }
+}
@@ -30,6 +30,11 @@ package de.coreengine.util.gl;
 import de.coreengine.util.Toolbox;
 import org.lwjgl.opengl.*;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
 /**
  * Class that represent an opengl vao
  *
@@ -43,12 +48,15 @@ public class VertexArrayObject {
     // Rows/attributes of the vao
     private int[] attribs = new int[0];
 
+    // Vertex and index buffers of the vao
+    private int[] vbos = new int[0];
+
     /**
      * Creates new VertexArrayObject and generate one in opengl
      */
     public VertexArrayObject() {
         id = GL30.glGenVertexArrays();
-        MemoryDumper.addVao(id);
+        MemoryDumper.add(MemoryDumper.Type.VAO, id, 0, this);
     }
 
     /**
@@ -68,7 +76,7 @@ public class VertexArrayObject {
 
         // Fill and seperate data in buffer
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, values, GL15.GL_STATIC_DRAW);
+        UploadScheduler.bufferData(GL15.GL_ARRAY_BUFFER, vbo, values, null);
         GL20.glVertexAttribPointer(row, dimension, GL11.GL_FLOAT, false, 0, 0);
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
 
@@ -76,7 +84,7 @@ public class VertexArrayObject {
         unbind();
 
         // Add new buffer to buffers and row to attributes
-        MemoryDumper.addVbo(vbo);
+        addVbo(vbo, (long) values.length * 4);
         attribs = Toolbox.addElement(attribs, row);
     }
 
@@ -97,7 +105,7 @@ public class VertexArrayObject {
 
         // Fill and seperate data in buffer
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, values, GL15.GL_STATIC_DRAW);
+        UploadScheduler.bufferData(GL15.GL_ARRAY_BUFFER, vbo, values, null);
         GL30.glVertexAttribIPointer(row, dimension, GL11.GL_INT, 0, 0);
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
 
@@ -105,7 +113,7 @@ public class VertexArrayObject {
         unbind();
 
         // Add new buffer to buffers and row to attributes
-        MemoryDumper.addVbo(vbo);
+        addVbo(vbo, (long) values.length * 4);
         attribs = Toolbox.addElement(attribs, row);
     }
 
@@ -123,19 +131,288 @@ public class VertexArrayObject {
         // Generate index buffer
         int vbo = GL15.glGenBuffers();
 
-        // Fill data into buffer
+        // Fill data into buffer, the index buffer is empty until the upload is done
+        IndexBuffer indexBuffer = new IndexBuffer(vbo, indices.length);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
+        if (UploadScheduler.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo, indices,
+                () -> indexBuffer.setUploaded(true)))
+            indexBuffer.setUploaded(false);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to memory dumper to delete after exit
+        addVbo(vbo, (long) indices.length * 4);
+
+        return indexBuffer;
+    }
+
+    /**
+     * Adding new VertexBufferObject (VBO) to the VAO, filled directly from a
+     * buffer (e.g. a mapped model file) without copying into an array first
+     *
+     * @param values    Values to fill into the buffer
+     * @param dimension Dimension of the values
+     * @param row       Row to store the buffer in the vao
+     */
+    public void addVertexBuffer(FloatBuffer values, int dimension, int row) {
+
+        // Bind VAO
+        bind();
+
+        // Generate vertex buffer
+        int vbo = GL15.glGenBuffers();
+
+        // Fill and seperate data in buffer
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        UploadScheduler.bufferData(GL15.GL_ARRAY_BUFFER, vbo, values, null);
+        GL20.glVertexAttribPointer(row, dimension, GL11.GL_FLOAT, false, 0, 0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to buffers and row to attributes
+        addVbo(vbo, (long) values.remaining() * 4);
+        attribs = Toolbox.addElement(attribs, row);
+    }
+
+    /**
+     * Adding new VertexBufferObject (VBO) to the VAO, filled directly from a
+     * buffer (e.g. a mapped model file) without copying into an array first
+     *
+     * @param values    Values to fill into the buffer
+     * @param dimension Dimension of the values
+     * @param row       Row to store the buffer in the vao
+     */
+    public void addVertexBuffer(IntBuffer values, int dimension, int row) {
+
+        // Bind VAO
+        bind();
+
+        // Generate vertex buffer
+        int vbo = GL15.glGenBuffers();
+
+        // Fill and seperate data in buffer
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        UploadScheduler.bufferData(GL15.GL_ARRAY_BUFFER, vbo, values, null);
+        GL30.glVertexAttribIPointer(row, dimension, GL11.GL_INT, 0, 0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to buffers and row to attributes
+        addVbo(vbo, (long) values.remaining() * 4);
+        attribs = Toolbox.addElement(attribs, row);
+    }
+
+    /**
+     * Creates new IndexBuffer from a buffer (e.g. a mapped model file) and adding
+     * it to the vao
+     *
+     * @param indices Indices for the new index buffer
+     * @return IndexBuffer that was created
+     */
+    public IndexBuffer addIndexBuffer(IntBuffer indices) {
+
+        // Bind VAO
+        bind();
+
+        // Generate index buffer
+        int vbo = GL15.glGenBuffers();
+
+        // Fill data into buffer, the index buffer is empty until the upload is done
+        IndexBuffer indexBuffer = new IndexBuffer(vbo, indices.remaining());
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
+        if (UploadScheduler.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo, indices,
+                () -> indexBuffer.setUploaded(true)))
+            indexBuffer.setUploaded(false);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to memory dumper to delete after exit
+        addVbo(vbo, (long) indices.remaining() * 4);
+
+        return indexBuffer;
+    }
+
+    /**
+     * Creates new IndexBuffer with 16 bit indices and adding it to the vao
+     *
+     * @param indices Indices for the new index buffer
+     * @return IndexBuffer that was created
+     */
+    public IndexBuffer addIndexBuffer(ShortBuffer indices) {
+
+        // Bind VAO
+        bind();
+
+        // Generate index buffer
+        int vbo = GL15.glGenBuffers();
+
+        // Fill data into buffer, the index buffer is empty until the upload is done
+        IndexBuffer indexBuffer = new IndexBuffer(vbo, indices.remaining(), GL11.GL_UNSIGNED_SHORT);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
+        if (UploadScheduler.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo, indices,
+                () -> indexBuffer.setUploaded(true)))
+            indexBuffer.setUploaded(false);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to memory dumper to delete after exit
+        addVbo(vbo, (long) indices.remaining() * 2);
+
+        return indexBuffer;
+    }
+
+    /**
+     * Adding new interleaved VertexBufferObject (VBO) to the VAO, that contains
+     * all attributes of a layout in one buffer
+     *
+     * @param data   Interleaved vertex data
+     * @param layout Layout of the vertex data
+     */
+    public void addVertexBuffer(ByteBuffer data, VertexLayout layout) {
+
+        // Bind VAO
+        bind();
+
+        // Generate vertex buffer
+        int vbo = GL15.glGenBuffers();
+
+        // Fill data in buffer and add pointer for every attribute
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        UploadScheduler.bufferData(GL15.GL_ARRAY_BUFFER, vbo, data, null);
+        addPointers(layout);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to buffers
+        addVbo(vbo, data.remaining());
+    }
+
+    /**
+     * Adding new empty interleaved VertexBufferObject (VBO) to the VAO, that is
+     * filled later in parts with glBufferSubData (e.g. by the mesh pool)
+     *
+     * @param bytes  Size of the buffer in bytes
+     * @param layout Layout of the vertex data
+     * @return VBO id of the vertex buffer
+     */
+    public int addVertexBuffer(long bytes, VertexLayout layout) {
+
+        // Bind VAO
+        bind();
+
+        // Generate vertex buffer
+        int vbo = GL15.glGenBuffers();
+
+        // Setup data storage and add pointer for every attribute
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, bytes, GL15.GL_STATIC_DRAW);
+        addPointers(layout);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Unbind VAO
+        unbind();
+
+        // Add new buffer to buffers
+        addVbo(vbo, bytes);
+        return vbo;
+    }
+
+    /**
+     * Creates new empty IndexBuffer with int indices, that is filled later in
+     * parts with glBufferSubData (e.g. by the mesh pool) and adding it to the vao
+     *
+     * @param size Max count of indices in the buffer
+     * @return IndexBuffer that was created
+     */
+    public IndexBuffer addIndexBuffer(int size) {
+
+        // Bind VAO
+        bind();
+
+        // Generate index buffer and setup data storage
+        int vbo = GL15.glGenBuffers();
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
-        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, (long) size * 4, GL15.GL_STATIC_DRAW);
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
 
         // Unbind VAO
         unbind();
 
         // Add new buffer to memory dumper to delete after exit
-        MemoryDumper.addVbo(vbo);
+        addVbo(vbo, (long) size * 4);
+
+        return new IndexBuffer(vbo, size);
+    }
+
+    /**
+     * Attaching an existing filled vertex buffer to the vao, e.g. a buffer that
+     * was created in the loader context. The vao takes ownership of the buffer
+     * and deletes it with its other buffers.
+     *
+     * @param vbo    Existing vertex buffer
+     * @param bytes  Size of the buffer in bytes
+     * @param layout Layout of the vertex data
+     */
+    public void attachVertexBuffer(int vbo, long bytes, VertexLayout layout) {
+
+        // Bind VAO and vertex buffer
+        bind();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+
+        // Add pointer for every attribute
+        addPointers(layout);
+
+        // Unbind vertex buffer and VAO
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        unbind();
 
-        // Create and return new index buffer
-        return new IndexBuffer(vbo, indices.length);
+        // Add buffer to buffers
+        addVbo(vbo, bytes);
+    }
+
+    /**
+     * Attaching an existing filled index buffer to the vao, e.g. a buffer that
+     * was created in the loader context. The vao takes ownership of the buffer
+     * and deletes it with its other buffers.
+     *
+     * @param vbo   Existing index buffer
+     * @param size  Count of indices in the buffer
+     * @param type  Gl type of the indices (GL_UNSIGNED_INT, GL_UNSIGNED_SHORT)
+     * @return IndexBuffer of the attached buffer
+     */
+    public IndexBuffer attachIndexBuffer(int vbo, int size, int type) {
+        addVbo(vbo, (long) size * (type == GL11.GL_UNSIGNED_SHORT ? 2 : 4));
+        return new IndexBuffer(vbo, size, type);
+    }
+
+    /**
+     * Adding a pointer for every attribute of a layout into the bound vertex
+     * buffer
+     *
+     * @param layout Layout of the vertex data
+     */
+    private void addPointers(VertexLayout layout) {
+        for (int i = 0; i < layout.getAttributeCount(); i++) {
+            if (layout.isInteger(i))
+                GL30.glVertexAttribIPointer(layout.getRow(i), layout.getDimension(i), layout.getType(i),
+                        layout.getStride(), layout.getOffset(i));
+            else
+                GL20.glVertexAttribPointer(layout.getRow(i), layout.getDimension(i), layout.getType(i),
+                        layout.isNormalized(i), layout.getStride(), layout.getOffset(i));
+            attribs = Toolbox.addElement(attribs, layout.getRow(i));
+        }
     }
 
     /**
@@ -149,21 +426,39 @@ public class VertexArrayObject {
      */
     public int addInstancedVertexBuffer(int maxInstances, int dimension, int firstRow, int rowCount) {
 
-        // Bind VAO
-        bind();
-
         // Generate vertex buffer
         int vbo = GL15.glGenBuffers();
 
-        // Bind vertex buffer
+        // Setup data storage
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, dimension * 4 * rowCount * maxInstances, GL15.GL_STREAM_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Add new buffer to memory dumper and attach to vao
+        addVbo(vbo, (long) dimension * 4 * rowCount * maxInstances);
+        attachInstancedVertexBuffer(vbo, dimension, firstRow, rowCount);
+
+        return vbo;
+    }
+
+    /**
+     * Attaching an existing vertex buffer, that changes per instance. So one
+     * instance buffer can be shared by multiple vaos.
+     *
+     * @param vbo       Existing vertex buffer to attach
+     * @param dimension Dimension of the instanced data
+     * @param firstRow  First row of the instanced data
+     * @param rowCount  Count of rows of the instanced data
+     */
+    public void attachInstancedVertexBuffer(int vbo, int dimension, int firstRow, int rowCount) {
+
+        // Bind VAO and vertex buffer
+        bind();
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
 
         // Size of one row in the vertex buffer
         int rowSizeBytes = dimension * 4;
 
-        // Setup data storage
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, rowSizeBytes * rowCount * maxInstances, GL15.GL_STREAM_DRAW);
-
         // Add Pointer(s) for instanced vertex buffer and setdivisors to 1 (per
         // instance)
         for (int i = firstRow; i < firstRow + rowCount; i++) {
@@ -173,19 +468,62 @@ public class VertexArrayObject {
             GL33.glVertexAttribDivisor(i, 1);
         }
 
-        // Unbind vertex buffer
+        // Unbind vertex buffer and VAO
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-
-        // Unbind VAO
         unbind();
 
-        // Add new buffer to memory dumper and rows to attributes
-        MemoryDumper.addVbo(vbo);
+        // Add rows to attributes
         for (int i = firstRow; i < firstRow + rowCount; i++) {
             attribs = Toolbox.addElement(attribs, i);
         }
+    }
 
-        return vbo;
+    /**
+     * Attaching an existing integer vertex buffer, that changes per instance and
+     * stays integer in the shader (ivec). Instanced attributes respect the base
+     * instance of indirect draw commands, so this can be used as per draw data.
+     *
+     * @param vbo       Existing vertex buffer to attach
+     * @param dimension Dimension of the instanced data
+     * @param row       Row of the instanced data
+     */
+    public void attachInstancedIntegerVertexBuffer(int vbo, int dimension, int row) {
+
+        // Bind VAO and vertex buffer
+        bind();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+
+        // Add pointer and set divisor to 1 (per instance)
+        GL30.glVertexAttribIPointer(row, dimension, GL11.GL_INT, 0, 0);
+        GL33.glVertexAttribDivisor(row, 1);
+
+        // Unbind vertex buffer and VAO
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        unbind();
+
+        attribs = Toolbox.addElement(attribs, row);
+    }
+
+    /**
+     * Deleting the vao and all its buffers. Instanced buffers, that were only
+     * attached, are not deleted.
+     */
+    public void delete() {
+        for (int vbo : vbos)
+            MemoryDumper.delete(MemoryDumper.Type.VBO, vbo);
+        MemoryDumper.delete(MemoryDumper.Type.VAO, id);
+        vbos = new int[0];
+    }
+
+    /**
+     * Tracking a buffer of the vao
+     *
+     * @param vbo   Buffer to track
+     * @param bytes Size of the buffer in bytes
+     */
+    private void addVbo(int vbo, long bytes) {
+        MemoryDumper.add(MemoryDumper.Type.VBO, vbo, bytes, this);
+        vbos = Toolbox.addElement(vbos, vbo);
     }
 
     /**
@@ -0,0 +1,194 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.util.gl;
+
+import de.coreengine.util.Toolbox;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+
+import java.util.Arrays;
+
+/**
+ * Class that describes the attributes of an interleaved vertex buffer. The
+ * attributes are stored one after another in every vertex, in the order they
+ * were added.
+ *
+ * @author Darius Dinger
+ */
+public class VertexLayout {
+
+    // Attributes of the layout
+    private int[] rows = new int[0], dimensions = new int[0], types = new int[0], offsets = new int[0];
+    private boolean[] normalized = new boolean[0], integer = new boolean[0];
+
+    // Size of one vertex in bytes
+    private int stride = 0;
+
+    /**
+     * Adding a float attribute to the layout. Integer types are converted to
+     * float in the shader.
+     *
+     * @param row        Row of the attribute in the vao
+     * @param dimension  Dimension of the attribute
+     * @param type       Gl type of the stored values
+     * @param normalized Should integer values be normalized into [0, 1] or [-1,
+     *                   1]
+     * @return This layout
+     */
+    public VertexLayout addAttribute(int row, int dimension, int type, boolean normalized) {
+        return add(row, dimension, type, normalized, false);
+    }
+
+    /**
+     * Adding an integer attribute to the layout, that stays integer in the
+     * shader (ivec)
+     *
+     * @param row       Row of the attribute in the vao
+     * @param dimension Dimension of the attribute
+     * @param type      Gl integer type of the stored values
+     * @return This layout
+     */
+    public VertexLayout addIntegerAttribute(int row, int dimension, int type) {
+        return add(row, dimension, type, false, true);
+    }
+
+    /**
+     * Adding an attribute at the end of the vertex
+     *
+     * @param row        Row of the attribute in the vao
+     * @param dimension  Dimension of the attribute
+     * @param type       Gl type of the stored values
+     * @param normalized Normalize integer values
+     * @param integer    Keep values as integer in the shader
+     * @return This layout
+     */
+    private VertexLayout add(int row, int dimension, int type, boolean normalized, boolean integer) {
+        rows = Toolbox.addElement(rows, row);
+        dimensions = Toolbox.addElement(dimensions, dimension);
+        types = Toolbox.addElement(types, type);
+        offsets = Toolbox.addElement(offsets, stride);
+
+        this.normalized = Arrays.copyOf(this.normalized, rows.length);
+        this.normalized[rows.length - 1] = normalized;
+        this.integer = Arrays.copyOf(this.integer, rows.length);
+        this.integer[rows.length - 1] = integer;
+
+        // Keep every attribute 4 byte aligned
+        stride += (getSize(dimension, type) + 3) & ~3;
+        return this;
+    }
+
+    /**
+     * Calculating the size of an attribute in bytes
+     *
+     * @param dimension Dimension of the attribute
+     * @param type      Gl type of the stored values
+     * @return Size in bytes
+     */
+    private static int getSize(int dimension, int type) {
+        switch (type) {
+        case GL11.GL_BYTE:
+        case GL11.GL_UNSIGNED_BYTE:
+            return dimension;
+        case GL11.GL_SHORT:
+        case GL11.GL_UNSIGNED_SHORT:
+        case GL30.GL_HALF_FLOAT:
+            return dimension * 2;
+        case GL33.GL_INT_2_10_10_10_REV:
+        case GL12.GL_UNSIGNED_INT_2_10_10_10_REV:
+            return 4;
+        default:
+            return dimension * 4;
+        }
+    }
+
+    /**
+     * @return Count of attributes in the layout
+     */
+    public int getAttributeCount() {
+        return rows.length;
+    }
+
+    /**
+     * @param attribute Index of the attribute
+     * @return Row of the attribute in the vao
+     */
+    public int getRow(int attribute) {
+        return rows[attribute];
+    }
+
+    /**
+     * @param attribute Index of the attribute
+     * @return Dimension of the attribute
+     */
+    public int getDimension(int attribute) {
+        return dimensions[attribute];
+    }
+
+    /**
+     * @param attribute Index of the attribute
+     * @return Gl type of the stored values
+     */
+    public int getType(int attribute) {
+        return types[attribute];
+    }
+
+    /**
+     * @param attribute Index of the attribute
+     * @return Offset of the attribute in the vertex in bytes
+     */
+    public int getOffset(int attribute) {
+        return offsets[attribute];
+    }
+
+    /**
+     * @param attribute Index of the attribute
+     * @return Are integer values normalized
+     */
+    public boolean isNormalized(int attribute) {
+        return normalized[attribute];
+    }
+
+    /**
+     * @param attribute Index of the attribute
+     * @return Does the attribute stay integer in the shader
+     */
+    public boolean isInteger(int attribute) {
+        return integer[attribute];
+    }
+
+    /**
+     * @return Size of one vertex in bytes
+     */
+    public int getStride() {
+        return stride;
+    }
+}
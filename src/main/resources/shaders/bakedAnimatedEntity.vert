@@ -0,0 +1,43 @@
+#version 400 core
+
+#include "include/entityVertex.glsl"
+
+//Per instance data
+in mat4 transMat;
+in vec4 animation;
+
+uniform sampler2D jointTexture;
+uniform int frameCount;
+uniform float sampleRate;
+
+//The two baked frames around the instance time and the blend factor between them
+int frame0, frame1;
+float blend;
+
+mat4 getFrameJointMatrix(int joint, int frame){
+    int x = joint * 4;
+    return mat4(texelFetch(jointTexture, ivec2(x, frame), 0),
+                texelFetch(jointTexture, ivec2(x + 1, frame), 0),
+                texelFetch(jointTexture, ivec2(x + 2, frame), 0),
+                texelFetch(jointTexture, ivec2(x + 3, frame), 0));
+}
+
+mat4 getJointMatrix(int joint){
+    return getFrameJointMatrix(joint, frame0) * (1.0 - blend) + getFrameJointMatrix(joint, frame1) * blend;
+}
+
+#include "include/skinning.glsl"
+
+void main(void){
+
+    //Get the two baked frames around the instance time
+    float frame = animation.x * sampleRate;
+    frame0 = clamp(int(floor(frame)), 0, frameCount -1);
+    frame1 = min(frame0 + 1, frameCount -1);
+    blend = clamp(frame - float(frame0), 0.0, 1.0);
+
+    vec4 pos;
+    vec3 nrm, tan;
+    skinVertex(pos, nrm, tan);
+    emitVertex(transMat, pos, nrm, tan);
+}
\ No newline at end of file
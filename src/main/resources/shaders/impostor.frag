@@ -0,0 +1,64 @@
+#version 400 core
+
+in vec3 pos_frag_in;
+in vec2 uv0_frag_in;
+in vec2 uv1_frag_in;
+in vec2 uv2_frag_in;
+flat in vec2 frame0_frag_in;
+flat in vec2 frame1_frag_in;
+flat in vec2 frame2_frag_in;
+flat in vec3 weights_frag_in;
+flat in vec3 dir_frag_in;
+flat in mat4 transMat_frag_in;
+flat in mat3 nrmMat_frag_in;
+
+out vec4 out_Color[8];
+
+uniform sampler2D colorAtlas;
+uniform sampler2D normalDepthAtlas;
+
+uniform mat4 vpMat;
+
+uniform float frames;
+uniform float radius;
+
+const float ALPHA_THRESHOLD = 0.5f;
+
+//Atlas coordinates of a view, clamped to prevent bleeding from neighbor views
+vec2 getAtlasUv(vec2 frame, vec2 uv){
+	return (frame + clamp(uv, 0.0, 1.0)) / frames;
+}
+
+vec4 sampleViews(sampler2D atlas){
+	return texture(atlas, getAtlasUv(frame0_frag_in, uv0_frag_in)) * weights_frag_in.x +
+		texture(atlas, getAtlasUv(frame1_frag_in, uv1_frag_in)) * weights_frag_in.y +
+		texture(atlas, getAtlasUv(frame2_frag_in, uv2_frag_in)) * weights_frag_in.z;
+}
+
+void main(void){
+	vec4 color = sampleViews(colorAtlas);
+	
+	//Alpha
+	if(color.a < ALPHA_THRESHOLD){
+		discard;
+	}
+	
+	//Background of the views is zero, so remove its weight
+	vec4 normalDepth = sampleViews(normalDepthAtlas) / color.a;
+	color.rgb /= color.a;
+	
+	//Reconstruct surface position from the baked depth
+	vec3 modelPos = pos_frag_in + dir_frag_in * normalDepth.w * radius;
+	vec4 worldPos = transMat_frag_in * vec4(modelPos, 1.0);
+	vec4 clipPos = vpMat * worldPos;
+	gl_FragDepth = clipPos.z / clipPos.w * 0.5 + 0.5;
+	
+	out_Color[0] = vec4(color.rgb, 1.0);
+	out_Color[1] = worldPos;
+	out_Color[2] = vec4(normalize(nrmMat_frag_in * normalDepth.xyz), 1.0);
+	out_Color[3] = vec4(0, 1, 0, 1);
+	out_Color[4] = vec4(1.0, 1.0, 1.0, 1.0);
+	out_Color[5] = vec4(0, 0, 0, 1);
+	out_Color[6] = vec4(0, 0, 0, 1);
+	out_Color[7] = vec4(0, 0, 0, 1);
+}
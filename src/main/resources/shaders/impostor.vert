@@ -0,0 +1,99 @@
+#version 400 core
+
+in vec2 corner;
+in mat4 transMat;
+
+out vec3 pos_frag_in;
+out vec2 uv0_frag_in;
+out vec2 uv1_frag_in;
+out vec2 uv2_frag_in;
+flat out vec2 frame0_frag_in;
+flat out vec2 frame1_frag_in;
+flat out vec2 frame2_frag_in;
+flat out vec3 weights_frag_in;
+flat out vec3 dir_frag_in;
+flat out mat4 transMat_frag_in;
+flat out mat3 nrmMat_frag_in;
+
+uniform mat4 vpMat;
+uniform vec3 camPos;
+
+uniform float frames;
+uniform float radius;
+
+uniform vec4 clipPlane;
+
+vec2 signNotZero(vec2 v){
+	return vec2(v.x >= 0.0 ? 1.0 : -1.0, v.y >= 0.0 ? 1.0 : -1.0);
+}
+
+//Octahedral mapping of a direction into [0, 1]², lower hemisphere is folded outwards
+vec2 encodeDirection(vec3 dir){
+	dir /= abs(dir.x) + abs(dir.y) + abs(dir.z);
+	vec2 p = dir.xz;
+	if(dir.y < 0.0){
+		p = (1.0 - abs(p.yx)) * signNotZero(p);
+	}
+	return p * 0.5 + 0.5;
+}
+
+vec3 decodeDirection(vec2 uv){
+	vec2 p = uv * 2.0 - 1.0;
+	float y = 1.0 - abs(p.x) - abs(p.y);
+	if(y < 0.0){
+		p = (1.0 - abs(p.yx)) * signNotZero(p);
+	}
+	return normalize(vec3(p.x, y, p.y));
+}
+
+//Must match the basis, the views were baked with
+void getBasis(vec3 dir, out vec3 right, out vec3 up){
+	vec3 helper = abs(dir.y) > 0.999 ? vec3(0, 0, 1) : vec3(0, 1, 0);
+	right = normalize(cross(helper, dir));
+	up = cross(dir, right);
+}
+
+//Projecting a quad position along the view direction onto the plane of a baked view
+vec2 getFrameUv(vec2 frame, vec3 pos, vec3 viewDir){
+	vec3 frameDir = decodeDirection((frame + 0.5) / frames);
+	vec3 right, up;
+	getBasis(frameDir, right, up);
+	
+	pos -= viewDir * dot(pos, frameDir) / max(dot(viewDir, frameDir), 0.001);
+	return vec2(dot(pos, right), dot(pos, up)) / radius * 0.5 + 0.5;
+}
+
+void main(void){
+	mat3 rotScale = mat3(transMat);
+	vec3 center = (transMat * vec4(0.0, 0.0, 0.0, 1.0)).xyz;
+	vec3 viewDir = normalize(inverse(rotScale) * (camPos - center));
+	
+	//Model space quad facing the camera
+	vec3 right, up;
+	getBasis(viewDir, right, up);
+	vec3 quadPos = (corner.x * right + corner.y * up) * radius;
+	
+	//Three nearest views of the octahedral grid and their barycentric weights
+	vec2 grid = clamp(encodeDirection(viewDir) * frames - 0.5, 0.0, frames - 1.0);
+	vec2 base = floor(grid);
+	vec2 f = grid - base;
+	vec2 offset = f.x >= f.y ? vec2(1.0, 0.0) : vec2(0.0, 1.0);
+	weights_frag_in = f.x >= f.y ? vec3(1.0 - f.x, f.x - f.y, f.y) : vec3(1.0 - f.y, f.y - f.x, f.x);
+	
+	frame0_frag_in = base;
+	frame1_frag_in = min(base + offset, frames - 1.0);
+	frame2_frag_in = min(base + 1.0, frames - 1.0);
+	
+	uv0_frag_in = getFrameUv(frame0_frag_in, quadPos, viewDir);
+	uv1_frag_in = getFrameUv(frame1_frag_in, quadPos, viewDir);
+	uv2_frag_in = getFrameUv(frame2_frag_in, quadPos, viewDir);
+	
+	pos_frag_in = quadPos;
+	dir_frag_in = viewDir;
+	transMat_frag_in = transMat;
+	nrmMat_frag_in = transpose(inverse(rotScale));
+	
+	vec4 worldPos = transMat * vec4(quadPos, 1.0);
+	gl_ClipDistance[0] = dot(worldPos, clipPlane);
+	gl_Position = vpMat * worldPos;
+}
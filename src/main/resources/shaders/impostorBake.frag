@@ -0,0 +1,25 @@
+#version 400 core
+
+in vec2 tex_frag_in;
+in vec3 nrm_frag_in;
+in float dep_frag_in;
+
+out vec4 out_Color[2];
+
+uniform sampler2D diffuseMap;
+
+uniform vec3 diffuseColor;
+
+const float ALPHA_THRESHOLD = 0.5f;
+
+void main(void){
+	vec4 diffuseMapCol = texture(diffuseMap, vec2(tex_frag_in.x, 1.0 - tex_frag_in.y));
+	
+	//Alpha
+	if(diffuseMapCol.a < ALPHA_THRESHOLD){
+		discard;
+	}
+	
+	out_Color[0] = vec4(diffuseMapCol.rgb * diffuseColor, 1.0);
+	out_Color[1] = vec4(normalize(nrm_frag_in), dep_frag_in);
+}
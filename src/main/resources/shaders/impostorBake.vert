@@ -0,0 +1,23 @@
+#version 400 core
+
+in vec3 position;
+in vec2 texCoord;
+in vec3 normal;
+
+out vec2 tex_frag_in;
+out vec3 nrm_frag_in;
+out float dep_frag_in;
+
+uniform mat4 frameMat;
+
+uniform float tiling;
+
+void main(void){
+	tex_frag_in = texCoord * tiling;
+	nrm_frag_in = normal;
+	
+	gl_Position = frameMat * vec4(position, 1.0);
+	dep_frag_in = -gl_Position.z;
+	
+	gl_ClipDistance[0] = 1.0;
+}
@@ -0,0 +1,105 @@
+//Fragment shader of the entities, shared by the direct and the indirect entity pass
+
+in vec2 tex_frag_in;
+in vec3 tan_frag_in;
+in vec3 bit_frag_in;
+in vec3 nrm_frag_in;
+in vec4 pos_frag_in;
+
+out vec4 out_Color[8];
+
+uniform sampler2D diffuseMap;
+uniform sampler2D normalMap;
+uniform sampler2D specularMap;
+uniform sampler2D aoMap;
+uniform sampler2D glowMap;
+
+#ifdef DISPLACEMENT
+uniform vec3 camPos;
+uniform sampler2D displacementMap;
+uniform float displacementFactor;
+
+const float disp_offset = 0.01f;
+#endif
+
+#ifdef MATERIAL_BUFFER
+#include "include/materialBuffer.glsl"
+
+flat in int material_frag_in;
+
+#define shininess materials[material_frag_in].params.y
+#define shineDamper materials[material_frag_in].params.z
+#define diffuseColor materials[material_frag_in].diffuseColor.rgb
+#define glowColor materials[material_frag_in].glowColor.rgb
+#else
+uniform float shininess;
+uniform float shineDamper;
+
+uniform vec3 diffuseColor;
+uniform vec3 glowColor;
+#endif
+
+uniform vec3 pickingColor;
+
+const float ALPHA_THRESHOLD = 0.5f;
+
+vec4 getDiffuseColor(vec2 texCoords){
+	vec4 diffuseMapCol = texture(diffuseMap, texCoords);
+	
+	//Alpha
+	if(diffuseMapCol.a < ALPHA_THRESHOLD){
+		discard;
+	}
+	
+	return diffuseMapCol * vec4(diffuseColor, 1.0);
+}
+
+vec4 getNormal(vec2 texCoords, mat3 tbnMat){
+	vec3 normalMapNorm = normalize(2.0 * texture(normalMap, texCoords).rgb -1.0);
+	return vec4(tbnMat * normalMapNorm, 1);
+}
+
+vec2 getSpecular(vec2 texCoords){
+	float specMapFac = texture(specularMap, texCoords).r;
+	return vec2(specMapFac * shininess, shineDamper);
+}
+
+float getAo(vec2 texCoords){
+	return texture(aoMap, texCoords).r;
+}
+
+vec4 getGlowing(vec2 texCoords){
+	vec4 glowingMapCol = texture(glowMap, texCoords);
+	return glowingMapCol * vec4(glowColor, 1.0);
+}
+
+#ifdef DISPLACEMENT
+vec2 getParallaxDistortion(mat3 tbnMat){
+	vec3 normToCam = normalize(transpose(tbnMat) * normalize(camPos -pos_frag_in.xyz));
+	
+	float disp = texture(displacementMap, tex_frag_in).r;
+	float bias = displacementFactor / 2.0;
+	vec2 displacement = normToCam.xz * (disp * displacementFactor + (-bias + (bias * disp_offset)));
+	
+	return tex_frag_in +displacement;
+}
+#endif
+
+void main(void){
+	mat3 tbnMat = mat3(tan_frag_in, bit_frag_in, nrm_frag_in);
+#ifdef DISPLACEMENT
+	vec2 texCoords = getParallaxDistortion(tbnMat);
+#else
+	vec2 texCoords = tex_frag_in;
+#endif
+	texCoords.y = 1.0 - texCoords.y;
+	
+	out_Color[0] = getDiffuseColor(texCoords);
+	out_Color[1] = pos_frag_in;
+	out_Color[2] = getNormal(texCoords, tbnMat);
+	out_Color[3] = vec4(getSpecular(texCoords), 0, 1);
+	out_Color[4] = vec4(1.0, 1.0, getAo(texCoords), 1.0);
+	out_Color[5] = vec4(pickingColor, 1.0);
+	out_Color[6] = getGlowing(texCoords);
+	out_Color[7] = vec4(0, 0, 0, 1);
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+//Common attributes, outputs and uniforms of the entity vertex shaders
+
+in vec3 position;
+in vec2 texCoord;
+in vec3 normal;
+in vec3 tangent;
+
+out vec2 tex_frag_in;
+out vec3 tan_frag_in;
+out vec3 bit_frag_in;
+out vec3 nrm_frag_in;
+out vec4 pos_frag_in;
+
+uniform mat4 vpMat;
+
+#ifdef MATERIAL_BUFFER
+//Set by the indirect shader from the material of the draw
+float tiling;
+#else
+uniform float tiling;
+#endif
+
+#ifdef CLIP_PLANE
+uniform vec4 clipPlane;
+#endif
+
+//Transforming a vertex into world and clip space and passing it to the fragment shader
+void emitVertex(mat4 transMat, vec4 pos, vec3 nrm, vec3 tan){
+    tex_frag_in = texCoord * tiling;
+    pos_frag_in = transMat * pos;
+
+    tan_frag_in = normalize((transMat * vec4(tan, 0.0)).xyz);
+    nrm_frag_in = normalize((transMat * vec4(nrm, 0.0)).xyz);
+    bit_frag_in = normalize(cross(nrm_frag_in, tan_frag_in));
+
+#ifdef CLIP_PLANE
+    gl_ClipDistance[0] = dot(pos_frag_in, clipPlane);
+#endif
+    gl_Position = vpMat * pos_frag_in;
+}
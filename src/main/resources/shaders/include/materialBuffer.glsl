@@ -0,0 +1,11 @@
+//Materials of the indirect entity pass, indexed by the material index of the draw
+
+struct MaterialData {
+    vec4 diffuseColor;  //rgb: Diffuse color
+    vec4 glowColor;     //rgb: Glow color
+    vec4 params;        //x: Tiling, y: Shininess, z: Shine damper
+};
+
+layout(std430, binding = 1) readonly buffer Materials {
+    MaterialData materials[];
+};
@@ -0,0 +1,24 @@
+//Skinning of a vertex by up to four joints. The including shader must declare mat4 getJointMatrix(int joint) before
+
+in ivec4 joints;
+in vec4 weights;
+
+void skinVertex(out vec4 pos, out vec3 nrm, out vec3 tan){
+    pos = vec4(0.0);
+    nrm = vec3(0.0);
+    tan = vec3(0.0);
+
+    //Iterate through effected joints
+    for(int i = 0; i < 4; i++){
+        mat4 jointTrans = getJointMatrix(joints[i]);
+
+        //Interpolate position
+        pos += jointTrans * vec4(position, 1.0) * weights[i];
+
+        //Interpolate normal
+        nrm += (jointTrans * vec4(normal, 0.0)).xyz * weights[i];
+
+        //Interpolate tangent
+        tan += (jointTrans * vec4(tangent, 0.0)).xyz * weights[i];
+    }
+}
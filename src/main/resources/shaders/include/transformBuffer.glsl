@@ -0,0 +1,5 @@
+//Transformations of the indirect entity passes, indexed by the per draw data
+
+layout(std430, binding = 0) readonly buffer Transforms {
+    mat4 transforms[];
+};
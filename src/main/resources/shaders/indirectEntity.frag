@@ -0,0 +1,5 @@
+#version 430 core
+
+#define MATERIAL_BUFFER
+
+#include "include/entityFragment.glsl"
\ No newline at end of file
@@ -0,0 +1,18 @@
+#version 430 core
+
+#define MATERIAL_BUFFER
+
+#include "include/entityVertex.glsl"
+#include "include/materialBuffer.glsl"
+#include "include/transformBuffer.glsl"
+
+//Per draw data: Index of the transformation and of the material
+in ivec2 drawData;
+
+flat out int material_frag_in;
+
+void main(void){
+    material_frag_in = drawData.y;
+    tiling = materials[drawData.y].params.x;
+    emitVertex(transforms[drawData.x], vec4(position, 1.0), normal, tangent);
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+#version 430 core
+
+#include "include/transformBuffer.glsl"
+
+in vec3 position;
+
+//Per draw data: Index of the transformation and of the material
+in ivec2 drawData;
+
+uniform mat4 vpMat;
+
+void main(void){
+    gl_Position = vpMat * transforms[drawData.x] * vec4(position, 1.0);
+}
\ No newline at end of file
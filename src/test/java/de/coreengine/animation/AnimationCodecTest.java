@@ -0,0 +1,248 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.animation;
+
+import org.junit.Test;
+
+import javax.vecmath.AxisAngle4f;
+import javax.vecmath.Quat4f;
+import javax.vecmath.Vector3f;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for encoding and decoding of compressed animations
+ *
+ * @author Darius Dinger
+ */
+public class AnimationCodecTest {
+    private static final float LENGTH = 2.0f, TOLERANCE = 0.001f;
+    private static final int KEY_COUNT = 21;
+
+    @Test
+    public void roundTripKeepsNameAndTracks() {
+        List<KeyFrameList<Vector3f>> positions = new ArrayList<>();
+        List<KeyFrameList<Quat4f>> rotations = new ArrayList<>();
+        List<KeyFrameList<Vector3f>> scales = new ArrayList<>();
+        String name = decode(encode(createWave(), createRotation(), createConstant()), positions, rotations,
+                scales);
+
+        assertEquals("walk", name);
+        assertEquals(1, positions.size());
+        assertEquals(1, rotations.size());
+        assertEquals(1, scales.size());
+    }
+
+    @Test
+    public void vectorTrackIsWithinTolerance() {
+        KeyFrameList<Vector3f> wave = createWave();
+        List<KeyFrameList<Vector3f>> positions = new ArrayList<>();
+        decode(encode(wave, createRotation(), createConstant()), positions, new ArrayList<>(), new ArrayList<>());
+
+        Vector3f sample = new Vector3f();
+        for (int k = 0; k < wave.size(); k++) {
+            assertTrue(positions.get(0).sampleVector(wave.getTimestamp(k), sample));
+            assertEquals(wave.getValue(k, 0), sample.x, TOLERANCE * 2);
+            assertEquals(wave.getValue(k, 1), sample.y, TOLERANCE * 2);
+            assertEquals(wave.getValue(k, 2), sample.z, TOLERANCE * 2);
+        }
+    }
+
+    @Test
+    public void rotationTrackIsWithinTolerance() {
+        KeyFrameList<Quat4f> rotation = createRotation();
+        List<KeyFrameList<Quat4f>> rotations = new ArrayList<>();
+        decode(encode(createWave(), rotation, createConstant()), new ArrayList<>(), rotations, new ArrayList<>());
+
+        Quat4f sample = new Quat4f();
+        for (int k = 0; k < rotation.size(); k++) {
+            assertTrue(rotations.get(0).sampleQuaternion(rotation.getTimestamp(k), sample));
+            float dot = rotation.getValue(k, 0) * sample.x + rotation.getValue(k, 1) * sample.y
+                    + rotation.getValue(k, 2) * sample.z + rotation.getValue(k, 3) * sample.w;
+            assertEquals("Quaternions must describe the same rotation", 1.0f, Math.abs(dot), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void linearTracksAreReducedToTheirEnds() {
+        KeyFrameList<Vector3f> linear = new KeyFrameList<>();
+        for (int k = 0; k < KEY_COUNT; k++) {
+            float time = getTime(k);
+            linear.addKeyFrame(new KeyFrame<>(time, new Vector3f(time, -time * 2.0f, 1.0f)));
+        }
+
+        List<KeyFrameList<Vector3f>> positions = new ArrayList<>();
+        decode(encode(linear, createRotation(), createConstant()), positions, new ArrayList<>(), new ArrayList<>());
+
+        assertEquals(2, positions.get(0).size());
+        assertEquals(LENGTH, positions.get(0).getTimestamp(1), 0.0001f);
+        assertEquals(-LENGTH * 2.0f, positions.get(0).getValue(1, 1), 0.0001f);
+    }
+
+    @Test
+    public void constantTrackIsStoredAsRawKey() {
+        List<KeyFrameList<Vector3f>> scales = new ArrayList<>();
+        decode(encode(createWave(), createRotation(), createConstant()), new ArrayList<>(), new ArrayList<>(),
+                scales);
+
+        KeyFrameList<Vector3f> scale = scales.get(0);
+        assertEquals(1, scale.size());
+        assertEquals(0.0f, scale.getTimestamp(0), 0.0f);
+        assertEquals(1.5f, scale.getValue(0, 0), 0.0f);
+        assertEquals(0.25f, scale.getValue(0, 1), 0.0f);
+        assertEquals(-3.0f, scale.getValue(0, 2), 0.0f);
+    }
+
+    @Test
+    public void roundTripKeepsLength() {
+        Animation walk = new Animation("walk", new ArrayList<>(Collections.singletonList(createWave())),
+                new ArrayList<>(Collections.singletonList(createRotation())),
+                new ArrayList<>(Collections.singletonList(createConstant())));
+
+        assertEquals(LENGTH, decodeAnimation(walk).getLength(), 0.0f);
+    }
+
+    @Test
+    public void constantClipKeepsLength() {
+        KeyFrameList<Quat4f> rotation = new KeyFrameList<>();
+        for (int k = 0; k < KEY_COUNT; k++)
+            rotation.addKeyFrame(new KeyFrame<>(getTime(k), new Quat4f(0.0f, 0.0f, 0.0f, 1.0f)));
+        Animation hold = new Animation("hold", new ArrayList<>(Collections.singletonList(createConstant())),
+                new ArrayList<>(Collections.singletonList(rotation)),
+                new ArrayList<>(Collections.singletonList(createConstant())));
+
+        Animation decoded = decodeAnimation(hold);
+        assertEquals("hold", decoded.getName());
+        assertEquals(LENGTH, decoded.getLength(), 0.0f);
+    }
+
+    @Test
+    public void emptyTrackIsKept() {
+        List<KeyFrameList<Vector3f>> positions = new ArrayList<>();
+        decode(encode(new KeyFrameList<>(), createRotation(), createConstant()), positions, new ArrayList<>(),
+                new ArrayList<>());
+
+        assertEquals(1, positions.size());
+        assertEquals(0, positions.get(0).size());
+    }
+
+    /**
+     * @param position Position track to encode
+     * @param rotation Rotation track to encode
+     * @param scale    Scale track to encode
+     * @return Buffer with the encoded animation
+     */
+    private static ByteBuffer encode(KeyFrameList<Vector3f> position, KeyFrameList<Quat4f> rotation,
+            KeyFrameList<Vector3f> scale) {
+        byte[] data = AnimationCodec.encode("walk", LENGTH, Collections.singletonList(position),
+                Collections.singletonList(rotation), Collections.singletonList(scale), TOLERANCE, TOLERANCE,
+                TOLERANCE);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        assertEquals(AnimationCodec.MAGIC, buffer.getInt(0));
+        return buffer;
+    }
+
+    /**
+     * Decoding an animation and checking, that the whole buffer was read
+     *
+     * @param buffer    Encoded animation
+     * @param positions List to store position tracks in
+     * @param rotations List to store rotation tracks in
+     * @param scales    List to store scale tracks in
+     * @return Name of the animation
+     */
+    private static String decode(ByteBuffer buffer, List<KeyFrameList<Vector3f>> positions,
+            List<KeyFrameList<Quat4f>> rotations, List<KeyFrameList<Vector3f>> scales) {
+        String name = AnimationCodec.getName(buffer);
+        assertEquals(LENGTH, AnimationCodec.decode(buffer, positions, rotations, scales), 0.0f);
+        assertEquals(0, buffer.remaining());
+        return name;
+    }
+
+    /**
+     * @param animation Animation to compress
+     * @return Animation decoded from the compressed bytes
+     */
+    private static Animation decodeAnimation(Animation animation) {
+        Animation decoded = new Animation("", new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        decoded.fromBytes(animation.toCompressedBytes(TOLERANCE, TOLERANCE, TOLERANCE));
+        return decoded;
+    }
+
+    /**
+     * @return Position track with a sine wave, that can not be reduced
+     */
+    private static KeyFrameList<Vector3f> createWave() {
+        KeyFrameList<Vector3f> keys = new KeyFrameList<>();
+        for (int k = 0; k < KEY_COUNT; k++) {
+            float time = getTime(k);
+            keys.addKeyFrame(new KeyFrame<>(time, new Vector3f((float) Math.sin(time * Math.PI) * 4.0f, time,
+                    (float) Math.cos(time * 3.0) * 0.5f)));
+        }
+        return keys;
+    }
+
+    /**
+     * @return Rotation track over more than half a turn, so the largest
+     *         quaternion component and its sign change
+     */
+    private static KeyFrameList<Quat4f> createRotation() {
+        KeyFrameList<Quat4f> keys = new KeyFrameList<>();
+        for (int k = 0; k < KEY_COUNT; k++) {
+            float time = getTime(k);
+            Quat4f rotation = new Quat4f();
+            rotation.set(new AxisAngle4f(0.6f, 0.0f, 0.8f, time * (float) Math.PI * 0.9f));
+            keys.addKeyFrame(new KeyFrame<>(time, rotation));
+        }
+        return keys;
+    }
+
+    /**
+     * @return Scale track with the same value in every keyframe
+     */
+    private static KeyFrameList<Vector3f> createConstant() {
+        KeyFrameList<Vector3f> keys = new KeyFrameList<>();
+        for (int k = 0; k < KEY_COUNT; k++)
+            keys.addKeyFrame(new KeyFrame<>(getTime(k), new Vector3f(1.5f, 0.25f, -3.0f)));
+        return keys;
+    }
+
+    /**
+     * @param key Index of the keyframe
+     * @return Timestamp of the keyframe
+     */
+    private static float getTime(int key) {
+        return LENGTH * key / (KEY_COUNT - 1);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for building, mounting and reading asset packs
+ *
+ * @author Darius Dinger
+ */
+public class AssetPackTest {
+    private static final String TEXT_PATH = "text.txt", BINARY_PATH = "sub/binary.bin";
+
+    // Temp directory of the test and the mounted packs
+    private Path directory;
+    private final List<String> mounted = new ArrayList<>();
+
+    // Content of the packed files, the text is compressible, the binary not
+    private byte[] text, binary;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("assetPack");
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            builder.append("line ").append(i % 7).append('\n');
+        text = builder.toString().getBytes(StandardCharsets.UTF_8);
+        binary = new byte[4096];
+        new Random(42).nextBytes(binary);
+
+        Path root = directory.resolve("root");
+        Files.createDirectories(root.resolve("sub"));
+        Files.write(root.resolve(TEXT_PATH), text);
+        Files.write(root.resolve(BINARY_PATH), binary);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (String pack : mounted)
+            AssetPack.unmount(pack);
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(path);
+        }
+    }
+
+    @Test
+    public void packedFilesAreReadBack() {
+        assertTrue(mount(build("pack.cepk", true)));
+
+        assertTrue(AssetPack.contains(TEXT_PATH));
+        assertArrayEquals(text, toArray(AssetPack.get(TEXT_PATH)));
+        assertArrayEquals(binary, toArray(AssetPack.get(BINARY_PATH)));
+        assertArrayEquals(binary, toArray(AssetPack.get("./sub\\binary.bin")));
+        assertFalse(AssetPack.contains("missing.txt"));
+        assertNull(AssetPack.get("missing.txt"));
+    }
+
+    @Test
+    public void storedPackIsReadBack() {
+        assertTrue(mount(build("pack.cepk", false)));
+
+        assertArrayEquals(text, toArray(AssetPack.get(TEXT_PATH)));
+        assertArrayEquals(binary, toArray(AssetPack.get(BINARY_PATH)));
+    }
+
+    @Test
+    public void indexContainsSizesAndChecksums() throws IOException {
+        ByteBuffer pack = ByteBuffer.wrap(Files.readAllBytes(build("pack.cepk", true)));
+
+        assertEquals(AssetPack.MAGIC, pack.getInt());
+        assertEquals(AssetPack.VERSION, pack.getInt());
+        assertEquals(2, pack.getInt());
+
+        // Entries are sorted by path
+        assertIndexEntry(pack, BINARY_PATH, binary, AssetPack.COMPRESSION_NONE);
+        assertIndexEntry(pack, TEXT_PATH, text, AssetPack.COMPRESSION_DEFLATE);
+    }
+
+    @Test
+    public void corruptedEntryIsNotReturned() throws IOException {
+        Path file = build("pack.cepk", true);
+        ByteBuffer pack = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        // Zero the deflated data of the text entry
+        long offset = 0;
+        int storedSize = 0;
+        pack.position(12);
+        for (int i = 0; i < 2; i++) {
+            byte[] path = new byte[pack.getShort()];
+            pack.get(path);
+            offset = pack.getLong();
+            storedSize = pack.getInt();
+            pack.position(pack.position() + 9);
+        }
+        for (int i = 0; i < storedSize; i++)
+            pack.put((int) offset + i, (byte) 0);
+        Files.write(file, pack.array());
+
+        assertTrue(mount(file));
+        assertNull(AssetPack.get(TEXT_PATH));
+        assertArrayEquals(binary, toArray(AssetPack.get(BINARY_PATH)));
+    }
+
+    @Test
+    public void corruptedIndexIsNotMounted() throws IOException {
+        Path file = build("pack.cepk", true);
+        ByteBuffer pack = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        // Move the first entry behind the end of the pack
+        pack.putLong(12 + 2 + BINARY_PATH.length(), pack.capacity());
+        Files.write(file, pack.array());
+
+        assertFalse(mount(file));
+    }
+
+    @Test
+    public void lastMountedPackHidesEntries() throws IOException {
+        Path first = build("first.cepk", true);
+        Files.write(directory.resolve("root").resolve(TEXT_PATH), binary);
+        Path second = build("second.cepk", true);
+
+        assertTrue(mount(first));
+        assertTrue(mount(second));
+        assertArrayEquals(binary, toArray(AssetPack.get(TEXT_PATH)));
+
+        AssetPack.unmount(second.toString());
+        assertArrayEquals(text, toArray(AssetPack.get(TEXT_PATH)));
+    }
+
+    /**
+     * @param name     File name of the pack
+     * @param compress Deflate entries
+     * @return Built pack file
+     */
+    private Path build(String name, boolean compress) {
+        Path pack = directory.resolve(name);
+        assertTrue(AssetPack.build(pack.toString(), directory.resolve("root").toString(), compress));
+        return pack;
+    }
+
+    /**
+     * @param pack Pack file to mount
+     * @return True, if the pack was mounted
+     */
+    private boolean mount(Path pack) {
+        mounted.add(pack.toString());
+        return AssetPack.mount(pack.toString());
+    }
+
+    /**
+     * Reading the next index entry and checking it against the packed file
+     *
+     * @param pack        Pack positioned at the index entry
+     * @param path        Expected path
+     * @param content     Content of the packed file
+     * @param compression Expected compression
+     */
+    private static void assertIndexEntry(ByteBuffer pack, String path, byte[] content, byte compression) {
+        byte[] entryPath = new byte[pack.getShort()];
+        pack.get(entryPath);
+        assertEquals(path, new String(entryPath, StandardCharsets.UTF_8));
+
+        long offset = pack.getLong();
+        int storedSize = pack.getInt();
+        assertEquals(content.length, pack.getInt());
+        assertEquals(compression, pack.get());
+        assertTrue(offset + storedSize <= pack.capacity());
+        if (compression == AssetPack.COMPRESSION_NONE)
+            assertEquals(content.length, storedSize);
+        else
+            assertTrue(storedSize < content.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        assertEquals((int) crc.getValue(), pack.getInt());
+    }
+
+    /**
+     * @param buffer Buffer to copy
+     * @return Remaining bytes of the buffer
+     */
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+}
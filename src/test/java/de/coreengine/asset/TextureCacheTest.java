@@ -0,0 +1,155 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset;
+
+import de.coreengine.util.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for storing and loading cached textures
+ *
+ * @author Darius Dinger
+ */
+public class TextureCacheTest {
+
+    // Cache key and file of the test texture
+    private String key;
+    private Path file;
+
+    @Before
+    public void setUp() {
+        key = "test" + System.nanoTime() + "m";
+        file = Paths.get(Configuration.getValues("TEXTURE_CACHE_DIRECTORY"), key + ".cet");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void storedTextureIsLoaded() {
+        TextureCache.store(key, createTexture(4, 2));
+
+        TextureData texture = TextureCache.load(key);
+        assertNotNull(texture);
+        assertEquals(4, (int) texture.width);
+        assertEquals(2, (int) texture.height);
+        assertEquals(3, texture.mipChain.length);
+        assertEquals(4 * 2 * 4, texture.data.remaining());
+        assertEquals(4, texture.mipChain[2].remaining());
+    }
+
+    @Test
+    public void tooManyLevelsAreRejected() throws IOException {
+        writeCache(4, 4, 100, 4 * 4 * 4);
+        assertRejected();
+    }
+
+    @Test
+    public void oversizedDimensionsAreRejected() throws IOException {
+        writeCache(Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 64);
+        assertRejected();
+    }
+
+    @Test
+    public void negativeDimensionsAreRejected() throws IOException {
+        writeCache(-4, 4, 1, 64);
+        assertRejected();
+    }
+
+    @Test
+    public void truncatedLevelsAreRejected() throws IOException {
+        writeCache(4, 4, 3, 4 * 4 * 4);
+        assertRejected();
+    }
+
+    @Test
+    public void truncatedHeaderIsRejected() throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[] { 0, 0, 0, 1, 0, 0 });
+        assertRejected();
+    }
+
+    /**
+     * Checking that the corrupted cache file is not loaded and deleted
+     */
+    private void assertRejected() {
+        assertTrue(Files.isRegularFile(file));
+        assertNull(TextureCache.load(key));
+        assertFalse(Files.isRegularFile(file));
+    }
+
+    /**
+     * Writing a cache file with a custom header
+     *
+     * @param width     Width in the header
+     * @param height    Height in the header
+     * @param levels    Level count in the header
+     * @param pixelSize Count of pixel bytes after the header
+     * @throws IOException If the file could not be written
+     */
+    private void writeCache(int width, int height, int levels, int pixelSize) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(16 + pixelSize);
+        data.putInt(1).putInt(width).putInt(height).putInt(levels);
+
+        Files.createDirectories(file.getParent());
+        Files.write(file, data.array());
+    }
+
+    /**
+     * Creating rgba texture data with its mip chain
+     *
+     * @param width  Width of the texture
+     * @param height Height of the texture
+     * @return Created texture data
+     */
+    private static TextureData createTexture(int width, int height) {
+        TextureData texture = new TextureData();
+        texture.width = width;
+        texture.height = height;
+        texture.data = ByteBuffer.allocateDirect(width * height * 4);
+        texture.generateMipChain();
+        return texture;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.dataStructures;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for writing and reading model files
+ *
+ * @author Darius Dinger
+ */
+public class ModelFileTest {
+    private static final float[] VERTICES = { 0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0 };
+    private static final float[] TEX_COORDS = { 0, 0, 1, 0, 1, 1, 0, 1 };
+    private static final float[] NORMALS = { 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1 };
+    private static final int[] INDICES = { 0, 1, 2, 0, 2, 3 };
+    private static final int[][] LOD_INDICES = { { 0, 1, 2 }, { 0, 2, 3 } };
+
+    @Test
+    public void channelAndBufferOutputAreEqual() throws IOException {
+        ModelFileWriter writer = new ModelFileWriter(createModel());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.write(Channels.newChannel(stream));
+        ByteBuffer buffer = ByteBuffer.allocate((int) writer.getSize());
+        writer.write(buffer);
+
+        assertEquals(writer.getSize(), stream.size());
+        assertFalse(buffer.hasRemaining());
+        assertArrayEquals(stream.toByteArray(), buffer.array());
+    }
+
+    @Test
+    public void sectionsAreAligned() throws IOException {
+        ByteBuffer file = write(createModel()).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertTrue(ModelFile.isModelFile(file));
+        assertEquals(ModelFile.VERSION, file.getInt(4));
+        assertEquals(2, file.getInt(8));
+        for (int s = 0; s < file.getInt(12); s++) {
+            long offset = file.getLong(ModelFile.HEADER_SIZE + s * ModelFile.SECTION_ENTRY_SIZE + 8);
+            assertEquals(0, offset % ModelFile.ALIGNMENT);
+        }
+    }
+
+    @Test
+    public void roundTripRestoresMeshes() throws IOException {
+        ModelData model = new ModelData();
+        assertTrue(ModelFile.read(write(createModel()), model));
+
+        assertEquals(2, model.meshes.length);
+        MeshData mesh = model.meshes[0];
+        assertArrayEquals(VERTICES, mesh.getVertices(), 0.0f);
+        assertArrayEquals(INDICES, mesh.getIndices());
+        assertArrayEquals(TEX_COORDS, toArray(mesh.texCoords, mesh.texCoordsBuffer), 0.0f);
+        assertArrayEquals(NORMALS, toArray(mesh.normals, mesh.normalsBuffer), 0.0f);
+        assertEquals(LOD_INDICES.length, mesh.lodIndices.length);
+        for (int lod = 0; lod < LOD_INDICES.length; lod++)
+            assertArrayEquals(LOD_INDICES[lod], mesh.lodIndices[lod]);
+        assertEquals("box", mesh.shape);
+        assertEquals("diffuse.png", mesh.material.diffuseMap);
+        assertEquals(8.0f, mesh.material.shininess, 0.0f);
+        assertNull(mesh.material.normalMap);
+
+        MeshData plain = model.meshes[1];
+        assertArrayEquals(VERTICES, plain.getVertices(), 0.0f);
+        assertArrayEquals(INDICES, plain.getIndices());
+        assertNull(plain.texCoords);
+        assertNull(plain.texCoordsBuffer);
+        assertNull(plain.lodIndices);
+        assertNull(plain.material);
+    }
+
+    @Test
+    public void newerVersionIsRejected() throws IOException {
+        ByteBuffer file = write(createModel());
+        file.order(ByteOrder.LITTLE_ENDIAN).putInt(4, ModelFile.VERSION + 1);
+
+        assertFalse(ModelFile.read(file, new ModelData()));
+    }
+
+    @Test
+    public void sectionOutOfBoundsIsRejected() throws IOException {
+        ByteBuffer file = write(createModel());
+        file.order(ByteOrder.LITTLE_ENDIAN).putLong(ModelFile.HEADER_SIZE + 16, file.capacity());
+
+        assertFalse(ModelFile.read(file, new ModelData()));
+    }
+
+    @Test
+    public void oldFormatIsNoModelFile() {
+        ByteBuffer file = ByteBuffer.allocate(64);
+        file.putInt(0, 2);
+
+        assertFalse(ModelFile.isModelFile(file));
+    }
+
+    /**
+     * @return Model with a full mesh and a mesh with positions and indices only
+     */
+    private static ModelData createModel() {
+        MeshData mesh = new MeshData();
+        mesh.vertices = VERTICES;
+        mesh.texCoords = TEX_COORDS;
+        mesh.normals = NORMALS;
+        mesh.indices = INDICES;
+        mesh.lodIndices = LOD_INDICES;
+        mesh.shape = "box";
+        mesh.material = new MaterialData();
+        mesh.material.diffuseMap = "diffuse.png";
+        mesh.material.shininess = 8.0f;
+
+        MeshData plain = new MeshData();
+        plain.vertices = VERTICES;
+        plain.indices = INDICES;
+
+        ModelData model = new ModelData();
+        model.meshes = new MeshData[] { mesh, plain };
+        return model;
+    }
+
+    /**
+     * @param model Model to write
+     * @return Written model file
+     * @throws IOException If the model could not be written
+     */
+    private static ByteBuffer write(ModelData model) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ModelFile.write(model, Channels.newChannel(stream));
+        return ByteBuffer.wrap(stream.toByteArray());
+    }
+
+    /**
+     * @param values Values as array or null
+     * @param buffer Values as buffer, used if array is null
+     * @return Values as array
+     */
+    private static float[] toArray(float[] values, FloatBuffer buffer) {
+        if (values != null)
+            return values;
+        float[] result = new float[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+}
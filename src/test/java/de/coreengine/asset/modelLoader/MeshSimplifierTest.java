@@ -0,0 +1,177 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.asset.modelLoader;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the quadric error mesh simplification
+ *
+ * @author Darius Dinger
+ */
+public class MeshSimplifierTest {
+    private static final int GRID_SIZE = 9;
+
+    @Test
+    public void planarGridIsReducedWithoutChangingItsSurface() {
+        float[] vertices = createGrid(GRID_SIZE, 0.0f);
+        int[] indices = createGridIndices(GRID_SIZE);
+
+        int[] result = MeshSimplifier.simplify(indices, vertices, 0, 0.001f);
+
+        assertTrue("Planar interior vertices should be collapsed", result.length < indices.length);
+        assertEquals(0, result.length % 3);
+        assertEquals(getArea(indices, vertices), getArea(result, vertices), 0.0001f);
+        assertNoDegeneratedTriangles(result);
+    }
+
+    @Test
+    public void borderVerticesAreLocked() {
+        float[] vertices = createGrid(GRID_SIZE, 0.0f);
+        int[] indices = createGridIndices(GRID_SIZE);
+
+        Set<Integer> used = getUsedVertices(MeshSimplifier.simplify(indices, vertices, 0, 0.001f));
+        for (int i = 0; i < GRID_SIZE; i++) {
+            assertTrue(used.contains(i));
+            assertTrue(used.contains((GRID_SIZE - 1) * GRID_SIZE + i));
+            assertTrue(used.contains(i * GRID_SIZE));
+            assertTrue(used.contains(i * GRID_SIZE + GRID_SIZE - 1));
+        }
+    }
+
+    @Test
+    public void featureAboveMaxErrorIsKept() {
+        float[] vertices = createGrid(GRID_SIZE, 1.0f);
+        int[] indices = createGridIndices(GRID_SIZE);
+        int peak = GRID_SIZE * GRID_SIZE / 2;
+
+        int[] result = MeshSimplifier.simplify(indices, vertices, 0, 0.01f);
+
+        assertTrue(result.length < indices.length);
+        assertTrue("Peak exceeds the max error and must not be removed", getUsedVertices(result).contains(peak));
+        assertNoDegeneratedTriangles(result);
+    }
+
+    @Test
+    public void closedMeshWithinMaxErrorIsUnchanged() {
+        float[] vertices = { 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1 };
+        int[] indices = { 0, 2, 1, 0, 1, 3, 0, 3, 2, 1, 2, 3 };
+
+        assertArrayEquals(indices, MeshSimplifier.simplify(indices, vertices, 0, 0.01f));
+    }
+
+    @Test
+    public void reachedTargetCountIsUnchanged() {
+        float[] vertices = createGrid(GRID_SIZE, 0.0f);
+        int[] indices = createGridIndices(GRID_SIZE);
+
+        assertArrayEquals(indices, MeshSimplifier.simplify(indices, vertices, indices.length, 1.0f));
+    }
+
+    /**
+     * @param size   Vertices per side
+     * @param height Height of the center vertex
+     * @return Positions of a flat grid in the xy plane
+     */
+    private static float[] createGrid(int size, float height) {
+        float[] vertices = new float[size * size * 3];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = (y * size + x) * 3;
+                vertices[v] = x;
+                vertices[v + 1] = y;
+            }
+        }
+        vertices[size * size / 2 * 3 + 2] = height;
+        return vertices;
+    }
+
+    /**
+     * @param size Vertices per side
+     * @return Counter clockwise indices of the grid
+     */
+    private static int[] createGridIndices(int size) {
+        int[] indices = new int[(size - 1) * (size - 1) * 6];
+        int i = 0;
+        for (int y = 0; y < size - 1; y++) {
+            for (int x = 0; x < size - 1; x++) {
+                int v = y * size + x;
+                indices[i++] = v;
+                indices[i++] = v + 1;
+                indices[i++] = v + size + 1;
+                indices[i++] = v;
+                indices[i++] = v + size + 1;
+                indices[i++] = v + size;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * @param indices  Indices of the mesh
+     * @param vertices Vertex positions
+     * @return Signed area of the mesh projected onto the xy plane
+     */
+    private static float getArea(int[] indices, float[] vertices) {
+        float area = 0.0f;
+        for (int t = 0; t < indices.length; t += 3) {
+            int a = indices[t] * 3, b = indices[t + 1] * 3, c = indices[t + 2] * 3;
+            area += ((vertices[b] - vertices[a]) * (vertices[c + 1] - vertices[a + 1])
+                    - (vertices[c] - vertices[a]) * (vertices[b + 1] - vertices[a + 1])) * 0.5f;
+        }
+        return area;
+    }
+
+    /**
+     * @param indices Indices of the mesh
+     * @return Vertices referenced by the indices
+     */
+    private static Set<Integer> getUsedVertices(int[] indices) {
+        Set<Integer> used = new HashSet<>();
+        for (int index : indices)
+            used.add(index);
+        return used;
+    }
+
+    /**
+     * @param indices Indices of the mesh
+     */
+    private static void assertNoDegeneratedTriangles(int[] indices) {
+        for (int t = 0; t < indices.length; t += 3)
+            assertTrue(indices[t] != indices[t + 1] && indices[t + 1] != indices[t + 2]
+                    && indices[t + 2] != indices[t]);
+    }
+}
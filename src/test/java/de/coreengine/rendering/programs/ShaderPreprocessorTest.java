@@ -0,0 +1,97 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.rendering.programs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests for the include, define and line directive output of the shader
+ * preprocessor
+ *
+ * @author Darius Dinger
+ */
+public class ShaderPreprocessorTest {
+
+    @Test
+    public void definesAreInjectedAfterVersion() {
+        String[] code = { "#version 330\n", "void main() {}\n" };
+
+        assertArrayEquals(new String[] { "#version 330\n", "#define SHADOWS\n", "#define FOG\n", "#line 2 0\n",
+                "void main() {}\n" }, ShaderPreprocessor.process(code, "SHADOWS", "FOG"));
+    }
+
+    @Test
+    public void definesAreInjectedAtTopWithoutVersion() {
+        String[] code = { "void main() {}\n" };
+
+        assertArrayEquals(new String[] { "#define FOG\n", "#line 1 0\n", "void main() {}\n" },
+                ShaderPreprocessor.process(code, "FOG"));
+    }
+
+    @Test
+    public void sourceWithoutDefinesIsUnchanged() {
+        String[] code = { "#version 330\n", "void main() {}\n" };
+
+        assertArrayEquals(code, ShaderPreprocessor.process(code));
+    }
+
+    @Test
+    public void nestedIncludesGetOwnSourceStrings() {
+        String[] code = { "#version 330\n", "#include \"test/first.glsl\"\n", "void main() {}\n" };
+
+        assertArrayEquals(new String[] { "#version 330\n", "#line 1 1\n", "#line 1 2\n",
+                "float second() { return 1.0; }\n", "\n#line 2 1\n", "float first() { return second(); }\n",
+                "\n#line 3 0\n", "void main() {}\n" }, ShaderPreprocessor.process(code));
+    }
+
+    @Test
+    public void filesAreIncludedOnce() {
+        String[] code = { "#include \"test/second.glsl\"\n", "#include \"test/second.glsl\"\n",
+                "void main() {}\n" };
+
+        assertArrayEquals(new String[] { "#line 1 1\n", "float second() { return 1.0; }\n", "\n#line 2 0\n",
+                "void main() {}\n" }, ShaderPreprocessor.process(code));
+    }
+
+    @Test
+    public void missingIncludeIsSkipped() {
+        String[] code = { "#include \"test/missing.glsl\"\n", "void main() {}\n" };
+
+        assertArrayEquals(new String[] { "void main() {}\n" }, ShaderPreprocessor.process(code));
+    }
+
+    @Test
+    public void definesAreSelectedByFeatureBits() {
+        assertArrayEquals(new String[] { "SHADOWS", "CLIP" },
+                ShaderPreprocessor.getDefines(0b101, "SHADOWS", "FOG", "CLIP"));
+        assertArrayEquals(new String[0], ShaderPreprocessor.getDefines(0, "SHADOWS"));
+    }
+}
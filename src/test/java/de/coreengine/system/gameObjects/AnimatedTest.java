@@ -0,0 +1,71 @@
+/*
+ * BSD 2-Clause License
+ *
+ * Copyright (c) 2019, Suuirad
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.coreengine.system.gameObjects;
+
+import de.coreengine.rendering.renderable.AnimatedEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for animated game objects, whose model is still loading
+ *
+ * @author Darius Dinger
+ */
+public class AnimatedTest {
+
+    @Test
+    public void entityWithPendingModelHasNoSkeleton() {
+        AnimatedEntity entity = new AnimatedEntity();
+        entity.setModel("pending/walker.cea");
+        entity.setBakedAnimation("walk", 0.0f);
+
+        assertNull(entity.getSkeleton());
+        assertNull(entity.getBakedAnimation());
+    }
+
+    @Test
+    public void updateWithPendingModelIsSkipped() {
+        AnimatedEntity entity = new AnimatedEntity();
+        entity.setModel("pending/runner.cea");
+
+        Animated animated = new Animated();
+        animated.setAnimatedEntity(entity);
+        assertFalse(animated.setAnimation("run"));
+        assertTrue(animated.getAnimations().isEmpty());
+
+        animated.play();
+        animated.onUpdate();
+        animated.setCurrentTime(0.5f);
+        animated.stop();
+        assertNull(entity.getSkeleton());
+    }
+}
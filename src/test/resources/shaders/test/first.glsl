@@ -0,0 +1,2 @@
+#include "test/second.glsl"
+float first() { return second(); }
@@ -0,0 +1 @@
+float second() { return 1.0; }